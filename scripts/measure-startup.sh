@@ -0,0 +1,72 @@
+#!/usr/bin/env bash
+# Measures startup time and first-request latency for each startup mode.
+#
+# Usage: scripts/measure-startup.sh <jvm|cds|native> [runs]
+#
+# Needs the usual environment (DATABASE_URL, DATABASE_USERNAME, DATABASE_PASSWORD,
+# DATABASE_DIALECT, JWT_TOKEN, MAILJET_*) and a reachable database. Build first:
+#   jvm / cds: ./mvnw clean package -DskipTests
+#   native:    ./mvnw -Pnative native:compile -DskipTests
+#
+# Reports per run: Spring's "Started ... in N seconds", the time from launch until
+# /actuator/health/readiness reports UP (after the startup warm-up), and the latency of the first
+# and second redirect lookups once ready (GET /<unknown code> -> 404 runs the whole filter chain
+# and one query).
+set -euo pipefail
+
+MODE="${1:?usage: $0 <jvm|cds|native> [runs]}"
+RUNS="${2:-5}"
+PORT="${SERVER_PORT:-8089}"
+JAR="$(ls target/*.jar | grep -v '\.original$' | head -n 1)"
+CDS_DIR="target/cds"
+LOG="$(mktemp)"
+
+case "$MODE" in
+  jvm)
+    CMD=(java -jar "$JAR")
+    ;;
+  cds)
+    if [ ! -f "$CDS_DIR/app.jsa" ]; then
+      rm -rf "$CDS_DIR"
+      java -Djarmode=tools -jar "$JAR" extract --destination "$CDS_DIR"
+      (cd "$CDS_DIR" && java -XX:ArchiveClassesAtExit=app.jsa -Dspring.context.exit=onRefresh -jar app.jar)
+    fi
+    CMD=(java -XX:SharedArchiveFile="$CDS_DIR/app.jsa" -jar "$CDS_DIR/app.jar")
+    ;;
+  native)
+    CMD=(target/url-shortner-sb)
+    ;;
+  *)
+    echo "unknown mode: $MODE" >&2
+    exit 1
+    ;;
+esac
+
+echo "mode=$MODE runs=$RUNS"
+for run in $(seq 1 "$RUNS"); do
+  LAUNCHED="$(date +%s.%N)"
+  "${CMD[@]}" --server.port="$PORT" > "$LOG" 2>&1 &
+  PID=$!
+  until grep -q "Started UrlShortnerSbApplication" "$LOG"; do
+    if ! kill -0 "$PID" 2>/dev/null; then
+      echo "application exited, see $LOG" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+  STARTED="$(grep -o 'Started UrlShortnerSbApplication in [0-9.]* seconds' "$LOG" | grep -o '[0-9.]*')"
+  until curl -s "http://localhost:$PORT/actuator/health/readiness" | grep -q '"status":"UP"'; do
+    if ! kill -0 "$PID" 2>/dev/null; then
+      echo "application exited, see $LOG" >&2
+      exit 1
+    fi
+    sleep 0.05
+  done
+  READY="$(awk -v from="$LAUNCHED" -v to="$(date +%s.%N)" 'BEGIN { printf "%.3f", to - from }')"
+  FIRST="$(curl -s -o /dev/null -w '%{time_total}' "http://localhost:$PORT/zzzzzzzz")"
+  SECOND="$(curl -s -o /dev/null -w '%{time_total}' "http://localhost:$PORT/zzzzzzzy")"
+  echo "run=$run startup_s=$STARTED ready_s=$READY first_request_s=$FIRST second_request_s=$SECOND"
+  kill "$PID"
+  wait "$PID" 2>/dev/null || true
+done
+rm -f "$LOG"
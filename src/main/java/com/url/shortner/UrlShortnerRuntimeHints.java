@@ -0,0 +1,97 @@
+package com.url.shortner;
+
+import com.url.shortner.dtos.ChangeFeedDTO;
+import com.url.shortner.dtos.ClickBreakdownDTO;
+import com.url.shortner.dtos.ClickEventDTO;
+import com.url.shortner.dtos.CreateUrlRequest;
+import com.url.shortner.dtos.EdgeMappingDTO;
+import com.url.shortner.dtos.EdgeResolveRequest;
+import com.url.shortner.dtos.LoginRequest;
+import com.url.shortner.dtos.MappingChangeDTO;
+import com.url.shortner.dtos.RegistrationRequest;
+import com.url.shortner.dtos.UrlMappingDTO;
+import com.url.shortner.dtos.UserDTO;
+import com.url.shortner.models.AccountPurgeJob;
+import com.url.shortner.models.ClickEvent;
+import com.url.shortner.models.DeviceAccess;
+import com.url.shortner.models.EmailOutboxMessage;
+import com.url.shortner.models.UrlMapping;
+import com.url.shortner.models.UrlMappingChange;
+import com.url.shortner.models.User;
+import com.url.shortner.repository.ClickEventRepository;
+import com.url.shortner.repository.UrlMappingRepository;
+import com.url.shortner.security.jwt.VerifiedJwt;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+import java.util.List;
+
+/**
+ * UrlShortnerRuntimeHints - Reflection and resource hints for the native image (./mvnw -Pnative native:compile)
+ *
+ * Spring AOT covers beans, repositories and controller signatures on its own; this adds what it
+ * cannot see:
+ * - Lombok entities and DTOs: accessors only exist after annotation processing and are reached
+ *   by Hibernate and Jackson through reflection (entities also come back from some endpoints)
+ * - JJWT: loads its implementation classes by name (Classes.newInstance) and its JSON
+ *   serializer through ServiceLoader
+ * - Mailjet: its OkHttp client reads the public suffix list from the classpath
+ * - SQL scripts read at runtime (sharded deployments)
+ */
+public class UrlShortnerRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final List<Class<?>> REFLECTIVE_TYPES = List.of(
+            User.class, UrlMapping.class, ClickEvent.class, DeviceAccess.class,
+            UrlMappingChange.class, UrlMappingChange.Type.class,
+            AccountPurgeJob.class, AccountPurgeJob.Status.class,
+            EmailOutboxMessage.class, EmailOutboxMessage.Status.class,
+            UrlMappingDTO.class, ClickEventDTO.class, CreateUrlRequest.class,
+            LoginRequest.class, RegistrationRequest.class, UserDTO.class,
+            ClickBreakdownDTO.class, ChangeFeedDTO.class, MappingChangeDTO.class,
+            EdgeMappingDTO.class, EdgeResolveRequest.class,
+            VerifiedJwt.class, UrlMappingRepository.UrlExpiry.class, UrlMappingRepository.ResolvedMapping.class,
+            ClickEventRepository.DimensionCount.class);
+
+    private static final List<String> JJWT_TYPES = List.of(
+            "io.jsonwebtoken.impl.DefaultJwtBuilder",
+            "io.jsonwebtoken.impl.DefaultJwtParserBuilder",
+            "io.jsonwebtoken.impl.DefaultClaimsBuilder",
+            "io.jsonwebtoken.impl.io.StandardCompressionAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardSecureDigestAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardEncryptionAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardKeyOperations",
+            "io.jsonwebtoken.impl.security.StandardHashAlgorithms",
+            "io.jsonwebtoken.impl.security.StandardCurves",
+            "io.jsonwebtoken.impl.security.KeysBridge",
+            "io.jsonwebtoken.impl.security.JwksBridge",
+            "io.jsonwebtoken.impl.security.DefaultDynamicJwkBuilder",
+            "io.jsonwebtoken.impl.security.DefaultJwkParserBuilder",
+            "io.jsonwebtoken.impl.security.DefaultJwkSetBuilder",
+            "io.jsonwebtoken.impl.security.DefaultJwkSetParserBuilder",
+            "io.jsonwebtoken.impl.security.DefaultKeyOperationBuilder",
+            "io.jsonwebtoken.impl.security.DefaultKeyOperationPolicyBuilder",
+            "io.jsonwebtoken.jackson.io.JacksonSerializer",
+            "io.jsonwebtoken.jackson.io.JacksonDeserializer");
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        for (Class<?> type : REFLECTIVE_TYPES) {
+            hints.reflection().registerType(type,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_DECLARED_METHODS,
+                    MemberCategory.DECLARED_FIELDS);
+        }
+        for (String type : JJWT_TYPES) {
+            hints.reflection().registerType(TypeReference.of(type),
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.INVOKE_PUBLIC_METHODS,
+                    MemberCategory.DECLARED_FIELDS);
+        }
+        hints.resources().registerPattern("META-INF/services/io.jsonwebtoken.*");
+        hints.resources().registerPattern("okhttp3/internal/publicsuffix/*");
+        hints.resources().registerPattern("db/shard-migration/*.sql");
+    }
+}
@@ -2,10 +2,12 @@ package com.url.shortner;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableScheduling
+@ImportRuntimeHints(UrlShortnerRuntimeHints.class)
 public class UrlShortnerSbApplication {
 
     public static void main(String[] args) {
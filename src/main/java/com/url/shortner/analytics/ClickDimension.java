@@ -0,0 +1,21 @@
+package com.url.shortner.analytics;
+
+/**
+ * Click breakdown dimensions - the kind column of the click_dimension dictionary
+ */
+public enum ClickDimension {
+    BROWSER("browser"),
+    OS("os"),
+    DEVICE("device"),
+    REFERRER("referrer");
+
+    private final String kind;
+
+    ClickDimension(String kind) {
+        this.kind = kind;
+    }
+
+    public String kind() {
+        return kind;
+    }
+}
@@ -0,0 +1,164 @@
+package com.url.shortner.analytics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.dtos.ClickBreakdownDTO;
+import com.url.shortner.repository.ClickEventRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ClickDimensionDictionary - Integer ids for breakdown values (browser families, OS families,
+ * device classes, referring hosts)
+ *
+ * click_event stores these ids instead of strings. The dictionary table lives on shard 0 (next
+ * to users), so ids are the same on every shard and per-shard breakdown counts can be merged
+ * before they are decoded. Both directions are cached; entries never change once written.
+ *
+ * Referring hosts come from the Referer header, so any page can mint new ones. Once
+ * click-enrichment.referrer.max-labels hosts are known, new hosts are recorded as Other. Nodes
+ * check the limit independently, so concurrent first uses can overshoot it slightly.
+ */
+@Component
+public class ClickDimensionDictionary {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ShardRouter shardRouter;
+    private final Cache<String, Integer> ids;
+    private final Cache<Integer, String> values;
+    private final int maxReferrers;
+    // Labels are never removed, so once the limit is reached it stays reached
+    private volatile boolean referrersFull;
+
+    public ClickDimensionDictionary(
+            JdbcTemplate jdbcTemplate,
+            ShardRouter shardRouter,
+            @Value("${click-enrichment.dictionary-cache.max-size:50000}") long maxSize,
+            @Value("${click-enrichment.referrer.max-labels:10000}") int maxReferrers) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shardRouter = shardRouter;
+        this.maxReferrers = maxReferrers;
+        this.ids = Caffeine.newBuilder().maximumSize(maxSize).build();
+        this.values = Caffeine.newBuilder().maximumSize(maxSize).build();
+    }
+
+    /**
+     * Id of the value, added to the dictionary on first use (a referring host past the limit gets Other's id)
+     */
+    public int idFor(ClickDimension dimension, String value) {
+        return ids.get(dimension.kind() + '\u0000' + value, key -> load(dimension.kind(), value));
+    }
+
+    /**
+     * Decodes merged per-dimension counts into the breakdown response
+     */
+    public ClickBreakdownDTO breakdown(List<ClickEventRepository.DimensionCount> rows) {
+        Map<Integer, Long> browsers = new HashMap<>();
+        Map<Integer, Long> operatingSystems = new HashMap<>();
+        Map<Integer, Long> devices = new HashMap<>();
+        Map<Integer, Long> referrers = new HashMap<>();
+        for (ClickEventRepository.DimensionCount row : rows) {
+            long clicks = row.getClicks() != null ? row.getClicks() : 0L;
+            browsers.merge(keyOf(row.getBrowserId()), clicks, Long::sum);
+            operatingSystems.merge(keyOf(row.getOsId()), clicks, Long::sum);
+            devices.merge(keyOf(row.getDeviceClassId()), clicks, Long::sum);
+            referrers.merge(keyOf(row.getReferrerId()), clicks, Long::sum);
+        }
+
+        Set<Integer> used = new HashSet<>();
+        used.addAll(browsers.keySet());
+        used.addAll(operatingSystems.keySet());
+        used.addAll(devices.keySet());
+        used.addAll(referrers.keySet());
+        used.remove(0);
+        Map<Integer, String> names = used.isEmpty() ? Map.of() : values.getAll(used, this::loadValues);
+
+        ClickBreakdownDTO breakdown = new ClickBreakdownDTO();
+        breakdown.setBrowsers(decode(browsers, names));
+        breakdown.setOperatingSystems(decode(operatingSystems, names));
+        breakdown.setDevices(decode(devices, names));
+        breakdown.setReferrers(decode(referrers, names));
+        return breakdown;
+    }
+
+    // 0 stands for "not enriched" - dictionary ids start at 1
+    private static int keyOf(Integer id) {
+        return id != null ? id : 0;
+    }
+
+    private static Map<String, Long> decode(Map<Integer, Long> counts, Map<Integer, String> names) {
+        Map<String, Long> decoded = new HashMap<>();
+        counts.forEach((id, clicks) -> decoded.merge(names.getOrDefault(id, UserAgentParser.UNKNOWN), clicks, Long::sum));
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        decoded.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    // On shard 0; known values are read first, so only new referring hosts are checked against the limit
+    private int load(String kind, String value) {
+        Integer existing = shardRouter.onShard(0, () -> find(kind, value));
+        if (existing != null) {
+            values.put(existing, value);
+            return existing;
+        }
+        String label = ClickDimension.REFERRER.kind().equals(kind) && !UserAgentParser.OTHER.equals(value)
+                && !referrerFits() ? UserAgentParser.OTHER : value;
+        int id = shardRouter.onShard(0, () -> insert(kind, label));
+        values.put(id, label);
+        return id;
+    }
+
+    private boolean referrerFits() {
+        if (referrersFull) {
+            return false;
+        }
+        Long labels = shardRouter.onShard(0, () -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM click_dimension WHERE kind = ?", Long.class, ClickDimension.REFERRER.kind()));
+        if (labels != null && labels >= maxReferrers) {
+            referrersFull = true;
+            return false;
+        }
+        return true;
+    }
+
+    private Integer find(String kind, String label) {
+        List<Integer> found = jdbcTemplate.queryForList("SELECT id FROM click_dimension WHERE kind = ? AND label = ?",
+                Integer.class, kind, label);
+        return found.isEmpty() ? null : found.getFirst();
+    }
+
+    // Insert-or-read; concurrent first uses of a value settle on the same row
+    private int insert(String kind, String label) {
+        jdbcTemplate.update("INSERT INTO click_dimension (kind, label) VALUES (?, ?) ON CONFLICT DO NOTHING", kind, label);
+        return find(kind, label);
+    }
+
+    private Map<Integer, String> loadValues(Set<? extends Integer> missing) {
+        if (missing.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        String placeholders = String.join(",", Collections.nCopies(missing.size(), "?"));
+        Map<Integer, String> loaded = new HashMap<>();
+        shardRouter.onShard(0, () -> {
+            jdbcTemplate.query("SELECT id, label FROM click_dimension WHERE id IN (" + placeholders + ")",
+                    rs -> {
+                        loaded.put(rs.getInt(1), rs.getString(2));
+                    },
+                    missing.toArray());
+            return null;
+        });
+        return loaded;
+    }
+}
@@ -0,0 +1,152 @@
+package com.url.shortner.analytics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.service.ContentChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ClickEnrichmentService - Fills in browser, OS, device class and referrer of recorded clicks
+ *
+ * The redirect thread only hands the raw User-Agent and Referer to a bounded queue after its
+ * transaction commits. A single daemon thread drains the queue in batches:
+ * - User-Agents are parsed through a cache keyed by the UA string (few distinct agents in practice)
+ * - values are encoded through ClickDimensionDictionary
+ * - click_event rows get the ids with one batched UPDATE per shard
+ * - the owners' and links' dashboard versions are bumped so ETags pick up the new breakdowns
+ *
+ * When the queue is full the click is still counted, it just stays "Unknown" in breakdowns
+ * (click_enrichment.dropped).
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "click-enrichment.enabled", havingValue = "true", matchIfMissing = true)
+public class ClickEnrichmentService {
+
+    private static final String UPDATE_CLICK =
+            "UPDATE click_event SET browser_id = ?, os_id = ?, device_class_id = ?, referrer_id = ? WHERE id = ?";
+
+    private final ClickDimensionDictionary dictionary;
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BlockingQueue<ClickRecordedEvent> queue;
+    private final int batchSize;
+    private final Cache<String, ParsedUserAgent> userAgents;
+    private final Counter enriched;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public ClickEnrichmentService(
+            ClickDimensionDictionary dictionary,
+            ShardRouter shardRouter,
+            JdbcTemplate jdbcTemplate,
+            ApplicationEventPublisher eventPublisher,
+            MeterRegistry meterRegistry,
+            @Value("${click-enrichment.queue-capacity:10000}") int queueCapacity,
+            @Value("${click-enrichment.batch-size:256}") int batchSize,
+            @Value("${click-enrichment.ua-cache.max-size:10000}") long userAgentCacheSize) {
+        this.dictionary = dictionary;
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.userAgents = Caffeine.newBuilder()
+                .maximumSize(userAgentCacheSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userAgents, "click_enrichment.user_agents");
+        this.enriched = Counter.builder("click_enrichment.enriched").register(meterRegistry);
+        this.dropped = Counter.builder("click_enrichment.dropped").register(meterRegistry);
+        this.failed = Counter.builder("click_enrichment.failed").register(meterRegistry);
+        Gauge.builder("click_enrichment.backlog", queue, BlockingQueue::size).register(meterRegistry);
+
+        this.thread = new Thread(this::run, "click-enrichment");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // Runs on the redirect thread - only an offer, no parsing
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onClickRecorded(ClickRecordedEvent event) {
+        if (!queue.offer(event)) {
+            dropped.increment();
+        }
+    }
+
+    private void run() {
+        List<ClickRecordedEvent> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                ClickRecordedEvent first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                enrich(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                failed.increment(batch.size());
+                log.warn("Click enrichment batch of {} failed: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void enrich(List<ClickRecordedEvent> batch) {
+        Map<Integer, List<Object[]>> updatesByShard = new HashMap<>();
+        Set<ContentChangedEvent> changed = new LinkedHashSet<>();
+        for (ClickRecordedEvent click : batch) {
+            String userAgent = click.userAgent() != null ? click.userAgent() : "";
+            ParsedUserAgent parsed = userAgents.get(userAgent, UserAgentParser::parse);
+            updatesByShard.computeIfAbsent(click.shard(), shard -> new ArrayList<>()).add(new Object[]{
+                    dictionary.idFor(ClickDimension.BROWSER, parsed.browser()),
+                    dictionary.idFor(ClickDimension.OS, parsed.os()),
+                    dictionary.idFor(ClickDimension.DEVICE, parsed.device()),
+                    dictionary.idFor(ClickDimension.REFERRER, UserAgentParser.referrerHost(click.referer())),
+                    click.clickEventId()});
+            changed.add(new ContentChangedEvent(click.userId(), click.shortUrl()));
+        }
+        updatesByShard.forEach((shard, updates) ->
+                shardRouter.onShard(shard, () -> jdbcTemplate.batchUpdate(UPDATE_CLICK, updates)));
+        enriched.increment(batch.size());
+        changed.forEach(eventPublisher::publishEvent);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        thread.interrupt();
+        thread.join(TimeUnit.SECONDS.toMillis(2));
+    }
+}
@@ -0,0 +1,9 @@
+package com.url.shortner.analytics;
+
+/**
+ * Published when a redirect records a click, carrying the raw request headers for
+ * ClickEnrichmentService; shard is the one the click_event row was written to
+ */
+public record ClickRecordedEvent(Long clickEventId, int shard, Long userId, String shortUrl,
+                                 String userAgent, String referer) {
+}
@@ -0,0 +1,8 @@
+package com.url.shortner.analytics;
+
+/**
+ * Browser family, OS family and device class of a User-Agent - no versions, to keep the
+ * dictionaries small
+ */
+public record ParsedUserAgent(String browser, String os, String device) {
+}
@@ -0,0 +1,125 @@
+package com.url.shortner.analytics;
+
+import java.net.URI;
+import java.util.Locale;
+
+/**
+ * UserAgentParser - Token-based User-Agent and Referer classification
+ *
+ * Deliberately coarse: families only, checked in an order that handles the usual impersonation
+ * (Edge and Opera claim to be Chrome, Chrome claims to be Safari, everyone claims Mozilla).
+ * Callers cache the result per User-Agent string, so this runs once per distinct agent.
+ */
+public final class UserAgentParser {
+
+    public static final String UNKNOWN = "Unknown";
+    public static final String OTHER = "Other";
+    public static final String DIRECT = "(direct)";
+
+    private static final int MAX_HOST_LENGTH = 255;
+
+    private UserAgentParser() {
+    }
+
+    public static ParsedUserAgent parse(String userAgent) {
+        if (userAgent == null || userAgent.isBlank()) {
+            return new ParsedUserAgent(UNKNOWN, UNKNOWN, UNKNOWN);
+        }
+        String lower = userAgent.toLowerCase(Locale.ROOT);
+        boolean bot = lower.contains("bot") || lower.contains("crawler") || lower.contains("spider")
+                || lower.contains("slurp") || lower.contains("facebookexternalhit");
+        String os = os(userAgent);
+        return new ParsedUserAgent(bot ? "Bot" : browser(userAgent, lower), os, device(userAgent, os, bot));
+    }
+
+    /**
+     * Referring host without "www.", or (direct) when there is no usable Referer
+     */
+    public static String referrerHost(String referer) {
+        if (referer == null || referer.isBlank()) {
+            return DIRECT;
+        }
+        String host;
+        try {
+            host = URI.create(referer.trim()).getHost();
+        } catch (IllegalArgumentException e) {
+            return OTHER;
+        }
+        if (host == null || host.isEmpty()) {
+            return OTHER;
+        }
+        host = host.toLowerCase(Locale.ROOT);
+        if (host.startsWith("www.")) {
+            host = host.substring(4);
+        }
+        return host.length() > MAX_HOST_LENGTH ? host.substring(0, MAX_HOST_LENGTH) : host;
+    }
+
+    private static String browser(String userAgent, String lower) {
+        if (userAgent.contains("Edg/") || userAgent.contains("EdgA/") || userAgent.contains("EdgiOS/")) {
+            return "Edge";
+        }
+        if (userAgent.contains("OPR/") || userAgent.contains("Opera")) {
+            return "Opera";
+        }
+        if (userAgent.contains("SamsungBrowser/")) {
+            return "Samsung Internet";
+        }
+        if (userAgent.contains("Firefox/") || userAgent.contains("FxiOS/")) {
+            return "Firefox";
+        }
+        if (userAgent.contains("Chrome/") || userAgent.contains("CriOS/")) {
+            return "Chrome";
+        }
+        if (userAgent.contains("Safari/") && userAgent.contains("Version/")) {
+            return "Safari";
+        }
+        if (userAgent.contains("MSIE ") || userAgent.contains("Trident/")) {
+            return "Internet Explorer";
+        }
+        if (lower.startsWith("curl/") || lower.startsWith("wget/") || lower.startsWith("python")
+                || lower.startsWith("okhttp") || lower.startsWith("java/") || lower.startsWith("go-http-client")) {
+            return "HTTP Library";
+        }
+        return OTHER;
+    }
+
+    private static String os(String userAgent) {
+        if (userAgent.contains("Windows")) {
+            return "Windows";
+        }
+        if (userAgent.contains("iPhone") || userAgent.contains("iPad") || userAgent.contains("iPod")) {
+            return "iOS";
+        }
+        if (userAgent.contains("Android")) {
+            return "Android";
+        }
+        if (userAgent.contains("CrOS")) {
+            return "ChromeOS";
+        }
+        if (userAgent.contains("Mac OS X") || userAgent.contains("Macintosh")) {
+            return "macOS";
+        }
+        if (userAgent.contains("Linux")) {
+            return "Linux";
+        }
+        return OTHER;
+    }
+
+    private static String device(String userAgent, String os, boolean bot) {
+        if (bot) {
+            return "Bot";
+        }
+        if (userAgent.contains("iPad") || userAgent.contains("Tablet")
+                || ("Android".equals(os) && !userAgent.contains("Mobile"))) {
+            return "Tablet";
+        }
+        if (userAgent.contains("Mobi") || userAgent.contains("iPhone") || userAgent.contains("iPod")) {
+            return "Mobile";
+        }
+        if ("Windows".equals(os) || "macOS".equals(os) || "Linux".equals(os) || "ChromeOS".equals(os)) {
+            return "Desktop";
+        }
+        return OTHER;
+    }
+}
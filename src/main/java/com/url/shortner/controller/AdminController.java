@@ -0,0 +1,46 @@
+package com.url.shortner.controller;
+
+import com.url.shortner.service.UserService;
+import lombok.AllArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * AdminController - Account administration (ROLE_ADMIN only)
+ *
+ * - PUT /api/admin/users/{username}/role - Set a user's role, e.g. ROLE_EDGE for an edge worker account
+ *
+ * The first admin is promoted in the database (see README "Admin"); later ones through this endpoint.
+ */
+@RestController
+@RequestMapping("/api/admin")
+@AllArgsConstructor
+public class AdminController {
+    private UserService userService;
+
+    @PutMapping("/users/{username}/role")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> changeUserRole(@PathVariable String username, @RequestBody Map<String, String> request){
+        String role = request.get("role");
+        if (role == null || role.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("message", "role is required"));
+        }
+        try {
+            userService.changeUserRole(username, role);
+            return ResponseEntity.ok(Map.of("username", username, "role", role));
+        } catch (UsernameNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+}
@@ -3,9 +3,14 @@ package com.url.shortner.controller;
 import com.url.shortner.dtos.LoginRequest;
 import com.url.shortner.dtos.RegistrationRequest;
 import com.url.shortner.dtos.UserDTO;
+import com.url.shortner.models.AccountPurgeJob;
 import com.url.shortner.models.User;
+import com.url.shortner.security.ClientIpResolver;
+import com.url.shortner.service.LoginRejectedException;
 import com.url.shortner.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -26,7 +31,7 @@ import java.util.Map;
  * - GET /api/auth/profile - Get user profile
  * - POST /api/auth/account/schedule-deletion - Schedule account deletion
  * - POST /api/auth/account/cancel-deletion - Cancel scheduled deletion
- * - DELETE /api/auth/account - Immediately delete account
+ * - DELETE /api/auth/account - Immediately delete account (purged in the background)
  */
 @RestController
 @RequestMapping("/api/auth")
@@ -34,14 +39,20 @@ import java.util.Map;
 public class AuthController {
 
     private UserService userService;
+    private ClientIpResolver clientIpResolver;
 
     /**
      * Login endpoint - Returns JWT token if credentials are valid and email is verified
+     * Returns 429 when the account/IP is throttled and 503 when the login pipeline is saturated
      */
     @PostMapping("/public/login")
-    public ResponseEntity<?> loginUser(@RequestBody LoginRequest loginRequest) {
+    public ResponseEntity<?> loginUser(@RequestBody LoginRequest loginRequest, HttpServletRequest request) {
         try {
-            return ResponseEntity.ok(userService.authenticateUser(loginRequest));
+            return ResponseEntity.ok(userService.authenticateUser(loginRequest, clientIpResolver.resolve(request)));
+        } catch (LoginRejectedException e) {
+            return ResponseEntity.status(e.getStatus())
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(Map.of("message", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         }
@@ -151,11 +162,15 @@ public class AuthController {
 
     /**
      * Immediately delete account (skips grace period)
+     * The account is locked right away and its data is purged in the background
      */
     @DeleteMapping("/account")
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<?> deleteUserAccount(Principal principal) {
-        userService.deleteUserAccount(principal.getName());
-        return ResponseEntity.ok(Map.of("message", "Account deleted successfully"));
+        AccountPurgeJob job = userService.deleteUserAccount(principal.getName());
+        return ResponseEntity.accepted().body(Map.of(
+            "message", "Account deleted successfully. Your data is being removed in the background.",
+            "purgeStatus", job.getStatus().name()
+        ));
     }
 }
@@ -0,0 +1,65 @@
+package com.url.shortner.controller;
+
+import com.url.shortner.dtos.ChangeFeedDTO;
+import com.url.shortner.dtos.EdgeMappingDTO;
+import com.url.shortner.dtos.EdgeResolveRequest;
+import com.url.shortner.service.ChangeFeedBusyException;
+import com.url.shortner.service.EdgeResolveService;
+import com.url.shortner.service.UrlMappingChangeFeed;
+import lombok.AllArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.Map;
+
+// Edge workers log in with an account that has ROLE_EDGE (granted through PUT /api/admin/users/{username}/role)
+@RestController
+@RequestMapping("/api/edge")
+@AllArgsConstructor
+public class EdgeController {
+    private EdgeResolveService edgeResolveService;
+    private UrlMappingChangeFeed urlMappingChangeFeed;
+
+    @PostMapping("/resolve")
+    @PreAuthorize("hasAnyRole('EDGE', 'ADMIN')")
+    public ResponseEntity<?> resolve(@RequestBody EdgeResolveRequest request){
+        if (request.getCodes() == null || request.getCodes().isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "codes must not be empty"));
+        }
+        if (request.getCodes().size() > edgeResolveService.getMaxCodes()) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "At most " + edgeResolveService.getMaxCodes() + " codes per request"));
+        }
+        Map<String, EdgeMappingDTO> entries = edgeResolveService.resolve(request.getCodes());
+        // Each entry carries its own ttl; the batch itself must not be cached in between
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(entries);
+    }
+
+    // Incremental sync: changes after the cursor; waitMs > 0 long-polls until there are any
+    @GetMapping("/changes")
+    @PreAuthorize("hasAnyRole('EDGE', 'ADMIN')")
+    public DeferredResult<ChangeFeedDTO> changes(@RequestParam(value = "since", required = false) String since,
+                                                 @RequestParam(value = "limit", defaultValue = "500") int limit,
+                                                 @RequestParam(value = "waitMs", defaultValue = "0") long waitMs){
+        return urlMappingChangeFeed.changesSince(since, limit, waitMs);
+    }
+
+    // Long poll limit reached - an empty page would have the client ask again right away
+    @ExceptionHandler(ChangeFeedBusyException.class)
+    public ResponseEntity<?> changeFeedBusy(ChangeFeedBusyException e){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(Map.of("message", e.getMessage()));
+    }
+}
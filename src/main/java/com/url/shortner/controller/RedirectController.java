@@ -1,7 +1,8 @@
 package com.url.shortner.controller;
 
 import com.url.shortner.models.UrlMapping;
-import com.url.shortner.service.UrlMappingService;
+import com.url.shortner.security.ClientIpResolver;
+import com.url.shortner.service.ShardedUrlMappingService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.AllArgsConstructor;
 import org.springframework.http.HttpHeaders;
@@ -17,14 +18,18 @@ import java.util.Base64;
 @RestController
 @AllArgsConstructor
 public class RedirectController {
-    private UrlMappingService urlMappingService;
+    private ShardedUrlMappingService urlMappingService;
+    private ClientIpResolver clientIpResolver;
 
     @GetMapping("/{shortUrl}")
     public ResponseEntity<Void> redirect(@PathVariable String shortUrl, HttpServletRequest request){
         // Generate device fingerprint from IP + User-Agent
-        String deviceFingerprint = generateDeviceFingerprint(request);
-        
-        UrlMapping urlMapping = urlMappingService.getOriginalUrl(shortUrl, deviceFingerprint);
+        String userAgent = request.getHeader(HttpHeaders.USER_AGENT);
+        String deviceFingerprint = generateDeviceFingerprint(request, userAgent);
+
+        // Raw headers only - parsing happens off the request thread (ClickEnrichmentService)
+        UrlMapping urlMapping = urlMappingService.getOriginalUrl(shortUrl, deviceFingerprint,
+                userAgent, request.getHeader(HttpHeaders.REFERER));
         if(urlMapping != null){
             HttpHeaders httpHeaders = new HttpHeaders();
             httpHeaders.add("Location", urlMapping.getOriginalUrl());
@@ -34,9 +39,8 @@ public class RedirectController {
         }
     }
     
-    private String generateDeviceFingerprint(HttpServletRequest request) {
-        String ip = getClientIP(request);
-        String userAgent = request.getHeader("User-Agent");
+    private String generateDeviceFingerprint(HttpServletRequest request, String userAgent) {
+        String ip = clientIpResolver.resolve(request);
         String combined = ip + "|" + (userAgent != null ? userAgent : "");
         
         try {
@@ -48,16 +52,4 @@ public class RedirectController {
             return String.valueOf(combined.hashCode());
         }
     }
-    
-    private String getClientIP(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        String xRealIP = request.getHeader("X-Real-IP");
-        if (xRealIP != null && !xRealIP.isEmpty()) {
-            return xRealIP;
-        }
-        return request.getRemoteAddr();
-    }
 }
@@ -1,17 +1,20 @@
 package com.url.shortner.controller;
 
+import com.url.shortner.dtos.ClickBreakdownDTO;
 import com.url.shortner.dtos.ClickEventDTO;
 import com.url.shortner.dtos.CreateUrlRequest;
 import com.url.shortner.dtos.UrlMappingDTO;
-import com.url.shortner.models.User;
-import com.url.shortner.service.UrlMappingService;
-import com.url.shortner.service.UserService;
+import com.url.shortner.service.ContentVersionService;
+import com.url.shortner.service.ShardedUrlMappingService;
+import com.url.shortner.service.UserDetailsImpl;
 import lombok.AllArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
-import java.security.Principal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -22,31 +25,37 @@ import java.util.Map;
 @RequestMapping("/api/urls")
 @AllArgsConstructor
 public class UrlMappingController {
-    private UrlMappingService urlMappingService;
-    private UserService userService;
+    private ShardedUrlMappingService urlMappingService;
+    private ContentVersionService contentVersionService;
+
+    // Dashboards poll these endpoints; clients must revalidate, and an unchanged version answers
+    // 304 before any query runs (WebRequest.checkNotModified sets the status and ETag)
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
 
     @PostMapping("/shorten")
     @PreAuthorize("hasRole('ROLE_USER')")
     public ResponseEntity<UrlMappingDTO> createShortUrl(@RequestBody CreateUrlRequest request,
-                                                        Principal principal){
-        User user = userService.getUserByUsername(principal.getName());
-        UrlMappingDTO urlMappingDTO = urlMappingService.createShortUrlWithRequest(request, user);
+                                                        @AuthenticationPrincipal UserDetailsImpl principal){
+        UrlMappingDTO urlMappingDTO = urlMappingService.createShortUrlWithRequest(request, principal.getId(), principal.getUsername());
         return ResponseEntity.ok(urlMappingDTO);
     }
 
     @GetMapping("/myurls")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<List<UrlMappingDTO>> getUserUrls(Principal principal){
-        User user = userService.getUserByUsername(principal.getName());
-        List<UrlMappingDTO> urls = urlMappingService.getUrlsByUser(user);
-        return ResponseEntity.ok(urls);
+    public ResponseEntity<List<UrlMappingDTO>> getUserUrls(@AuthenticationPrincipal UserDetailsImpl principal,
+                                                           WebRequest webRequest){
+        String etag = contentVersionService.userEtag(principal.getId(), "myurls");
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        List<UrlMappingDTO> urls = urlMappingService.getUrlsByUser(principal.getId(), principal.getUsername());
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(urls);
     }
 
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<?> deleteUrl(@PathVariable Long id, Principal principal){
-        User user = userService.getUserByUsername(principal.getName());
-        boolean deleted = urlMappingService.deleteUrl(id, user);
+    public ResponseEntity<?> deleteUrl(@PathVariable Long id, @AuthenticationPrincipal UserDetailsImpl principal){
+        boolean deleted = urlMappingService.deleteUrl(id, principal.getId());
         if(deleted){
             return ResponseEntity.ok(Map.of("message", "URL deleted successfully"));
         }
@@ -57,24 +66,69 @@ public class UrlMappingController {
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<List<ClickEventDTO>> getUrlAnalytics(@PathVariable String shortUrl,
                                                                @RequestParam("startDate") String startDate,
-                                                               @RequestParam("endDate") String endDate){
+                                                               @RequestParam("endDate") String endDate,
+                                                               WebRequest webRequest){
         DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
         LocalDateTime start = LocalDateTime.parse(startDate, formatter);
         LocalDateTime end = LocalDateTime.parse(endDate, formatter);
+        String etag = contentVersionService.linkEtag(shortUrl, start, end);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
         List<ClickEventDTO> clickEventDTOS = urlMappingService.getClickEventsByDate(shortUrl, start, end);
-        return ResponseEntity.ok(clickEventDTOS);
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(clickEventDTOS);
+    }
+
+    // Browser / OS / device / referrer counts for one link (ISO date-times like /analytics)
+    @GetMapping("/analytics/{shortUrl}/breakdown")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ClickBreakdownDTO> getUrlBreakdown(@PathVariable String shortUrl,
+                                                             @RequestParam("startDate") String startDate,
+                                                             @RequestParam("endDate") String endDate,
+                                                             WebRequest webRequest){
+        DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+        LocalDateTime start = LocalDateTime.parse(startDate, formatter);
+        LocalDateTime end = LocalDateTime.parse(endDate, formatter);
+        String etag = contentVersionService.linkEtag(shortUrl, "breakdown", start, end);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        ClickBreakdownDTO breakdown = urlMappingService.getClickBreakdownByDate(shortUrl, start, end);
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(breakdown);
+    }
+
+    // Same breakdown over all of the user's links (ISO dates like /totalClicks)
+    @GetMapping("/breakdown")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<ClickBreakdownDTO> getUserBreakdown(@AuthenticationPrincipal UserDetailsImpl principal,
+                                                              @RequestParam("startDate") String startDate,
+                                                              @RequestParam("endDate") String endDate,
+                                                              WebRequest webRequest){
+        DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
+        LocalDate start = LocalDate.parse(startDate, formatter);
+        LocalDate end = LocalDate.parse(endDate, formatter);
+        String etag = contentVersionService.userEtag(principal.getId(), "breakdown", start, end);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        ClickBreakdownDTO breakdown = urlMappingService.getClickBreakdownByUser(principal.getId(), start, end);
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(breakdown);
     }
 
     @GetMapping("/totalClicks")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<Map<LocalDate, Long>> getTotalClicksByDate(Principal principal,
+    public ResponseEntity<Map<LocalDate, Long>> getTotalClicksByDate(@AuthenticationPrincipal UserDetailsImpl principal,
                                                                      @RequestParam("startDate") String startDate,
-                                                                     @RequestParam("endDate") String endDate){
+                                                                     @RequestParam("endDate") String endDate,
+                                                                     WebRequest webRequest){
         DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
-        User user = userService.getUserByUsername(principal.getName());
         LocalDate start = LocalDate.parse(startDate, formatter);
         LocalDate end = LocalDate.parse(endDate, formatter);
-        Map<LocalDate, Long> totalClicks = urlMappingService.getTotalClicksByUserAndDate(user, start, end);
-        return ResponseEntity.ok(totalClicks);
+        String etag = contentVersionService.userEtag(principal.getId(), "totalClicks", start, end);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+        Map<LocalDate, Long> totalClicks = urlMappingService.getTotalClicksByUserAndDate(principal.getId(), start, end);
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(totalClicks);
     }
 }
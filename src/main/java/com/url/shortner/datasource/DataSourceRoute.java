@@ -0,0 +1,9 @@
+package com.url.shortner.datasource;
+
+/**
+ * Connection pools ReadWriteRoutingDataSource can route to
+ */
+public enum DataSourceRoute {
+    PRIMARY,
+    REPLICA
+}
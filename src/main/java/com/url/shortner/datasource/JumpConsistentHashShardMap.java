@@ -0,0 +1,59 @@
+package com.url.shortner.datasource;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JumpConsistentHashShardMap - Jump consistent hash (Lamping & Veach) over a 64-bit FNV-1a hash
+ * of the short URL
+ *
+ * Going from N to N+1 shards moves only ~1/(N+1) of the keys, and every moved key moves to the
+ * new shard - which keeps ShardRebalancer runs small. String.hashCode() is not used because
+ * the map must be stable across JVMs and releases.
+ */
+public class JumpConsistentHashShardMap implements ShardMap {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int shardCount;
+
+    public JumpConsistentHashShardMap(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.shardCount = shardCount;
+    }
+
+    @Override
+    public int shardFor(String shortUrl) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        return jump(fnv1a(shortUrl), shardCount);
+    }
+
+    @Override
+    public int shardCount() {
+        return shardCount;
+    }
+
+    static int jump(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    static long fnv1a(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= (b & 0xff);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,108 @@
+package com.url.shortner.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * ReadReplicaDataSourceConfig - Primary + read-replica pools behind a routing DataSource
+ *
+ * Enabled with datasource.replica.enabled=true; otherwise Spring Boot's single auto-configured
+ * pool is used unchanged. Both pools are Hikari (pool names "primary" / "replica", so the
+ * standard hikaricp.* metrics are tagged per route) and each also exposes
+ * datasource.pool.saturation{route} = (active + waiting threads) / max pool size.
+ *
+ * Routing happens when a transaction takes its connection, so this relies on
+ * spring.jpa.open-in-view=false: a request-scoped Hibernate session would keep the first
+ * route's connection and send a later write in the same request to the replica.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource primaryDataSource(
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password,
+            @Value("${datasource.primary.max-pool-size:10}") int maxPoolSize,
+            MeterRegistry meterRegistry) {
+        return pool("primary", url, username, password, maxPoolSize, false, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource replicaDataSource(
+            @Value("${datasource.replica.url}") String url,
+            @Value("${datasource.replica.username:${spring.datasource.username}}") String username,
+            @Value("${datasource.replica.password:${spring.datasource.password}}") String password,
+            @Value("${datasource.replica.max-pool-size:10}") int maxPoolSize,
+            MeterRegistry meterRegistry) {
+        return pool("replica", url, username, password, maxPoolSize, true, meterRegistry);
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(
+            @Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+            @Qualifier("replicaDataSource") HikariDataSource replicaDataSource,
+            @Value("${datasource.replica.max-lag-ms:5000}") long maxLagMs,
+            MeterRegistry meterRegistry) {
+        ReplicaLagMonitor monitor = new ReplicaLagMonitor(primaryDataSource, replicaDataSource, maxLagMs, meterRegistry);
+        monitor.checkLag();  // decide before the first request instead of starting on primary-only
+        return monitor;
+    }
+
+    /**
+     * The DataSource JPA and everything else uses
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(
+            @Qualifier("primaryDataSource") HikariDataSource primaryDataSource,
+            @Qualifier("replicaDataSource") HikariDataSource replicaDataSource,
+            ReplicaLagMonitor replicaLagMonitor,
+            MeterRegistry meterRegistry) {
+        ReadWriteRoutingDataSource routing =
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor, meterRegistry);
+        routing.afterPropertiesSet();
+        // Lazy: the physical connection (and so the route) is chosen at the first statement,
+        // after the transaction manager has marked the transaction read-only
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    private HikariDataSource pool(String name, String url, String username, String password,
+                                  int maxPoolSize, boolean readOnly, MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maxPoolSize);
+        config.setReadOnly(readOnly);
+        // Replica outage must not stop startup - the lag monitor keeps reads on the primary until it is back
+        config.setInitializationFailTimeout(readOnly ? -1 : 1);
+        HikariDataSource dataSource = new HikariDataSource(config);
+        Gauge.builder("datasource.pool.saturation", dataSource, ReadReplicaDataSourceConfig::saturation)
+                .tag("route", name)
+                .register(meterRegistry);
+        return dataSource;
+    }
+
+    private static double saturation(HikariDataSource dataSource) {
+        if (dataSource.getHikariPoolMXBean() == null) {
+            return 0;
+        }
+        int active = dataSource.getHikariPoolMXBean().getActiveConnections();
+        int waiting = dataSource.getHikariPoolMXBean().getThreadsAwaitingConnection();
+        return (double) (active + waiting) / dataSource.getMaximumPoolSize();
+    }
+}
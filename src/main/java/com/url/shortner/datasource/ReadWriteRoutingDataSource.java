@@ -0,0 +1,51 @@
+package com.url.shortner.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * ReadWriteRoutingDataSource - Sends read-only transactions to the replica pool
+ *
+ * A connection is routed to the replica when the current transaction is
+ * {@code @Transactional(readOnly = true)} and ReplicaLagMonitor reports the replica healthy and
+ * within the lag tolerance; everything else (writes, non-transactional calls, a lagging or
+ * unreachable replica) goes to the primary.
+ *
+ * Must sit behind a LazyConnectionDataSourceProxy so the connection is fetched after the
+ * transaction's read-only flag is set.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final ReplicaLagMonitor replicaLagMonitor;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+    private final Counter replicaFallbacks;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica,
+                                      ReplicaLagMonitor replicaLagMonitor, MeterRegistry meterRegistry) {
+        this.replicaLagMonitor = replicaLagMonitor;
+        setTargetDataSources(Map.of(DataSourceRoute.PRIMARY, primary, DataSourceRoute.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        this.primaryRoutes = Counter.builder("datasource.route.connections").tag("route", "primary").register(meterRegistry);
+        this.replicaRoutes = Counter.builder("datasource.route.connections").tag("route", "replica").register(meterRegistry);
+        this.replicaFallbacks = Counter.builder("datasource.route.replica.fallbacks").register(meterRegistry);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (replicaLagMonitor.isReplicaUsable()) {
+                replicaRoutes.increment();
+                return DataSourceRoute.REPLICA;
+            }
+            replicaFallbacks.increment();
+        }
+        primaryRoutes.increment();
+        return DataSourceRoute.PRIMARY;
+    }
+}
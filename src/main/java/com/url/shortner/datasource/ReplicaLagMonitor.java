@@ -0,0 +1,110 @@
+package com.url.shortner.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * ReplicaLagMonitor - Periodically measures how far the read replica is behind the primary
+ *
+ * Each check reads the primary's current WAL position, then the position the replica has
+ * replayed. Once the replica has replayed the position a check read, it has every transaction
+ * committed before that check started, so the lag is the time since the latest such check -
+ * 0 if it is the current one, otherwise precise to one check interval. Unlike the replica's own
+ * receive/replay positions this cannot look current while its WAL receiver is disconnected, and
+ * an idle primary keeps reporting 0. A replica that is not in recovery (e.g. a second standalone
+ * instance used for local testing) always reports 0.
+ *
+ * The replica is used only while the last check succeeded and the lag is within maxLagMs. Until
+ * it has caught up with a position from the last maxLagMs the lag is unknown (-1) and it is not used.
+ */
+@Slf4j
+public class ReplicaLagMonitor {
+
+    private static final String PRIMARY_LSN_QUERY = "SELECT pg_current_wal_lsn()::text";
+    private static final String REPLAYED_LSN_QUERY =
+            "SELECT CASE WHEN pg_is_in_recovery() THEN COALESCE(pg_last_wal_replay_lsn()::text, '0/0') END";
+
+    private final JdbcTemplate primaryJdbcTemplate;
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final long maxLagMs;
+    private volatile boolean replicaUsable = false;
+    private volatile long lagMs = -1;
+    // {check start ms, primary LSN} of the checks within maxLagMs, oldest first - guarded by this
+    private final ArrayDeque<long[]> primaryPositions = new ArrayDeque<>();
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, long maxLagMs, MeterRegistry meterRegistry) {
+        this.primaryJdbcTemplate = new JdbcTemplate(primary);
+        this.primaryJdbcTemplate.setQueryTimeout(2);
+        this.replicaJdbcTemplate = new JdbcTemplate(replica);
+        this.replicaJdbcTemplate.setQueryTimeout(2);
+        this.maxLagMs = maxLagMs;
+        Gauge.builder("datasource.replica.lag.ms", this, monitor -> monitor.lagMs).register(meterRegistry);
+        Gauge.builder("datasource.replica.usable", this, monitor -> monitor.replicaUsable ? 1 : 0).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:1000}")
+    public synchronized void checkLag() {
+        try {
+            long checkStartedMs = System.currentTimeMillis();
+            long primaryLsn = parseLsn(primaryJdbcTemplate.queryForObject(PRIMARY_LSN_QUERY, String.class));
+            String replayedLsn = replicaJdbcTemplate.queryForObject(REPLAYED_LSN_QUERY, String.class);
+            lagMs = lagMs(checkStartedMs, primaryLsn, replayedLsn != null ? parseLsn(replayedLsn) : null,
+                    System.currentTimeMillis());
+            boolean usable = lagMs >= 0 && lagMs <= maxLagMs;
+            if (usable != replicaUsable) {
+                log.warn("Read replica {} (lag {} ms, tolerance {} ms)", usable ? "back in rotation" : "lagging - reads fall back to primary", lagMs, maxLagMs);
+            }
+            replicaUsable = usable;
+        } catch (Exception e) {
+            if (replicaUsable) {
+                log.warn("Read replica unreachable - reads fall back to primary: {}", e.getMessage());
+            }
+            lagMs = -1;
+            replicaUsable = false;
+        }
+    }
+
+    /**
+     * Records this check's primary position and returns the lag, or -1 if it is unknown
+     *
+     * @param replayedLsn null when the replica is not in recovery
+     */
+    synchronized long lagMs(long checkStartedMs, long primaryLsn, Long replayedLsn, long nowMs) {
+        primaryPositions.addLast(new long[] {checkStartedMs, primaryLsn});
+        while (primaryPositions.size() > 1 && primaryPositions.peekFirst()[0] < nowMs - maxLagMs) {
+            primaryPositions.removeFirst();
+        }
+        if (replayedLsn == null || replayedLsn >= primaryLsn) {
+            return 0;
+        }
+        Iterator<long[]> newestFirst = primaryPositions.descendingIterator();
+        while (newestFirst.hasNext()) {
+            long[] position = newestFirst.next();
+            if (replayedLsn >= position[1]) {
+                return nowMs - position[0];
+            }
+        }
+        return -1;
+    }
+
+    // "16/B374D848" - high and low 32 bits in hex
+    static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public long getLagMs() {
+        return lagMs;
+    }
+}
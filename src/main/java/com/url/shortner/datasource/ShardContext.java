@@ -0,0 +1,32 @@
+package com.url.shortner.datasource;
+
+/**
+ * ShardContext - The shard the current thread's next connection is routed to
+ *
+ * Set through ShardRouter only. Without a shard set, connections go to shard 0, which also
+ * holds every unsharded table (users, jobs, outbox).
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static int current() {
+        Integer shard = CURRENT.get();
+        return shard != null ? shard : 0;
+    }
+
+    static Integer get() {
+        return CURRENT.get();
+    }
+
+    static void set(Integer shard) {
+        if (shard == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(shard);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.url.shortner.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.util.List;
+
+/**
+ * The physical pools of a sharded deployment, indexed by shard number (shard 0 = primary database)
+ */
+public record ShardDataSources(List<HikariDataSource> pools) implements AutoCloseable {
+
+    public HikariDataSource get(int shard) {
+        return pools.get(shard);
+    }
+
+    public int size() {
+        return pools.size();
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
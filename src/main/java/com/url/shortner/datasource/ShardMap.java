@@ -0,0 +1,14 @@
+package com.url.shortner.datasource;
+
+/**
+ * ShardMap - Decides which shard owns a short URL
+ *
+ * The default is JumpConsistentHashShardMap; declare another ShardMap bean to replace it
+ * (e.g. a directory-backed map). Implementations must be deterministic across nodes.
+ */
+public interface ShardMap {
+
+    int shardFor(String shortUrl);
+
+    int shardCount();
+}
@@ -0,0 +1,160 @@
+package com.url.shortner.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * ShardRebalancer - Moves url mappings (with their clicks and device accesses) to the shard
+ * that owns them under the current ShardMap
+ *
+ * Used after adding shards: deploy with the new sharding.shard-urls, set
+ * sharding.previous-shard-count to the old count (redirects fall back to the old owner until
+ * the row has moved) and sharding.rebalance.on-startup=true on one node.
+ *
+ * Each mapping is copied to its new shard in one transaction (keeping its id, children get new
+ * ids) and then deleted from the old one, so an interrupted run can simply be started again.
+ * Clicks recorded on the old shard while a mapping is being copied are lost - run it at a quiet time.
+ */
+@Slf4j
+public class ShardRebalancer {
+
+    private static final int CHILD_PAGE_SIZE = 1000;
+
+    private final ShardDataSources shardDataSources;
+    private final ShardMap shardMap;
+    private final int batchSize;
+    private final boolean rebalanceOnStartup;
+
+    public ShardRebalancer(ShardDataSources shardDataSources, ShardMap shardMap, int batchSize, boolean rebalanceOnStartup) {
+        this.shardDataSources = shardDataSources;
+        this.shardMap = shardMap;
+        this.batchSize = batchSize;
+        this.rebalanceOnStartup = rebalanceOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebalanceOnStartup() {
+        if (!rebalanceOnStartup) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebalance();
+            } catch (Exception e) {
+                log.error("Shard rebalance stopped: {} - restart it to continue", e.getMessage(), e);
+            }
+        }, "shard-rebalancer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Scans every shard and moves misplaced mappings
+     *
+     * @return number of mappings moved
+     */
+    public long rebalance() {
+        log.info("Shard rebalance started across {} shards", shardDataSources.size());
+        long moved = 0;
+        for (int source = 0; source < shardDataSources.size(); source++) {
+            JdbcTemplate sourceJdbc = new JdbcTemplate(shardDataSources.get(source));
+            long lastId = 0;
+            long movedFromShard = 0;
+            while (true) {
+                List<Map<String, Object>> page = sourceJdbc.queryForList(
+                        "SELECT id, short_url FROM url_mapping WHERE id > ? ORDER BY id LIMIT ?", lastId, batchSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (Map<String, Object> row : page) {
+                    long id = ((Number) row.get("id")).longValue();
+                    lastId = id;
+                    String shortUrl = (String) row.get("short_url");
+                    if (shortUrl == null) {
+                        continue;
+                    }
+                    int target = shardMap.shardFor(shortUrl);
+                    if (target != source) {
+                        moveMapping(id, source, target);
+                        movedFromShard++;
+                    }
+                }
+            }
+            log.info("Shard {}: moved {} mappings", source, movedFromShard);
+            moved += movedFromShard;
+        }
+        log.info("Shard rebalance finished: {} mappings moved", moved);
+        return moved;
+    }
+
+    private void moveMapping(long id, int source, int target) {
+        JdbcTemplate sourceJdbc = new JdbcTemplate(shardDataSources.get(source));
+        JdbcTemplate targetJdbc = new JdbcTemplate(shardDataSources.get(target));
+
+        List<Map<String, Object>> mapping = sourceJdbc.queryForList("SELECT * FROM url_mapping WHERE id = ?", id);
+        if (mapping.isEmpty()) {
+            return;  // deleted meanwhile
+        }
+
+        transactionTemplate(target).executeWithoutResult(status -> {
+            Integer existing = targetJdbc.queryForObject("SELECT COUNT(*) FROM url_mapping WHERE id = ?", Integer.class, id);
+            if (existing != null && existing > 0) {
+                return;  // copied by an earlier, interrupted run
+            }
+            insert(targetJdbc, "url_mapping", mapping.get(0), true);
+            copyChildren(sourceJdbc, targetJdbc, "click_event", id);
+            copyChildren(sourceJdbc, targetJdbc, "device_access", id);
+        });
+
+        transactionTemplate(source).executeWithoutResult(status -> {
+            sourceJdbc.update("DELETE FROM click_event WHERE url_mapping_id = ?", id);
+            sourceJdbc.update("DELETE FROM device_access WHERE url_mapping_id = ?", id);
+            sourceJdbc.update("DELETE FROM url_mapping WHERE id = ?", id);
+        });
+    }
+
+    private void copyChildren(JdbcTemplate sourceJdbc, JdbcTemplate targetJdbc, String table, long urlMappingId) {
+        long lastId = 0;
+        while (true) {
+            List<Map<String, Object>> rows = sourceJdbc.queryForList(
+                    "SELECT * FROM " + table + " WHERE url_mapping_id = ? AND id > ? ORDER BY id LIMIT ?",
+                    urlMappingId, lastId, CHILD_PAGE_SIZE);
+            if (rows.isEmpty()) {
+                return;
+            }
+            for (Map<String, Object> row : rows) {
+                lastId = ((Number) row.get("id")).longValue();
+                insert(targetJdbc, table, row, false);
+            }
+        }
+    }
+
+    // Column list comes from the source row, so columns added later are carried over too
+    private void insert(JdbcTemplate jdbc, String table, Map<String, Object> row, boolean keepId) {
+        StringJoiner columns = new StringJoiner(", ");
+        StringJoiner placeholders = new StringJoiner(", ");
+        List<Object> values = new ArrayList<>();
+        for (Map.Entry<String, Object> column : row.entrySet()) {
+            if (!keepId && "id".equalsIgnoreCase(column.getKey())) {
+                continue;
+            }
+            columns.add(column.getKey());
+            placeholders.add("?");
+            values.add(column.getValue());
+        }
+        jdbc.update("INSERT INTO " + table + " (" + columns + ") VALUES (" + placeholders + ")", values.toArray());
+    }
+
+    private TransactionTemplate transactionTemplate(int shard) {
+        return new TransactionTemplate(new DataSourceTransactionManager(shardDataSources.get(shard)));
+    }
+}
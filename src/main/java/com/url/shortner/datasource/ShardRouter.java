@@ -0,0 +1,141 @@
+package com.url.shortner.datasource;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * ShardRouter - Runs work against one shard or all of them
+ *
+ * - onShard(): single-shard work, e.g. a redirect on the shard that owns the short URL
+ * - onAllShards(): scatter-gather (in parallel when there is more than one shard), e.g. per-user listings
+ * - inTransaction(): a separate transaction on a shard from inside another transaction
+ *
+ * Transactions started inside the callback use the chosen shard's pool. With sharding disabled
+ * there is a single shard and everything runs inline on the caller's thread.
+ *
+ * The shard is picked when a transaction opens its EntityManager, which is why open-in-view is
+ * off: a request-scoped EntityManager would pin every call in the request to the first shard.
+ */
+@Component
+public class ShardRouter {
+
+    private final ShardMap shardMap;
+    private final ShardMap previousShardMap;
+    private final PlatformTransactionManager transactionManager;
+    private final ExecutorService scatterExecutor;
+
+    public ShardRouter(
+            ShardMap shardMap,
+            PlatformTransactionManager transactionManager,
+            @Value("${sharding.previous-shard-count:0}") int previousShardCount) {
+        this.shardMap = shardMap;
+        this.transactionManager = transactionManager;
+        // While ShardRebalancer is moving rows after a resize, a miss on the new owner is retried on the old one
+        this.previousShardMap = previousShardCount > 0 && previousShardCount != shardMap.shardCount()
+                ? new JumpConsistentHashShardMap(previousShardCount) : null;
+        if (shardMap.shardCount() > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+            this.scatterExecutor = Executors.newFixedThreadPool(shardMap.shardCount() * 2, runnable -> {
+                Thread thread = new Thread(runnable, "shard-scatter-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.scatterExecutor = null;
+        }
+    }
+
+    public int shardCount() {
+        return shardMap.shardCount();
+    }
+
+    public int shardFor(String shortUrl) {
+        return shardMap.shardFor(shortUrl);
+    }
+
+    /**
+     * Shards to look a short URL up on, in order: its owner, then its pre-resize owner if different
+     */
+    public int[] candidateShardsFor(String shortUrl) {
+        int owner = shardMap.shardFor(shortUrl);
+        if (previousShardMap != null) {
+            int previous = previousShardMap.shardFor(shortUrl);
+            if (previous != owner && previous < shardMap.shardCount()) {
+                return new int[]{owner, previous};
+            }
+        }
+        return new int[]{owner};
+    }
+
+    public <T> T onShard(int shard, Supplier<T> work) {
+        Integer previous = ShardContext.get();
+        ShardContext.set(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.set(previous);
+        }
+    }
+
+    /**
+     * Runs the work once per shard and returns the results in shard order
+     */
+    public <T> List<T> onAllShards(Supplier<T> work) {
+        int count = shardMap.shardCount();
+        List<T> results = new ArrayList<>(count);
+        if (scatterExecutor == null) {
+            for (int shard = 0; shard < count; shard++) {
+                results.add(onShard(shard, work));
+            }
+            return results;
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            int target = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> onShard(target, work), scatterExecutor));
+        }
+        for (CompletableFuture<T> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Runs the work in its own transaction on the shard. With a single shard it joins the
+     * caller's transaction instead, so unsharded deployments keep one transaction per batch.
+     */
+    public <T> T inTransaction(int shard, Supplier<T> work) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(shardMap.shardCount() > 1
+                ? TransactionDefinition.PROPAGATION_REQUIRES_NEW
+                : TransactionDefinition.PROPAGATION_REQUIRED);
+        return onShard(shard, () -> template.execute(status -> work.get()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scatterExecutor != null) {
+            scatterExecutor.shutdownNow();
+        }
+    }
+}
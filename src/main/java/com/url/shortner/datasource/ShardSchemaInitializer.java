@@ -0,0 +1,97 @@
+package com.url.shortner.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * ShardSchemaInitializer - Prepares every shard once all beans (including JPA) are up
+ *
+ * - shards 1..N-1 are migrated with their own Flyway history from db/shard-migration (shard 0 is
+ *   migrated from db/migration by Spring Boot like the unsharded database)
+ * - every shard's url_mapping identity is interleaved: shard k only hands out ids congruent to
+ *   k+1 modulo ID_STRIDE, so url_mapping ids stay globally unique (the expiry wheel, deletes and
+ *   ShardRebalancer rely on that) and a moved row can keep its id
+ *
+ * The identity is only reconfigured while its increment is not ID_STRIDE yet, so restarts and
+ * several nodes starting together leave it alone.
+ */
+@Slf4j
+public class ShardSchemaInitializer implements SmartInitializingSingleton {
+
+    static final int ID_STRIDE = 1024;
+    static final String SHARD_MIGRATIONS = "classpath:db/shard-migration";
+
+    private final ShardDataSources shardDataSources;
+
+    public ShardSchemaInitializer(ShardDataSources shardDataSources) {
+        this.shardDataSources = shardDataSources;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (shardDataSources.size() > ID_STRIDE) {
+            throw new IllegalStateException("At most " + ID_STRIDE + " shards are supported");
+        }
+        for (int shard = 0; shard < shardDataSources.size(); shard++) {
+            DataSource dataSource = shardDataSources.get(shard);
+            if (shard > 0) {
+                migrate(dataSource, shard);
+            }
+            interleaveIds(dataSource, shard);
+        }
+        log.info("Sharding enabled: {} shards ready", shardDataSources.size());
+    }
+
+    // Shards created before versioned migrations are baselined at 0; V1 is idempotent and fills them in
+    private void migrate(DataSource dataSource, int shard) {
+        int applied = Flyway.configure()
+                .dataSource(dataSource)
+                .locations(SHARD_MIGRATIONS)
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load()
+                .migrate()
+                .migrationsExecuted;
+        if (applied > 0) {
+            log.info("Shard {}: applied {} schema migrations", shard, applied);
+        }
+    }
+
+    private void interleaveIds(DataSource dataSource, int shard) {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        boolean postgres = isPostgres(dataSource);
+        String sequence = postgres
+                ? jdbc.queryForObject("SELECT pg_get_serial_sequence('url_mapping', 'id')", String.class)
+                : null;
+        Number increment = postgres
+                ? jdbc.queryForObject("SELECT seqincrement FROM pg_sequence WHERE seqrelid = ?::regclass", Number.class, sequence)
+                : jdbc.queryForObject("SELECT IDENTITY_INCREMENT FROM INFORMATION_SCHEMA.COLUMNS " +
+                        "WHERE LOWER(TABLE_NAME) = 'url_mapping' AND LOWER(COLUMN_NAME) = 'id'", Number.class);
+        if (increment != null && increment.longValue() == ID_STRIDE) {
+            return;
+        }
+        Long maxId = jdbc.queryForObject("SELECT COALESCE(MAX(id), 0) FROM url_mapping", Long.class);
+        long restartWith = ((maxId != null ? maxId : 0) / ID_STRIDE + 1) * ID_STRIDE + shard + 1;
+        if (postgres) {
+            jdbc.execute("ALTER SEQUENCE " + sequence + " INCREMENT BY " + ID_STRIDE + " RESTART WITH " + restartWith);
+        } else {
+            jdbc.execute("ALTER TABLE url_mapping ALTER COLUMN id SET INCREMENT BY " + ID_STRIDE);
+            jdbc.execute("ALTER TABLE url_mapping ALTER COLUMN id RESTART WITH " + restartWith);
+        }
+        log.info("Shard {}: url_mapping ids now start at {} with stride {}", shard, restartWith, ID_STRIDE);
+    }
+
+    private boolean isPostgres(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            return connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot reach shard database: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.url.shortner.datasource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ShardingConfig - Hash-sharded url_mapping / click_event / device_access
+ *
+ * With sharding.enabled=false (default) there is one shard and the ShardMap maps everything to
+ * it. With sharding.enabled=true:
+ * - shard 0 is spring.datasource.url (it also keeps users, jobs and the email outbox)
+ * - shards 1..N-1 are sharding.shard-urls (comma separated, same credentials unless overridden)
+ * - the JPA DataSource routes by ShardContext; ShardSchemaInitializer prepares every shard
+ */
+@Configuration
+public class ShardingConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(ShardMap.class)
+    public ShardMap shardMap(
+            @Value("${sharding.enabled:false}") boolean enabled,
+            @Value("${sharding.shard-urls:}") List<String> shardUrls) {
+        return new JumpConsistentHashShardMap(enabled ? 1 + countUrls(shardUrls) : 1);
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+    static class ShardedDataSourceConfig {
+
+        @Bean
+        public ShardDataSources shardDataSources(
+                @Value("${spring.datasource.url}") String primaryUrl,
+                @Value("${sharding.shard-urls:}") List<String> shardUrls,
+                @Value("${sharding.username:${spring.datasource.username}}") String username,
+                @Value("${sharding.password:${spring.datasource.password}}") String password,
+                @Value("${sharding.max-pool-size-per-shard:10}") int maxPoolSize,
+                @Value("${datasource.replica.enabled:false}") boolean replicaEnabled) {
+            if (replicaEnabled) {
+                throw new IllegalStateException("sharding.enabled and datasource.replica.enabled cannot be combined");
+            }
+            List<String> urls = new ArrayList<>();
+            urls.add(primaryUrl);
+            for (String url : shardUrls) {
+                if (!url.isBlank()) {
+                    urls.add(url.trim());
+                }
+            }
+            List<HikariDataSource> pools = new ArrayList<>();
+            for (int shard = 0; shard < urls.size(); shard++) {
+                HikariConfig config = new HikariConfig();
+                config.setPoolName("shard-" + shard);
+                config.setJdbcUrl(urls.get(shard));
+                config.setUsername(username);
+                config.setPassword(password);
+                config.setMaximumPoolSize(maxPoolSize);
+                pools.add(new HikariDataSource(config));
+            }
+            return new ShardDataSources(pools);
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(ShardDataSources shardDataSources, ShardMap shardMap) {
+            if (shardMap.shardCount() != shardDataSources.size()) {
+                throw new IllegalStateException("ShardMap has " + shardMap.shardCount()
+                        + " shards but " + shardDataSources.size() + " shard databases are configured");
+            }
+            ShardRoutingDataSource routing = new ShardRoutingDataSource(shardDataSources.pools());
+            routing.afterPropertiesSet();
+            return new LazyConnectionDataSourceProxy(routing);
+        }
+
+        @Bean
+        public ShardSchemaInitializer shardSchemaInitializer(ShardDataSources shardDataSources) {
+            return new ShardSchemaInitializer(shardDataSources);
+        }
+
+        @Bean
+        public ShardRebalancer shardRebalancer(
+                ShardDataSources shardDataSources,
+                ShardMap shardMap,
+                @Value("${sharding.rebalance.batch-size:500}") int batchSize,
+                @Value("${sharding.rebalance.on-startup:false}") boolean rebalanceOnStartup) {
+            return new ShardRebalancer(shardDataSources, shardMap, batchSize, rebalanceOnStartup);
+        }
+    }
+
+    private static int countUrls(List<String> shardUrls) {
+        int count = 0;
+        for (String url : shardUrls) {
+            if (!url.isBlank()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
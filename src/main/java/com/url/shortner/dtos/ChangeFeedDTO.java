@@ -0,0 +1,13 @@
+package com.url.shortner.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ChangeFeedDTO {
+    private String cursor;  // opaque - pass it back as since
+    private boolean hasMore;
+    private boolean resync;  // the cursor cannot be continued: reload all mappings, then follow from cursor
+    private List<MappingChangeDTO> changes;
+}
@@ -0,0 +1,17 @@
+package com.url.shortner.dtos;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Clicks per browser, OS, device class and referring host, largest first.
+ * Clicks that are not enriched yet (or have no data) are counted under "Unknown".
+ */
+@Data
+public class ClickBreakdownDTO {
+    private Map<String, Long> browsers;
+    private Map<String, Long> operatingSystems;
+    private Map<String, Long> devices;
+    private Map<String, Long> referrers;
+}
@@ -0,0 +1,20 @@
+package com.url.shortner.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Nulls are left out - most entries are just originalUrl, isActive and ttl
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class EdgeMappingDTO {
+    private String originalUrl;  // only when the edge may redirect on its own
+
+    @JsonProperty("isActive")
+    private boolean isActive;
+
+    private LocalDateTime expiresAt;
+    private long ttl;  // seconds the edge may cache this entry
+}
@@ -0,0 +1,10 @@
+package com.url.shortner.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class EdgeResolveRequest {
+    private List<String> codes;
+}
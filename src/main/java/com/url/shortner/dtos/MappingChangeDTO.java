@@ -0,0 +1,21 @@
+package com.url.shortner.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// originalUrl, expiresAt and isOneTimeUrl only on CREATE entries of links that still exist
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MappingChangeDTO {
+    private long version;
+    private String shortUrl;
+    private String type;  // CREATE, DELETE, DEACTIVATE or EXPIRE
+    private String originalUrl;
+    private LocalDateTime expiresAt;
+
+    @JsonProperty("isOneTimeUrl")
+    private Boolean oneTimeUrl;
+}
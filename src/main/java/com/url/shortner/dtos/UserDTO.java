@@ -21,5 +21,10 @@ public class UserDTO {
     private boolean isDeleted;
     private LocalDateTime deletionScheduledAt;
     private LocalDateTime deletionDate;
+
+    // Background account purge progress (null when no purge was requested)
+    private String purgeStatus;
+    private Long purgedUrls;
+    private Long purgedClickEvents;
 }
 
@@ -0,0 +1,91 @@
+package com.url.shortner.logging;
+
+import com.url.shortner.security.ClientIpResolver;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * AccessLogFilter - Records one access log line per (sampled) request
+ *
+ * Runs ahead of the security chain so rejected requests (401/429) are logged too. Each route
+ * group has its own sample rate; server errors (5xx) are always logged. The line itself is
+ * written asynchronously by AccessLogWriter.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    private final AccessLogWriter accessLogWriter;
+    private final ClientIpResolver clientIpResolver;
+    private final boolean enabled;
+    private final double redirectSampleRate;
+    private final double apiSampleRate;
+    private final double otherSampleRate;
+
+    public AccessLogFilter(
+            AccessLogWriter accessLogWriter,
+            ClientIpResolver clientIpResolver,
+            @Value("${access-log.enabled:true}") boolean enabled,
+            @Value("${access-log.sample.redirect:1.0}") double redirectSampleRate,
+            @Value("${access-log.sample.api:1.0}") double apiSampleRate,
+            @Value("${access-log.sample.other:0.0}") double otherSampleRate) {
+        this.accessLogWriter = accessLogWriter;
+        this.clientIpResolver = clientIpResolver;
+        this.enabled = enabled;
+        this.redirectSampleRate = redirectSampleRate;
+        this.apiSampleRate = apiSampleRate;
+        this.otherSampleRate = otherSampleRate;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!enabled) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int status = response.getStatus();
+            AccessLogRoute route = routeOf(request.getRequestURI());
+            if (status >= 500 || sampled(route)) {
+                accessLogWriter.record(route, request.getMethod(), request.getRequestURI(), status,
+                        (System.nanoTime() - start) / 1000, clientIpResolver.resolve(request));
+            }
+        }
+    }
+
+    private boolean sampled(AccessLogRoute route) {
+        double rate = switch (route) {
+            case REDIRECT -> redirectSampleRate;
+            case API -> apiSampleRate;
+            case OTHER -> otherSampleRate;
+        };
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    // Same split as RateLimitFilter: /api/** is the API, a single segment is a short code
+    private AccessLogRoute routeOf(String uri) {
+        if (uri.startsWith("/api/")) {
+            return AccessLogRoute.API;
+        }
+        if (uri.length() > 1 && uri.indexOf('/', 1) < 0 && !"/api".equals(uri) && !"/actuator".equals(uri)) {
+            return AccessLogRoute.REDIRECT;
+        }
+        return AccessLogRoute.OTHER;
+    }
+}
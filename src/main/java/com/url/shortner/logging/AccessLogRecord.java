@@ -0,0 +1,29 @@
+package com.url.shortner.logging;
+
+import java.time.Instant;
+
+/**
+ * One access log entry - a reusable slot of AccessLogRingBuffer, only valid inside drain()
+ */
+public class AccessLogRecord {
+    long timestampMs;
+    AccessLogRoute route;
+    String method;
+    String path;
+    int status;
+    long durationMicros;
+    String clientIp;
+
+    /**
+     * Fixed format: ISO-8601 time, route, method, path, status, duration in microseconds, client IP
+     */
+    void appendTo(StringBuilder out) {
+        out.append(Instant.ofEpochMilli(timestampMs)).append(' ')
+                .append(route.label()).append(' ')
+                .append(method).append(' ')
+                .append(path).append(' ')
+                .append(status).append(' ')
+                .append(durationMicros).append("us ")
+                .append(clientIp);
+    }
+}
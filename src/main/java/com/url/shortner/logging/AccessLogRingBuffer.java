@@ -0,0 +1,115 @@
+package com.url.shortner.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * AccessLogRingBuffer - Bounded lock-free multi-producer / single-consumer ring of access records
+ *
+ * Slots are preallocated and reused, so logging a request allocates nothing. Each slot carries a
+ * sequence number (Vyukov bounded queue): a producer claims a slot with one CAS on the tail,
+ * fills it and publishes it by bumping the slot's sequence; the single writer thread consumes
+ * slots in order and hands them back by advancing the sequence one lap.
+ *
+ * When the buffer is full offer() returns false and the record is dropped - request threads
+ * never wait on logging.
+ */
+public class AccessLogRingBuffer {
+
+    private final AccessLogRecord[] records;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;  // consumer thread only
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public AccessLogRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Access log buffer capacity must be positive");
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        if (capacity == 1) {
+            size = 1;
+        }
+        this.records = new AccessLogRecord[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            records[i] = new AccessLogRecord();
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Publishes one record
+     *
+     * @return false if the buffer is full and the record was dropped
+     */
+    public boolean offer(long timestampMs, AccessLogRoute route, String method, String path,
+                         int status, long durationMicros, String clientIp) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    AccessLogRecord record = records[index];
+                    record.timestampMs = timestampMs;
+                    record.route = route;
+                    record.method = method;
+                    record.path = path;
+                    record.status = status;
+                    record.durationMicros = durationMicros;
+                    record.clientIp = clientIp;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+            } else if (difference < 0) {
+                return false;  // slot still holds an unconsumed record from the previous lap
+            }
+            // difference > 0: another producer took this position, retry with the new tail
+        }
+    }
+
+    /**
+     * Hands up to maxRecords published records to the consumer. Single consumer thread only;
+     * the record must not be retained after the callback returns.
+     *
+     * @return number of records consumed
+     */
+    public int drain(RecordConsumer consumer, int maxRecords) {
+        int drained = 0;
+        while (drained < maxRecords) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;  // not published yet
+            }
+            AccessLogRecord record = records[index];
+            consumer.accept(record);
+            record.path = null;
+            record.clientIp = null;
+            sequences.lazySet(index, head + records.length);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Approximate number of records waiting to be written
+     */
+    public int backlog() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return records.length;
+    }
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(AccessLogRecord record);
+    }
+}
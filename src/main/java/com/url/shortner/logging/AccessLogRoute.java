@@ -0,0 +1,20 @@
+package com.url.shortner.logging;
+
+/**
+ * Route groups with their own access log sample rate
+ */
+public enum AccessLogRoute {
+    REDIRECT("redirect"),
+    API("api"),
+    OTHER("other");
+
+    private final String label;
+
+    AccessLogRoute(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+}
@@ -0,0 +1,97 @@
+package com.url.shortner.logging;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * AccessLogWriter - Background writer for the access log
+ *
+ * Request threads only publish into the ring buffer; this single daemon thread drains it in
+ * batches and writes the fixed-format lines to the "access-log" logger (see logback-spring.xml).
+ * Records that arrive while the buffer is full are dropped and counted in access_log.dropped.
+ */
+@Component
+@Slf4j
+public class AccessLogWriter {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("access-log");
+    private static final int DRAIN_BATCH = 256;
+
+    private final AccessLogRingBuffer buffer;
+    private final Counter dropped;
+    private final Counter written;
+    private final long idleParkNanos;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private final StringBuilder line = new StringBuilder(160);  // writer thread only
+
+    public AccessLogWriter(
+            MeterRegistry meterRegistry,
+            @Value("${access-log.buffer-size:8192}") int bufferSize,
+            @Value("${access-log.idle-park-ms:5}") long idleParkMs) {
+        this.buffer = new AccessLogRingBuffer(bufferSize);
+        this.idleParkNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleParkMs));
+        this.dropped = Counter.builder("access_log.dropped").register(meterRegistry);
+        this.written = Counter.builder("access_log.written").register(meterRegistry);
+        Gauge.builder("access_log.backlog", buffer, AccessLogRingBuffer::backlog).register(meterRegistry);
+
+        this.thread = new Thread(this::run, "access-log-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+        log.info("Access log writer started (buffer {} records)", buffer.capacity());
+    }
+
+    /**
+     * Queues one access record without blocking
+     */
+    public void record(AccessLogRoute route, String method, String path, int status,
+                       long durationMicros, String clientIp) {
+        if (!buffer.offer(System.currentTimeMillis(), route, method, path, status, durationMicros, clientIp)) {
+            dropped.increment();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (drainOnce() == 0) {
+                    LockSupport.parkNanos(idleParkNanos);
+                }
+            } catch (Exception e) {
+                log.warn("Access log writer error: {}", e.getMessage());
+            }
+        }
+        drainOnce();  // flush what is left on shutdown
+    }
+
+    private int drainOnce() {
+        int count = buffer.drain(this::write, DRAIN_BATCH);
+        if (count > 0) {
+            written.increment(count);
+        }
+        return count;
+    }
+
+    private void write(AccessLogRecord record) {
+        line.setLength(0);
+        record.appendTo(line);
+        ACCESS_LOG.info(line.toString());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(thread);
+        thread.join(TimeUnit.SECONDS.toMillis(2));
+    }
+}
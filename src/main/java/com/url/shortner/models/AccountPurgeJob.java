@@ -0,0 +1,47 @@
+package com.url.shortner.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * AccountPurgeJob - Durable record of an account that is being deleted in the background
+ *
+ * The job only stores the user id (no foreign key), so it outlives the user row and
+ * can be resumed after a restart from whatever is still left in the database.
+ */
+@Entity
+@Data
+@Table(name = "account_purge_job")
+public class AccountPurgeJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    private String username;
+
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.PENDING;
+
+    private LocalDateTime enqueuedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime completedAt;
+
+    // Progress counters, updated after every batch
+    private long deletedUrls = 0;
+    private long deletedClickEvents = 0;
+    private long deletedDeviceAccesses = 0;
+
+    private int attempts = 0;
+    private String lastError;
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+}
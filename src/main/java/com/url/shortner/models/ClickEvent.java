@@ -13,6 +13,12 @@ public class ClickEvent {
     private Long id;
     private LocalDateTime clickDate;
 
+    // click_dimension ids, filled in asynchronously by ClickEnrichmentService (null until then)
+    private Integer browserId;
+    private Integer osId;
+    private Integer deviceClassId;
+    private Integer referrerId;
+
     @ManyToOne
     @JoinColumn(name = "url_mapping_id")
     private UrlMapping urlMapping;
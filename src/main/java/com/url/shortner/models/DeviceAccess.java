@@ -7,6 +7,10 @@ import java.time.LocalDateTime;
 
 @Entity
 @Data
+// One row per device and link - one-time links claim it with DeviceAccessRepository.insertIfAbsent
+@Table(name = "device_access", uniqueConstraints = {
+        @UniqueConstraint(name = "uq_device_access_mapping_fp", columnNames = {"url_mapping_id", "device_fingerprint"})
+})
 public class DeviceAccess {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
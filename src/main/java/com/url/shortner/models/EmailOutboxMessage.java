@@ -0,0 +1,43 @@
+package com.url.shortner.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * EmailOutboxMessage - An email written in the same transaction as the change that caused it
+ * (registration, resend) and delivered later by EmailOutboxDispatcher
+ */
+@Entity
+@Data
+@Table(name = "email_outbox")
+public class EmailOutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String recipientEmail;
+    private String recipientName;
+    private String subject;
+
+    @Column(columnDefinition = "TEXT")
+    private String htmlBody;
+
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.PENDING;
+
+    private int attempts = 0;
+    private LocalDateTime createdAt;
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime claimedAt;
+    private LocalDateTime sentAt;
+    private String lastError;
+
+    public enum Status {
+        PENDING,
+        SENDING,
+        SENT,
+        FAILED
+    }
+}
@@ -13,6 +13,7 @@ public class UrlMapping {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     private String originalUrl;
+    private Long originalUrlHash;  // UrlDeduplicator.hashOf(originalUrl), indexed with user_id
     private String shortUrl;
     private int clickCount = 0;
     private LocalDateTime createdDate;
@@ -23,7 +24,8 @@ public class UrlMapping {
     private LocalDateTime expiresAt;  // Custom expiration time
     private boolean isActive = true;  // URL status
 
-    @ManyToOne
+    // Lazy so redirects and listings never join users; user.getId() is read without initializing the proxy
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
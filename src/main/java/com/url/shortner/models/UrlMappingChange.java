@@ -0,0 +1,35 @@
+package com.url.shortner.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * UrlMappingChange - One create, delete, deactivation or expiry of a link, written in the same
+ * transaction as the change and numbered afterwards by UrlMappingChangeFeed (version NULL until then)
+ */
+@Entity
+@Data
+@Table(name = "url_mapping_change")
+public class UrlMappingChange {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long version;
+    private Long urlMappingId;
+    private String shortUrl;
+
+    @Enumerated(EnumType.STRING)
+    private Type changeType;
+
+    private LocalDateTime changedAt;
+
+    public enum Type {
+        CREATE,
+        DELETE,
+        DEACTIVATE,
+        EXPIRE
+    }
+}
@@ -0,0 +1,19 @@
+package com.url.shortner.repository;
+
+import com.url.shortner.models.AccountPurgeJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface AccountPurgeJobRepository extends JpaRepository<AccountPurgeJob, Long> {
+
+    // Oldest unfinished job first - RUNNING jobs are ones interrupted by a restart
+    Optional<AccountPurgeJob> findFirstByStatusInOrderByIdAsc(Collection<AccountPurgeJob.Status> statuses);
+
+    Optional<AccountPurgeJob> findFirstByUserIdOrderByIdDesc(Long userId);
+
+    boolean existsByUserIdAndStatusIn(Long userId, Collection<AccountPurgeJob.Status> statuses);
+}
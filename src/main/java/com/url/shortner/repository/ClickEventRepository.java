@@ -4,6 +4,9 @@ import com.url.shortner.models.ClickEvent;
 import com.url.shortner.models.UrlMapping;
 import com.url.shortner.models.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -13,4 +16,40 @@ import java.util.List;
 public interface ClickEventRepository extends JpaRepository<ClickEvent, Long> {
     List<ClickEvent> findByUrlMappingAndClickDateBetween(UrlMapping mapping, LocalDateTime startDate, LocalDateTime endDate);
     List<ClickEvent> findByUrlMappingInAndClickDateBetween(List<UrlMapping> urlMappings, LocalDateTime startDate, LocalDateTime endDate);
+
+    // Breakdown counts per combination of dimension ids; decoded by ClickDimensionDictionary
+    @Query("SELECT c.browserId AS browserId, c.osId AS osId, c.deviceClassId AS deviceClassId, " +
+            "c.referrerId AS referrerId, COUNT(c) AS clicks FROM ClickEvent c " +
+            "WHERE c.urlMapping = :urlMapping AND c.clickDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY c.browserId, c.osId, c.deviceClassId, c.referrerId")
+    List<DimensionCount> countByDimensions(@Param("urlMapping") UrlMapping urlMapping,
+                                           @Param("startDate") LocalDateTime startDate,
+                                           @Param("endDate") LocalDateTime endDate);
+
+    @Query("SELECT c.browserId AS browserId, c.osId AS osId, c.deviceClassId AS deviceClassId, " +
+            "c.referrerId AS referrerId, COUNT(c) AS clicks FROM ClickEvent c " +
+            "WHERE c.urlMapping.user.id = :userId AND c.clickDate BETWEEN :startDate AND :endDate " +
+            "GROUP BY c.browserId, c.osId, c.deviceClassId, c.referrerId")
+    List<DimensionCount> countByDimensionsForUser(@Param("userId") Long userId,
+                                                  @Param("startDate") LocalDateTime startDate,
+                                                  @Param("endDate") LocalDateTime endDate);
+
+    @Modifying
+    @Query("DELETE FROM ClickEvent c WHERE c.urlMapping.id = :urlMappingId")
+    int deleteByUrlMappingId(@Param("urlMappingId") Long urlMappingId);
+
+    // Bounded delete of a user's click events for the account purge pipeline
+    @Modifying
+    @Query(value = "DELETE FROM click_event WHERE id IN " +
+            "(SELECT ce.id FROM click_event ce JOIN url_mapping um ON um.id = ce.url_mapping_id " +
+            "WHERE um.user_id = :userId LIMIT :batchSize)", nativeQuery = true)
+    int deleteBatchByUserId(@Param("userId") Long userId, @Param("batchSize") int batchSize);
+
+    interface DimensionCount {
+        Integer getBrowserId();
+        Integer getOsId();
+        Integer getDeviceClassId();
+        Integer getReferrerId();
+        Long getClicks();
+    }
 }
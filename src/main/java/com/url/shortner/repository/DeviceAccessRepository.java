@@ -3,13 +3,36 @@ package com.url.shortner.repository;
 import com.url.shortner.models.DeviceAccess;
 import com.url.shortner.models.UrlMapping;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
+import java.time.LocalDateTime;
 
 @Repository
 public interface DeviceAccessRepository extends JpaRepository<DeviceAccess, Long> {
-    Optional<DeviceAccess> findByUrlMappingAndDeviceFingerprint(UrlMapping urlMapping, String deviceFingerprint);
+    // One-time link access in a single statement: 1 if this device is new, 0 if it already had access.
+    // Relies on the unique (url_mapping_id, device_fingerprint) index; a concurrent insert of the same
+    // pair waits for the other transaction and then does nothing.
+    @Modifying
+    @Query(value = "INSERT INTO device_access (url_mapping_id, device_fingerprint, accessed_at) " +
+            "VALUES (:urlMappingId, :deviceFingerprint, :accessedAt) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("urlMappingId") Long urlMappingId,
+                       @Param("deviceFingerprint") String deviceFingerprint,
+                       @Param("accessedAt") LocalDateTime accessedAt);
+
     void deleteByUrlMapping(UrlMapping urlMapping);
+
+    @Modifying
+    @Query("DELETE FROM DeviceAccess d WHERE d.urlMapping.id = :urlMappingId")
+    int deleteByUrlMappingId(@Param("urlMappingId") Long urlMappingId);
+
+    // Bounded delete of a user's device access records for the account purge pipeline
+    @Modifying
+    @Query(value = "DELETE FROM device_access WHERE id IN " +
+            "(SELECT da.id FROM device_access da JOIN url_mapping um ON um.id = da.url_mapping_id " +
+            "WHERE um.user_id = :userId LIMIT :batchSize)", nativeQuery = true)
+    int deleteBatchByUserId(@Param("userId") Long userId, @Param("batchSize") int batchSize);
 }
 
@@ -0,0 +1,22 @@
+package com.url.shortner.repository;
+
+import com.url.shortner.models.EmailOutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    // Due messages plus ones stuck in SENDING (dispatcher died mid-batch); SKIP LOCKED lets several nodes dispatch
+    @Query(value = "SELECT * FROM email_outbox WHERE (status = 'PENDING' AND next_attempt_at <= :now) " +
+            "OR (status = 'SENDING' AND claimed_at < :staleBefore) " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<EmailOutboxMessage> lockNextBatch(@Param("now") LocalDateTime now,
+                                           @Param("staleBefore") LocalDateTime staleBefore,
+                                           @Param("limit") int limit);
+}
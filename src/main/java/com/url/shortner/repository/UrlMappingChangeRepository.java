@@ -0,0 +1,54 @@
+package com.url.shortner.repository;
+
+import com.url.shortner.models.UrlMappingChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Change log writers for the bulk url_mapping statements. Each runs right before its statement,
+ * in the same transaction and with the same predicate, so it logs the rows that statement changes.
+ */
+@Repository
+public interface UrlMappingChangeRepository extends JpaRepository<UrlMappingChange, Long> {
+
+    // Expiry wheel batches - UrlMappingRepository.deactivateByIds
+    @Modifying
+    @Query(value = "INSERT INTO url_mapping_change (url_mapping_id, short_url, change_type, changed_at) " +
+            "SELECT id, short_url, 'EXPIRE', :now FROM url_mapping WHERE id IN :ids AND is_active = true", nativeQuery = true)
+    int recordExpiredByIds(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    // Catch-up sweep - UrlMappingRepository.deactivateExpiredUrls
+    @Modifying
+    @Query(value = "INSERT INTO url_mapping_change (url_mapping_id, short_url, change_type, changed_at) " +
+            "SELECT id, short_url, 'EXPIRE', :now FROM url_mapping " +
+            "WHERE expires_at IS NOT NULL AND expires_at < :now AND is_active = true", nativeQuery = true)
+    int recordExpired(@Param("now") LocalDateTime now);
+
+    // Old link cleanup - UrlMappingRepository.findUrlsOlderThan, deleted afterwards
+    @Modifying
+    @Query(value = "INSERT INTO url_mapping_change (url_mapping_id, short_url, change_type, changed_at) " +
+            "SELECT id, short_url, 'DELETE', :now FROM url_mapping " +
+            "WHERE created_date < :cutoffDate AND is_active = true", nativeQuery = true)
+    int recordDeletedOlderThan(@Param("cutoffDate") LocalDateTime cutoffDate, @Param("now") LocalDateTime now);
+
+    // Account purge - UrlMappingRepository.deactivateBatchByUserId / deleteBatchByUserId pick the same rows
+    @Modifying
+    @Query(value = "INSERT INTO url_mapping_change (url_mapping_id, short_url, change_type, changed_at) " +
+            "SELECT id, short_url, 'DEACTIVATE', :now FROM url_mapping WHERE id IN " +
+            "(SELECT id FROM url_mapping WHERE user_id = :userId AND is_active = true ORDER BY id LIMIT :batchSize)", nativeQuery = true)
+    int recordDeactivatedBatchByUserId(@Param("userId") Long userId, @Param("batchSize") int batchSize,
+                                       @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "INSERT INTO url_mapping_change (url_mapping_id, short_url, change_type, changed_at) " +
+            "SELECT id, short_url, 'DELETE', :now FROM url_mapping WHERE id IN " +
+            "(SELECT id FROM url_mapping WHERE user_id = :userId ORDER BY id LIMIT :batchSize)", nativeQuery = true)
+    int recordDeletedBatchByUserId(@Param("userId") Long userId, @Param("batchSize") int batchSize,
+                                   @Param("now") LocalDateTime now);
+}
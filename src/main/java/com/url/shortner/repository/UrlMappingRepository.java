@@ -1,14 +1,17 @@
 package com.url.shortner.repository;
 
 import com.url.shortner.models.UrlMapping;
-import com.url.shortner.models.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,15 +19,82 @@ import java.util.Optional;
 public interface UrlMappingRepository extends JpaRepository<UrlMapping, Long> {
 
     UrlMapping findByShortUrl(String shortUrl);
-    List<UrlMapping> findByUser(User user);
-    Optional<UrlMapping> findByIdAndUser(Long id, User user);
-    void deleteByUser(User user);
-    
-    // Find expired URLs (custom expiration)
-    @Query("SELECT u FROM UrlMapping u WHERE u.expiresAt IS NOT NULL AND u.expiresAt < :now AND u.isActive = true")
-    List<UrlMapping> findExpiredUrls(@Param("now") LocalDateTime now);
+    // By foreign key only - callers pass the id from the authenticated principal
+    List<UrlMapping> findByUserId(Long userId);
+    Optional<UrlMapping> findByIdAndUserId(Long id, Long userId);
+    // Dedup candidates - idx_url_mapping_user_hash, the caller compares the URLs themselves
+    List<UrlMapping> findByUserIdAndOriginalUrlHash(Long userId, Long originalUrlHash);
+
+    // Batch resolve for edge proxies - one IN over idx_url_mapping_short_url, only the fields an edge caches
+    @Query("SELECT u.shortUrl AS shortUrl, u.originalUrl AS originalUrl, u.isActive AS active, " +
+            "u.isOneTimeUrl AS oneTime, u.expiresAt AS expiresAt FROM UrlMapping u WHERE u.shortUrl IN :shortUrls")
+    List<ResolvedMapping> findResolvedByShortUrlIn(@Param("shortUrls") Collection<String> shortUrls);
+
+    // Row lock for deleteUrl - redirects that already hold the row finish first, later ones find it gone
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM UrlMapping u WHERE u.id = :id AND u.user.id = :userId")
+    Optional<UrlMapping> lockByIdAndUserId(@Param("id") Long id, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM UrlMapping u WHERE u.id = :id")
+    int deleteMappingById(@Param("id") Long id);
+
+    // Redirect counters: increments in the database so concurrent clicks are never lost to a
+    // read-modify-write of the entity. 0 rows means the link was deleted in the meantime.
+    @Modifying
+    @Query("UPDATE UrlMapping u SET u.clickCount = u.clickCount + 1 WHERE u.id = :id")
+    int incrementClickCount(@Param("id") Long id);
+
+    // ShortCodeIndex hits: the update also confirms the indexed link still has this code and is active
+    @Modifying
+    @Query("UPDATE UrlMapping u SET u.clickCount = u.clickCount + 1 WHERE u.id = :id AND u.shortUrl = :shortUrl AND u.isActive = true")
+    int incrementClickCountIfActive(@Param("id") Long id, @Param("shortUrl") String shortUrl);
+
+    @Modifying
+    @Query("UPDATE UrlMapping u SET u.isUsed = true WHERE u.id = :id")
+    int markUsed(@Param("id") Long id);
     
     // Find URLs older than 3 months
     @Query("SELECT u FROM UrlMapping u WHERE u.createdDate < :cutoffDate AND u.isActive = true")
     List<UrlMapping> findUrlsOlderThan(@Param("cutoffDate") LocalDateTime cutoffDate);
+
+    // Active URLs that will expire later - used to rebuild the expiry wheel on startup
+    @Query("SELECT u.id AS id, u.expiresAt AS expiresAt FROM UrlMapping u WHERE u.expiresAt IS NOT NULL AND u.expiresAt >= :now AND u.isActive = true")
+    List<UrlExpiry> findUpcomingExpiries(@Param("now") LocalDateTime now);
+
+    // Deactivate everything already past its expiry in one statement
+    @Modifying
+    @Transactional
+    @Query("UPDATE UrlMapping u SET u.isActive = false WHERE u.expiresAt IS NOT NULL AND u.expiresAt < :now AND u.isActive = true")
+    int deactivateExpiredUrls(@Param("now") LocalDateTime now);
+
+    // Batched deactivation for ids handed out by the expiry wheel
+    @Modifying
+    @Transactional
+    @Query("UPDATE UrlMapping u SET u.isActive = false WHERE u.id IN :ids AND u.isActive = true")
+    int deactivateByIds(@Param("ids") Collection<Long> ids);
+
+    // Bounded, set-based steps for the account purge pipeline (ordered, so the change log records the same rows)
+    @Modifying
+    @Query(value = "UPDATE url_mapping SET is_active = false WHERE id IN " +
+            "(SELECT id FROM url_mapping WHERE user_id = :userId AND is_active = true ORDER BY id LIMIT :batchSize)", nativeQuery = true)
+    int deactivateBatchByUserId(@Param("userId") Long userId, @Param("batchSize") int batchSize);
+
+    @Modifying
+    @Query(value = "DELETE FROM url_mapping WHERE id IN " +
+            "(SELECT id FROM url_mapping WHERE user_id = :userId ORDER BY id LIMIT :batchSize)", nativeQuery = true)
+    int deleteBatchByUserId(@Param("userId") Long userId, @Param("batchSize") int batchSize);
+
+    interface UrlExpiry {
+        Long getId();
+        LocalDateTime getExpiresAt();
+    }
+
+    interface ResolvedMapping {
+        String getShortUrl();
+        String getOriginalUrl();
+        boolean isActive();
+        boolean isOneTime();
+        LocalDateTime getExpiresAt();
+    }
 }
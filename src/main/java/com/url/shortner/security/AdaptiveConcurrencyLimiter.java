@@ -0,0 +1,125 @@
+package com.url.shortner.security;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AdaptiveConcurrencyLimiter - In-flight request limit learned from latency (gradient algorithm)
+ *
+ * Every completed request updates two moving averages of its latency: a short one (recent
+ * samples) and a long one (the no-queueing baseline). While the short average stays within
+ * tolerance times the baseline the limit grows by sqrt(limit); once requests start queueing
+ * behind a slow dependency the short average rises and the limit shrinks by the ratio - down to
+ * half per update - so excess requests are rejected instead of piling up on server threads.
+ * A failed request (5xx, exception) is a drop: its latency is not sampled - a fast failure would
+ * look like spare capacity - and the limit is cut multiplicatively instead (AIMD).
+ *
+ * Callers admit a request with a share of the limit: a caller with share 1.0 can use all of it,
+ * one with 0.6 is rejected as soon as 60% is in flight, which sheds it first under pressure.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SHORT_WEIGHT = 0.1;
+    private static final double LONG_WEIGHT = 1.0 / 500;
+    private static final double SMOOTHING = 0.2;
+    private static final double DROP_BACKOFF = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+
+    // Guarded by this
+    private double shortRttNanos;
+    private double longRttNanos;
+
+    /**
+     * @param tolerance how far latency may rise over the baseline before the limit shrinks (e.g. 1.5)
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        if (minLimit <= 0 || maxLimit < minLimit || tolerance < 1.0) {
+            throw new IllegalArgumentException("Concurrency limits must be positive with min <= max, tolerance >= 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = Math.clamp(initialLimit, minLimit, maxLimit);
+    }
+
+    /**
+     * Admits a request if fewer than share * limit are in flight
+     *
+     * @return the number in flight including this request, or 0 if it was rejected
+     */
+    public int tryAcquire(double share) {
+        int max = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= max) {
+                return 0;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /**
+     * Completes an admitted request and feeds its latency into the limit
+     *
+     * @param inFlightAtStart what tryAcquire returned for it
+     */
+    public void release(long rttNanos, int inFlightAtStart) {
+        inFlight.decrementAndGet();
+        update(rttNanos, inFlightAtStart);
+    }
+
+    /**
+     * Completes an admitted request that failed and backs the limit off
+     *
+     * @param inFlightAtStart what tryAcquire returned for it
+     */
+    public void releaseDropped(int inFlightAtStart) {
+        inFlight.decrementAndGet();
+        drop(inFlightAtStart);
+    }
+
+    synchronized void update(long rttNanos, int inFlightAtStart) {
+        if (longRttNanos == 0) {
+            shortRttNanos = rttNanos;
+            longRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos += (rttNanos - shortRttNanos) * SHORT_WEIGHT;
+        longRttNanos += (rttNanos - longRttNanos) * LONG_WEIGHT;
+        // After a slow period the baseline has drifted up - pull it back once latency recovers
+        if (longRttNanos > 2 * shortRttNanos) {
+            longRttNanos *= 0.95;
+        }
+        // Far below the limit the latency says nothing about it; growing here would only inflate it
+        double current = limit;
+        if (inFlightAtStart < current / 2) {
+            return;
+        }
+        double gradient = Math.clamp(tolerance * longRttNanos / shortRttNanos, 0.5, 1.0);
+        double target = current * gradient + Math.sqrt(current);
+        limit = Math.clamp(current * (1 - SMOOTHING) + target * SMOOTHING, minLimit, maxLimit);
+    }
+
+    // Same guard as update(): a failure far below the limit is not caused by load
+    synchronized void drop(int inFlightAtStart) {
+        double current = limit;
+        if (inFlightAtStart < current / 2) {
+            return;
+        }
+        limit = Math.max(minLimit, current * DROP_BACKOFF);
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
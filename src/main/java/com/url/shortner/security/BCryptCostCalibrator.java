@@ -0,0 +1,68 @@
+package com.url.shortner.security;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.Arrays;
+
+/**
+ * BCryptCostCalibrator - Picks the BCrypt cost factor for a target verify latency on this host
+ *
+ * Measures the median matches() time for each cost from 8 to 16 and recommends the highest
+ * cost whose median stays within the target. Run it on the production host (or an identical
+ * instance type) and set security.bcrypt.strength to the result:
+ *
+ *   java -cp app.jar -Dloader.main=com.url.shortner.security.BCryptCostCalibrator \
+ *        org.springframework.boot.loader.launch.PropertiesLauncher 250
+ *
+ * The argument is the target verify latency in milliseconds (default 250).
+ */
+public final class BCryptCostCalibrator {
+
+    private static final int MIN_COST = 8;
+    private static final int MAX_COST = 16;
+    private static final int SAMPLES = 7;
+    private static final String SAMPLE_PASSWORD = "calibration-Password-123!";
+
+    private BCryptCostCalibrator() {
+    }
+
+    public static void main(String[] args) {
+        long targetMs = args.length > 0 ? Long.parseLong(args[0]) : 250;
+        int recommended = calibrate(targetMs, true);
+        System.out.printf("%nRecommended: security.bcrypt.strength=%d (target %d ms, %d cores)%n",
+                recommended, targetMs, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static int calibrate(long targetMs, boolean verbose) {
+        int recommended = MIN_COST;
+        for (int cost = MIN_COST; cost <= MAX_COST; cost++) {
+            double medianMs = medianVerifyMs(cost);
+            if (verbose) {
+                System.out.printf("cost %2d: median verify %8.1f ms%n", cost, medianMs);
+            }
+            if (medianMs > targetMs) {
+                break;
+            }
+            recommended = cost;
+            // Each step doubles the work - stop early instead of timing a cost that is certainly too slow
+            if (medianMs * 2 > targetMs * 1.5) {
+                break;
+            }
+        }
+        return recommended;
+    }
+
+    private static double medianVerifyMs(int cost) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(cost);
+        String hash = encoder.encode(SAMPLE_PASSWORD);
+        encoder.matches(SAMPLE_PASSWORD, hash);  // warm-up
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long start = System.nanoTime();
+            encoder.matches(SAMPLE_PASSWORD, hash);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2] / 1_000_000.0;
+    }
+}
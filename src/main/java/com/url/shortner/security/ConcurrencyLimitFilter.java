@@ -0,0 +1,102 @@
+package com.url.shortner.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * ConcurrencyLimitFilter - Sheds load with 503 before requests queue up on server threads
+ *
+ * Redirects (GET /{shortUrl}) and the link API (/api/urls/**) share one AdaptiveConcurrencyLimiter.
+ * Redirects may use the whole limit, the API only concurrency-limit.api-share of it, so when the
+ * database slows down dashboards and analytics are rejected first and redirects keep flowing.
+ *
+ * Runs after AccessLogFilter (shed requests are logged) and before the security chain, so a
+ * rejected request costs no JWT check. 5xx responses and exceptions count as drops and back the
+ * limit off; their latency is not sampled.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final double REDIRECT_SHARE = 1.0;
+
+    private final boolean enabled;
+    private final double apiShare;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final Counter redirectShed;
+    private final Counter apiShed;
+
+    public ConcurrencyLimitFilter(
+            MeterRegistry meterRegistry,
+            @Value("${concurrency-limit.enabled:true}") boolean enabled,
+            @Value("${concurrency-limit.initial-limit:20}") int initialLimit,
+            @Value("${concurrency-limit.min-limit:8}") int minLimit,
+            @Value("${concurrency-limit.max-limit:200}") int maxLimit,
+            @Value("${concurrency-limit.tolerance:1.5}") double tolerance,
+            @Value("${concurrency-limit.api-share:0.6}") double apiShare) {
+        this.enabled = enabled;
+        this.apiShare = apiShare;
+        this.limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, tolerance);
+        this.redirectShed = Counter.builder("concurrency_limit.shed").tag("priority", "redirect").register(meterRegistry);
+        this.apiShed = Counter.builder("concurrency_limit.shed").tag("priority", "api").register(meterRegistry);
+        Gauge.builder("concurrency_limit.limit", limiter, AdaptiveConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder("concurrency_limit.in_flight", limiter, AdaptiveConcurrencyLimiter::getInFlight).register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || (!isRedirect(request) && !request.getRequestURI().startsWith("/api/urls/"));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean redirect = isRedirect(request);
+        int inFlight = limiter.tryAcquire(redirect ? REDIRECT_SHARE : apiShare);
+        if (inFlight == 0) {
+            (redirect ? redirectShed : apiShed).increment();
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType("application/json");
+            response.getWriter().write("{\"message\":\"Server is busy. Please retry shortly.\"}");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean succeeded = false;
+        try {
+            filterChain.doFilter(request, response);
+            succeeded = response.getStatus() < 500;
+        } finally {
+            if (succeeded) {
+                limiter.release(System.nanoTime() - start, inFlight);
+            } else {
+                limiter.releaseDropped(inFlight);
+            }
+        }
+    }
+
+    // Same split as RateLimitFilter: a single path segment outside /api and /actuator is a short code
+    private static boolean isRedirect(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return false;
+        }
+        String uri = request.getRequestURI();
+        return uri.length() > 1 && uri.indexOf('/', 1) < 0
+                && !"/api".equals(uri) && !"/actuator".equals(uri);
+    }
+}
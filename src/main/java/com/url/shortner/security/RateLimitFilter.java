@@ -0,0 +1,124 @@
+package com.url.shortner.security;
+
+import com.url.shortner.service.UserDetailsImpl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RateLimitFilter - Per-client token bucket limits for the redirect and shorten endpoints
+ *
+ * Runs in the security chain right after JwtAuthenticationFilter, so authenticated calls are
+ * keyed by user id and anonymous ones (redirects) by client IP. Each route has its own policy:
+ * - redirect: GET /{shortUrl}
+ * - shorten:  POST /api/urls/shorten
+ *
+ * Rejected requests get 429 with Retry-After. Idle buckets are evicted every minute.
+ * StartupWarmer's own requests (WarmupRequestKey) are not limited.
+ */
+@Component
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final ClientIpResolver clientIpResolver;
+    private final WarmupRequestKey warmupRequestKey;
+    private final boolean enabled;
+    private final TokenBucketRateLimiter redirectLimiter;
+    private final TokenBucketRateLimiter shortenLimiter;
+    private final Counter redirectRejected;
+    private final Counter shortenRejected;
+
+    public RateLimitFilter(
+            MeterRegistry meterRegistry,
+            ClientIpResolver clientIpResolver,
+            WarmupRequestKey warmupRequestKey,
+            @Value("${rate-limit.enabled:true}") boolean enabled,
+            @Value("${rate-limit.redirect.capacity:60}") int redirectCapacity,
+            @Value("${rate-limit.redirect.refill-per-second:20}") double redirectRefillPerSecond,
+            @Value("${rate-limit.shorten.capacity:20}") int shortenCapacity,
+            @Value("${rate-limit.shorten.refill-per-second:0.5}") double shortenRefillPerSecond,
+            @Value("${rate-limit.max-tracked-keys:200000}") int maxTrackedKeys) {
+        this.clientIpResolver = clientIpResolver;
+        this.warmupRequestKey = warmupRequestKey;
+        this.enabled = enabled;
+        this.redirectLimiter = new TokenBucketRateLimiter(redirectCapacity, redirectRefillPerSecond, maxTrackedKeys);
+        this.shortenLimiter = new TokenBucketRateLimiter(shortenCapacity, shortenRefillPerSecond, maxTrackedKeys);
+        this.redirectRejected = Counter.builder("rate_limit.rejected").tag("policy", "redirect").register(meterRegistry);
+        this.shortenRejected = Counter.builder("rate_limit.rejected").tag("policy", "shorten").register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        if (enabled && !warmupRequestKey.matches(request)) {
+            long waitNanos = 0;
+            if (isShorten(request)) {
+                waitNanos = shortenLimiter.tryAcquire(clientKey(request));
+                if (waitNanos > 0) {
+                    shortenRejected.increment();
+                }
+            } else if (isRedirect(request)) {
+                waitNanos = redirectLimiter.tryAcquire(clientKey(request));
+                if (waitNanos > 0) {
+                    redirectRejected.increment();
+                }
+            }
+            if (waitNanos > 0) {
+                long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+                response.setStatus(429);
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+                response.setContentType("application/json");
+                response.getWriter().write("{\"message\":\"Too many requests. Please slow down.\"}");
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictIdleBuckets() {
+        int evicted = redirectLimiter.evictIdle() + shortenLimiter.evictIdle();
+        if (evicted > 0) {
+            log.debug("Evicted {} idle rate limit buckets", evicted);
+        }
+    }
+
+    // Authenticated callers are limited per account, everyone else per IP
+    private String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl user) {
+            return "u:" + user.getId();
+        }
+        return "ip:" + clientIpResolver.resolve(request);
+    }
+
+    private boolean isShorten(HttpServletRequest request) {
+        return "POST".equals(request.getMethod()) && "/api/urls/shorten".equals(request.getRequestURI());
+    }
+
+    // Single path segment outside /api and /actuator, i.e. the /{shortUrl} mapping
+    private boolean isRedirect(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return false;
+        }
+        String uri = request.getRequestURI();
+        return uri.length() > 1 && uri.indexOf('/', 1) < 0
+                && !"/api".equals(uri) && !"/actuator".equals(uri);
+    }
+}
@@ -0,0 +1,149 @@
+package com.url.shortner.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TokenBucketRateLimiter - Lock-free per-key token buckets
+ *
+ * Each bucket is a single AtomicLong holding its "theoretical arrival time" (the GCRA form of a
+ * token bucket): every request pushes it forward by one emission interval, and a request is
+ * allowed while it stays within capacity intervals of now. One CAS per request, no locks and
+ * no per-request allocation once a key's bucket exists.
+ *
+ * A bucket that has been idle long enough to refill completely carries no state, so
+ * evictIdle() (scheduled) can drop it and the next request simply starts a fresh (full) bucket.
+ * maxKeys is a hard cap: a new key at the cap looks at a few buckets only and evicts the one
+ * closest to full, so a flood of distinct keys costs O(1) per request, never a full scan.
+ */
+public class TokenBucketRateLimiter {
+
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    // Slots reserved before a bucket is added, so concurrent new keys cannot overshoot maxKeys
+    private final AtomicInteger keys = new AtomicInteger();
+
+    /**
+     * @param capacity        max burst size
+     * @param refillPerSecond sustained rate
+     * @param maxKeys         max tracked keys
+     */
+    public TokenBucketRateLimiter(int capacity, double refillPerSecond, int maxKeys) {
+        if (capacity <= 0 || refillPerSecond <= 0 || maxKeys <= 0) {
+            throw new IllegalArgumentException("Rate limit capacity, refill rate and max keys must be positive");
+        }
+        this.emissionIntervalNanos = (long) (1_000_000_000L / refillPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (capacity - 1);
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * Takes one token for the key
+     *
+     * @return 0 if allowed, otherwise how many nanoseconds until a token is available
+     */
+    public long tryAcquire(String key) {
+        return tryAcquire(key, System.nanoTime());
+    }
+
+    long tryAcquire(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = newBucket(key, now);
+            if (bucket == null) {
+                // Every slot was taken by concurrent new keys - ask the client to come back shortly
+                return emissionIntervalNanos;
+            }
+        }
+        while (true) {
+            long tat = bucket.get();
+            long base = tat == Long.MIN_VALUE || tat < now ? now : tat;
+            long newTat = base + emissionIntervalNanos;
+            long allowAt = newTat - emissionIntervalNanos - burstToleranceNanos;
+            if (allowAt > now) {
+                return allowAt - now;
+            }
+            if (bucket.compareAndSet(tat, newTat)) {
+                return 0;
+            }
+        }
+    }
+
+    private AtomicLong newBucket(String key, long now) {
+        while (true) {
+            int current = keys.get();
+            if (current < maxKeys) {
+                if (keys.compareAndSet(current, current + 1)) {
+                    break;
+                }
+            } else if (evictSample(now) == 0) {
+                return null;
+            }
+        }
+        AtomicLong created = new AtomicLong(Long.MIN_VALUE);
+        AtomicLong existing = buckets.putIfAbsent(key, created);
+        if (existing != null) {
+            keys.decrementAndGet();
+            return existing;
+        }
+        return created;
+    }
+
+    // Bounded: idle buckets in the sample go, otherwise the one that refills soonest (loses the least state)
+    private int evictSample(long now) {
+        int evicted = 0;
+        int seen = 0;
+        Map.Entry<String, AtomicLong> closestToFull = null;
+        for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+            long tat = entry.getValue().get();
+            if (tat < now) {
+                evicted += remove(entry);
+            } else if (closestToFull == null || tat < closestToFull.getValue().get()) {
+                closestToFull = entry;
+            }
+            if (++seen >= EVICTION_SAMPLE) {
+                break;
+            }
+        }
+        if (evicted == 0 && closestToFull != null) {
+            evicted = remove(closestToFull);
+        }
+        return evicted;
+    }
+
+    private int remove(Map.Entry<String, AtomicLong> entry) {
+        if (buckets.remove(entry.getKey(), entry.getValue())) {
+            keys.decrementAndGet();
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Removes buckets that have fully refilled - they are indistinguishable from a new bucket
+     */
+    public int evictIdle() {
+        return evictIdle(System.nanoTime());
+    }
+
+    int evictIdle(long now) {
+        int evicted = 0;
+        // TAT in the past means the bucket is full again
+        for (Map.Entry<String, AtomicLong> entry : buckets.entrySet()) {
+            if (entry.getValue().get() < now) {
+                evicted += remove(entry);
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+}
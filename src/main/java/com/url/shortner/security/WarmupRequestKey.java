@@ -0,0 +1,51 @@
+package com.url.shortner.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * WarmupRequestKey - Recognizes StartupWarmer's synthetic requests so rate limits skip them
+ *
+ * The key is random per process and never leaves it: StartupWarmer sends it to the local port,
+ * and a request only counts as warm-up if it also arrived over loopback without passing a proxy.
+ */
+@Component
+public class WarmupRequestKey {
+
+    public static final String HEADER = "X-Startup-Warmup";
+
+    private final String key;
+
+    public WarmupRequestKey() {
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        this.key = Base64.getUrlEncoder().withoutPadding().encodeToString(random);
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public boolean matches(HttpServletRequest request) {
+        String presented = request.getHeader(HEADER);
+        return presented != null
+                && request.getHeader("X-Forwarded-For") == null
+                && isLoopback(request.getRemoteAddr())
+                && MessageDigest.isEqual(presented.getBytes(StandardCharsets.UTF_8), key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The connection address is always an IP literal, so this never resolves a name
+    private static boolean isLoopback(String remoteAddr) {
+        try {
+            return remoteAddr != null && InetAddress.getByName(remoteAddr).isLoopbackAddress();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.url.shortner.security.jwt;
 
+import com.url.shortner.models.User;
+import com.url.shortner.service.UserDetailsImpl;
+import com.url.shortner.service.UserPrincipalCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,7 +12,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -24,7 +26,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtUtils jwtTokenProvider;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private UserPrincipalCache userPrincipalCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -34,9 +36,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = jwtTokenProvider.getJwtFromHeader(request);
 
-            if(jwt != null && jwtTokenProvider.validateToken(jwt)){
-                String username = jwtTokenProvider.getUsernameFromJwtToken(jwt);
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            // One signature check per request - repeat tokens are answered from the verified-token cache
+            VerifiedJwt verifiedJwt = jwt != null ? jwtTokenProvider.verifyToken(jwt) : null;
+            if(verifiedJwt != null){
+                // Id and role come from the current users row (UserPrincipalCache, evicted on every user
+                // change), not from the token's claims, so role changes and deletions apply right away.
+                // A uid that differs belongs to an earlier account with the same username.
+                User user = userPrincipalCache.findByUsername(verifiedJwt.getUsername()).orElse(null);
+                UserDetails userDetails = null;
+                if (user != null && (verifiedJwt.getUserId() == null || verifiedJwt.getUserId().equals(user.getId()))) {
+                    userDetails = UserDetailsImpl.build(user);
+                }
                 if(userDetails != null) {
                     UsernamePasswordAuthenticationToken authentication =
                             new UsernamePasswordAuthenticationToken(
@@ -1,21 +1,31 @@
 package com.url.shortner.security.jwt;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.url.shortner.service.UserDetailsImpl;
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.MalformedJwtException;
 import io.jsonwebtoken.UnsupportedJwtException;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 import io.jsonwebtoken.security.SecurityException;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
-import java.security.Key;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Component
@@ -28,6 +38,45 @@ public class JwtUtils {
     @Value("${jwt.expiration}")
     private int jwtExpirationMs;
 
+    @Value("${jwt.verified-cache.max-size:10000}")
+    private long verifiedCacheMaxSize;
+
+    // Built once - deriving the HMAC key and parser per request showed up on every authenticated call
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    // token hash -> claims of a token whose signature was already verified, evicted at the token's exp
+    private Cache<String, VerifiedJwt> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(JwtSecret));
+        this.jwtParser = Jwts.parser().verifyWith(signingKey).build();
+        if (verifiedCacheMaxSize <= 0) {
+            return;  // caching disabled
+        }
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedJwt>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedJwt value, long currentTime) {
+                        long remainingMs = value.getExpiresAtMs() - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedJwt value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedJwt value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
     //Autheriztion token methods will be here -> here we pass the token into header
     //Authorization -> Bearer <token>
     public String getJwtFromHeader(HttpServletRequest request) {
@@ -41,36 +90,72 @@ public class JwtUtils {
     }
 
     public String generateToken(UserDetailsImpl userDetails) {
+        return generateToken(userDetails, jwtExpirationMs);
+    }
+
+    /**
+     * Token with a lifetime of its own instead of jwt.expiration
+     */
+    public String generateToken(UserDetailsImpl userDetails, long expirationMs) {
         String username = userDetails.getUsername();
         String roles = userDetails.getAuthorities().stream()
                 .map(authority -> authority.getAuthority())
                 .collect(Collectors.joining(","));
         return Jwts.builder()
                 .subject(username)
+                .claim("uid", userDetails.getId())
                 .claim("roles", roles)
                 .issuedAt(new Date())
-                .expiration(new Date(new Date().getTime() + jwtExpirationMs))
-                .signWith(key())
+                .expiration(new Date(new Date().getTime() + expirationMs))
+                .signWith(signingKey)
                 .compact();
 
     }
 
-    public String getUsernameFromJwtToken(String token) {
-        return Jwts.parser()
-                .verifyWith((SecretKey) key())
-                .build().parseSignedClaims(token)
-                .getPayload().getSubject();
+    /**
+     * Verifies the token once and returns its claims, or null if it is not valid.
+     * Tokens that already passed verification are served from a bounded cache until they expire.
+     */
+    public VerifiedJwt verifyToken(String authToken) {
+        if (authToken == null || authToken.isEmpty()) {
+            return null;
+        }
+        String cacheKey = verifiedTokens != null ? hashToken(authToken) : null;
+        VerifiedJwt cached = cacheKey != null ? verifiedTokens.getIfPresent(cacheKey) : null;
+        if (cached != null && cached.getExpiresAtMs() > System.currentTimeMillis()) {
+            return cached;
+        }
+
+        Claims claims = parseClaims(authToken);
+        if (claims == null) {
+            return null;
+        }
+        // Tokens without exp are accepted but never cached
+        Date expiration = claims.getExpiration();
+        Number userId = claims.get("uid", Number.class);
+        VerifiedJwt verified = new VerifiedJwt(
+                userId != null ? userId.longValue() : null,
+                claims.getSubject(),
+                claims.get("roles", String.class),
+                expiration != null ? expiration.getTime() : 0L);
+        if (cacheKey != null && expiration != null) {
+            verifiedTokens.put(cacheKey, verified);
+        }
+        return verified;
     }
 
-    private Key key(){
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(JwtSecret));
+    public String getUsernameFromJwtToken(String token) {
+        VerifiedJwt verified = verifyToken(token);
+        return verified != null ? verified.getUsername() : null;
     }
 
     public boolean validateToken(String authToken){
+        return verifyToken(authToken) != null;
+    }
+
+    private Claims parseClaims(String authToken) {
         try {
-            Jwts.parser().verifyWith((SecretKey) key())
-                    .build().parseSignedClaims(authToken);
-            return true;
+            return jwtParser.parseSignedClaims(authToken).getPayload();
         } catch (ExpiredJwtException e) {
             log.error("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
@@ -82,6 +167,16 @@ public class JwtUtils {
         } catch (IllegalArgumentException e) {
             log.error("JWT claims string is empty: {}", e.getMessage());
         }
-        return false;
+        return null;
+    }
+
+    // Cache by digest so raw bearer tokens are never kept in memory as map keys
+    private String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
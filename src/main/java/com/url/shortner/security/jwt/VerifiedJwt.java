@@ -0,0 +1,16 @@
+package com.url.shortner.security.jwt;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Claims of a JWT whose signature has already been checked by JwtUtils
+ */
+@Data
+@AllArgsConstructor
+public class VerifiedJwt {
+    private Long userId;  // null for tokens issued before the uid claim existed
+    private String username;
+    private String roles;
+    private long expiresAtMs;
+}
@@ -0,0 +1,184 @@
+package com.url.shortner.service;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.models.AccountPurgeJob;
+import com.url.shortner.models.User;
+import com.url.shortner.repository.AccountPurgeJobRepository;
+import com.url.shortner.repository.ClickEventRepository;
+import com.url.shortner.repository.DeviceAccessRepository;
+import com.url.shortner.repository.UrlMappingChangeRepository;
+import com.url.shortner.repository.UrlMappingRepository;
+import com.url.shortner.repository.UserRepository;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * AccountPurgeService - Deletes accounts in the background in small, resumable batches
+ *
+ * Flow:
+ * 1. enqueue() records an AccountPurgeJob for the user (idempotent per user)
+ * 2. UrlCleanupScheduler repeatedly calls runBatch() for the oldest unfinished job
+ * 3. Every batch runs in its own short transaction and removes at most batchSize rows:
+ *    deactivate links -> click events -> device accesses -> url mappings -> user row
+ * 4. The current phase is derived from what is still in the database, so a job
+ *    interrupted by a restart simply continues where it stopped
+ * 5. When sharded, the link steps run shard by shard (each in its own transaction on that
+ *    shard) and the user row is removed once no shard has anything left
+ */
+@Service
+@Slf4j
+public class AccountPurgeService {
+
+    private static final Set<AccountPurgeJob.Status> ACTIVE = EnumSet.of(AccountPurgeJob.Status.PENDING, AccountPurgeJob.Status.RUNNING);
+
+    private final AccountPurgeJobRepository accountPurgeJobRepository;
+    private final UrlMappingRepository urlMappingRepository;
+    private final UrlMappingChangeRepository urlMappingChangeRepository;
+    private final ClickEventRepository clickEventRepository;
+    private final DeviceAccessRepository deviceAccessRepository;
+    private final UserRepository userRepository;
+    private final ShardRouter shardRouter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+    private final int maxAttempts;
+
+    public AccountPurgeService(
+            AccountPurgeJobRepository accountPurgeJobRepository,
+            UrlMappingRepository urlMappingRepository,
+            UrlMappingChangeRepository urlMappingChangeRepository,
+            ClickEventRepository clickEventRepository,
+            DeviceAccessRepository deviceAccessRepository,
+            UserRepository userRepository,
+            ShardRouter shardRouter,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${account.purge.batch-size:1000}") int batchSize,
+            @Value("${account.purge.max-attempts:5}") int maxAttempts) {
+        this.accountPurgeJobRepository = accountPurgeJobRepository;
+        this.urlMappingRepository = urlMappingRepository;
+        this.urlMappingChangeRepository = urlMappingChangeRepository;
+        this.clickEventRepository = clickEventRepository;
+        this.deviceAccessRepository = deviceAccessRepository;
+        this.userRepository = userRepository;
+        this.shardRouter = shardRouter;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Queues the user for purging. Returns the existing job if one is already running.
+     */
+    @Transactional
+    public AccountPurgeJob enqueue(User user) {
+        Optional<AccountPurgeJob> latest = accountPurgeJobRepository.findFirstByUserIdOrderByIdDesc(user.getId());
+        if (latest.isPresent() && ACTIVE.contains(latest.get().getStatus())) {
+            return latest.get();
+        }
+        AccountPurgeJob job = new AccountPurgeJob();
+        job.setUserId(user.getId());
+        job.setUsername(user.getUsername());
+        job.setStatus(AccountPurgeJob.Status.PENDING);
+        job.setEnqueuedAt(LocalDateTime.now());
+        job.setUpdatedAt(job.getEnqueuedAt());
+        log.info("Queued account purge for user: {}", user.getUsername());
+        return accountPurgeJobRepository.save(job);
+    }
+
+    public boolean isPurgeInProgress(Long userId) {
+        return accountPurgeJobRepository.existsByUserIdAndStatusIn(userId, ACTIVE);
+    }
+
+    public Optional<AccountPurgeJob> getLatestJob(Long userId) {
+        return accountPurgeJobRepository.findFirstByUserIdOrderByIdDesc(userId);
+    }
+
+    public Optional<Long> nextJobId() {
+        return accountPurgeJobRepository.findFirstByStatusInOrderByIdAsc(ACTIVE).map(AccountPurgeJob::getId);
+    }
+
+    /**
+     * Runs one bounded step of the job
+     *
+     * @return true if the job still has work left
+     */
+    @Transactional
+    public boolean runBatch(Long jobId) {
+        AccountPurgeJob job = accountPurgeJobRepository.findById(jobId).orElse(null);
+        if (job == null || !ACTIVE.contains(job.getStatus())) {
+            return false;
+        }
+        job.setStatus(AccountPurgeJob.Status.RUNNING);
+        Long userId = job.getUserId();
+
+        boolean linkDataLeft = false;
+        for (int shard = 0; shard < shardRouter.shardCount() && !linkDataLeft; shard++) {
+            linkDataLeft = shardRouter.inTransaction(shard, () -> purgeLinkBatch(job));
+        }
+        if (!linkDataLeft) {
+            if (userRepository.existsById(userId)) {
+                userRepository.deleteById(userId);
+                eventPublisher.publishEvent(new UserChangedEvent(job.getUsername()));
+            }
+            job.setStatus(AccountPurgeJob.Status.DONE);
+            job.setCompletedAt(LocalDateTime.now());
+            log.info("Account purge completed for user: {} ({} URLs, {} clicks, {} device accesses)",
+                    job.getUsername(), job.getDeletedUrls(), job.getDeletedClickEvents(), job.getDeletedDeviceAccesses());
+        }
+        job.setUpdatedAt(LocalDateTime.now());
+        accountPurgeJobRepository.save(job);
+        return job.getStatus() != AccountPurgeJob.Status.DONE;
+    }
+
+    // One bounded step on the current shard; false once the user has no link data left there
+    private boolean purgeLinkBatch(AccountPurgeJob job) {
+        Long userId = job.getUserId();
+        int deleted;
+        if (deactivateUrlBatch(userId) > 0) {
+            // Stop serving redirects (and recording clicks) before removing children
+            log.debug("Purge job {}: deactivated a batch of URLs", job.getId());
+            eventPublisher.publishEvent(UrlMappingChangedEvent.all());
+        } else if ((deleted = clickEventRepository.deleteBatchByUserId(userId, batchSize)) > 0) {
+            job.setDeletedClickEvents(job.getDeletedClickEvents() + deleted);
+        } else if ((deleted = deviceAccessRepository.deleteBatchByUserId(userId, batchSize)) > 0) {
+            job.setDeletedDeviceAccesses(job.getDeletedDeviceAccesses() + deleted);
+        } else if ((deleted = deleteUrlBatch(userId)) > 0) {
+            job.setDeletedUrls(job.getDeletedUrls() + deleted);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    // The change log records the same rows first (both statements take the lowest ids)
+    private int deactivateUrlBatch(Long userId) {
+        urlMappingChangeRepository.recordDeactivatedBatchByUserId(userId, batchSize, LocalDateTime.now());
+        return urlMappingRepository.deactivateBatchByUserId(userId, batchSize);
+    }
+
+    private int deleteUrlBatch(Long userId) {
+        urlMappingChangeRepository.recordDeletedBatchByUserId(userId, batchSize, LocalDateTime.now());
+        return urlMappingRepository.deleteBatchByUserId(userId, batchSize);
+    }
+
+    /**
+     * Records a failed batch. The job is retried on the next run until maxAttempts is reached.
+     */
+    @Transactional
+    public void recordFailure(Long jobId, String error) {
+        accountPurgeJobRepository.findById(jobId).ifPresent(job -> {
+            job.setAttempts(job.getAttempts() + 1);
+            job.setLastError(error != null && error.length() > 255 ? error.substring(0, 255) : error);
+            job.setStatus(job.getAttempts() >= maxAttempts ? AccountPurgeJob.Status.FAILED : AccountPurgeJob.Status.PENDING);
+            job.setUpdatedAt(LocalDateTime.now());
+            accountPurgeJobRepository.save(job);
+        });
+    }
+}
@@ -0,0 +1,8 @@
+package com.url.shortner.service;
+
+/**
+ * Published when invalidations may have been missed (invalidation bus reconnected) -
+ * every node-local cache of users or links must be cleared
+ */
+public record CacheFlushEvent(String reason) {
+}
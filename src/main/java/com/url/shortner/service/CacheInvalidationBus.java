@@ -0,0 +1,315 @@
+package com.url.shortner.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * CacheInvalidationBus - Keeps node-local caches consistent across instances via Postgres LISTEN/NOTIFY
+ *
+ * Outgoing: UserChangedEvent / UrlMappingChangedEvent raised on this node are sent after commit
+ * with pg_notify (several changes are packed into one notification). Incoming: a dedicated
+ * connection LISTENs on the channel and re-publishes other nodes' changes as the same events with
+ * remote=true, so local caches handle local and remote changes through one listener.
+ *
+ * Notifications sent while a node is disconnected are lost, so after every reconnect the node
+ * publishes CacheFlushEvent and all local caches start empty. A periodic heartbeat query detects
+ * dead connections that getNotifications() alone would not notice.
+ *
+ * Lines leave the outgoing queue only once pg_notify succeeded, so a failed send is retried
+ * rather than lost (ContentVersionService has no TTL to fall back on). If sending fails for so
+ * long that MAX_PENDING_LINES pile up, they are replaced by one flush line.
+ *
+ * Payload lines: "<node>|u|<username>", "<node>|m|<id or ->|<shortUrl or ->" ("-|-" = all links),
+ * "<node>|c|<userId or ->|<shortUrl or ->" (ContentChangedEvent, keeps dashboard ETags in step)
+ * and "<node>|f|-" (the node dropped invalidations - flush everything)
+ */
+@Component
+@ConditionalOnProperty(name = "cache.invalidation.enabled", havingValue = "true")
+@Slf4j
+public class CacheInvalidationBus {
+
+    // Postgres limits a payload to 8000 bytes
+    private static final int MAX_PAYLOAD_BYTES = 7500;
+    // Queued lines after which a failing sender gives up on them and sends a flush instead
+    static final int MAX_PENDING_LINES = 100_000;
+    private static final long RETRY_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
+    private final String channel;
+    private final String url;
+    private final String username;
+    private final String password;
+    private final long heartbeatMs;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final ConcurrentLinkedQueue<String> outgoing = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Counter sent;
+    private final Counter received;
+    private final Counter flushes;
+
+    private volatile boolean running = true;
+    private volatile boolean connected = false;
+    private Thread listenerThread;
+    private Thread senderThread;
+    // Sender thread only
+    private boolean flushRequired = false;
+    private long retryAtNanos;
+
+    public CacheInvalidationBus(
+            ApplicationEventPublisher eventPublisher,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${cache.invalidation.channel:cache_invalidation}") String channel,
+            @Value("${cache.invalidation.heartbeat-ms:10000}") long heartbeatMs,
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password) {
+        if (!channel.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Invalid cache.invalidation.channel: " + channel);
+        }
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.channel = channel;
+        this.heartbeatMs = heartbeatMs;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.sent = Counter.builder("cache.invalidation.sent").register(meterRegistry);
+        this.received = Counter.builder("cache.invalidation.received").register(meterRegistry);
+        this.flushes = Counter.builder("cache.invalidation.flushes").register(meterRegistry);
+        Gauge.builder("cache.invalidation.connected", this, bus -> bus.connected ? 1 : 0).register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        startListener();
+        startSender();
+        log.info("Cache invalidation bus started (node {}, channel {})", nodeId, channel);
+    }
+
+    void startListener() {
+        listenerThread = new Thread(this::listenLoop, "cache-invalidation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    void startSender() {
+        senderThread = new Thread(this::sendLoop, "cache-invalidation-sender");
+        senderThread.setDaemon(true);
+        senderThread.start();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        if (!event.remote() && event.username() != null) {
+            enqueue(nodeId + "|u|" + event.username());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUrlMappingChanged(UrlMappingChangedEvent event) {
+        if (!event.remote()) {
+            enqueue(nodeId + "|m|" + (event.id() != null ? event.id() : "-") + "|"
+                    + (event.shortUrl() != null ? event.shortUrl() : "-"));
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onContentChanged(ContentChangedEvent event) {
+        if (!event.remote()) {
+            enqueue(nodeId + "|c|" + (event.userId() != null ? event.userId() : "-") + "|"
+                    + (event.shortUrl() != null ? event.shortUrl() : "-"));
+        }
+    }
+
+    private void enqueue(String line) {
+        outgoing.add(line);
+        pending.incrementAndGet();
+        LockSupport.unpark(senderThread);
+    }
+
+    // ---------------------------------------------------------------- outgoing
+
+    private void sendLoop() {
+        while (running) {
+            // Enqueueing wakes the sender, which must not cut the retry delay short
+            long retryInNanos = retryAtNanos - System.nanoTime();
+            if (retryInNanos > 0) {
+                LockSupport.parkNanos(retryInNanos);
+                continue;
+            }
+            if (pending.get() > MAX_PENDING_LINES) {
+                dropPending();
+            }
+            if (!flushRequired && outgoing.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                continue;
+            }
+            StringBuilder payload = new StringBuilder();
+            int lines = 0;
+            if (flushRequired) {
+                payload.append(nodeId).append("|f|-");
+            } else {
+                // Only this thread removes lines, so the head of the queue stays put until polled below
+                int bytes = 0;
+                for (String line : outgoing) {
+                    int lineBytes = line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    if (lines > 0 && bytes + lineBytes > MAX_PAYLOAD_BYTES) {
+                        break;
+                    }
+                    if (lines > 0) {
+                        payload.append('\n');
+                    }
+                    payload.append(line);
+                    bytes += lineBytes;
+                    lines++;
+                }
+            }
+            try {
+                jdbcTemplate.query("SELECT pg_notify(?, ?)", (ResultSetExtractor<Void>) rs -> null, channel, payload.toString());
+                sent.increment();
+                flushRequired = false;
+                for (int i = 0; i < lines; i++) {
+                    outgoing.poll();
+                    pending.decrementAndGet();
+                }
+            } catch (Exception e) {
+                // The lines stay queued and go out with the next attempt
+                log.warn("Failed to publish cache invalidation ({} lines queued): {}", pending.get(), e.getMessage());
+                retryAtNanos = System.nanoTime() + RETRY_DELAY_NANOS;
+            }
+        }
+    }
+
+    // Too much to catch up on - other nodes flush everything instead
+    private void dropPending() {
+        int dropped = pending.get();
+        for (int i = 0; i < dropped; i++) {
+            outgoing.poll();
+            pending.decrementAndGet();
+        }
+        flushRequired = true;
+        log.warn("Dropped {} queued cache invalidations - other nodes will flush their caches", dropped);
+    }
+
+    // ---------------------------------------------------------------- incoming
+
+    private void listenLoop() {
+        boolean flushOnConnect = false;
+        long backoffMs = 1000;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + channel);
+                }
+                connected = true;
+                backoffMs = 1000;
+                if (flushOnConnect) {
+                    // Anything sent while we were away is gone - start from empty caches
+                    flushes.increment();
+                    eventPublisher.publishEvent(new CacheFlushEvent("cache invalidation bus reconnected"));
+                    log.info("Cache invalidation bus reconnected - local caches flushed");
+                }
+                flushOnConnect = true;
+                receive(connection);
+            } catch (SQLException e) {
+                if (!running) {
+                    break;
+                }
+                log.warn("Cache invalidation bus disconnected: {} - retrying in {} ms", e.getMessage(), backoffMs);
+            } finally {
+                connected = false;
+            }
+            flushOnConnect = true;
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs));
+            backoffMs = Math.min(backoffMs * 2, 30_000);
+        }
+    }
+
+    private void receive(Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        long lastHeartbeat = System.currentTimeMillis();
+        while (running) {
+            PGNotification[] notifications = pgConnection.getNotifications((int) Math.min(heartbeatMs, 1000));
+            if (notifications != null) {
+                for (PGNotification notification : notifications) {
+                    apply(notification.getParameter());
+                }
+            }
+            if (System.currentTimeMillis() - lastHeartbeat >= heartbeatMs) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("SELECT 1");
+                }
+                lastHeartbeat = System.currentTimeMillis();
+            }
+        }
+    }
+
+    void apply(String payload) {
+        for (String line : payload.split("\n")) {
+            String[] parts = line.split("\\|", 3);
+            if (parts.length < 3 || nodeId.equals(parts[0])) {
+                continue;  // malformed, or our own change echoed back
+            }
+            received.increment();
+            try {
+                if ("u".equals(parts[1])) {
+                    eventPublisher.publishEvent(new UserChangedEvent(parts[2], true));
+                } else if ("m".equals(parts[1])) {
+                    String[] link = parts[2].split("\\|", 2);
+                    Long id = "-".equals(link[0]) ? null : Long.valueOf(link[0]);
+                    String shortUrl = link.length < 2 || "-".equals(link[1]) ? null : link[1];
+                    eventPublisher.publishEvent(new UrlMappingChangedEvent(id, shortUrl, true));
+                } else if ("c".equals(parts[1])) {
+                    String[] content = parts[2].split("\\|", 2);
+                    Long userId = "-".equals(content[0]) ? null : Long.valueOf(content[0]);
+                    String shortUrl = content.length < 2 || "-".equals(content[1]) ? null : content[1];
+                    eventPublisher.publishEvent(new ContentChangedEvent(userId, shortUrl, true));
+                } else if ("f".equals(parts[1])) {
+                    flushes.increment();
+                    eventPublisher.publishEvent(new CacheFlushEvent("node " + parts[0] + " dropped cache invalidations"));
+                }
+            } catch (Exception e) {
+                log.warn("Failed to apply cache invalidation '{}': {}", line, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (senderThread != null) {
+            LockSupport.unpark(senderThread);
+        }
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+}
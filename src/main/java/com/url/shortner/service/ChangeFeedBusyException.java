@@ -0,0 +1,16 @@
+package com.url.shortner.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a long poll cannot be parked because change-feed.max-waiters are already waiting (503)
+ */
+@Getter
+public class ChangeFeedBusyException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public ChangeFeedBusyException(long retryAfterSeconds, String message) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,14 @@
+package com.url.shortner.service;
+
+/**
+ * Published when a user's links or a link's analytics change (link created, deleted or clicked),
+ * so ContentVersionService can move the ETags of the affected dashboard endpoints
+ *
+ * remote as in UserChangedEvent.
+ */
+public record ContentChangedEvent(Long userId, String shortUrl, boolean remote) {
+
+    public ContentChangedEvent(Long userId, String shortUrl) {
+        this(userId, shortUrl, false);
+    }
+}
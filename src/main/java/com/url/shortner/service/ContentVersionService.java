@@ -0,0 +1,126 @@
+package com.url.shortner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ContentVersionService - Change versions behind the ETags of the dashboard endpoints
+ *
+ * - per user: /api/urls/myurls and /api/urls/totalClicks (bumped when one of the user's links is
+ *   created, deleted or clicked)
+ * - per link: /api/urls/analytics/{shortUrl} (bumped when the link is clicked or deleted)
+ * - global floor: bumped for changes that cannot be attributed (expiry batches, sweeps, purges),
+ *   and raised to the version of any entry evicted from the bounded maps
+ *
+ * A version is max(entry, floor), so evicting an entry can only make its ETag newer, never
+ * repeat an old one. Versions are stamps from a clock that never goes backwards and starts at
+ * the boot time, so a restarted node issues fresh ETags. ETags also carry a per-node token:
+ * another node's ETag never matches, it just costs a full response. Versions are bumped after
+ * commit, and with CacheInvalidationBus enabled other nodes' changes are applied here too.
+ */
+@Service
+public class ContentVersionService {
+
+    private final String nodeToken = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong floor = new AtomicLong();
+    private final Cache<Long, Long> userVersions;
+    private final Cache<String, Long> linkVersions;
+
+    public ContentVersionService(@Value("${content-version.max-entries:100000}") long maxEntries) {
+        this.userVersions = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .<Long, Long>evictionListener((userId, version, cause) -> raiseFloor(version))
+                .build();
+        this.linkVersions = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .<String, Long>evictionListener((shortUrl, version, cause) -> raiseFloor(version))
+                .build();
+        this.floor.set(nextStamp());
+    }
+
+    /**
+     * Strong ETag for a per-user resource; params distinguish query variants (e.g. date range)
+     */
+    public String userEtag(Long userId, Object... params) {
+        Long version = userVersions.getIfPresent(userId);
+        return etag("u", effective(version), params);
+    }
+
+    /**
+     * Strong ETag for a per-link resource
+     */
+    public String linkEtag(String shortUrl, Object... params) {
+        Long version = linkVersions.getIfPresent(shortUrl);
+        return etag("l", effective(version), params);
+    }
+
+    public void bumpUser(Long userId) {
+        if (userId != null) {
+            userVersions.put(userId, nextStamp());
+        }
+    }
+
+    public void bumpLink(String shortUrl) {
+        if (shortUrl != null) {
+            linkVersions.put(shortUrl, nextStamp());
+        }
+    }
+
+    public void bumpAll() {
+        raiseFloor(nextStamp());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onContentChanged(ContentChangedEvent event) {
+        bumpUser(event.userId());
+        bumpLink(event.shortUrl());
+    }
+
+    // Expiry deactivations only carry the link id, so they move every version
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUrlMappingChanged(UrlMappingChangedEvent event) {
+        if (event.shortUrl() != null) {
+            bumpLink(event.shortUrl());
+        } else {
+            bumpAll();
+        }
+    }
+
+    @EventListener
+    public void onCacheFlush(CacheFlushEvent event) {
+        bumpAll();
+    }
+
+    private long effective(Long version) {
+        long currentFloor = floor.get();
+        return version != null && version > currentFloor ? version : currentFloor;
+    }
+
+    private void raiseFloor(long version) {
+        floor.accumulateAndGet(version, Math::max);
+    }
+
+    // Microsecond-based and strictly increasing, even if the wall clock steps back
+    private long nextStamp() {
+        long now = System.currentTimeMillis() * 1000;
+        return clock.updateAndGet(previous -> Math.max(previous + 1, now));
+    }
+
+    private String etag(String scope, long version, Object... params) {
+        StringBuilder etag = new StringBuilder(48).append('"')
+                .append(scope).append('-').append(nodeToken).append('-').append(Long.toString(version, 36));
+        for (Object param : params) {
+            etag.append('_').append(String.valueOf(param).replace("\"", ""));
+        }
+        return etag.append('"').toString();
+    }
+}
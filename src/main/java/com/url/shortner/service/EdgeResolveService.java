@@ -0,0 +1,94 @@
+package com.url.shortner.service;
+
+import com.url.shortner.dtos.EdgeMappingDTO;
+import com.url.shortner.repository.UrlMappingRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * EdgeResolveService - Batch resolution of short codes for edge proxies and CDN workers
+ *
+ * Edges prefetch their misses in one call instead of forwarding one redirect each. Every
+ * requested code gets an entry with the TTL the edge may cache it for:
+ * - active link: originalUrl and edge.resolve.ttl-seconds, capped at the time left to expiresAt
+ * - one-time link: isActive without originalUrl and ttl 0 - the device check needs the origin,
+ *   so the edge always forwards these
+ * - unknown, inactive or expired code: isActive false for edge.resolve.missing-ttl-seconds, so
+ *   edges can answer 404 themselves for a while
+ *
+ * Redirects served by an edge are not counted as clicks; deletes take up to the TTL to reach edges.
+ */
+@Service
+public class EdgeResolveService {
+
+    private final ShardedUrlMappingService urlMappingService;
+    private final long ttlSeconds;
+    private final long missingTtlSeconds;
+    private final int maxCodes;
+    private final DistributionSummary batchSize;
+
+    public EdgeResolveService(
+            ShardedUrlMappingService urlMappingService,
+            MeterRegistry meterRegistry,
+            @Value("${edge.resolve.ttl-seconds:300}") long ttlSeconds,
+            @Value("${edge.resolve.missing-ttl-seconds:60}") long missingTtlSeconds,
+            @Value("${edge.resolve.max-codes:500}") int maxCodes) {
+        this.urlMappingService = urlMappingService;
+        this.ttlSeconds = ttlSeconds;
+        this.missingTtlSeconds = missingTtlSeconds;
+        this.maxCodes = maxCodes;
+        this.batchSize = DistributionSummary.builder("edge_resolve.batch_size").register(meterRegistry);
+    }
+
+    public int getMaxCodes() {
+        return maxCodes;
+    }
+
+    /**
+     * One entry per distinct code, in request order
+     */
+    public Map<String, EdgeMappingDTO> resolve(Collection<String> codes) {
+        List<String> distinct = codes.stream().filter(Objects::nonNull).distinct().toList();
+        batchSize.record(distinct.size());
+        Map<String, UrlMappingRepository.ResolvedMapping> found = urlMappingService.resolveShortUrls(distinct);
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, EdgeMappingDTO> entries = new LinkedHashMap<>();
+        for (String code : distinct) {
+            entries.put(code, toEntry(found.get(code), now));
+        }
+        return entries;
+    }
+
+    private EdgeMappingDTO toEntry(UrlMappingRepository.ResolvedMapping mapping, LocalDateTime now) {
+        EdgeMappingDTO entry = new EdgeMappingDTO();
+        if (mapping == null || !mapping.isActive()
+                || (mapping.getExpiresAt() != null && !mapping.getExpiresAt().isAfter(now))) {
+            entry.setActive(false);
+            entry.setTtl(missingTtlSeconds);
+            return entry;
+        }
+        entry.setActive(true);
+        entry.setExpiresAt(mapping.getExpiresAt());
+        if (mapping.isOneTime()) {
+            entry.setTtl(0);
+            return entry;
+        }
+        entry.setOriginalUrl(mapping.getOriginalUrl());
+        long ttl = ttlSeconds;
+        if (mapping.getExpiresAt() != null) {
+            ttl = Math.min(ttl, Duration.between(now, mapping.getExpiresAt()).toSeconds());
+        }
+        entry.setTtl(ttl);
+        return entry;
+    }
+}
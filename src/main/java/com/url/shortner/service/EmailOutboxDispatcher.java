@@ -0,0 +1,61 @@
+package com.url.shortner.service;
+
+import com.url.shortner.models.EmailOutboxMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * EmailOutboxDispatcher - Delivers queued emails from the outbox
+ *
+ * Every poll claims up to batchSize due messages (FOR UPDATE SKIP LOCKED, so several nodes can
+ * run this safely), sends them in a single EmailSender call and records the per-message result.
+ * Keeps draining while full batches come back, up to maxBatchesPerRun per poll.
+ */
+@Component
+@Slf4j
+public class EmailOutboxDispatcher {
+
+    // A SENDING row older than this belongs to a dispatcher that died mid-batch
+    private static final long STALE_CLAIM_MINUTES = 5;
+
+    private final EmailService emailService;
+    private final EmailSender emailSender;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    public EmailOutboxDispatcher(
+            EmailService emailService,
+            EmailSender emailSender,
+            @Value("${email.outbox.batch-size:50}") int batchSize,
+            @Value("${email.outbox.max-batches-per-run:20}") int maxBatchesPerRun) {
+        this.emailService = emailService;
+        this.emailSender = emailSender;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        for (int run = 0; run < maxBatchesPerRun; run++) {
+            List<EmailOutboxMessage> batch;
+            try {
+                batch = emailService.claimBatch(batchSize, STALE_CLAIM_MINUTES);
+            } catch (Exception e) {
+                log.error("Failed to claim email outbox batch: {}", e.getMessage());
+                return;
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            List<String> errors = emailSender.send(batch);
+            emailService.recordResults(batch, errors);
+            if (batch.size() < batchSize) {
+                return;
+            }
+        }
+    }
+}
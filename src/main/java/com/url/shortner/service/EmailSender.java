@@ -0,0 +1,17 @@
+package com.url.shortner.service;
+
+import com.url.shortner.models.EmailOutboxMessage;
+
+import java.util.List;
+
+/**
+ * Delivers a batch of outbox messages
+ * Implementations: MailjetEmailSender (email.sender=mailjet, default) and LoggingEmailSender (email.sender=log)
+ */
+public interface EmailSender {
+
+    /**
+     * @return one entry per message, in order - null when the message was accepted, otherwise the error
+     */
+    List<String> send(List<EmailOutboxMessage> messages);
+}
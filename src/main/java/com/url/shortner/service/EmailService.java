@@ -1,97 +1,119 @@
 package com.url.shortner.service;
 
-import com.mailjet.client.ClientOptions;
-import com.mailjet.client.MailjetClient;
-import com.mailjet.client.MailjetRequest;
-import com.mailjet.client.MailjetResponse;
-import com.mailjet.client.resource.Emailv31;
+import com.url.shortner.models.EmailOutboxMessage;
+import com.url.shortner.repository.EmailOutboxRepository;
+import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 /**
- * EmailService - Handles sending emails via Mailjet HTTP API
- *
- * NOTE: Using HTTP API instead of SMTP because Render.com blocks outbound SMTP ports (25, 465, 587)
+ * EmailService - Queues emails in the transactional outbox
  *
  * Flow:
- * 1. UserService calls sendVerificationEmail() after user registration
- * 2. This service creates an HTML email with the verification link
- * 3. Email is sent via Mailjet HTTP API (port 443 - HTTPS, not blocked)
+ * 1. UserService calls sendVerificationEmail() inside the registration transaction
+ * 2. This service renders the HTML email and writes it to email_outbox in that same transaction
+ * 3. EmailOutboxDispatcher later delivers pending messages in batches via EmailSender (Mailjet HTTP API)
  * 4. User clicks the link to verify their email
+ *
+ * Registration never waits on Mailjet, and an email is only sent if the registration committed.
  */
 @Service
 @Slf4j
 public class EmailService {
 
-    private final MailjetClient mailjetClient;
-    private final String senderEmail;
-    private final String senderName;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final int maxAttempts;
 
     public EmailService(
-            @Value("${MAILJET_API_KEY}") String apiKey,
-            @Value("${MAILJET_SECRET_KEY}") String secretKey,
-            @Value("${MAILJET_SENDER_EMAIL}") String senderEmail) {
-
-        ClientOptions options = ClientOptions.builder()
-                .apiKey(apiKey)
-                .apiSecretKey(secretKey)
-                .build();
-
-        this.mailjetClient = new MailjetClient(options);
-        this.senderEmail = senderEmail;
-        this.senderName = "Shortly";
-
-        log.info("EmailService initialized with Mailjet HTTP API (sender: {})", senderEmail);
+            EmailOutboxRepository emailOutboxRepository,
+            @Value("${email.outbox.max-attempts:8}") int maxAttempts) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.maxAttempts = maxAttempts;
     }
 
     /**
-     * Sends verification email to the user with a verification link
+     * Queues verification email to the user with a verification link
      * 
      * @param to - User's email address
      * @param username - User's username for personalized greeting
      * @param verificationLink - Full URL with verification token
      */
+    @Transactional
     public void sendVerificationEmail(String to, String username, String verificationLink) {
-        try {
-            String htmlContent = buildVerificationEmailHtml(username, verificationLink);
+        LocalDateTime now = LocalDateTime.now();
+        EmailOutboxMessage message = new EmailOutboxMessage();
+        message.setRecipientEmail(to);
+        message.setRecipientName(username);
+        message.setSubject("Verify Your Email - Shortly");
+        message.setHtmlBody(buildVerificationEmailHtml(username, verificationLink));
+        message.setStatus(EmailOutboxMessage.Status.PENDING);
+        message.setCreatedAt(now);
+        message.setNextAttemptAt(now);
+        emailOutboxRepository.save(message);
+        log.info("Verification email queued for: {}", to);
+    }
 
-            MailjetRequest request = new MailjetRequest(Emailv31.resource)
-                    .property(Emailv31.MESSAGES, new JSONArray()
-                            .put(new JSONObject()
-                                    .put(Emailv31.Message.FROM, new JSONObject()
-                                            .put("Email", senderEmail)
-                                            .put("Name", senderName))
-                                    .put(Emailv31.Message.TO, new JSONArray()
-                                            .put(new JSONObject()
-                                                    .put("Email", to)
-                                                    .put("Name", username)))
-                                    .put(Emailv31.Message.SUBJECT, "Verify Your Email - Shortly")
-                                    .put(Emailv31.Message.HTMLPART, htmlContent)));
+    /**
+     * Resends verification email (used when user requests new verification link)
+     */
+    @Transactional
+    public void resendVerificationEmail(String to, String username, String verificationLink) {
+        sendVerificationEmail(to, username, verificationLink);
+    }
 
-            MailjetResponse response = mailjetClient.post(request);
+    /**
+     * Claims the next batch of due messages for delivery (status -> SENDING)
+     */
+    @Transactional
+    public List<EmailOutboxMessage> claimBatch(int batchSize, long staleClaimMinutes) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EmailOutboxMessage> batch = emailOutboxRepository.lockNextBatch(now, now.minusMinutes(staleClaimMinutes), batchSize);
+        for (EmailOutboxMessage message : batch) {
+            message.setStatus(EmailOutboxMessage.Status.SENDING);
+            message.setClaimedAt(now);
+        }
+        return emailOutboxRepository.saveAll(batch);
+    }
 
-            if (response.getStatus() == 200) {
-                log.info("Verification email sent successfully to: {} (Status: {})", to, response.getStatus());
+    /**
+     * Records delivery results - failures are retried with exponential backoff until maxAttempts
+     *
+     * @param errors - one entry per message, null when the message was sent
+     */
+    @Transactional
+    public void recordResults(List<EmailOutboxMessage> batch, List<String> errors) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < batch.size(); i++) {
+            EmailOutboxMessage message = batch.get(i);
+            String error = errors.get(i);
+            message.setAttempts(message.getAttempts() + 1);
+            if (error == null) {
+                message.setStatus(EmailOutboxMessage.Status.SENT);
+                message.setSentAt(now);
+                message.setLastError(null);
+            } else if (message.getAttempts() >= maxAttempts) {
+                message.setStatus(EmailOutboxMessage.Status.FAILED);
+                message.setLastError(truncate(error));
+                log.error("Giving up on email {} to {} after {} attempts: {}", message.getId(),
+                        message.getRecipientEmail(), message.getAttempts(), error);
             } else {
-                log.error("Mailjet API error - Status: {}, Data: {}", response.getStatus(), response.getData());
-                throw new RuntimeException("Failed to send verification email. Mailjet returned status: " + response.getStatus());
+                // 30s, 1m, 2m, 4m ... capped at one hour
+                long backoffSeconds = Math.min(3600, 30L << Math.min(message.getAttempts() - 1, 7));
+                message.setStatus(EmailOutboxMessage.Status.PENDING);
+                message.setNextAttemptAt(now.plusSeconds(backoffSeconds));
+                message.setLastError(truncate(error));
             }
-
-        } catch (Exception e) {
-            log.error("Failed to send verification email to {}: {}", to, e.getMessage());
-            throw new RuntimeException("Failed to send verification email. Please try again.");
+            message.setClaimedAt(null);
         }
+        emailOutboxRepository.saveAll(batch);
     }
 
-    /**
-     * Resends verification email (used when user requests new verification link)
-     */
-    public void resendVerificationEmail(String to, String username, String verificationLink) {
-        sendVerificationEmail(to, username, verificationLink);
-        log.info("Verification email resent to: {}", to);
+    private String truncate(String error) {
+        return error.length() > 255 ? error.substring(0, 255) : error;
     }
 
     /**
@@ -0,0 +1,149 @@
+package com.url.shortner.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * HierarchicalTimingWheel - Keeps pending deadlines for a set of long ids
+ *
+ * Each level has 64 slots. A slot on level 0 spans one tick, a slot on level N spans 64^N ticks.
+ * When the clock crosses a slot boundary on a higher level, that slot is cascaded down into the
+ * finer levels, so scheduling and expiring an id are O(1) regardless of how far away the deadline is.
+ *
+ * Rescheduling an id simply replaces its deadline. Stale entries left in old slots are skipped
+ * when their slot is drained, so cancel() never has to search the buckets.
+ *
+ * Not thread-safe on its own - callers synchronize around it.
+ */
+public class HierarchicalTimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private final long tickMs;
+    private final int levels;
+    private final List<List<Set<Long>>> buckets;
+    private final Map<Long, Long> deadlines = new HashMap<>();  // id -> deadline tick
+    private long currentTick;
+
+    public HierarchicalTimingWheel(long tickMs, int levels, long startMs) {
+        if (tickMs <= 0 || levels <= 0 || levels > 10) {
+            throw new IllegalArgumentException("Invalid timing wheel configuration");
+        }
+        this.tickMs = tickMs;
+        this.levels = levels;
+        this.currentTick = startMs / tickMs;
+        this.buckets = new ArrayList<>(levels);
+        for (int level = 0; level < levels; level++) {
+            List<Set<Long>> slots = new ArrayList<>(SLOTS);
+            for (int slot = 0; slot < SLOTS; slot++) {
+                slots.add(new HashSet<>());
+            }
+            buckets.add(slots);
+        }
+    }
+
+    /**
+     * Schedules (or reschedules) an id
+     *
+     * @return true if the deadline is already due - the id is not stored and the caller should handle it now
+     */
+    public boolean schedule(long id, long deadlineMs) {
+        long deadlineTick = Math.floorDiv(deadlineMs + tickMs - 1, tickMs);
+        if (deadlineTick <= currentTick) {
+            deadlines.remove(id);
+            return true;
+        }
+        deadlines.put(id, deadlineTick);
+        place(id, deadlineTick);
+        return false;
+    }
+
+    public void cancel(long id) {
+        deadlines.remove(id);
+    }
+
+    public int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Moves the clock forward and returns every id whose deadline has passed
+     */
+    public List<Long> advanceTo(long nowMs) {
+        long targetTick = nowMs / tickMs;
+        List<Long> due = new ArrayList<>();
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Cascade coarse levels first so entries moving down land in slots we drain below
+            for (int level = highestLevelToCascade(); level >= 1; level--) {
+                cascade(level);
+            }
+            drain(buckets.get(0).get((int) (currentTick & SLOT_MASK)), due);
+        }
+        return due;
+    }
+
+    private int highestLevelToCascade() {
+        int level = 0;
+        while (level + 1 < levels && (currentTick & ((1L << (SLOT_BITS * (level + 1))) - 1)) == 0) {
+            level++;
+        }
+        return level;
+    }
+
+    private void cascade(int level) {
+        Set<Long> slot = buckets.get(level).get((int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(slot);
+        slot.clear();
+        for (Long id : ids) {
+            Long deadlineTick = deadlines.get(id);
+            if (deadlineTick != null) {
+                place(id, deadlineTick);
+            }
+        }
+    }
+
+    private void drain(Set<Long> slot, List<Long> due) {
+        if (slot.isEmpty()) {
+            return;
+        }
+        for (Long id : slot) {
+            Long deadlineTick = deadlines.get(id);
+            // Skip ids that were cancelled or rescheduled to a later tick
+            if (deadlineTick != null && deadlineTick <= currentTick) {
+                deadlines.remove(id);
+                due.add(id);
+            }
+        }
+        slot.clear();
+    }
+
+    private void place(long id, long deadlineTick) {
+        long delta = deadlineTick - currentTick;
+        if (delta <= 0) {
+            // Only reachable while cascading - due on the current tick
+            buckets.get(0).get((int) (currentTick & SLOT_MASK)).add(id);
+            return;
+        }
+        int level = 0;
+        while (level + 1 < levels && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        long slotTick = deadlineTick;
+        long maxDelta = 1L << (SLOT_BITS * (level + 1));
+        if (delta >= maxDelta) {
+            // Beyond the top level's range - park it in the furthest slot and re-place on cascade
+            slotTick = currentTick + maxDelta - 1;
+        }
+        buckets.get(level).get((int) ((slotTick >>> (SLOT_BITS * level)) & SLOT_MASK)).add(id);
+    }
+}
@@ -0,0 +1,28 @@
+package com.url.shortner.service;
+
+import com.url.shortner.models.EmailOutboxMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * LoggingEmailSender - Local/test stand-in for Mailjet (email.sender=log)
+ * Logs each message instead of sending it and reports every message as delivered.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "email.sender", havingValue = "log")
+public class LoggingEmailSender implements EmailSender {
+
+    @Override
+    public List<String> send(List<EmailOutboxMessage> messages) {
+        for (EmailOutboxMessage message : messages) {
+            log.info("[email stub] To: {} <{}> | Subject: {}", message.getRecipientName(),
+                    message.getRecipientEmail(), message.getSubject());
+        }
+        return Collections.nCopies(messages.size(), null);
+    }
+}
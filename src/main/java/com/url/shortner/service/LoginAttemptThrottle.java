@@ -0,0 +1,90 @@
+package com.url.shortner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LoginAttemptThrottle - In-memory failure counters per account and per client IP
+ *
+ * Each key gets a fixed window that starts at its first failure. Once the window holds
+ * maxFailures failures, further attempts are rejected until the window ends - without
+ * spending a BCrypt verification on them. A successful login clears the account counter.
+ */
+@Service
+public class LoginAttemptThrottle {
+
+    private final Cache<String, FailureWindow> accountFailures;
+    private final Cache<String, FailureWindow> ipFailures;
+    private final int maxAccountFailures;
+    private final int maxIpFailures;
+    private final long windowMs;
+
+    public LoginAttemptThrottle(
+            @Value("${login.throttle.max-account-failures:5}") int maxAccountFailures,
+            @Value("${login.throttle.max-ip-failures:20}") int maxIpFailures,
+            @Value("${login.throttle.window-seconds:900}") long windowSeconds,
+            @Value("${login.throttle.max-tracked-keys:100000}") long maxTrackedKeys) {
+        this.maxAccountFailures = maxAccountFailures;
+        this.maxIpFailures = maxIpFailures;
+        this.windowMs = windowSeconds * 1000;
+        // expireAfterWrite measures from insertion - counters are mutated in place, so the window is fixed
+        this.accountFailures = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .maximumSize(maxTrackedKeys)
+                .build();
+        this.ipFailures = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(windowSeconds))
+                .maximumSize(maxTrackedKeys)
+                .build();
+    }
+
+    /**
+     * Throws LoginRejectedException (429) if either the account or the IP is over its limit
+     */
+    public void checkAllowed(String username, String clientIp) {
+        long now = System.currentTimeMillis();
+        check(accountFailures.getIfPresent(normalize(username)), maxAccountFailures, now);
+        check(clientIp != null ? ipFailures.getIfPresent(clientIp) : null, maxIpFailures, now);
+    }
+
+    public void recordFailure(String username, String clientIp) {
+        long now = System.currentTimeMillis();
+        accountFailures.get(normalize(username), key -> new FailureWindow(now)).failures.incrementAndGet();
+        if (clientIp != null) {
+            ipFailures.get(clientIp, key -> new FailureWindow(now)).failures.incrementAndGet();
+        }
+    }
+
+    public void recordSuccess(String username) {
+        accountFailures.invalidate(normalize(username));
+    }
+
+    private void check(FailureWindow window, int maxFailures, long now) {
+        if (window == null || window.failures.get() < maxFailures) {
+            return;
+        }
+        long retryAfterMs = window.startedAtMs + windowMs - now;
+        if (retryAfterMs > 0) {
+            throw new LoginRejectedException(429, Math.max(1, retryAfterMs / 1000),
+                    "Too many failed login attempts. Please try again later.");
+        }
+    }
+
+    private String normalize(String username) {
+        return username == null ? "" : username.trim().toLowerCase();
+    }
+
+    private static final class FailureWindow {
+        private final long startedAtMs;
+        private final AtomicInteger failures = new AtomicInteger();
+
+        private FailureWindow(long startedAtMs) {
+            this.startedAtMs = startedAtMs;
+        }
+    }
+}
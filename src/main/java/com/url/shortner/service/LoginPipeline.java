@@ -0,0 +1,118 @@
+package com.url.shortner.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LoginPipeline - Runs BCrypt password verification on a small, bounded pool
+ *
+ * BCrypt is deliberately CPU-heavy. Running it on Tomcat threads lets a credential-stuffing
+ * burst occupy every core and starve redirects, so verification is capped at a fixed number
+ * of threads (half the cores by default) with a bounded queue:
+ * - Throttled accounts/IPs are rejected up front (429) by LoginAttemptThrottle
+ * - A full queue is rejected immediately (503)
+ * - A request that waited in the queue longer than maxQueueWaitMs is shed without hashing (503)
+ */
+@Service
+@Slf4j
+public class LoginPipeline {
+
+    private final AuthenticationManager authenticationManager;
+    private final LoginAttemptThrottle loginAttemptThrottle;
+    private final ThreadPoolExecutor executor;
+    private final long maxQueueWaitMs;
+
+    public LoginPipeline(
+            AuthenticationManager authenticationManager,
+            LoginAttemptThrottle loginAttemptThrottle,
+            @Value("${login.pipeline.threads:0}") int threads,
+            @Value("${login.pipeline.queue-capacity:64}") int queueCapacity,
+            @Value("${login.pipeline.max-queue-wait-ms:2000}") long maxQueueWaitMs) {
+        this.authenticationManager = authenticationManager;
+        this.loginAttemptThrottle = loginAttemptThrottle;
+        this.maxQueueWaitMs = maxQueueWaitMs;
+
+        // 0 = auto: leave at least half of the cores for redirects and the API
+        int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "login-verify-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        log.info("Login pipeline started with {} verification threads (queue capacity {})", poolSize, queueCapacity);
+    }
+
+    /**
+     * Authenticates the credentials on the verification pool
+     *
+     * @throws LoginRejectedException if throttled or overloaded
+     * @throws org.springframework.security.core.AuthenticationException if the credentials are wrong
+     */
+    public Authentication authenticate(String username, String password, String clientIp) {
+        loginAttemptThrottle.checkAllowed(username, clientIp);
+
+        long enqueuedAt = System.nanoTime();
+        Future<Authentication> result;
+        try {
+            result = executor.submit(() -> {
+                long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedAt);
+                if (waitedMs > maxQueueWaitMs) {
+                    throw overloaded();
+                }
+                return authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+            });
+        } catch (RejectedExecutionException e) {
+            throw overloaded();
+        }
+
+        try {
+            // Upper bound only - the worker sheds stale requests itself, this covers a stuck verification
+            Authentication authentication = result.get(maxQueueWaitMs * 2 + 5000, TimeUnit.MILLISECONDS);
+            loginAttemptThrottle.recordSuccess(username);
+            return authentication;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof BadCredentialsException) {
+                loginAttemptThrottle.recordFailure(username, clientIp);
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException("Login failed. Please try again.", cause);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            throw overloaded();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw overloaded();
+        }
+    }
+
+    private LoginRejectedException overloaded() {
+        return new LoginRejectedException(503, 1, "Login service is busy. Please try again in a moment.");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
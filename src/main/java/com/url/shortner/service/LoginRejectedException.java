@@ -0,0 +1,19 @@
+package com.url.shortner.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a login is refused before the password is checked -
+ * too many recent failures (429) or the verification pool is saturated (503)
+ */
+@Getter
+public class LoginRejectedException extends RuntimeException {
+    private final int status;
+    private final long retryAfterSeconds;
+
+    public LoginRejectedException(int status, long retryAfterSeconds, String message) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
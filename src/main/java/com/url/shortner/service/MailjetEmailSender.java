@@ -0,0 +1,123 @@
+package com.url.shortner.service;
+
+import com.mailjet.client.ClientOptions;
+import com.mailjet.client.MailjetClient;
+import com.mailjet.client.MailjetRequest;
+import com.mailjet.client.MailjetResponse;
+import com.mailjet.client.resource.Emailv31;
+import com.url.shortner.models.EmailOutboxMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MailjetEmailSender - Sends outbox batches through the Mailjet v3.1 Send API
+ *
+ * NOTE: Using HTTP API instead of SMTP because Render.com blocks outbound SMTP ports (25, 465, 587)
+ *
+ * v3.1 accepts up to 50 Messages per call and reports a Status per message, so one HTTP
+ * round trip delivers a whole batch and partial failures are retried individually.
+ */
+@Service
+@Slf4j
+@ConditionalOnProperty(name = "email.sender", havingValue = "mailjet", matchIfMissing = true)
+public class MailjetEmailSender implements EmailSender {
+
+    private final String apiKey;
+    private final String secretKey;
+    private final String senderEmail;
+    private final String senderName;
+
+    // Built on first send: constructing the client (OkHttp, TLS) was a noticeable part of startup
+    private volatile MailjetClient mailjetClient;
+
+    public MailjetEmailSender(
+            @Value("${MAILJET_API_KEY}") String apiKey,
+            @Value("${MAILJET_SECRET_KEY}") String secretKey,
+            @Value("${MAILJET_SENDER_EMAIL}") String senderEmail) {
+        this.apiKey = apiKey;
+        this.secretKey = secretKey;
+        this.senderEmail = senderEmail;
+        this.senderName = "Shortly";
+
+        log.info("MailjetEmailSender configured with Mailjet HTTP API (sender: {})", senderEmail);
+    }
+
+    private MailjetClient client() {
+        MailjetClient client = mailjetClient;
+        if (client == null) {
+            synchronized (this) {
+                client = mailjetClient;
+                if (client == null) {
+                    client = new MailjetClient(ClientOptions.builder()
+                            .apiKey(apiKey)
+                            .apiSecretKey(secretKey)
+                            .build());
+                    mailjetClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    @Override
+    public List<String> send(List<EmailOutboxMessage> messages) {
+        JSONArray payload = new JSONArray();
+        for (EmailOutboxMessage message : messages) {
+            payload.put(new JSONObject()
+                    .put(Emailv31.Message.FROM, new JSONObject()
+                            .put("Email", senderEmail)
+                            .put("Name", senderName))
+                    .put(Emailv31.Message.TO, new JSONArray()
+                            .put(new JSONObject()
+                                    .put("Email", message.getRecipientEmail())
+                                    .put("Name", message.getRecipientName())))
+                    .put(Emailv31.Message.SUBJECT, message.getSubject())
+                    .put(Emailv31.Message.HTMLPART, message.getHtmlBody())
+                    .put("CustomID", "outbox-" + message.getId()));
+        }
+
+        try {
+            MailjetResponse response = client().post(new MailjetRequest(Emailv31.resource)
+                    .property(Emailv31.MESSAGES, payload));
+
+            if (response.getStatus() == 200) {
+                log.info("Mailjet accepted {} messages", messages.size());
+                return Collections.nCopies(messages.size(), null);
+            }
+            log.error("Mailjet API error - Status: {}, Data: {}", response.getStatus(), response.getRawResponseContent());
+            return perMessageResults(response, messages.size());
+        } catch (Exception e) {
+            log.error("Failed to call Mailjet for {} messages: {}", messages.size(), e.getMessage());
+            return Collections.nCopies(messages.size(), "Mailjet request failed: " + e.getMessage());
+        }
+    }
+
+    // Non-200 responses still list a Status per message; anything we can't read counts as failed
+    private List<String> perMessageResults(MailjetResponse response, int count) {
+        String fallback = "Mailjet returned status " + response.getStatus();
+        List<String> results = new ArrayList<>(Collections.nCopies(count, fallback));
+        try {
+            JSONArray statuses = new JSONObject(response.getRawResponseContent()).optJSONArray("Messages");
+            for (int i = 0; statuses != null && i < Math.min(count, statuses.length()); i++) {
+                JSONObject status = statuses.getJSONObject(i);
+                if ("success".equalsIgnoreCase(status.optString("Status"))) {
+                    results.set(i, null);
+                } else {
+                    JSONArray errors = status.optJSONArray("Errors");
+                    results.set(i, errors != null && errors.length() > 0 ? errors.toString() : fallback);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Could not parse Mailjet response: {}", e.getMessage());
+        }
+        return results;
+    }
+}
@@ -0,0 +1,98 @@
+package com.url.shortner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OneTimeAccessCache - Recently seen device fingerprints per one-time link
+ *
+ * The device_access unique constraint is what enforces one access per device; this only lets
+ * repeat clicks be rejected before any shard is queried. A fingerprint is added once the
+ * database holds its row (after commit for a new access), so a hit is always a correct reject
+ * and a miss just falls through to the database. Per-link sets are capped - fingerprints past
+ * the cap are not remembered.
+ */
+@Service
+public class OneTimeAccessCache {
+
+    private final Cache<String, Set<String>> seenByLink;
+    private final int maxFingerprintsPerLink;
+    private final Counter fastRejects;
+
+    public OneTimeAccessCache(
+            MeterRegistry meterRegistry,
+            @Value("${one-time.seen-cache.max-links:10000}") long maxLinks,
+            @Value("${one-time.seen-cache.max-fingerprints-per-link:1024}") int maxFingerprintsPerLink,
+            @Value("${one-time.seen-cache.ttl-minutes:60}") long ttlMinutes) {
+        this.seenByLink = Caffeine.newBuilder()
+                .maximumSize(maxLinks)
+                .expireAfterAccess(Duration.ofMinutes(ttlMinutes))
+                .build();
+        this.maxFingerprintsPerLink = maxFingerprintsPerLink;
+        this.fastRejects = Counter.builder("one_time.fast_rejects").register(meterRegistry);
+    }
+
+    /**
+     * True if this device is known to have used the link already
+     */
+    public boolean isSeen(String shortUrl, String deviceFingerprint) {
+        Set<String> seen = seenByLink.getIfPresent(shortUrl);
+        if (seen != null && seen.contains(deviceFingerprint)) {
+            fastRejects.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remembers the access once the current transaction commits (immediately if there is none)
+     */
+    public void markSeenAfterCommit(String shortUrl, String deviceFingerprint) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markSeen(shortUrl, deviceFingerprint);
+                }
+            });
+        } else {
+            markSeen(shortUrl, deviceFingerprint);
+        }
+    }
+
+    // For accesses already committed by another request
+    public void markSeen(String shortUrl, String deviceFingerprint) {
+        Set<String> seen = seenByLink.get(shortUrl, key -> ConcurrentHashMap.newKeySet());
+        if (seen.size() < maxFingerprintsPerLink) {
+            seen.add(deviceFingerprint);
+        }
+    }
+
+    // Expiry deactivations only carry the id - expired links are rejected anyway, so they are left alone
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUrlMappingChanged(UrlMappingChangedEvent event) {
+        if (event.shortUrl() != null) {
+            seenByLink.invalidate(event.shortUrl());
+        } else if (event.isAll()) {
+            seenByLink.invalidateAll();
+        }
+    }
+
+    @EventListener
+    public void onCacheFlush(CacheFlushEvent event) {
+        seenByLink.invalidateAll();
+    }
+}
@@ -0,0 +1,188 @@
+package com.url.shortner.service;
+
+import com.url.shortner.analytics.ClickDimensionDictionary;
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.dtos.ClickBreakdownDTO;
+import com.url.shortner.dtos.ClickEventDTO;
+import com.url.shortner.dtos.CreateUrlRequest;
+import com.url.shortner.dtos.UrlMappingDTO;
+import com.url.shortner.models.UrlMapping;
+import com.url.shortner.repository.ClickEventRepository;
+import com.url.shortner.repository.UrlMappingRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ShardedUrlMappingService - Entry point for url mapping operations (controllers, scheduler)
+ *
+ * Routes every call of UrlMappingService to the right shard(s) before its transaction starts:
+ * - by short URL (redirect, analytics): exactly one shard, plus the pre-resize owner while rebalancing
+ * - redirect: the read (shared by concurrent callers, ShortUrlLookupCoalescer) and the click are
+ *   separate transactions, so callers waiting for a shared read hold no connection
+ * - by user or globally (listing, totals, delete by id, cleanup): scatter-gather over all shards
+ *
+ * With sharding disabled there is one shard and every call goes straight through.
+ */
+@Service
+@AllArgsConstructor
+public class ShardedUrlMappingService {
+    private UrlMappingService urlMappingService;
+    private ShardRouter shardRouter;
+    private OneTimeAccessCache oneTimeAccessCache;
+    private ClickDimensionDictionary clickDimensionDictionary;
+    private ShortCodeIndexService shortCodeIndexService;
+    private ShortUrlLookupCoalescer shortUrlLookupCoalescer;
+
+    // UrlMappingService picks the shard from the generated short code itself
+    public UrlMappingDTO createShortUrlWithRequest(CreateUrlRequest request, Long userId, String username) {
+        return urlMappingService.createShortUrlWithRequest(request, userId, username);
+    }
+
+    public UrlMapping getOriginalUrl(String shortUrl, String deviceFingerprint) {
+        return getOriginalUrl(shortUrl, deviceFingerprint, null, null);
+    }
+
+    public UrlMapping getOriginalUrl(String shortUrl, String deviceFingerprint, String userAgent, String referer) {
+        // Repeat click on a one-time link from the same device - no shard needs to be asked
+        if (deviceFingerprint != null && oneTimeAccessCache.isSeen(shortUrl, deviceFingerprint)) {
+            return null;
+        }
+        // Indexed link: only the click is written; a stale entry is evicted and the lookup below decides
+        ShortCodeIndex.Entry indexed = shortCodeIndexService.lookup(shortUrl);
+        if (indexed != null) {
+            if (indexed.isExpired(System.currentTimeMillis())) {
+                return null;
+            }
+            for (int shard : shardRouter.candidateShardsFor(shortUrl)) {
+                if (shardRouter.onShard(shard, () -> urlMappingService.recordIndexedClick(
+                        indexed.id(), shortUrl, indexed.ownerId(), userAgent, referer))) {
+                    return toUrlMapping(shortUrl, indexed);
+                }
+            }
+            shortCodeIndexService.evict(shortUrl);
+        }
+        for (int shard : shardRouter.candidateShardsFor(shortUrl)) {
+            UrlMapping found = shardRouter.onShard(shard, () -> shortUrlLookupCoalescer.lookup(shortUrl,
+                    () -> urlMappingService.findByShortUrl(shortUrl)));
+            if (found == null) {
+                continue;
+            }
+            // The shard holding the row decides; each caller counts its own click
+            UrlMapping urlMapping = shardRouter.onShard(shard,
+                    () -> urlMappingService.recordClick(found, deviceFingerprint, userAgent, referer));
+            if (urlMapping != null) {
+                shortCodeIndexService.record(urlMapping);
+            }
+            return urlMapping;
+        }
+        return null;
+    }
+
+    // Detached mapping with the fields a redirect needs
+    private static UrlMapping toUrlMapping(String shortUrl, ShortCodeIndex.Entry indexed) {
+        UrlMapping urlMapping = new UrlMapping();
+        urlMapping.setId(indexed.id());
+        urlMapping.setShortUrl(shortUrl);
+        urlMapping.setOriginalUrl(indexed.originalUrl());
+        return urlMapping;
+    }
+
+    /**
+     * Resolves many codes with one IN query per shard: codes are grouped by owner shard, and the
+     * ones not found there are asked of their pre-resize owner while rebalancing
+     */
+    public Map<String, UrlMappingRepository.ResolvedMapping> resolveShortUrls(Collection<String> shortUrls) {
+        Map<String, UrlMappingRepository.ResolvedMapping> resolved = new HashMap<>();
+        Set<String> pending = new LinkedHashSet<>(shortUrls);
+        for (int candidate = 0; !pending.isEmpty(); candidate++) {
+            Map<Integer, List<String>> byShard = new HashMap<>();
+            for (String shortUrl : pending) {
+                int[] shards = shardRouter.candidateShardsFor(shortUrl);
+                if (candidate < shards.length) {
+                    byShard.computeIfAbsent(shards[candidate], shard -> new ArrayList<>()).add(shortUrl);
+                }
+            }
+            if (byShard.isEmpty()) {
+                break;
+            }
+            byShard.forEach((shard, codes) -> shardRouter.onShard(shard, () -> urlMappingService.resolveShortUrls(codes))
+                    .forEach(mapping -> resolved.put(mapping.getShortUrl(), mapping)));
+            pending.removeAll(resolved.keySet());
+        }
+        return resolved;
+    }
+
+    public List<ClickEventDTO> getClickEventsByDate(String shortUrl, LocalDateTime start, LocalDateTime end) {
+        for (int shard : shardRouter.candidateShardsFor(shortUrl)) {
+            List<ClickEventDTO> clickEvents = shardRouter.onShard(shard, () -> urlMappingService.getClickEventsByDate(shortUrl, start, end));
+            if (clickEvents != null) {
+                return clickEvents;
+            }
+        }
+        return null;
+    }
+
+    public ClickBreakdownDTO getClickBreakdownByDate(String shortUrl, LocalDateTime start, LocalDateTime end) {
+        for (int shard : shardRouter.candidateShardsFor(shortUrl)) {
+            List<ClickEventRepository.DimensionCount> counts = shardRouter.onShard(shard,
+                    () -> urlMappingService.getClickDimensionsByDate(shortUrl, start, end));
+            if (counts != null) {
+                return clickDimensionDictionary.breakdown(counts);
+            }
+        }
+        return null;
+    }
+
+    // Dimension ids are global (dictionary on shard 0), so per-shard counts merge before decoding
+    public ClickBreakdownDTO getClickBreakdownByUser(Long userId, LocalDate start, LocalDate end) {
+        List<ClickEventRepository.DimensionCount> counts = shardRouter
+                .onAllShards(() -> urlMappingService.getClickDimensionsByUser(userId, start, end)).stream()
+                .flatMap(List::stream)
+                .toList();
+        return clickDimensionDictionary.breakdown(counts);
+    }
+
+    public List<UrlMappingDTO> getUrlsByUser(Long userId, String username) {
+        return shardRouter.onAllShards(() -> urlMappingService.getUrlsByUser(userId, username)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing(UrlMappingDTO::getId))
+                .toList();
+    }
+
+    public Map<LocalDate, Long> getTotalClicksByUserAndDate(Long userId, LocalDate start, LocalDate end) {
+        List<Map<LocalDate, Long>> perShard = shardRouter.onAllShards(() -> urlMappingService.getTotalClicksByUserAndDate(userId, start, end));
+        if (perShard.size() == 1) {
+            return perShard.get(0);
+        }
+        Map<LocalDate, Long> totals = new HashMap<>();
+        perShard.forEach(shardTotals -> shardTotals.forEach((date, count) -> totals.merge(date, count, Long::sum)));
+        return totals;
+    }
+
+    // Ids are globally unique (interleaved per shard), so at most one shard has the row
+    public boolean deleteUrl(Long urlId, Long userId) {
+        return shardRouter.onAllShards(() -> urlMappingService.deleteUrl(urlId, userId)).contains(true);
+    }
+
+    public int cleanupExpiredUrls() {
+        return shardRouter.onAllShards(urlMappingService::cleanupExpiredUrls).stream().mapToInt(Integer::intValue).sum();
+    }
+
+    public void cleanupOldUrls() {
+        shardRouter.onAllShards(() -> {
+            urlMappingService.cleanupOldUrls();
+            return null;
+        });
+    }
+}
@@ -0,0 +1,409 @@
+package com.url.shortner.service;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ShortCodeIndex - Open-addressing hash table of links in a memory-mapped file
+ *
+ * Layout of the file (all off-heap, nothing per entry lives on the Java heap):
+ * - header: magic, format version, sizes, a clean-shutdown flag and a sync watermark per shard
+ * - slots: slotCount x (packed short code, record offset), linear probing
+ * - records: append-only region of (packed code, link id, owner id, expiry, UTF-8 original URL)
+ *
+ * Short codes are 8 base62 characters, packed into a long (62^8 < 2^48); 0 marks an empty slot
+ * and -1 a removed one. Only such codes are indexed - anything else is simply never found.
+ *
+ * One writer at a time (the methods that modify are synchronized), any number of lock-free
+ * readers. A record is fully written before its slot points at it, and every record repeats its
+ * code, so a reader racing with a remove or a slot reuse sees either the old entry or nothing.
+ *
+ * The file is reused on the next start only if it was closed cleanly with the same sizes;
+ * otherwise it is recreated empty. Nothing is ever compacted: once the records region or the
+ * slot load limit is reached, put() returns false until the file is rebuilt.
+ *
+ * After close() the modifying methods do nothing, so a click or delete racing with shutdown
+ * cannot fail its request; get() finds nothing.
+ */
+public final class ShortCodeIndex implements AutoCloseable {
+
+    public static final int MAX_SHARDS = 64;
+
+    private static final long MAGIC = 0x5348_4f52_5449_4458L;  // "SHORTIDX"
+    private static final int FORMAT_VERSION = 1;
+    private static final long HEADER_BYTES = 4096;
+    private static final long SLOT_BYTES = 16;
+    private static final long EMPTY = 0;
+    private static final long REMOVED = -1;
+    private static final long NO_OWNER = -1;
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+    private static final String BASE62 = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    // Header fields
+    private static final long H_MAGIC = 0;
+    private static final long H_VERSION = 8;
+    private static final long H_CLEAN = 12;
+    private static final long H_SLOTS = 16;
+    private static final long H_DATA_BYTES = 24;
+    private static final long H_SIZE = 32;
+    private static final long H_USED_SLOTS = 40;
+    private static final long H_DATA_END = 48;
+    private static final long H_WATERMARKS = 64;
+
+    // Record fields
+    private static final long R_CODE = 0;
+    private static final long R_ID = 8;
+    private static final long R_OWNER = 16;
+    private static final long R_EXPIRES = 24;
+    private static final long R_URL_LENGTH = 32;
+    private static final long R_URL = 36;
+
+    private final FileChannel channel;
+    private final FileLock lock;
+    private final Arena arena;
+    private final MemorySegment file;
+    private final long slotCount;
+    private final long mask;
+    private final long maxUsedSlots;
+    private final long dataOffset;
+    private final long dataBytes;
+    private final boolean restored;
+    private volatile boolean closed;
+
+    private ShortCodeIndex(FileChannel channel, FileLock lock, Arena arena, MemorySegment file,
+                           long slotCount, long dataBytes, boolean restored) {
+        this.channel = channel;
+        this.lock = lock;
+        this.arena = arena;
+        this.file = file;
+        this.slotCount = slotCount;
+        this.mask = slotCount - 1;
+        this.maxUsedSlots = slotCount / 4 * 3;
+        this.dataOffset = HEADER_BYTES + slotCount * SLOT_BYTES;
+        this.dataBytes = dataBytes;
+        this.restored = restored;
+    }
+
+    /**
+     * Maps the file, reusing its entries if it was closed cleanly with the same sizes
+     *
+     * @param slotCount rounded up to a power of two; at most 3/4 of the slots are filled
+     * @param dataBytes size of the records region (about 40 bytes plus the URL per link)
+     * @throws IOException if the file cannot be mapped or another process holds it
+     */
+    public static ShortCodeIndex open(Path path, long slotCount, long dataBytes) throws IOException {
+        long slots = Long.highestOneBit(Math.max(slotCount, 16) - 1) << 1;
+        long size = HEADER_BYTES + slots * SLOT_BYTES + dataBytes;
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Arena arena = null;
+        try {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                throw new IOException(path + " is in use by another process");
+            }
+            boolean reusable = channel.size() == size && isCleanFile(channel, slots, dataBytes);
+            if (!reusable) {
+                // Sparse: only the pages that get written take disk space
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+            }
+            arena = Arena.ofShared();
+            MemorySegment file = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+            if (!reusable) {
+                file.set(ValueLayout.JAVA_LONG, H_SLOTS, slots);
+                file.set(ValueLayout.JAVA_LONG, H_DATA_BYTES, dataBytes);
+                file.set(ValueLayout.JAVA_INT, H_VERSION, FORMAT_VERSION);
+                file.set(ValueLayout.JAVA_LONG, H_MAGIC, MAGIC);
+            }
+            // Marked dirty while open - a crash leaves it dirty and the next start rebuilds
+            file.set(ValueLayout.JAVA_INT, H_CLEAN, 0);
+            file.asSlice(0, HEADER_BYTES).force();
+            return new ShortCodeIndex(channel, lock, arena, file, slots, dataBytes, reusable);
+        } catch (IOException | RuntimeException e) {
+            if (arena != null) {
+                arena.close();
+            }
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static boolean isCleanFile(FileChannel channel, long slots, long dataBytes) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(32).order(ByteOrder.nativeOrder());
+        channel.read(header, 0);
+        header.flip();
+        return header.remaining() == 32
+                && header.getLong((int) H_MAGIC) == MAGIC
+                && header.getInt((int) H_VERSION) == FORMAT_VERSION
+                && header.getInt((int) H_CLEAN) == 1
+                && header.getLong((int) H_SLOTS) == slots
+                && header.getLong((int) H_DATA_BYTES) == dataBytes;
+    }
+
+    /**
+     * True if the entries of the previous run were kept
+     */
+    public boolean isRestored() {
+        return restored;
+    }
+
+    /**
+     * The indexed link for the code, or null
+     */
+    public Entry get(String shortUrl) {
+        long code = pack(shortUrl);
+        if (code == EMPTY || closed) {
+            return null;
+        }
+        for (long slot = hash(code) & mask, probes = 0; probes < slotCount; slot = (slot + 1) & mask, probes++) {
+            long slotOffset = HEADER_BYTES + slot * SLOT_BYTES;
+            long slotCode = file.get(ValueLayout.JAVA_LONG, slotOffset);
+            if (slotCode == EMPTY) {
+                return null;
+            }
+            if (slotCode != code) {
+                continue;
+            }
+            VarHandle.acquireFence();
+            long record = file.get(ValueLayout.JAVA_LONG, slotOffset + 8);
+            if (file.get(ValueLayout.JAVA_LONG, record + R_CODE) != code) {
+                return null;  // slot reused by a concurrent put
+            }
+            int urlLength = file.get(ValueLayout.JAVA_INT, record + R_URL_LENGTH);
+            byte[] url = new byte[urlLength];
+            MemorySegment.copy(file, ValueLayout.JAVA_BYTE, record + R_URL, url, 0, urlLength);
+            long owner = file.get(ValueLayout.JAVA_LONG, record + R_OWNER);
+            long expires = file.get(ValueLayout.JAVA_LONG, record + R_EXPIRES);
+            return new Entry(file.get(ValueLayout.JAVA_LONG, record + R_ID),
+                    owner == NO_OWNER ? null : owner,
+                    new String(url, StandardCharsets.UTF_8),
+                    expires == NO_EXPIRY ? null : expires);
+        }
+        return null;
+    }
+
+    /**
+     * Adds or replaces the entry for the code
+     *
+     * @return false if the code cannot be indexed, the index is full or closed
+     */
+    public synchronized boolean put(String shortUrl, long id, Long ownerId, String originalUrl, Long expiresAtMs) {
+        long code = pack(shortUrl);
+        if (code == EMPTY || originalUrl == null || closed) {
+            return false;
+        }
+        long target = -1;
+        boolean replacing = false;
+        for (long slot = hash(code) & mask, probes = 0; probes < slotCount; slot = (slot + 1) & mask, probes++) {
+            long slotCode = file.get(ValueLayout.JAVA_LONG, HEADER_BYTES + slot * SLOT_BYTES);
+            if (slotCode == code) {
+                target = slot;
+                replacing = true;
+                break;
+            }
+            if (slotCode == REMOVED && target == -1) {
+                target = slot;  // reused unless the code turns up further along
+            } else if (slotCode == EMPTY) {
+                if (target == -1) {
+                    if (header(H_USED_SLOTS) >= maxUsedSlots) {
+                        return false;
+                    }
+                    target = slot;
+                    setHeader(H_USED_SLOTS, header(H_USED_SLOTS) + 1);
+                }
+                break;
+            }
+        }
+        if (target == -1) {
+            return false;
+        }
+
+        byte[] url = originalUrl.getBytes(StandardCharsets.UTF_8);
+        if (replacing && sameRecord(target, id, ownerId, expiresAtMs, url)) {
+            return true;  // re-added unchanged (warm-up, catch-up) - nothing to append
+        }
+        long recordBytes = (R_URL + url.length + 7) & ~7L;
+        long dataEnd = header(H_DATA_END);
+        if (dataEnd + recordBytes > dataBytes) {
+            return false;
+        }
+        long record = dataOffset + dataEnd;
+        file.set(ValueLayout.JAVA_LONG, record + R_CODE, code);
+        file.set(ValueLayout.JAVA_LONG, record + R_ID, id);
+        file.set(ValueLayout.JAVA_LONG, record + R_OWNER, ownerId != null ? ownerId : NO_OWNER);
+        file.set(ValueLayout.JAVA_LONG, record + R_EXPIRES, expiresAtMs != null ? expiresAtMs : NO_EXPIRY);
+        file.set(ValueLayout.JAVA_INT, record + R_URL_LENGTH, url.length);
+        MemorySegment.copy(url, 0, file, ValueLayout.JAVA_BYTE, record + R_URL, url.length);
+        setHeader(H_DATA_END, dataEnd + recordBytes);
+
+        // Publish: record before the offset, offset before the code
+        long slotOffset = HEADER_BYTES + target * SLOT_BYTES;
+        VarHandle.releaseFence();
+        file.set(ValueLayout.JAVA_LONG, slotOffset + 8, record);
+        VarHandle.releaseFence();
+        file.set(ValueLayout.JAVA_LONG, slotOffset, code);
+        if (!replacing) {
+            setHeader(H_SIZE, header(H_SIZE) + 1);
+        }
+        return true;
+    }
+
+    private boolean sameRecord(long slot, long id, Long ownerId, Long expiresAtMs, byte[] url) {
+        long record = file.get(ValueLayout.JAVA_LONG, HEADER_BYTES + slot * SLOT_BYTES + 8);
+        return file.get(ValueLayout.JAVA_LONG, record + R_ID) == id
+                && file.get(ValueLayout.JAVA_LONG, record + R_OWNER) == (ownerId != null ? ownerId : NO_OWNER)
+                && file.get(ValueLayout.JAVA_LONG, record + R_EXPIRES) == (expiresAtMs != null ? expiresAtMs : NO_EXPIRY)
+                && file.get(ValueLayout.JAVA_INT, record + R_URL_LENGTH) == url.length
+                && MemorySegment.mismatch(file, record + R_URL, record + R_URL + url.length,
+                        MemorySegment.ofArray(url), 0, url.length) == -1;
+    }
+
+    /**
+     * @return true if the code was indexed
+     */
+    public synchronized boolean remove(String shortUrl) {
+        long code = pack(shortUrl);
+        if (code == EMPTY || closed) {
+            return false;
+        }
+        for (long slot = hash(code) & mask, probes = 0; probes < slotCount; slot = (slot + 1) & mask, probes++) {
+            long slotOffset = HEADER_BYTES + slot * SLOT_BYTES;
+            long slotCode = file.get(ValueLayout.JAVA_LONG, slotOffset);
+            if (slotCode == EMPTY) {
+                return false;
+            }
+            if (slotCode == code) {
+                file.set(ValueLayout.JAVA_LONG, slotOffset, REMOVED);
+                setHeader(H_SIZE, header(H_SIZE) - 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long size() {
+        return header(H_SIZE);
+    }
+
+    public long capacity() {
+        return maxUsedSlots;
+    }
+
+    /**
+     * Fraction of the records region in use
+     */
+    public double dataUsage() {
+        return (double) header(H_DATA_END) / dataBytes;
+    }
+
+    /**
+     * Highest link id of the shard already loaded from url_mapping
+     */
+    public long watermark(int shard) {
+        return header(H_WATERMARKS + 8L * checkShard(shard));
+    }
+
+    public synchronized void setWatermark(int shard, long id) {
+        checkShard(shard);
+        if (!closed) {
+            setHeader(H_WATERMARKS + 8L * shard, id);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Writes everything to disk and marks the file clean for the next start
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            file.force();
+            file.set(ValueLayout.JAVA_INT, H_CLEAN, 1);
+            file.asSlice(0, HEADER_BYTES).force();
+        } finally {
+            arena.close();
+            lock.release();
+            channel.close();
+        }
+    }
+
+    public static boolean isIndexable(String shortUrl) {
+        return pack(shortUrl) != EMPTY;
+    }
+
+    /**
+     * 8 base62 characters as a number + 1, or 0 if the code has another shape
+     */
+    static long pack(String shortUrl) {
+        if (shortUrl == null || shortUrl.length() != 8) {
+            return EMPTY;
+        }
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            int digit = BASE62.indexOf(shortUrl.charAt(i));
+            if (digit < 0) {
+                return EMPTY;
+            }
+            value = value * 62 + digit;
+        }
+        return value + 1;
+    }
+
+    // Packed codes are sequential-ish numbers; spread them over the table (murmur3 finalizer)
+    private static long hash(long code) {
+        long h = code;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private long header(long field) {
+        return file.get(ValueLayout.JAVA_LONG, field);
+    }
+
+    private void setHeader(long field, long value) {
+        file.set(ValueLayout.JAVA_LONG, field, value);
+    }
+
+    private static int checkShard(int shard) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard " + shard + " is outside the index header");
+        }
+        return shard;
+    }
+
+    /**
+     * One indexed link; expiresAtMs is epoch milliseconds
+     */
+    public record Entry(long id, Long ownerId, String originalUrl, Long expiresAtMs) {
+
+        public boolean isExpired(long nowMs) {
+            return expiresAtMs != null && nowMs > expiresAtMs;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.url.shortner.service;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.models.UrlMapping;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * ShortCodeIndexService - Keeps ShortCodeIndex in step with url_mapping (short-code-index.enabled)
+ *
+ * Redirects look the code up here first and only count the click in the database; the counting
+ * UPDATE matches id, code and is_active, so a stale entry (deleted or deactivated link, row moved
+ * by a rebalance) is evicted and the request falls back to the normal lookup. That makes the
+ * index a pure accelerator - it never has to be complete or perfectly current:
+ * - on startup, links with ids above each shard's watermark are loaded in the background, so a
+ *   restarted instance serves what it had from the mapped file right away and a new file is
+ *   filled once
+ * - links resolved through the database are added as they are clicked
+ * - deletes are removed after commit; expiry is checked against the stored expiresAt
+ *
+ * One-time links are never indexed, their device check needs the database anyway.
+ */
+@Service
+@Slf4j
+public class ShortCodeIndexService {
+
+    private static final String NEW_LINKS =
+            "SELECT id, short_url, original_url, user_id, expires_at FROM url_mapping " +
+            "WHERE id > ? AND is_active = true AND is_one_time_url = false ORDER BY id LIMIT ?";
+
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final int syncBatchSize;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter rejected;
+    private volatile ShortCodeIndex index;
+    private volatile boolean full = false;
+
+    public ShortCodeIndexService(
+            ShardRouter shardRouter,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${short-code-index.enabled:false}") boolean enabled,
+            @Value("${short-code-index.path:data/short-code-index.bin}") String path,
+            @Value("${short-code-index.slots:4194304}") long slots,
+            @Value("${short-code-index.data-bytes:1073741824}") long dataBytes,
+            @Value("${short-code-index.sync-batch-size:1000}") int syncBatchSize) {
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.syncBatchSize = syncBatchSize;
+        this.hits = Counter.builder("short_code_index.hits").register(meterRegistry);
+        this.misses = Counter.builder("short_code_index.misses").register(meterRegistry);
+        this.rejected = Counter.builder("short_code_index.rejected")
+                .description("Links not indexed because the index is full")
+                .register(meterRegistry);
+        Gauge.builder("short_code_index.size", this, service -> service.index != null ? service.index.size() : 0)
+                .register(meterRegistry);
+        if (enabled) {
+            open(Path.of(path), slots, dataBytes);
+        }
+    }
+
+    private void open(Path path, long slots, long dataBytes) {
+        try {
+            index = ShortCodeIndex.open(path, slots, dataBytes);
+            if (index.isRestored()) {
+                log.info("Short code index restored from {} with {} links", path, index.size());
+            } else {
+                log.info("Short code index created at {} ({} slots)", path, index.capacity());
+            }
+        } catch (IOException e) {
+            log.warn("Short code index disabled - cannot map {}: {}", path, e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return index != null;
+    }
+
+    /**
+     * The indexed link, or null if the code has to be looked up in the database
+     */
+    public ShortCodeIndex.Entry lookup(String shortUrl) {
+        ShortCodeIndex current = index;
+        if (current == null) {
+            return null;
+        }
+        ShortCodeIndex.Entry entry;
+        try {
+            entry = current.get(shortUrl);
+        } catch (IllegalStateException e) {
+            return null;  // unmapped by close() during shutdown
+        }
+        if (entry != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Adds a link the database just resolved
+     */
+    public void record(UrlMapping urlMapping) {
+        if (index == null || full || urlMapping.isOneTimeUrl()) {
+            return;
+        }
+        Long ownerId = urlMapping.getUser() != null ? urlMapping.getUser().getId() : null;
+        put(urlMapping.getShortUrl(), urlMapping.getId(), ownerId, urlMapping.getOriginalUrl(), urlMapping.getExpiresAt());
+    }
+
+    public void evict(String shortUrl) {
+        ShortCodeIndex current = index;
+        if (current != null) {
+            current.remove(shortUrl);
+        }
+    }
+
+    // Deletes carry the code; expiry deactivations only the id, those entries expire on their own
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUrlMappingChanged(UrlMappingChangedEvent event) {
+        if (event.shortUrl() != null) {
+            evict(event.shortUrl());
+        }
+    }
+
+    /**
+     * Loads links created since the file was last in use, off the startup thread
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUp() {
+        if (index == null) {
+            return;
+        }
+        Thread thread = new Thread(this::loadNewLinks, "short-code-index-sync");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void loadNewLinks() {
+        int shards = Math.min(shardRouter.shardCount(), ShortCodeIndex.MAX_SHARDS);
+        long loaded = 0;
+        try {
+            for (int shard = 0; shard < shards; shard++) {
+                loaded += loadNewLinks(shard);
+            }
+            log.info("Short code index caught up: {} links loaded, {} indexed", loaded, index.size());
+        } catch (Exception e) {
+            // Only slows redirects of the links not loaded yet down to the database path
+            log.warn("Short code index catch-up stopped after {} links: {}", loaded, e.getMessage());
+        }
+    }
+
+    private long loadNewLinks(int shard) {
+        long loaded = 0;
+        ShortCodeIndex current = index;
+        while (current != null && !current.isClosed() && !full) {
+            long after = current.watermark(shard);
+            List<IndexRow> rows = shardRouter.onShard(shard, () -> jdbcTemplate.query(NEW_LINKS,
+                    (rs, rowNum) -> new IndexRow(rs.getLong("id"), rs.getString("short_url"), rs.getString("original_url"),
+                            rs.getObject("user_id", Long.class), rs.getTimestamp("expires_at")),
+                    after, syncBatchSize));
+            for (IndexRow row : rows) {
+                put(row.shortUrl(), row.id(), row.ownerId(),
+                        row.originalUrl(), row.expiresAt() != null ? row.expiresAt().toLocalDateTime() : null);
+            }
+            if (rows.isEmpty()) {
+                break;
+            }
+            current.setWatermark(shard, rows.getLast().id());
+            loaded += rows.size();
+            if (rows.size() < syncBatchSize) {
+                break;
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Adds an active, non one-time link read from url_mapping
+     */
+    public void put(String shortUrl, Long id, Long ownerId, String originalUrl, LocalDateTime expiresAt) {
+        ShortCodeIndex current = index;
+        if (current == null || full || id == null) {
+            return;
+        }
+        Long expiresAtMs = expiresAt != null ? expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null;
+        if (!current.put(shortUrl, id, ownerId, originalUrl, expiresAtMs) && ShortCodeIndex.isIndexable(shortUrl)
+                && !current.isClosed()) {
+            rejected.increment();
+            if (!full) {
+                full = true;
+                log.warn("Short code index is full at {} links - new links are served from the database; " +
+                        "raise short-code-index.slots / data-bytes and delete the file to rebuild", current.size());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        ShortCodeIndex current = index;
+        index = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException e) {
+                log.warn("Short code index was not closed cleanly and will be rebuilt: {}", e.getMessage());
+            }
+        }
+    }
+
+    private record IndexRow(long id, String shortUrl, String originalUrl, Long ownerId, Timestamp expiresAt) {
+    }
+}
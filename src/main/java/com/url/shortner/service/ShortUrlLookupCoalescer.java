@@ -0,0 +1,104 @@
+package com.url.shortner.service;
+
+import com.url.shortner.datasource.ShardContext;
+import com.url.shortner.models.UrlMapping;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * ShortUrlLookupCoalescer - Single-flight for the redirect's url_mapping read (url.lookup.single-flight.enabled)
+ *
+ * When a link goes viral (or a burst of unknown codes arrives) many redirects look up the same
+ * code at once. The first caller per (shard, code) runs the query; callers arriving while it is
+ * in flight wait for its result instead of sending the same query - a missing link (null) is
+ * shared as well. Each caller still counts its own click in its own transaction, and those
+ * updates match the row by id, so a link deleted meanwhile is not served from a shared read.
+ *
+ * - Waits are bounded by max-wait-ms; a caller that times out runs the query itself
+ * - A failed query fails every caller that waited for it, with the same exception
+ * - Nothing is cached: the entry is removed as soon as the query returns
+ *
+ * The lookup runs before the click's transaction (see ShardedUrlMappingService), so a waiting
+ * caller holds no pooled connection; only the query itself does, in its own short transaction.
+ * The shared UrlMapping is only read afterwards (its user proxy only for the id), never changed.
+ */
+@Service
+public class ShortUrlLookupCoalescer {
+
+    private final ConcurrentHashMap<String, CompletableFuture<UrlMapping>> inFlight = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final long maxWaitMs;
+    private final Counter coalesced;
+    private final Counter timeouts;
+
+    public ShortUrlLookupCoalescer(
+            MeterRegistry meterRegistry,
+            @Value("${url.lookup.single-flight.enabled:true}") boolean enabled,
+            @Value("${url.lookup.single-flight.max-wait-ms:1000}") long maxWaitMs) {
+        this.enabled = enabled;
+        this.maxWaitMs = maxWaitMs;
+        this.coalesced = Counter.builder("url_lookup.coalesced")
+                .description("Redirect lookups answered by a concurrent query for the same code (queries saved)")
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("url_lookup.coalesce_timeouts")
+                .description("Waits for a concurrent lookup that ran out and queried on their own")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The loader's result for the code on the current shard, shared with concurrent callers
+     */
+    public UrlMapping lookup(String shortUrl, Supplier<UrlMapping> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String key = ShardContext.current() + ":" + shortUrl;
+        CompletableFuture<UrlMapping> call = new CompletableFuture<>();
+        CompletableFuture<UrlMapping> running = inFlight.putIfAbsent(key, call);
+        if (running == null) {
+            try {
+                UrlMapping urlMapping = loader.get();
+                call.complete(urlMapping);
+                return urlMapping;
+            } catch (RuntimeException | Error e) {
+                call.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, call);
+            }
+        }
+        return await(running, loader);
+    }
+
+    private UrlMapping await(CompletableFuture<UrlMapping> running, Supplier<UrlMapping> loader) {
+        try {
+            UrlMapping urlMapping = running.get(maxWaitMs, TimeUnit.MILLISECONDS);
+            coalesced.increment();
+            return urlMapping;
+        } catch (ExecutionException e) {
+            coalesced.increment();
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            return loader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return loader.get();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.url.shortner.service;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.dtos.ClickEventDTO;
+import com.url.shortner.dtos.UrlMappingDTO;
+import com.url.shortner.models.User;
+import com.url.shortner.repository.UrlMappingRepository;
+import com.url.shortner.repository.UserRepository;
+import com.url.shortner.security.WarmupRequestKey;
+import com.url.shortner.security.jwt.JwtUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * StartupWarmer - Warms caches, the connection pools and the JIT before readiness flips
+ *
+ * Spring Boot reports the readiness probe as ACCEPTING_TRAFFIC only after every
+ * ApplicationReadyEvent listener returned, so this runs last and synchronously:
+ * 1. Links with the most clicks among the latest click_event rows, then the top links by
+ *    click_count, are loaded into ShortCodeIndex - or, without the index, resolved once so
+ *    their url_mapping pages and index entries are in the database cache
+ * 2. Synthetic requests against the local port run the redirect path (unknown codes, so no
+ *    click is recorded) and the JWT filter in front of /api/urls/myurls. Their token belongs to
+ *    a principal no users row can match (uid -1) and expires with the warm-up budget, so they
+ *    are answered 401 after verification. They carry WarmupRequestKey, so the per-IP redirect
+ *    limit does not reject them
+ * 3. The listing of the hottest link's owner is read through ShardedUrlMappingService and
+ *    serialized in process - no customer's token is ever signed
+ *
+ * Every step stops at startup.warmup.max-duration-ms; queries also get it as their timeout.
+ * A failed step is logged and skipped - warming must never keep an instance from starting.
+ */
+@Service
+@Slf4j
+public class StartupWarmer {
+
+    private static final String BASE62 = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    // click_event ids are not dense on a shard (ShardRebalancer copies rows in with their ids,
+    // sequences leave gaps), so the latest N rows are ORDER BY id DESC LIMIT N, not ids above MAX(id) - N
+    private static final String RECENTLY_CLICKED =
+            "SELECT u.id, u.short_url, u.original_url, u.user_id, u.expires_at FROM url_mapping u " +
+            "JOIN (SELECT url_mapping_id, COUNT(*) AS clicks FROM " +
+            "(SELECT url_mapping_id FROM click_event ORDER BY id DESC LIMIT ?) latest " +
+            "GROUP BY url_mapping_id ORDER BY clicks DESC LIMIT ?) recent ON recent.url_mapping_id = u.id " +
+            "WHERE u.is_active = true AND u.is_one_time_url = false ORDER BY recent.clicks DESC";
+    private static final String MOST_CLICKED =
+            "SELECT id, short_url, original_url, user_id, expires_at FROM url_mapping " +
+            "WHERE is_active = true AND is_one_time_url = false ORDER BY click_count DESC LIMIT ?";
+    // Matches no users row (JwtAuthenticationFilter requires the token's uid to be the row's id)
+    private static final UserDetailsImpl WARMUP_PRINCIPAL =
+            new UserDetailsImpl(-1, null, "startup-warmup", null, List.of());
+
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final UrlMappingRepository urlMappingRepository;
+    private final ShortCodeIndexService shortCodeIndexService;
+    private final ShardedUrlMappingService urlMappingService;
+    private final UserRepository userRepository;
+    private final JwtUtils jwtUtils;
+    private final WarmupRequestKey warmupRequestKey;
+    private final ObjectProvider<JsonMapper> jsonMapper;
+    private final Environment environment;
+    private final boolean enabled;
+    private final long maxDurationMs;
+    private final int topLinks;
+    private final int recentClicks;
+    private final int requests;
+    private final int threads;
+
+    public StartupWarmer(
+            ShardRouter shardRouter,
+            DataSource dataSource,
+            UrlMappingRepository urlMappingRepository,
+            ShortCodeIndexService shortCodeIndexService,
+            ShardedUrlMappingService urlMappingService,
+            UserRepository userRepository,
+            JwtUtils jwtUtils,
+            WarmupRequestKey warmupRequestKey,
+            ObjectProvider<JsonMapper> jsonMapper,
+            Environment environment,
+            @Value("${startup.warmup.enabled:true}") boolean enabled,
+            @Value("${startup.warmup.max-duration-ms:30000}") long maxDurationMs,
+            @Value("${startup.warmup.top-links:10000}") int topLinks,
+            @Value("${startup.warmup.recent-clicks:100000}") int recentClicks,
+            @Value("${startup.warmup.requests:5000}") int requests,
+            @Value("${startup.warmup.threads:4}") int threads) {
+        this.shardRouter = shardRouter;
+        // Own template: the query timeout is set from the remaining warm-up budget
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.urlMappingRepository = urlMappingRepository;
+        this.shortCodeIndexService = shortCodeIndexService;
+        this.urlMappingService = urlMappingService;
+        this.userRepository = userRepository;
+        this.jwtUtils = jwtUtils;
+        this.warmupRequestKey = warmupRequestKey;
+        this.jsonMapper = jsonMapper;
+        this.environment = environment;
+        this.enabled = enabled;
+        this.maxDurationMs = maxDurationMs;
+        this.topLinks = topLinks;
+        this.recentClicks = recentClicks;
+        this.requests = requests;
+        this.threads = threads;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long deadline = start + maxDurationMs;
+        Collection<WarmLink> links = List.of();
+        int served = 0;
+        try {
+            links = preloadLinks(deadline);
+        } catch (Exception e) {
+            log.warn("Warm-up: preloading links stopped: {}", e.getMessage());
+        }
+        try {
+            Long ownerId = links.stream().map(WarmLink::ownerId).filter(Objects::nonNull).findFirst().orElse(null);
+            served = exerciseRequestPaths(deadline, ownerId);
+        } catch (Exception e) {
+            log.warn("Warm-up: synthetic requests stopped: {}", e.getMessage());
+        }
+        log.info("Warm-up finished in {} ms: {} links preloaded, {} synthetic requests - accepting traffic",
+                System.currentTimeMillis() - start, links.size(), served);
+    }
+
+    private List<WarmLink> preloadLinks(long deadline) {
+        Map<String, WarmLink> hottest = new LinkedHashMap<>();
+        for (int shard = 0; shard < shardRouter.shardCount() && System.currentTimeMillis() < deadline; shard++) {
+            int currentShard = shard;
+            shardRouter.onShard(shard, () -> {
+                query(deadline, () -> jdbcTemplate.query(RECENTLY_CLICKED, this::mapLink, recentClicks, topLinks))
+                        .forEach(link -> hottest.putIfAbsent(link.shortUrl(), link.onShard(currentShard)));
+                query(deadline, () -> jdbcTemplate.query(MOST_CLICKED, this::mapLink, topLinks))
+                        .forEach(link -> hottest.putIfAbsent(link.shortUrl(), link.onShard(currentShard)));
+                return null;
+            });
+        }
+
+        List<WarmLink> loaded = new ArrayList<>();
+        for (WarmLink link : hottest.values()) {
+            if (System.currentTimeMillis() >= deadline) {
+                break;
+            }
+            if (shortCodeIndexService.isEnabled()) {
+                shortCodeIndexService.put(link.shortUrl(), link.id(), link.ownerId(), link.originalUrl(),
+                        link.expiresAt() != null ? link.expiresAt().toLocalDateTime() : null);
+            } else {
+                shardRouter.onShard(link.shard(), () -> urlMappingRepository.findByShortUrl(link.shortUrl()));
+            }
+            loaded.add(link);
+        }
+        return loaded;
+    }
+
+    private <T> T query(long deadline, Supplier<T> work) {
+        long remainingMs = deadline - System.currentTimeMillis();
+        if (remainingMs <= 0) {
+            throw new IllegalStateException("warm-up time budget used up");
+        }
+        jdbcTemplate.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remainingMs)));
+        return work.get();
+    }
+
+    private WarmLink mapLink(ResultSet rs, int rowNum) throws SQLException {
+        return new WarmLink(rs.getLong("id"), rs.getString("short_url"), rs.getString("original_url"),
+                rs.getObject("user_id", Long.class), rs.getTimestamp("expires_at"), 0);
+    }
+
+    // Requests go to the local connector directly, the load balancer does not route here yet.
+    // Without a link owner (empty database) the listing is not read, only the sample DTOs serialized.
+    private int exerciseRequestPaths(long deadline, Long ownerId) throws InterruptedException {
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (port == null || requests <= 0) {
+            return 0;
+        }
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        String token = jwtUtils.generateToken(WARMUP_PRINCIPAL, Math.max(1, deadline - System.currentTimeMillis()));
+        String ownerName = ownerId == null ? null : userRepository.findById(ownerId).map(User::getUsername).orElse(null);
+        List<Object> responses = sampleResponses();
+        AtomicInteger sent = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                executor.execute(() -> {
+                    int i;
+                    while ((i = sent.getAndIncrement()) < requests && System.currentTimeMillis() < deadline) {
+                        HttpRequest request = i % 2 == 0
+                                ? HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/" + randomCode()))
+                                        .header(WarmupRequestKey.HEADER, warmupRequestKey.key())
+                                        .header("User-Agent", "Mozilla/5.0 (startup warm-up)")
+                                        .timeout(Duration.ofSeconds(2)).GET().build()
+                                : HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/urls/myurls"))
+                                        .header(WarmupRequestKey.HEADER, warmupRequestKey.key())
+                                        .header("Authorization", "Bearer " + token)
+                                        .timeout(Duration.ofSeconds(2)).GET().build();
+                        try {
+                            client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (i % 2 == 1 && ownerName != null) {
+                                serialize(urlMappingService.getUrlsByUser(ownerId, ownerName));
+                            }
+                            serialize(responses);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (Exception e) {
+                            log.debug("Warm-up request failed: {}", e.getMessage());
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()) + 2000, TimeUnit.MILLISECONDS);
+            executor.shutdownNow();
+        }
+        return Math.min(sent.get(), requests);
+    }
+
+    private void serialize(List<?> responses) {
+        JsonMapper mapper = jsonMapper.getIfAvailable();
+        if (mapper != null) {
+            mapper.writeValueAsBytes(responses);
+        }
+    }
+
+    // Same shapes as the dashboard responses
+    private static List<Object> sampleResponses() {
+        List<Object> responses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            UrlMappingDTO link = new UrlMappingDTO();
+            link.setId((long) i);
+            link.setOriginalUrl("https://example.com/warm-up/" + i);
+            link.setShortUrl(randomCode());
+            link.setClickCount(i);
+            link.setCreatedDate(LocalDateTime.now());
+            link.setUsername("startup-warmup");
+            responses.add(link);
+
+            ClickEventDTO clicks = new ClickEventDTO();
+            clicks.setClickDate(LocalDate.now().minusDays(i));
+            clicks.setCount((long) i);
+            responses.add(clicks);
+        }
+        return responses;
+    }
+
+    // Random codes are unknown links: the redirect runs its full lookup and answers 404
+    private static String randomCode() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder code = new StringBuilder(8);
+        for (int i = 0; i < 8; i++) {
+            code.append(BASE62.charAt(random.nextInt(BASE62.length())));
+        }
+        return code.toString();
+    }
+
+    private record WarmLink(long id, String shortUrl, String originalUrl, Long ownerId, Timestamp expiresAt, int shard) {
+
+        WarmLink onShard(int shard) {
+            return new WarmLink(id, shortUrl, originalUrl, ownerId, expiresAt, shard);
+        }
+    }
+}
@@ -9,22 +9,27 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @AllArgsConstructor
 @Slf4j
 public class UrlCleanupScheduler {
 
-    private UrlMappingService urlMappingService;
+    private static final int MAX_PURGE_BATCHES_PER_RUN = 100;
+
+    private ShardedUrlMappingService urlMappingService;
     private UserService userService;
     private UserRepository userRepository;
+    private AccountPurgeService accountPurgeService;
 
-    // Run every hour to cleanup expired URLs
-    @Scheduled(cron = "0 0 * * * *")
+    // Expired URLs are deactivated on time by UrlExpiryService; this daily sweep only catches
+    // anything the wheel missed (e.g. rows edited directly in the database)
+    @Scheduled(cron = "0 30 0 * * *")
     public void cleanupExpiredUrls() {
         log.info("Running scheduled task to cleanup expired URLs...");
-        urlMappingService.cleanupExpiredUrls();
-        log.info("Expired URLs cleanup completed.");
+        int deactivated = urlMappingService.cleanupExpiredUrls();
+        log.info("Expired URLs cleanup completed. Deactivated {} URLs.", deactivated);
     }
 
     // Run once daily at midnight to cleanup URLs older than 3 months
@@ -35,20 +40,37 @@ public class UrlCleanupScheduler {
         log.info("Old URLs cleanup completed.");
     }
 
-    // Run every hour to permanently delete users whose 5-day grace period has expired
+    // Run every hour to queue users whose 5-day grace period has expired for permanent deletion
     @Scheduled(cron = "0 0 * * * *")
     public void cleanupScheduledDeletedUsers() {
         log.info("Running scheduled task to cleanup users scheduled for deletion...");
         List<User> usersToDelete = userRepository.findUsersToDelete(LocalDateTime.now());
         for (User user : usersToDelete) {
             try {
-                log.info("Permanently deleting user: {}", user.getUsername());
+                log.info("Queueing permanent deletion of user: {}", user.getUsername());
                 userService.deleteUserAccountById(user.getId());
             } catch (Exception e) {
-                log.error("Failed to delete user {}: {}", user.getUsername(), e.getMessage());
+                log.error("Failed to queue deletion of user {}: {}", user.getUsername(), e.getMessage());
             }
         }
-        log.info("User cleanup completed. Deleted {} users.", usersToDelete.size());
+        log.info("User cleanup completed. Queued {} users for deletion.", usersToDelete.size());
     }
-}
 
+    // Work through queued account purges in small batches, resuming any job interrupted by a restart
+    @Scheduled(fixedDelayString = "${account.purge.interval-ms:5000}")
+    public void processAccountPurges() {
+        for (int i = 0; i < MAX_PURGE_BATCHES_PER_RUN; i++) {
+            Optional<Long> jobId = accountPurgeService.nextJobId();
+            if (jobId.isEmpty()) {
+                return;
+            }
+            try {
+                accountPurgeService.runBatch(jobId.get());
+            } catch (Exception e) {
+                log.error("Account purge job {} failed: {}", jobId.get(), e.getMessage());
+                accountPurgeService.recordFailure(jobId.get(), e.getMessage());
+                return;
+            }
+        }
+    }
+}
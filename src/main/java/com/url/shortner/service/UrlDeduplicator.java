@@ -0,0 +1,132 @@
+package com.url.shortner.service;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.models.UrlMapping;
+import com.url.shortner.repository.UrlMappingRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * UrlDeduplicator - Finds a user's existing link for the same destination (url.dedup.enabled)
+ *
+ * Every new link stores a 64-bit hash of its normalized original URL; with dedup enabled,
+ * createShortUrl first looks up (user_id, original_url_hash) - an index lookup instead of a
+ * comparison on the unbounded original_url text - and returns an active link whose one-time and
+ * expiry options match. Hash hits are confirmed against the normalized URL in memory.
+ *
+ * Best effort: two concurrent requests for the same destination can still both create a link,
+ * and links created before the hash column existed are never matched.
+ */
+@Service
+public class UrlDeduplicator {
+
+    private final UrlMappingRepository urlMappingRepository;
+    private final ShardRouter shardRouter;
+    private final boolean enabled;
+    private final Counter hits;
+
+    public UrlDeduplicator(
+            UrlMappingRepository urlMappingRepository,
+            ShardRouter shardRouter,
+            MeterRegistry meterRegistry,
+            @Value("${url.dedup.enabled:false}") boolean enabled) {
+        this.urlMappingRepository = urlMappingRepository;
+        this.shardRouter = shardRouter;
+        this.enabled = enabled;
+        this.hits = Counter.builder("url_dedup.hits").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * An active link of the user with the same destination and options, if any.
+     * A user's links are spread over all shards, so this asks each of them.
+     */
+    public Optional<UrlMapping> findExisting(Long userId, String originalUrl, boolean isOneTimeUrl, LocalDateTime expiresAt) {
+        String normalized = normalize(originalUrl);
+        long hash = hash(normalized);
+        LocalDateTime now = LocalDateTime.now();
+        Optional<UrlMapping> existing = shardRouter
+                .onAllShards(() -> urlMappingRepository.findByUserIdAndOriginalUrlHash(userId, hash)).stream()
+                .flatMap(List::stream)
+                .filter(candidate -> candidate.isActive()
+                        && candidate.isOneTimeUrl() == isOneTimeUrl
+                        && Objects.equals(candidate.getExpiresAt(), expiresAt)
+                        && (candidate.getExpiresAt() == null || candidate.getExpiresAt().isAfter(now))
+                        && normalized.equals(normalize(candidate.getOriginalUrl())))
+                .findFirst();
+        existing.ifPresent(urlMapping -> hits.increment());
+        return existing;
+    }
+
+    /**
+     * Hash stored in url_mapping.original_url_hash: first 8 bytes of SHA-256 of the normalized URL
+     */
+    public long hashOf(String originalUrl) {
+        return hash(normalize(originalUrl));
+    }
+
+    // Case-insensitive parts lowercased, default ports and an empty path made explicit;
+    // path, query and fragment are kept as they are
+    static String normalize(String originalUrl) {
+        if (originalUrl == null) {
+            return "";
+        }
+        String trimmed = originalUrl.trim();
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return trimmed;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) {
+                port = -1;
+            }
+            StringBuilder normalized = new StringBuilder(trimmed.length()).append(scheme).append("://");
+            if (uri.getRawUserInfo() != null) {
+                normalized.append(uri.getRawUserInfo()).append('@');
+            }
+            normalized.append(uri.getHost().toLowerCase(Locale.ROOT));
+            if (port != -1) {
+                normalized.append(':').append(port);
+            }
+            String path = uri.getRawPath();
+            normalized.append(path == null || path.isEmpty() ? "/" : path);
+            if (uri.getRawQuery() != null) {
+                normalized.append('?').append(uri.getRawQuery());
+            }
+            if (uri.getRawFragment() != null) {
+                normalized.append('#').append(uri.getRawFragment());
+            }
+            return normalized.toString();
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+    }
+
+    private static long hash(String normalized) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest, 0, Long.BYTES).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.url.shortner.service;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.repository.UrlMappingChangeRepository;
+import com.url.shortner.repository.UrlMappingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * UrlExpiryService - Deactivates links at their expiresAt instead of waiting for an hourly sweep
+ *
+ * Flow:
+ * 1. On startup, anything already past expiresAt is deactivated in one UPDATE and
+ *    every upcoming expiry is loaded from url_mapping.expires_at into the timing wheel
+ * 2. UrlMappingService schedules new links with an expiry and cancels deleted ones
+ * 3. A one-second tick advances the wheel and queues the ids that became due
+ * 4. Queued ids are flushed to the database in batched UPDATE ... WHERE id IN (...) statements
+ *    (on every shard when sharded - ids are globally unique, so each row is only updated once)
+ */
+@Service
+@Slf4j
+public class UrlExpiryService {
+
+    private final UrlMappingRepository urlMappingRepository;
+    private final UrlMappingChangeRepository urlMappingChangeRepository;
+    private final ShardRouter shardRouter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final HierarchicalTimingWheel wheel;
+    private final ConcurrentLinkedQueue<Long> pendingDeactivations = new ConcurrentLinkedQueue<>();
+    private final int batchSize;
+    private volatile boolean loaded = false;
+
+    public UrlExpiryService(
+            UrlMappingRepository urlMappingRepository,
+            UrlMappingChangeRepository urlMappingChangeRepository,
+            ShardRouter shardRouter,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${url.expiry.tick-ms:1000}") long tickMs,
+            @Value("${url.expiry.batch-size:500}") int batchSize) {
+        this.urlMappingRepository = urlMappingRepository;
+        this.urlMappingChangeRepository = urlMappingChangeRepository;
+        this.shardRouter = shardRouter;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
+        // 64^5 one-second ticks covers roughly 34 years
+        this.wheel = new HierarchicalTimingWheel(tickMs, 5, System.currentTimeMillis());
+    }
+
+    /**
+     * Rebuilds the wheel from url_mapping.expires_at once the application is up
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadUpcomingExpiries() {
+        LocalDateTime now = LocalDateTime.now();
+        int deactivated = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            deactivated += shardRouter.inTransaction(shard, () -> {
+                urlMappingChangeRepository.recordExpired(now);
+                return urlMappingRepository.deactivateExpiredUrls(now);
+            });
+        }
+        List<UrlMappingRepository.UrlExpiry> upcoming = shardRouter.onAllShards(() -> urlMappingRepository.findUpcomingExpiries(now))
+                .stream().flatMap(List::stream).toList();
+        for (UrlMappingRepository.UrlExpiry expiry : upcoming) {
+            schedule(expiry.getId(), expiry.getExpiresAt());
+        }
+        loaded = true;
+        log.info("Expiry wheel loaded: {} upcoming expiries, {} already expired links deactivated",
+                upcoming.size(), deactivated);
+    }
+
+    public void schedule(Long urlMappingId, LocalDateTime expiresAt) {
+        if (urlMappingId == null || expiresAt == null) {
+            return;
+        }
+        long deadlineMs = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        boolean due;
+        synchronized (wheel) {
+            due = wheel.schedule(urlMappingId, deadlineMs);
+        }
+        if (due) {
+            pendingDeactivations.add(urlMappingId);
+        }
+    }
+
+    public void cancel(Long urlMappingId) {
+        if (urlMappingId == null) {
+            return;
+        }
+        synchronized (wheel) {
+            wheel.cancel(urlMappingId);
+        }
+    }
+
+    // Advance the wheel every tick and flush whatever became due
+    @Scheduled(fixedDelayString = "${url.expiry.tick-ms:1000}")
+    public void tick() {
+        if (!loaded) {
+            return;
+        }
+        List<Long> due;
+        synchronized (wheel) {
+            due = wheel.advanceTo(System.currentTimeMillis());
+        }
+        pendingDeactivations.addAll(due);
+        flushDeactivations();
+    }
+
+    private void flushDeactivations() {
+        // Only take what is queued right now - failed batches are re-queued for the next tick
+        int queued = pendingDeactivations.size();
+        List<Long> batch = new ArrayList<>(batchSize);
+        Long id;
+        while (queued-- > 0 && (id = pendingDeactivations.poll()) != null) {
+            batch.add(id);
+            if (batch.size() == batchSize) {
+                deactivate(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            deactivate(batch);
+        }
+    }
+
+    private void deactivate(List<Long> ids) {
+        try {
+            // Change log rows in the same transaction as the update (UrlMappingChangeFeed)
+            LocalDateTime now = LocalDateTime.now();
+            int updated = 0;
+            for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+                updated += shardRouter.inTransaction(shard, () -> {
+                    urlMappingChangeRepository.recordExpiredByIds(ids, now);
+                    return urlMappingRepository.deactivateByIds(ids);
+                });
+            }
+            log.debug("Deactivated {} expired URLs", updated);
+            // Other nodes' link caches (see CacheInvalidationBus) drop them too
+            ids.forEach(id -> eventPublisher.publishEvent(new UrlMappingChangedEvent(id, null)));
+        } catch (Exception e) {
+            // Put them back so the next tick retries the batch
+            pendingDeactivations.addAll(ids);
+            log.error("Failed to deactivate {} expired URLs: {}", ids.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.url.shortner.service;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.dtos.ChangeFeedDTO;
+import com.url.shortner.dtos.MappingChangeDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * UrlMappingChangeFeed - Numbers the url_mapping change log and pages it out to downstream caches
+ *
+ * Link writes insert url_mapping_change rows with version NULL in their own transaction (so a
+ * rolled back change is never published). This sequencer then numbers the committed rows under
+ * the url_mapping_change_head row lock, one shard at a time: a reader that sees version v has
+ * already seen every version below it, so "version > cursor" never skips a late commit.
+ *
+ * Versions are per shard; the cursor holds one per shard. A cursor that cannot be continued
+ * (older than retention, malformed, or from before a shard resize) answers resync with the
+ * current head - the client reloads its mappings and follows from there. Rows moved by
+ * ShardRebalancer are the same links and are not logged.
+ *
+ * Long polls park a DeferredResult (no request thread held) until a shard's head moves or
+ * change-feed.max-wait-ms passes; every instance sees heads moved by the others on its next tick.
+ * Beyond change-feed.max-waiters a long poll is refused (ChangeFeedBusyException, 503 with
+ * Retry-After) rather than answered empty, which clients would take as "ask again now".
+ */
+@Service
+@Slf4j
+public class UrlMappingChangeFeed {
+
+    private static final String LOCK_HEAD = "SELECT version FROM url_mapping_change_head WHERE id = 1 FOR UPDATE";
+    private static final String READ_HEAD = "SELECT version, pruned_version FROM url_mapping_change_head WHERE id = 1";
+    private static final String UNSEQUENCED = "SELECT id FROM url_mapping_change WHERE version IS NULL ORDER BY id LIMIT ?";
+    private static final String ASSIGN_VERSION = "UPDATE url_mapping_change SET version = ? WHERE id = ?";
+    private static final String ADVANCE_HEAD = "UPDATE url_mapping_change_head SET version = ? WHERE id = 1";
+    private static final String CHANGES_SINCE =
+            "SELECT c.version, c.short_url, c.change_type, u.original_url, u.expires_at, u.is_one_time_url " +
+            "FROM url_mapping_change c LEFT JOIN url_mapping u ON u.id = c.url_mapping_id AND c.change_type = 'CREATE' " +
+            "WHERE c.version > ? ORDER BY c.version LIMIT ?";
+    private static final String LAST_EXPIRED_VERSION =
+            "SELECT MAX(version) FROM url_mapping_change WHERE version IS NOT NULL AND changed_at < ?";
+    private static final String PRUNE = "DELETE FROM url_mapping_change WHERE version <= ?";
+    private static final String ADVANCE_PRUNED = "UPDATE url_mapping_change_head SET pruned_version = ? WHERE id = 1";
+
+    private final ShardRouter shardRouter;
+    private final JdbcTemplate jdbcTemplate;
+    private final int sequenceBatchSize;
+    private final int maxPageSize;
+    private final long maxWaitMs;
+    private final int maxWaiters;
+    private final long busyRetryAfterSeconds;
+    private final long retentionHours;
+    private final AtomicLongArray heads;
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final ExecutorService notifier;
+
+    public UrlMappingChangeFeed(
+            ShardRouter shardRouter,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${change-feed.sequence-batch-size:1000}") int sequenceBatchSize,
+            @Value("${change-feed.max-page-size:1000}") int maxPageSize,
+            @Value("${change-feed.max-wait-ms:30000}") long maxWaitMs,
+            @Value("${change-feed.max-waiters:1000}") int maxWaiters,
+            @Value("${change-feed.busy-retry-after-seconds:5}") long busyRetryAfterSeconds,
+            @Value("${change-feed.retention-hours:72}") long retentionHours) {
+        this.shardRouter = shardRouter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequenceBatchSize = sequenceBatchSize;
+        this.maxPageSize = maxPageSize;
+        this.maxWaitMs = maxWaitMs;
+        this.maxWaiters = maxWaiters;
+        this.busyRetryAfterSeconds = busyRetryAfterSeconds;
+        this.retentionHours = retentionHours;
+        this.heads = new AtomicLongArray(shardRouter.shardCount());
+        this.notifier = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "change-feed-notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("change_feed.waiters", waiters, Queue::size).register(meterRegistry);
+    }
+
+    /**
+     * Numbers committed changes on every shard and wakes long polls if any head moved
+     */
+    @Scheduled(fixedDelayString = "${change-feed.sequence-interval-ms:500}")
+    public void sequence() {
+        boolean advanced = false;
+        for (int shard = 0; shard < heads.length(); shard++) {
+            try {
+                long head;
+                int[] sequenced = new int[1];
+                do {
+                    head = shardRouter.inTransaction(shard, () -> sequenceBatch(sequenced));
+                } while (sequenced[0] == sequenceBatchSize);
+                if (head > heads.getAndAccumulate(shard, head, Math::max)) {
+                    advanced = true;
+                }
+            } catch (Exception e) {
+                log.error("Change feed sequencing failed on shard {}: {}", shard, e.getMessage());
+            }
+        }
+        if (advanced && !waiters.isEmpty()) {
+            notifier.execute(this::completeWaiters);
+        }
+    }
+
+    // One transaction: the head lock serializes sequencers of all instances on this shard
+    private long sequenceBatch(int[] sequenced) {
+        Long head = jdbcTemplate.queryForObject(LOCK_HEAD, Long.class);
+        List<Long> pending = jdbcTemplate.queryForList(UNSEQUENCED, Long.class, sequenceBatchSize);
+        sequenced[0] = pending.size();
+        if (pending.isEmpty()) {
+            return head;
+        }
+        List<Object[]> versions = new ArrayList<>(pending.size());
+        long version = head;
+        for (Long id : pending) {
+            versions.add(new Object[]{++version, id});
+        }
+        jdbcTemplate.batchUpdate(ASSIGN_VERSION, versions);
+        jdbcTemplate.update(ADVANCE_HEAD, version);
+        return version;
+    }
+
+    /**
+     * Drops changes older than change-feed.retention-hours; cursors behind them get resync
+     */
+    @Scheduled(cron = "0 15 * * * *")
+    public void prune() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours));
+        for (int shard = 0; shard < heads.length(); shard++) {
+            try {
+                int pruned = shardRouter.inTransaction(shard, () -> {
+                    jdbcTemplate.queryForObject(LOCK_HEAD, Long.class);
+                    Long last = jdbcTemplate.queryForObject(LAST_EXPIRED_VERSION, Long.class, cutoff);
+                    if (last == null) {
+                        return 0;
+                    }
+                    jdbcTemplate.update(ADVANCE_PRUNED, last);
+                    return jdbcTemplate.update(PRUNE, last);
+                });
+                if (pruned > 0) {
+                    log.info("Change feed: pruned {} changes on shard {}", pruned, shard);
+                }
+            } catch (Exception e) {
+                log.error("Change feed pruning failed on shard {}: {}", shard, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Changes after the cursor, right away or - with waitMs - once there are any
+     *
+     * @throws ChangeFeedBusyException if there are none yet and no more long polls can wait
+     */
+    public DeferredResult<ChangeFeedDTO> changesSince(String cursor, int limit, long waitMs) {
+        long[] since = parseCursor(cursor);
+        int pageSize = Math.clamp(limit, 1, maxPageSize);
+        ChangeFeedDTO page = page(since, pageSize);
+        long timeoutMs = Math.min(waitMs, maxWaitMs);
+        if (!page.getChanges().isEmpty() || page.isResync() || timeoutMs <= 0) {
+            DeferredResult<ChangeFeedDTO> result = new DeferredResult<>();
+            result.setResult(page);
+            return result;
+        }
+        if (waiters.size() >= maxWaiters) {
+            throw new ChangeFeedBusyException(busyRetryAfterSeconds, "Too many clients are waiting for changes");
+        }
+        DeferredResult<ChangeFeedDTO> result = new DeferredResult<>(timeoutMs, page);
+        Waiter waiter = new Waiter(since, pageSize, result);
+        result.onCompletion(() -> waiters.remove(waiter));
+        waiters.add(waiter);
+        return result;
+    }
+
+    // Waiters on the same cursor share one read
+    private void completeWaiters() {
+        Map<String, ChangeFeedDTO> pages = new HashMap<>();
+        for (Waiter waiter : waiters) {
+            if (waiter.result().isSetOrExpired()) {
+                continue;
+            }
+            try {
+                ChangeFeedDTO page = pages.computeIfAbsent(formatCursor(waiter.since()) + "/" + waiter.limit(),
+                        key -> page(waiter.since(), waiter.limit()));
+                if (!page.getChanges().isEmpty() || page.isResync()) {
+                    waiter.result().setResult(page);
+                }
+            } catch (Exception e) {
+                waiter.result().setErrorResult(e);
+            }
+        }
+    }
+
+    private ChangeFeedDTO page(long[] since, int limit) {
+        int shards = shardRouter.shardCount();
+        ChangeFeedDTO page = new ChangeFeedDTO();
+        List<MappingChangeDTO> changes = new ArrayList<>();
+        page.setChanges(changes);
+
+        long[] head = new long[shards];
+        long[] pruned = new long[shards];
+        for (int shard = 0; shard < shards; shard++) {
+            int current = shard;
+            shardRouter.onShard(shard, () -> jdbcTemplate.query(READ_HEAD, rs -> {
+                if (rs.next()) {
+                    head[current] = rs.getLong("version");
+                    pruned[current] = rs.getLong("pruned_version");
+                }
+                return null;
+            }));
+        }
+        if (since == null || since.length != shards || anyBehind(since, pruned)) {
+            page.setResync(true);
+            page.setCursor(formatCursor(head));
+            return page;
+        }
+
+        // Shard by shard until the page is full; the cursor only moves past what was returned
+        long[] next = since.clone();
+        for (int shard = 0; shard < shards && changes.size() < limit; shard++) {
+            if (head[shard] <= since[shard]) {
+                continue;
+            }
+            long after = since[shard];
+            int remaining = limit - changes.size();
+            List<MappingChangeDTO> shardChanges = shardRouter.onShard(shard, () -> jdbcTemplate.query(CHANGES_SINCE,
+                    (rs, rowNum) -> {
+                        MappingChangeDTO change = new MappingChangeDTO();
+                        change.setVersion(rs.getLong("version"));
+                        change.setShortUrl(rs.getString("short_url"));
+                        change.setType(rs.getString("change_type"));
+                        change.setOriginalUrl(rs.getString("original_url"));
+                        Timestamp expiresAt = rs.getTimestamp("expires_at");
+                        change.setExpiresAt(expiresAt != null ? expiresAt.toLocalDateTime() : null);
+                        change.setOneTimeUrl(rs.getObject("is_one_time_url", Boolean.class));
+                        return change;
+                    }, after, remaining));
+            if (!shardChanges.isEmpty()) {
+                next[shard] = shardChanges.getLast().getVersion();
+                changes.addAll(shardChanges);
+            }
+        }
+        boolean hasMore = false;
+        for (int shard = 0; shard < shards; shard++) {
+            hasMore |= next[shard] < head[shard];
+        }
+        page.setHasMore(hasMore);
+        page.setCursor(formatCursor(next));
+        return page;
+    }
+
+    private static boolean anyBehind(long[] since, long[] pruned) {
+        for (int shard = 0; shard < since.length; shard++) {
+            if (since[shard] < pruned[shard]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // "v0.v1...." with one version per shard; no cursor starts at the beginning of the log
+    private long[] parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return new long[shardRouter.shardCount()];
+        }
+        try {
+            long[] since = Arrays.stream(cursor.split("\\.")).mapToLong(Long::parseLong).toArray();
+            return Arrays.stream(since).allMatch(version -> version >= 0) ? since : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String formatCursor(long[] versions) {
+        return Arrays.stream(versions).mapToObj(Long::toString).collect(Collectors.joining("."));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        notifier.shutdownNow();
+        waiters.forEach(waiter -> waiter.result().setErrorResult(new IllegalStateException("shutting down")));
+    }
+
+    private record Waiter(long[] since, int limit, DeferredResult<ChangeFeedDTO> result) {
+    }
+}
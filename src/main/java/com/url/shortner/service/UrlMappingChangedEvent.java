@@ -0,0 +1,22 @@
+package com.url.shortner.service;
+
+/**
+ * Published when a link is deleted or deactivated, so node-local link caches drop it
+ *
+ * id / shortUrl identify the link (either may be null if unknown); both null means
+ * "many links changed" and caches should drop all links. remote as in UserChangedEvent.
+ */
+public record UrlMappingChangedEvent(Long id, String shortUrl, boolean remote) {
+
+    public UrlMappingChangedEvent(Long id, String shortUrl) {
+        this(id, shortUrl, false);
+    }
+
+    public static UrlMappingChangedEvent all() {
+        return new UrlMappingChangedEvent(null, null, false);
+    }
+
+    public boolean isAll() {
+        return id == null && shortUrl == null;
+    }
+}
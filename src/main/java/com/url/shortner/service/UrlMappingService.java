@@ -1,70 +1,104 @@
 package com.url.shortner.service;
 
+import com.url.shortner.analytics.ClickRecordedEvent;
+import com.url.shortner.datasource.ShardContext;
+import com.url.shortner.datasource.ShardRouter;
 import com.url.shortner.dtos.ClickEventDTO;
 import com.url.shortner.dtos.CreateUrlRequest;
 import com.url.shortner.dtos.UrlMappingDTO;
 import com.url.shortner.models.ClickEvent;
-import com.url.shortner.models.DeviceAccess;
 import com.url.shortner.models.UrlMapping;
-import com.url.shortner.models.User;
+import com.url.shortner.models.UrlMappingChange;
 import com.url.shortner.repository.ClickEventRepository;
 import com.url.shortner.repository.DeviceAccessRepository;
+import com.url.shortner.repository.UrlMappingChangeRepository;
 import com.url.shortner.repository.UrlMappingRepository;
-import jakarta.transaction.Transactional;
+import com.url.shortner.repository.UserRepository;
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.stream.Collectors;
 
+/**
+ * UrlMappingService - Link operations against the current shard
+ *
+ * Callers go through ShardedUrlMappingService, which selects the shard (or fans out over all
+ * of them) before these methods open their transactions. Only link creation routes itself,
+ * because the owning shard is known once the short code has been generated.
+ */
 @Service
 @AllArgsConstructor
 public class UrlMappingService {
     private UrlMappingRepository urlMappingRepository;
     private ClickEventRepository clickEventRepository;
     private DeviceAccessRepository deviceAccessRepository;
+    private UrlExpiryService urlExpiryService;
+    private UserRepository userRepository;
+    private ShardRouter shardRouter;
+    private ApplicationEventPublisher eventPublisher;
+    private OneTimeAccessCache oneTimeAccessCache;
+    private UrlDeduplicator urlDeduplicator;
+    private UrlMappingChangeRepository urlMappingChangeRepository;
 
-    public UrlMappingDTO createShortUrl(String originalUrl, User user) {
-        return createShortUrl(originalUrl, user, false, null);
+    // User id and username come from the authenticated principal, so no users table query is needed here
+    public UrlMappingDTO createShortUrl(String originalUrl, Long userId, String username) {
+        return createShortUrl(originalUrl, userId, username, false, null);
     }
 
-    public UrlMappingDTO createShortUrl(String originalUrl, User user, boolean isOneTimeUrl, LocalDateTime expiresAt) {
+    public UrlMappingDTO createShortUrl(String originalUrl, Long userId, String username, boolean isOneTimeUrl, LocalDateTime expiresAt) {
+        if (urlDeduplicator.isEnabled()) {
+            Optional<UrlMapping> existing = urlDeduplicator.findExisting(userId, originalUrl, isOneTimeUrl, expiresAt);
+            if (existing.isPresent()) {
+                return convertToDto(existing.get(), username);
+            }
+        }
         String shortUrl = generateShortUrl();
         UrlMapping urlMapping = new UrlMapping();
         urlMapping.setOriginalUrl(originalUrl);
+        urlMapping.setOriginalUrlHash(urlDeduplicator.hashOf(originalUrl));
         urlMapping.setShortUrl(shortUrl);
-        urlMapping.setUser(user);
+        urlMapping.setUser(userRepository.getReferenceById(userId));
         urlMapping.setCreatedDate(LocalDateTime.now());
         urlMapping.setOneTimeUrl(isOneTimeUrl);
         urlMapping.setExpiresAt(expiresAt);
         urlMapping.setActive(true);
         urlMapping.setUsed(false);
-        UrlMapping savedUrlMapping = urlMappingRepository.save(urlMapping);
+        UrlMapping savedUrlMapping = shardRouter.inTransaction(shardRouter.shardFor(shortUrl), () -> {
+            UrlMapping saved = urlMappingRepository.save(urlMapping);
+            recordChange(saved.getId(), shortUrl, UrlMappingChange.Type.CREATE);
+            return saved;
+        });
+        urlExpiryService.schedule(savedUrlMapping.getId(), expiresAt);
+        eventPublisher.publishEvent(new ContentChangedEvent(userId, shortUrl));
 
-        return convertToDto(savedUrlMapping);
+        return convertToDto(savedUrlMapping, username);
     }
 
-    public UrlMappingDTO createShortUrlWithRequest(CreateUrlRequest request, User user) {
+    public UrlMappingDTO createShortUrlWithRequest(CreateUrlRequest request, Long userId, String username) {
         LocalDateTime expiresAt = request.getExpiresAt();
         if (expiresAt == null && request.getExpiresInHours() != null) {
             expiresAt = LocalDateTime.now().plusHours(request.getExpiresInHours());
         }
-        return createShortUrl(request.getOriginalUrl(), user, request.isOneTimeUrl(), expiresAt);
+        return createShortUrl(request.getOriginalUrl(), userId, username, request.isOneTimeUrl(), expiresAt);
     }
 
-    private UrlMappingDTO convertToDto(UrlMapping urlMapping) {
+    private UrlMappingDTO convertToDto(UrlMapping urlMapping, String username) {
         UrlMappingDTO urlMappingDTO = new UrlMappingDTO();
         urlMappingDTO.setId(urlMapping.getId());
         urlMappingDTO.setOriginalUrl(urlMapping.getOriginalUrl());
         urlMappingDTO.setShortUrl(urlMapping.getShortUrl());
         urlMappingDTO.setClickCount(urlMapping.getClickCount());
         urlMappingDTO.setCreatedDate(urlMapping.getCreatedDate());
-        urlMappingDTO.setUsername(urlMapping.getUser().getUsername());
+        urlMappingDTO.setUsername(username);
         urlMappingDTO.setOneTimeUrl(urlMapping.isOneTimeUrl());
         urlMappingDTO.setUsed(urlMapping.isUsed());
         urlMappingDTO.setExpiresAt(urlMapping.getExpiresAt());
@@ -82,27 +116,32 @@ public class UrlMappingService {
         return shortUrl.toString();
     }
 
-    public List<UrlMappingDTO> getUrlsByUser(User user) {
-        return urlMappingRepository.findByUser(user).stream()
-                .map(this::convertToDto)
+    @Transactional(readOnly = true)
+    public List<UrlMappingDTO> getUrlsByUser(Long userId, String username) {
+        return urlMappingRepository.findByUserId(userId).stream()
+                .map(urlMapping -> convertToDto(urlMapping, username))
                 .toList();
     }
 
+    // The row lock orders the delete against in-flight redirects: their click and device rows are
+    // committed before the children are removed, and redirects arriving later find no link
     @Transactional
-    public boolean deleteUrl(Long urlId, User user) {
-        Optional<UrlMapping> urlMapping = urlMappingRepository.findByIdAndUser(urlId, user);
+    public boolean deleteUrl(Long urlId, Long userId) {
+        Optional<UrlMapping> urlMapping = urlMappingRepository.lockByIdAndUserId(urlId, userId);
         if (urlMapping.isPresent()) {
-            urlMappingRepository.delete(urlMapping.get());
+            clickEventRepository.deleteByUrlMappingId(urlId);
+            deviceAccessRepository.deleteByUrlMappingId(urlId);
+            urlMappingRepository.deleteMappingById(urlId);
+            recordChange(urlId, urlMapping.get().getShortUrl(), UrlMappingChange.Type.DELETE);
+            urlExpiryService.cancel(urlId);
+            eventPublisher.publishEvent(new UrlMappingChangedEvent(urlId, urlMapping.get().getShortUrl()));
+            eventPublisher.publishEvent(new ContentChangedEvent(userId, urlMapping.get().getShortUrl()));
             return true;
         }
         return false;
     }
 
-    @Transactional
-    public void deleteAllUrlsByUser(User user) {
-        urlMappingRepository.deleteByUser(user);
-    }
-
+    @Transactional(readOnly = true)
     public List<ClickEventDTO> getClickEventsByDate(String shortUrl, LocalDateTime start, LocalDateTime end) {
         UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
         if (urlMapping != null) {
@@ -125,8 +164,9 @@ public class UrlMappingService {
         return null;
     }
 
-    public Map<LocalDate, Long> getTotalClicksByUserAndDate(User user, LocalDate start, LocalDate end) {
-        List<UrlMapping> urlMappings = urlMappingRepository.findByUser(user);
+    @Transactional(readOnly = true)
+    public Map<LocalDate, Long> getTotalClicksByUserAndDate(Long userId, LocalDate start, LocalDate end) {
+        List<UrlMapping> urlMappings = urlMappingRepository.findByUserId(userId);
 
         if (urlMappings == null || urlMappings.isEmpty()) {
             return Map.of();
@@ -142,70 +182,145 @@ public class UrlMappingService {
                 );
     }
 
-    public UrlMapping getOriginalUrl(String shortUrl) {
-        return getOriginalUrl(shortUrl, null);
+    @Transactional(readOnly = true)
+    public List<ClickEventRepository.DimensionCount> getClickDimensionsByDate(String shortUrl, LocalDateTime start, LocalDateTime end) {
+        UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
+        if (urlMapping == null) {
+            return null;
+        }
+        return clickEventRepository.countByDimensions(urlMapping, start, end);
     }
 
+    @Transactional(readOnly = true)
+    public List<ClickEventRepository.DimensionCount> getClickDimensionsByUser(Long userId, LocalDate start, LocalDate end) {
+        return clickEventRepository.countByDimensionsForUser(userId, start.atStartOfDay(), end.plusDays(1).atStartOfDay());
+    }
+
+    // Read-only: edge prefetches may be served by the read replica
+    @Transactional(readOnly = true)
+    public List<UrlMappingRepository.ResolvedMapping> resolveShortUrls(Collection<String> shortUrls) {
+        return urlMappingRepository.findResolvedByShortUrlIn(shortUrls);
+    }
+
+    /**
+     * The redirect's read, in a transaction of its own so the connection is only held for the
+     * query; ShardedUrlMappingService shares it between concurrent redirects of the same code.
+     * Not read-only: a link must redirect right after it was created, whatever the replica lag.
+     */
     @Transactional
-    public UrlMapping getOriginalUrl(String shortUrl, String deviceFingerprint) {
-        UrlMapping urlMapping = urlMappingRepository.findByShortUrl(shortUrl);
-        if (urlMapping != null) {
-            // Check if URL is active
-            if (!urlMapping.isActive()) {
-                return null;
-            }
+    public UrlMapping findByShortUrl(String shortUrl) {
+        return urlMappingRepository.findByShortUrl(shortUrl);
+    }
+
+    /**
+     * Counts a redirect of a link read by findByShortUrl
+     *
+     * userAgent / referer are the raw request headers, handed to ClickEnrichmentService after commit
+     *
+     * @return the link, or null if it must not be served (inactive, expired, one-time link already
+     *         used by this device, deleted since it was read)
+     */
+    @Transactional
+    public UrlMapping recordClick(UrlMapping urlMapping, String deviceFingerprint, String userAgent, String referer) {
+        String shortUrl = urlMapping.getShortUrl();
+
+        // Check if URL is active
+        if (!urlMapping.isActive()) {
+            return null;
+        }
+
+        // Check if URL has expired - UrlExpiryService flips isActive in the background,
+        // so the redirect path only reads the timestamp and never writes here
+        if (urlMapping.getExpiresAt() != null && LocalDateTime.now().isAfter(urlMapping.getExpiresAt())) {
+            return null;
+        }
 
-            // Check if URL has expired
-            if (urlMapping.getExpiresAt() != null && LocalDateTime.now().isAfter(urlMapping.getExpiresAt())) {
-                urlMapping.setActive(false);
-                urlMappingRepository.save(urlMapping);
+        // Counters are updated in place rather than through the entity, so the link row is
+        // locked until commit and a concurrent deleteUrl waits for this click; an update of
+        // 0 rows means the link was deleted since it was read
+
+        // One-time URL: one access per device, claimed atomically by the device_access insert
+        if (urlMapping.isOneTimeUrl() && deviceFingerprint != null) {
+            if (urlMappingRepository.markUsed(urlMapping.getId()) == 0) {
                 return null;
             }
-
-            // Check if one-time URL has been used
-            if (urlMapping.isOneTimeUrl()) {
-                if (deviceFingerprint != null) {
-                    // Check if this device has already accessed this URL
-                    Optional<DeviceAccess> existingAccess = deviceAccessRepository.findByUrlMappingAndDeviceFingerprint(urlMapping, deviceFingerprint);
-                    if (existingAccess.isPresent()) {
-                        return null; // Already accessed by this device
-                    }
-
-                    // Record device access
-                    DeviceAccess deviceAccess = new DeviceAccess();
-                    deviceAccess.setUrlMapping(urlMapping);
-                    deviceAccess.setDeviceFingerprint(deviceFingerprint);
-                    deviceAccess.setAccessedAt(LocalDateTime.now());
-                    deviceAccessRepository.save(deviceAccess);
-                }
+            int claimed = deviceAccessRepository.insertIfAbsent(urlMapping.getId(), deviceFingerprint, LocalDateTime.now());
+            if (claimed == 0) {
+                oneTimeAccessCache.markSeen(shortUrl, deviceFingerprint);
+                return null; // Already accessed by this device
             }
+            oneTimeAccessCache.markSeenAfterCommit(shortUrl, deviceFingerprint);
+        }
 
-            urlMapping.setClickCount(urlMapping.getClickCount() + 1);
-            urlMappingRepository.save(urlMapping);
-
-            // Record click event
-            ClickEvent clickEvent = new ClickEvent();
-            clickEvent.setUrlMapping(urlMapping);
-            clickEvent.setClickDate(LocalDateTime.now());
-            clickEventRepository.save(clickEvent);
+        if (urlMappingRepository.incrementClickCount(urlMapping.getId()) == 0) {
+            return null;
         }
+
+        // Read in an earlier transaction, possibly another caller's - reference the row in this one
+        Long ownerId = urlMapping.getUser() != null ? urlMapping.getUser().getId() : null;
+        recordClickEvent(urlMappingRepository.getReferenceById(urlMapping.getId()), ownerId, shortUrl, userAgent, referer);
         return urlMapping;
     }
 
+    /**
+     * Counts a click on a link resolved from ShortCodeIndex, without reading url_mapping
+     *
+     * @return false if no active link with this id and code exists on the current shard
+     */
+    @Transactional
+    public boolean recordIndexedClick(Long urlMappingId, String shortUrl, Long ownerId, String userAgent, String referer) {
+        if (urlMappingRepository.incrementClickCountIfActive(urlMappingId, shortUrl) == 0) {
+            return false;
+        }
+        recordClickEvent(urlMappingRepository.getReferenceById(urlMappingId), ownerId, shortUrl, userAgent, referer);
+        return true;
+    }
+
+    private void recordClickEvent(UrlMapping urlMapping, Long ownerId, String shortUrl, String userAgent, String referer) {
+        ClickEvent clickEvent = new ClickEvent();
+        clickEvent.setUrlMapping(urlMapping);
+        clickEvent.setClickDate(LocalDateTime.now());
+        clickEventRepository.save(clickEvent);
+
+        // Moves the dashboard ETags of the owner and of this link (after commit)
+        eventPublisher.publishEvent(new ContentChangedEvent(ownerId, shortUrl));
+        if (userAgent != null || referer != null) {
+            eventPublisher.publishEvent(new ClickRecordedEvent(clickEvent.getId(), ShardContext.current(),
+                    ownerId, shortUrl, userAgent, referer));
+        }
+    }
+
     // Cleanup methods for scheduled tasks
+    // Precise expiry is handled by UrlExpiryService; this is a single-statement catch-up sweep
     @Transactional
-    public void cleanupExpiredUrls() {
-        List<UrlMapping> expiredUrls = urlMappingRepository.findExpiredUrls(LocalDateTime.now());
-        for (UrlMapping url : expiredUrls) {
-            url.setActive(false);
-            urlMappingRepository.save(url);
+    public int cleanupExpiredUrls() {
+        LocalDateTime now = LocalDateTime.now();
+        urlMappingChangeRepository.recordExpired(now);
+        int deactivated = urlMappingRepository.deactivateExpiredUrls(now);
+        if (deactivated > 0) {
+            eventPublisher.publishEvent(UrlMappingChangedEvent.all());
         }
+        return deactivated;
     }
 
     @Transactional
     public void cleanupOldUrls() {
         LocalDateTime cutoffDate = LocalDateTime.now().minusMonths(3);
+        urlMappingChangeRepository.recordDeletedOlderThan(cutoffDate, LocalDateTime.now());
         List<UrlMapping> oldUrls = urlMappingRepository.findUrlsOlderThan(cutoffDate);
         urlMappingRepository.deleteAll(oldUrls);
+        if (!oldUrls.isEmpty()) {
+            eventPublisher.publishEvent(UrlMappingChangedEvent.all());
+        }
+    }
+
+    // Change log row for UrlMappingChangeFeed, in the caller's transaction
+    private void recordChange(Long urlMappingId, String shortUrl, UrlMappingChange.Type type) {
+        UrlMappingChange change = new UrlMappingChange();
+        change.setUrlMappingId(urlMappingId);
+        change.setShortUrl(shortUrl);
+        change.setChangeType(type);
+        change.setChangedAt(LocalDateTime.now());
+        urlMappingChangeRepository.save(change);
     }
 }
@@ -0,0 +1,14 @@
+package com.url.shortner.service;
+
+/**
+ * Published whenever a user row changes in a way cached principals must not miss
+ * (deletion scheduled/cancelled, account deleted, role changed, email verified)
+ *
+ * remote = received from another node through CacheInvalidationBus (applied locally, not re-broadcast)
+ */
+public record UserChangedEvent(String username, boolean remote) {
+
+    public UserChangedEvent(String username) {
+        this(username, false);
+    }
+}
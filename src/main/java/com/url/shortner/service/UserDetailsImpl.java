@@ -22,6 +22,9 @@ public class UserDetailsImpl implements UserDetails {
 
     private String password;
 
+    // Only consulted at login (authenticateUser)
+    private boolean emailVerified;
+
     private Collection<? extends GrantedAuthority> authorities; // List of granted authorities
 
     public UserDetailsImpl(long id, String email, String username, String password, Collection<? extends GrantedAuthority> authorities) {
@@ -34,12 +37,14 @@ public class UserDetailsImpl implements UserDetails {
 
     public static UserDetailsImpl build(User user) {
         GrantedAuthority authority = new SimpleGrantedAuthority(user.getRole());
-        return new UserDetailsImpl(
+        UserDetailsImpl userDetails = new UserDetailsImpl(
                 user.getId(),
                 user.getEmail(),
                 user.getUsername(),
                 user.getPassword(),
                 Collections.singletonList(authority));
+        userDetails.setEmailVerified(user.isEmailVerified());
+        return userDetails;
     }
 
     @Override
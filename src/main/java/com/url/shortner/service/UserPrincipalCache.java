@@ -0,0 +1,88 @@
+package com.url.shortner.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.url.shortner.models.User;
+import com.url.shortner.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * UserPrincipalCache - TTL-bounded cache of users by username
+ *
+ * Shared by UserDetailsServiceImpl (JWT filter, login) and UserService.getUserByUsername (controllers),
+ * so an authenticated API call resolves its user at most once per TTL instead of twice per request.
+ *
+ * Entries are evicted after commit whenever a UserChangedEvent is published (on this node, or on
+ * another node via CacheInvalidationBus); the TTL bounds staleness for changes made outside the application. Cached users are read-only snapshots - code that modifies
+ * a user must load it from UserRepository instead.
+ *
+ * Metrics: cache.gets{cache=userPrincipals,result=hit|miss}, cache.evictions, user.principal.cache.hit.ratio
+ */
+@Service
+@Slf4j
+public class UserPrincipalCache {
+
+    private static final String CACHE_NAME = "userPrincipals";
+
+    private final UserRepository userRepository;
+    private final Cache<String, User> users;
+
+    public UserPrincipalCache(
+            UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${user.principal-cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${user.principal-cache.max-size:10000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, CACHE_NAME);
+        Gauge.builder("user.principal.cache.hit.ratio", users, cache -> cache.stats().hitRate())
+                .description("Share of user lookups answered without a users table query")
+                .register(meterRegistry);
+    }
+
+    public Optional<User> findByUsername(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        // A null from the loader is not cached, so unknown usernames always go to the database
+        return Optional.ofNullable(users.get(username, name -> userRepository.findByUsername(name).orElse(null)));
+    }
+
+    public void evict(String username) {
+        if (username != null) {
+            users.invalidate(username);
+        }
+    }
+
+    public void evictAll() {
+        users.invalidateAll();
+    }
+
+    // fallbackExecution so changes made outside a transaction still evict
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        log.debug("Evicting cached principal for user: {}", event.username());
+        evict(event.username());
+    }
+
+    @EventListener
+    public void onCacheFlush(CacheFlushEvent event) {
+        log.info("Flushing cached principals: {}", event.reason());
+        evictAll();
+    }
+}
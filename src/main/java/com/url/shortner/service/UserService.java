@@ -2,14 +2,14 @@ package com.url.shortner.service;
 
 import com.url.shortner.dtos.LoginRequest;
 import com.url.shortner.dtos.UserDTO;
+import com.url.shortner.models.AccountPurgeJob;
 import com.url.shortner.models.User;
 import com.url.shortner.repository.UserRepository;
 import com.url.shortner.security.jwt.JwtAuthenticationResponse;
 import com.url.shortner.security.jwt.JwtUtils;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -17,41 +17,50 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 /**
  * UserService - Handles user management including registration, authentication, and email verification
  *
  * EMAIL VERIFICATION FLOW:
- * 1. registerUser() - Creates user with emailVerified=false, generates token, sends email
+ * 1. registerUser() - Creates user with emailVerified=false, generates token, queues email (outbox)
  * 2. verifyEmail() - Validates token, sets emailVerified=true
- * 3. resendVerificationEmail() - Generates new token and sends email again
+ * 3. resendVerificationEmail() - Generates new token and queues email again
  * 4. authenticateUser() - Checks if email is verified before allowing login
  */
 @Service
 public class UserService {
+    public static final List<String> ROLES = List.of("ROLE_USER", "ROLE_EDGE", "ROLE_ADMIN");
+
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
-    private final AuthenticationManager authenticationManager;
+    private final LoginPipeline loginPipeline;
     private final JwtUtils jwtUtils;
-    private final UrlMappingService urlMappingService;
+    private final AccountPurgeService accountPurgeService;
     private final EmailService emailService;
+    private final UserPrincipalCache userPrincipalCache;
+    private final ApplicationEventPublisher eventPublisher;
     private final String frontendUrl;
 
     public UserService(
             PasswordEncoder passwordEncoder,
             UserRepository userRepository,
-            AuthenticationManager authenticationManager,
+            LoginPipeline loginPipeline,
             JwtUtils jwtUtils,
-            UrlMappingService urlMappingService,
+            AccountPurgeService accountPurgeService,
             EmailService emailService,
+            UserPrincipalCache userPrincipalCache,
+            ApplicationEventPublisher eventPublisher,
             @Value("${frontend.url}") String frontendUrl) {
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
-        this.authenticationManager = authenticationManager;
+        this.loginPipeline = loginPipeline;
         this.jwtUtils = jwtUtils;
-        this.urlMappingService = urlMappingService;
+        this.accountPurgeService = accountPurgeService;
         this.emailService = emailService;
+        this.userPrincipalCache = userPrincipalCache;
+        this.eventPublisher = eventPublisher;
         this.frontendUrl = frontendUrl;
     }
 
@@ -85,15 +94,9 @@ public class UserService {
         // Save user first
         User savedUser = userRepository.save(user);
 
-        // Send verification email - don't fail registration if email fails
-        try {
-            String verificationLink = frontendUrl + "/verify-email?token=" + verificationToken;
-            emailService.sendVerificationEmail(user.getEmail(), user.getUsername(), verificationLink);
-        } catch (Exception e) {
-            // Log the error but don't fail registration
-            // User can request resend verification email later
-            System.err.println("Failed to send verification email: " + e.getMessage());
-        }
+        // Queue verification email in the same transaction - delivered by EmailOutboxDispatcher after commit
+        String verificationLink = frontendUrl + "/verify-email?token=" + verificationToken;
+        emailService.sendVerificationEmail(user.getEmail(), user.getUsername(), verificationLink);
 
         return savedUser;
     }
@@ -132,6 +135,7 @@ public class UserService {
         user.setVerificationToken(null); // Clear the token after use
         user.setVerificationTokenExpiry(null);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getUsername()));
 
         return true;
     }
@@ -164,33 +168,39 @@ public class UserService {
 
     /**
      * Authenticates user and returns JWT token
-     * Checks if email is verified before allowing login
+     * Password verification runs on the bounded LoginPipeline; the user is loaded once (by the
+     * authentication provider) and the email-verified check uses that same principal
      */
-    public JwtAuthenticationResponse authenticateUser(LoginRequest loginRequest) {
-        // First check if user exists and email is verified
-        User user = userRepository.findByUsername(loginRequest.getUsername())
-                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+    public JwtAuthenticationResponse authenticateUser(LoginRequest loginRequest, String clientIp) {
+        Authentication authentication = loginPipeline.authenticate(
+                loginRequest.getUsername(), loginRequest.getPassword(), clientIp);
+        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
 
-        if (!user.isEmailVerified()) {
+        if (!userDetails.isEmailVerified()) {
             throw new RuntimeException("Please verify your email before logging in. Check your inbox for the verification link.");
         }
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(loginRequest.getUsername(),
-                        loginRequest.getPassword())
-        );
         SecurityContextHolder.getContext().setAuthentication(authentication);
-        UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
         String jwt = jwtUtils.generateToken(userDetails);
         return new JwtAuthenticationResponse(jwt, userDetails.getUsername(), userDetails.getEmail());
     }
 
+    /**
+     * Read-only lookup served from UserPrincipalCache (shared with the JWT filter).
+     * Methods that modify the user load it with loadUserForUpdate() instead.
+     */
     public User getUserByUsername(String name) {
-         return userRepository.findByUsername(name).orElseThrow(
+         return userPrincipalCache.findByUsername(name).orElseThrow(
                  () -> new UsernameNotFoundException("Username not found with the username: " + name)
          );
     }
 
+    private User loadUserForUpdate(String name) {
+        return userRepository.findByUsername(name).orElseThrow(
+                () -> new UsernameNotFoundException("Username not found with the username: " + name)
+        );
+    }
+
     public UserDTO getUserProfile(String username) {
         User user = getUserByUsername(username);
         UserDTO userDTO = new UserDTO();
@@ -202,6 +212,11 @@ public class UserService {
         userDTO.setDeleted(user.isDeleted());
         userDTO.setDeletionScheduledAt(user.getDeletionScheduledAt());
         userDTO.setDeletionDate(user.getDeletionDate());
+        accountPurgeService.getLatestJob(user.getId()).ifPresent(job -> {
+            userDTO.setPurgeStatus(job.getStatus().name());
+            userDTO.setPurgedUrls(job.getDeletedUrls());
+            userDTO.setPurgedClickEvents(job.getDeletedClickEvents());
+        });
         return userDTO;
     }
 
@@ -210,11 +225,12 @@ public class UserService {
      */
     @Transactional
     public void scheduleAccountDeletion(String username) {
-        User user = getUserByUsername(username);
+        User user = loadUserForUpdate(username);
         user.setDeleted(true);
         user.setDeletionScheduledAt(LocalDateTime.now());
         user.setDeletionDate(LocalDateTime.now().plusDays(5));  // 5-day grace period
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(username));
     }
 
     /**
@@ -222,36 +238,64 @@ public class UserService {
      */
     @Transactional
     public void cancelAccountDeletion(String username) {
-        User user = getUserByUsername(username);
+        User user = loadUserForUpdate(username);
         if (!user.isDeleted()) {
             throw new RuntimeException("Account is not scheduled for deletion");
         }
+        if (accountPurgeService.isPurgeInProgress(user.getId())) {
+            throw new RuntimeException("Account deletion is already in progress and can no longer be cancelled");
+        }
         user.setDeleted(false);
         user.setDeletionScheduledAt(null);
         user.setDeletionDate(null);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(username));
     }
 
     /**
-     * Permanently delete user account (called by scheduler after grace period)
+     * Change a user's role (e.g. ROLE_USER -> ROLE_EDGE), called from AdminController
+     * Cached principals are evicted so the new authorities apply on the next request
      */
     @Transactional
-    public void deleteUserAccount(String username) {
-        User user = getUserByUsername(username);
-        // Delete all URLs associated with the user (cascade will handle click events and device accesses)
-        urlMappingService.deleteAllUrlsByUser(user);
-        // Delete the user
-        userRepository.delete(user);
+    public void changeUserRole(String username, String role) {
+        if (!ROLES.contains(role)) {
+            throw new RuntimeException("Unknown role: " + role + " (expected one of " + ROLES + ")");
+        }
+        User user = loadUserForUpdate(username);
+        user.setRole(role);
+        userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(username));
+    }
+
+    /**
+     * Permanently delete user account - marks it deleted and queues a background purge
+     * so the request never waits on deleting the user's links and click history
+     */
+    @Transactional
+    public AccountPurgeJob deleteUserAccount(String username) {
+        User user = loadUserForUpdate(username);
+        return markDeletedAndEnqueue(user);
     }
 
     /**
      * Permanently delete user account by ID (used by cleanup scheduler)
      */
     @Transactional
-    public void deleteUserAccountById(Long userId) {
+    public AccountPurgeJob deleteUserAccountById(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + userId));
-        urlMappingService.deleteAllUrlsByUser(user);
-        userRepository.delete(user);
+        return markDeletedAndEnqueue(user);
+    }
+
+    private AccountPurgeJob markDeletedAndEnqueue(User user) {
+        LocalDateTime now = LocalDateTime.now();
+        user.setDeleted(true);
+        if (user.getDeletionScheduledAt() == null) {
+            user.setDeletionScheduledAt(now);
+        }
+        user.setDeletionDate(now);
+        userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(user.getUsername()));
+        return accountPurgeService.enqueue(user);
     }
 }
@@ -0,0 +1,96 @@
+-- Baseline schema (replaces ddl-auto=update and the hand-run db_migration.sql)
+-- Every statement is idempotent: databases created by the old setup are baselined at version 0
+-- (spring.flyway.baseline-on-migrate) and this script only fills in whatever they are missing.
+-- Portable between PostgreSQL and H2 (PostgreSQL mode) for the shards-local profile.
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    username VARCHAR(255) NOT NULL UNIQUE,
+    password VARCHAR(255),
+    role VARCHAR(255),
+    email_verified BOOLEAN DEFAULT false,
+    verification_token VARCHAR(255),
+    verification_token_expiry TIMESTAMP,
+    is_deleted BOOLEAN DEFAULT false,
+    deletion_scheduled_at TIMESTAMP,
+    deletion_date TIMESTAMP
+);
+
+-- Columns added after the first release
+ALTER TABLE users ADD COLUMN IF NOT EXISTS is_deleted BOOLEAN DEFAULT false;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS deletion_scheduled_at TIMESTAMP;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS deletion_date TIMESTAMP;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS email_verified BOOLEAN DEFAULT false;
+ALTER TABLE users ADD COLUMN IF NOT EXISTS verification_token VARCHAR(255);
+ALTER TABLE users ADD COLUMN IF NOT EXISTS verification_token_expiry TIMESTAMP;
+
+-- Rows that existed before the columns did
+UPDATE users SET email_verified = false WHERE email_verified IS NULL;
+UPDATE users SET is_deleted = false WHERE is_deleted IS NULL;
+
+CREATE TABLE IF NOT EXISTS url_mapping (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    original_url VARCHAR(255),
+    short_url VARCHAR(255),
+    click_count INTEGER NOT NULL DEFAULT 0,
+    created_date TIMESTAMP,
+    is_one_time_url BOOLEAN NOT NULL DEFAULT false,
+    is_used BOOLEAN NOT NULL DEFAULT false,
+    expires_at TIMESTAMP,
+    is_active BOOLEAN NOT NULL DEFAULT true,
+    user_id BIGINT REFERENCES users(id)
+);
+
+ALTER TABLE url_mapping ADD COLUMN IF NOT EXISTS is_one_time_url BOOLEAN DEFAULT false;
+ALTER TABLE url_mapping ADD COLUMN IF NOT EXISTS is_used BOOLEAN DEFAULT false;
+ALTER TABLE url_mapping ADD COLUMN IF NOT EXISTS expires_at TIMESTAMP;
+ALTER TABLE url_mapping ADD COLUMN IF NOT EXISTS is_active BOOLEAN DEFAULT true;
+
+CREATE TABLE IF NOT EXISTS click_event (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    click_date TIMESTAMP,
+    url_mapping_id BIGINT REFERENCES url_mapping(id)
+);
+
+CREATE TABLE IF NOT EXISTS device_access (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    device_fingerprint VARCHAR(255),
+    accessed_at TIMESTAMP,
+    url_mapping_id BIGINT REFERENCES url_mapping(id) ON DELETE CASCADE
+);
+
+-- Background account purge queue (user_id deliberately has no FK so the job outlives the user)
+CREATE TABLE IF NOT EXISTS account_purge_job (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    username VARCHAR(255),
+    status VARCHAR(20),
+    enqueued_at TIMESTAMP,
+    updated_at TIMESTAMP,
+    completed_at TIMESTAMP,
+    deleted_urls BIGINT DEFAULT 0,
+    deleted_click_events BIGINT DEFAULT 0,
+    deleted_device_accesses BIGINT DEFAULT 0,
+    attempts INT DEFAULT 0,
+    last_error VARCHAR(255)
+);
+CREATE INDEX IF NOT EXISTS idx_account_purge_job_status ON account_purge_job(status, id);
+CREATE INDEX IF NOT EXISTS idx_account_purge_job_user ON account_purge_job(user_id);
+
+-- Transactional email outbox (verification emails are queued with the registration and sent in batches)
+CREATE TABLE IF NOT EXISTS email_outbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    recipient_email VARCHAR(255),
+    recipient_name VARCHAR(255),
+    subject VARCHAR(255),
+    html_body TEXT,
+    status VARCHAR(20),
+    attempts INT DEFAULT 0,
+    created_at TIMESTAMP,
+    next_attempt_at TIMESTAMP,
+    claimed_at TIMESTAMP,
+    sent_at TIMESTAMP,
+    last_error VARCHAR(255)
+);
+CREATE INDEX IF NOT EXISTS idx_email_outbox_due ON email_outbox(status, next_attempt_at);
@@ -0,0 +1,21 @@
+-- Indexes behind every repository query (RepositoryQueryPlanTests fails on a sequential scan)
+-- On a large existing database, create these by hand first with CREATE INDEX CONCURRENTLY and the
+-- same names - this migration then finds them and does not lock the tables.
+
+-- Redirect lookup; fails if duplicate short codes already exist (remove them before upgrading)
+CREATE UNIQUE INDEX IF NOT EXISTS idx_url_mapping_short_url ON url_mapping(short_url);
+CREATE INDEX IF NOT EXISTS idx_url_mapping_user_id ON url_mapping(user_id);
+-- Expiry sweep and wheel rebuild
+CREATE INDEX IF NOT EXISTS idx_url_mapping_expires_active ON url_mapping(expires_at, is_active);
+-- Three-month cleanup
+CREATE INDEX IF NOT EXISTS idx_url_mapping_created_date ON url_mapping(created_date);
+
+-- Per-link analytics by date range, and the purge joins
+CREATE INDEX IF NOT EXISTS idx_click_event_mapping_date ON click_event(url_mapping_id, click_date);
+-- One-time link checks
+CREATE INDEX IF NOT EXISTS idx_device_access_mapping_fp ON device_access(url_mapping_id, device_fingerprint);
+
+-- Email verification link
+CREATE INDEX IF NOT EXISTS idx_users_verification_token ON users(verification_token);
+-- Expired grace periods for the account deletion job
+CREATE INDEX IF NOT EXISTS idx_users_deletion_date ON users(deletion_date);
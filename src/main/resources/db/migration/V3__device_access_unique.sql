@@ -0,0 +1,11 @@
+-- One access per device on one-time links, claimed with INSERT ... ON CONFLICT DO NOTHING.
+-- Duplicates left by the old check-then-insert race are removed first (the earliest access stays).
+DELETE FROM device_access d
+WHERE EXISTS (SELECT 1 FROM device_access o
+              WHERE o.url_mapping_id = d.url_mapping_id
+                AND o.device_fingerprint = d.device_fingerprint
+                AND o.id < d.id);
+
+CREATE UNIQUE INDEX IF NOT EXISTS uq_device_access_mapping_fp ON device_access(url_mapping_id, device_fingerprint);
+-- Same columns, now covered by the unique index
+DROP INDEX IF EXISTS idx_device_access_mapping_fp;
@@ -0,0 +1,13 @@
+-- Dictionary for click breakdowns (browser, os, device, referrer) - shard 0 only, ids shared by all shards
+CREATE TABLE IF NOT EXISTS click_dimension (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    kind VARCHAR(16) NOT NULL,
+    label VARCHAR(255) NOT NULL,
+    CONSTRAINT uq_click_dimension_kind_label UNIQUE (kind, label)
+);
+
+-- Dictionary ids per click, filled in asynchronously after the redirect (NULL = not enriched)
+ALTER TABLE click_event ADD COLUMN IF NOT EXISTS browser_id INTEGER;
+ALTER TABLE click_event ADD COLUMN IF NOT EXISTS os_id INTEGER;
+ALTER TABLE click_event ADD COLUMN IF NOT EXISTS device_class_id INTEGER;
+ALTER TABLE click_event ADD COLUMN IF NOT EXISTS referrer_id INTEGER;
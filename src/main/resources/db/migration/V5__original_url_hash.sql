@@ -0,0 +1,4 @@
+-- Fixed-width hash of the normalized original URL for link dedup (url.dedup.enabled).
+-- Existing links keep NULL and are never matched.
+ALTER TABLE url_mapping ADD COLUMN IF NOT EXISTS original_url_hash BIGINT;
+CREATE INDEX IF NOT EXISTS idx_url_mapping_user_hash ON url_mapping(user_id, original_url_hash);
@@ -0,0 +1,32 @@
+-- Sharded tables for shards 1..N-1 (shard 0 is managed like the unsharded database).
+-- No foreign key to users: the users table lives on shard 0 only.
+-- Portable between PostgreSQL and H2 (PostgreSQL mode) so local embedded shards use the same script.
+CREATE TABLE IF NOT EXISTS url_mapping (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    original_url VARCHAR(255),
+    short_url VARCHAR(255),
+    click_count INTEGER NOT NULL DEFAULT 0,
+    created_date TIMESTAMP,
+    is_one_time_url BOOLEAN NOT NULL DEFAULT FALSE,
+    is_used BOOLEAN NOT NULL DEFAULT FALSE,
+    expires_at TIMESTAMP,
+    is_active BOOLEAN NOT NULL DEFAULT TRUE,
+    user_id BIGINT
+);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_url_mapping_short_url ON url_mapping(short_url);
+CREATE INDEX IF NOT EXISTS idx_url_mapping_user_id ON url_mapping(user_id);
+
+CREATE TABLE IF NOT EXISTS click_event (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    click_date TIMESTAMP,
+    url_mapping_id BIGINT REFERENCES url_mapping(id)
+);
+CREATE INDEX IF NOT EXISTS idx_click_event_mapping_date ON click_event(url_mapping_id, click_date);
+
+CREATE TABLE IF NOT EXISTS device_access (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    device_fingerprint VARCHAR(255),
+    accessed_at TIMESTAMP,
+    url_mapping_id BIGINT REFERENCES url_mapping(id)
+);
+CREATE INDEX IF NOT EXISTS idx_device_access_mapping_fp ON device_access(url_mapping_id, device_fingerprint);
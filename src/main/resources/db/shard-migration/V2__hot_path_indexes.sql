@@ -0,0 +1,3 @@
+-- Expiry and cleanup indexes, matching db/migration/V2 on shard 0
+CREATE INDEX IF NOT EXISTS idx_url_mapping_expires_active ON url_mapping(expires_at, is_active);
+CREATE INDEX IF NOT EXISTS idx_url_mapping_created_date ON url_mapping(created_date);
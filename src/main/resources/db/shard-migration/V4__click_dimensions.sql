@@ -0,0 +1,5 @@
+-- Dictionary ids per click (the click_dimension dictionary itself lives on shard 0)
+ALTER TABLE click_event ADD COLUMN IF NOT EXISTS browser_id INTEGER;
+ALTER TABLE click_event ADD COLUMN IF NOT EXISTS os_id INTEGER;
+ALTER TABLE click_event ADD COLUMN IF NOT EXISTS device_class_id INTEGER;
+ALTER TABLE click_event ADD COLUMN IF NOT EXISTS referrer_id INTEGER;
@@ -0,0 +1,22 @@
+-- Change log of url_mapping for downstream caches (GET /api/edge/changes). Writers insert rows with
+-- version NULL in the same transaction as the change; UrlMappingChangeFeed numbers committed rows
+-- under the head row lock, so versions only ever appear in increasing order.
+CREATE TABLE IF NOT EXISTS url_mapping_change (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    version BIGINT,
+    url_mapping_id BIGINT NOT NULL,
+    short_url VARCHAR(255),
+    change_type VARCHAR(16) NOT NULL,
+    changed_at TIMESTAMP NOT NULL
+);
+CREATE UNIQUE INDEX IF NOT EXISTS uq_url_mapping_change_version ON url_mapping_change(version);
+CREATE INDEX IF NOT EXISTS idx_url_mapping_change_changed_at ON url_mapping_change(changed_at);
+
+-- Single row: last version handed out and the highest version removed by retention
+CREATE TABLE IF NOT EXISTS url_mapping_change_head (
+    id INTEGER PRIMARY KEY,
+    version BIGINT NOT NULL,
+    pruned_version BIGINT NOT NULL
+);
+INSERT INTO url_mapping_change_head (id, version, pruned_version)
+SELECT 1, 0, 0 WHERE NOT EXISTS (SELECT 1 FROM url_mapping_change_head WHERE id = 1);
@@ -0,0 +1,149 @@
+package com.url.shortner.analytics;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.dtos.ClickBreakdownDTO;
+import com.url.shortner.dtos.UrlMappingDTO;
+import com.url.shortner.models.User;
+import com.url.shortner.repository.UserRepository;
+import com.url.shortner.service.ShardedUrlMappingService;
+import com.url.shortner.service.UrlMappingService;
+import com.url.shortner.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ClickEnrichmentServiceTests - Redirects on the local shards end up in the breakdowns once enriched
+ *
+ * The click_dimension dictionary is shared with every other test of the run, so the referrer limit
+ * is checked on a dictionary of its own, sized from the labels already present.
+ */
+@SpringBootTest
+@ActiveProfiles({"shards-local", "test"})
+class ClickEnrichmentServiceTests {
+
+    private static final String CHROME_ON_WINDOWS =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0.0.0 Safari/537.36";
+    private static final String SAFARI_ON_IPHONE =
+            "Mozilla/5.0 (iPhone; CPU iPhone OS 17_5 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.5 Mobile/15E148 Safari/604.1";
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UrlMappingService urlMappingService;
+    @Autowired
+    private ShardedUrlMappingService shardedUrlMappingService;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private UrlMappingDTO link;
+
+    @BeforeEach
+    void createLink() {
+        user = TestUsers.create(userRepository, "enrich");
+        link = urlMappingService.createShortUrl("https://example.com/" + user.getUsername(), user.getId(), user.getUsername());
+    }
+
+    @AfterEach
+    void deleteLink() {
+        shardedUrlMappingService.deleteUrl(link.getId(), user.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void enrichedClicksShowInTheBreakdown() throws InterruptedException {
+        String referrerHost = "news-" + UUID.randomUUID().toString().substring(0, 8) + ".example.org";
+        click(CHROME_ON_WINDOWS, "https://www." + referrerHost + "/item?id=1");
+        click(CHROME_ON_WINDOWS, null);
+        click(SAFARI_ON_IPHONE, "https://t.co/AbC123");
+
+        awaitEnriched(3);
+        ClickBreakdownDTO breakdown = breakdown();
+
+        assertEquals(Map.of("Chrome", 2L, "Safari", 1L), breakdown.getBrowsers());
+        assertEquals(Map.of("Windows", 2L, "iOS", 1L), breakdown.getOperatingSystems());
+        assertEquals(Map.of("Desktop", 2L, "Mobile", 1L), breakdown.getDevices());
+        assertEquals(Map.of(referrerHost, 1L, UserAgentParser.DIRECT, 1L, "t.co", 1L), breakdown.getReferrers());
+        // Largest first
+        assertEquals(List.of("Chrome", "Safari"), List.copyOf(breakdown.getBrowsers().keySet()));
+    }
+
+    @Test
+    void clickWithoutHeadersStaysUnknown() {
+        click(null, null);
+
+        ClickBreakdownDTO breakdown = breakdown();
+
+        assertEquals(Map.of(UserAgentParser.UNKNOWN, 1L), breakdown.getBrowsers());
+        assertEquals(Map.of(UserAgentParser.UNKNOWN, 1L), breakdown.getReferrers());
+    }
+
+    @Test
+    void newReferrersPastTheLimitCountAsOther() {
+        Long known = shardRouter.onShard(0, () -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM click_dimension WHERE kind = 'referrer'", Long.class));
+        ClickDimensionDictionary dictionary = new ClickDimensionDictionary(jdbcTemplate, shardRouter, 1000, known.intValue() + 2);
+        String run = UUID.randomUUID().toString().substring(0, 8);
+
+        int first = dictionary.idFor(ClickDimension.REFERRER, "first-" + run + ".example.com");
+        int second = dictionary.idFor(ClickDimension.REFERRER, "second-" + run + ".example.com");
+        int third = dictionary.idFor(ClickDimension.REFERRER, "third-" + run + ".example.com");
+        int other = dictionary.idFor(ClickDimension.REFERRER, UserAgentParser.OTHER);
+
+        assertNotEquals(first, second);
+        assertNotEquals(other, first);
+        assertNotEquals(other, second);
+        assertEquals(other, third);
+        // Hosts that made it in keep their own label, and other dimensions are not limited
+        assertEquals(first, dictionary.idFor(ClickDimension.REFERRER, "first-" + run + ".example.com"));
+        dictionary.idFor(ClickDimension.BROWSER, "Browser-" + run);
+        assertEquals(0L, labelRows("third-" + run + ".example.com"));
+        assertEquals(1L, labelRows("Browser-" + run));
+    }
+
+    private long labelRows(String label) {
+        return shardRouter.onShard(0, () -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM click_dimension WHERE label = ?", Long.class, label));
+    }
+
+    private void click(String userAgent, String referer) {
+        assertNotNull(shardedUrlMappingService.getOriginalUrl(link.getShortUrl(), UUID.randomUUID().toString(), userAgent, referer));
+    }
+
+    private ClickBreakdownDTO breakdown() {
+        LocalDateTime now = LocalDateTime.now();
+        return shardedUrlMappingService.getClickBreakdownByDate(link.getShortUrl(), now.minusHours(1), now.plusHours(1));
+    }
+
+    private void awaitEnriched(long clicks) throws InterruptedException {
+        int shard = shardRouter.shardFor(link.getShortUrl());
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            Long enriched = shardRouter.onShard(shard, () -> jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM click_event WHERE url_mapping_id = ? AND browser_id IS NOT NULL",
+                    Long.class, link.getId()));
+            if (enriched == clicks) {
+                return;
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "only " + enriched + " of " + clicks + " clicks enriched");
+            Thread.sleep(50);
+        }
+    }
+}
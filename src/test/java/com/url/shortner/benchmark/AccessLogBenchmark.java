@@ -0,0 +1,78 @@
+package com.url.shortner.benchmark;
+
+import com.url.shortner.logging.AccessLogRingBuffer;
+import com.url.shortner.logging.AccessLogRoute;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Per-request logging cost seen by a request thread (8 threads)
+ *
+ * - ringBuffer: publish into AccessLogRingBuffer while a background thread drains it (what AccessLogFilter does)
+ * - synchronousConsole: format and write a line to a locked PrintStream, like a plain console appender
+ *
+ * The console stream discards its output, so the synchronous numbers are a lower bound - a real
+ * terminal or container log pipe is slower still. If the drainer falls behind, ringBuffer offers
+ * return false (dropped) instead of waiting, which is the behaviour under overload in production too.
+ *
+ * Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.url.shortner.benchmark.AccessLogBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class AccessLogBenchmark {
+
+    private AccessLogRingBuffer buffer;
+    private Thread drainer;
+    private volatile boolean running;
+    private PrintStream console;
+
+    @Setup
+    public void setup() {
+        buffer = new AccessLogRingBuffer(8192);
+        running = true;
+        StringBuilder line = new StringBuilder(160);
+        drainer = new Thread(() -> {
+            while (running) {
+                if (buffer.drain(record -> line.setLength(0), 256) == 0) {
+                    LockSupport.parkNanos(100_000);
+                }
+            }
+        });
+        drainer.setDaemon(true);
+        drainer.start();
+        console = new PrintStream(OutputStream.nullOutputStream(), true);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        running = false;
+        drainer.join();
+    }
+
+    @Benchmark
+    public boolean ringBuffer() {
+        return buffer.offer(System.currentTimeMillis(), AccessLogRoute.REDIRECT, "GET", "/aB3xY9", 302, 412, "203.0.113.7");
+    }
+
+    @Benchmark
+    public void synchronousConsole() {
+        console.println(String.format("%d redirect GET %s %d %dus %s",
+                System.currentTimeMillis(), "/aB3xY9", 302, 412L, "203.0.113.7"));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AccessLogBenchmark.class.getSimpleName()).build()).run();
+    }
+}
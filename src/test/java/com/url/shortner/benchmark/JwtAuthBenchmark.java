@@ -0,0 +1,84 @@
+package com.url.shortner.benchmark;
+
+import com.url.shortner.security.jwt.JwtUtils;
+import com.url.shortner.security.jwt.VerifiedJwt;
+import com.url.shortner.service.UserDetailsImpl;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request JWT authentication cost, before and after the single-parse / verified-cache change
+ *
+ * - legacyTwoParses: old filter path - derive the key and run two full parses (validate + get subject)
+ * - singleParse: one parse with the prebuilt key and parser (every request is a cache miss)
+ * - cachedVerify: repeat token served from the verified-token cache
+ *
+ * Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.url.shortner.benchmark.JwtAuthBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthBenchmark {
+
+    private static final String SECRET = "c2hvcnRseS1iZW5jaG1hcmstc2VjcmV0LWtleS10aGF0LWlzLWxvbmctZW5vdWdoLTEyMzQ1Njc4OTA=";
+
+    private JwtUtils jwtUtils;
+    private JwtUtils uncachedJwtUtils;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtils = newJwtUtils(10_000);
+        // Cache size 0 disables the verified-token cache so every call measures a real parse
+        uncachedJwtUtils = newJwtUtils(0);
+        UserDetailsImpl user = new UserDetailsImpl(1L, "bench@example.com", "bench", "x",
+                List.of(new SimpleGrantedAuthority("ROLE_USER")));
+        token = jwtUtils.generateToken(user);
+        jwtUtils.verifyToken(token);
+    }
+
+    private static JwtUtils newJwtUtils(long cacheSize) {
+        JwtUtils utils = new JwtUtils();
+        ReflectionTestUtils.setField(utils, "JwtSecret", SECRET);
+        ReflectionTestUtils.setField(utils, "jwtExpirationMs", 3_600_000);
+        ReflectionTestUtils.setField(utils, "verifiedCacheMaxSize", cacheSize);
+        utils.init();
+        return utils;
+    }
+
+    @Benchmark
+    public String legacyTwoParses() {
+        SecretKey key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        Jwts.parser().verifyWith(key).build().parseSignedClaims(token);
+        SecretKey keyAgain = Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRET));
+        return Jwts.parser().verifyWith(keyAgain).build().parseSignedClaims(token).getPayload().getSubject();
+    }
+
+    @Benchmark
+    public VerifiedJwt singleParse() {
+        return uncachedJwtUtils.verifyToken(token);
+    }
+
+    @Benchmark
+    public VerifiedJwt cachedVerify() {
+        return jwtUtils.verifyToken(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JwtAuthBenchmark.class.getSimpleName()).build()).run();
+    }
+}
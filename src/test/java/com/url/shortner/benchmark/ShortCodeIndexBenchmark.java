@@ -0,0 +1,80 @@
+package com.url.shortner.benchmark;
+
+import com.url.shortner.service.ShortCodeIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short code resolution from 1M links (4 threads)
+ *
+ * - mappedIndex: ShortCodeIndex in a memory-mapped file - the entries are off-heap, each hit
+ *   decodes the URL into a new String
+ * - heapMap: ConcurrentHashMap of the same links, the on-heap alternative the GC has to trace
+ *
+ * Run with: ./mvnw test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.url.shortner.benchmark.ShortCodeIndexBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ShortCodeIndexBenchmark {
+
+    private static final int LINKS = 1_000_000;
+    private static final String BASE62 = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private Path file;
+    private ShortCodeIndex index;
+    private ConcurrentHashMap<String, String> heapMap;
+    private String[] codes;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("short-code-index", ".bin");
+        index = ShortCodeIndex.open(file, LINKS * 2L, 256L * 1024 * 1024);
+        heapMap = new ConcurrentHashMap<>(LINKS * 2);
+        codes = new String[LINKS];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < LINKS; i++) {
+            StringBuilder code = new StringBuilder(8);
+            for (int c = 0; c < 8; c++) {
+                code.append(BASE62.charAt(random.nextInt(BASE62.length())));
+            }
+            codes[i] = code.toString();
+            String url = "https://example.com/articles/" + i + "?utm_source=newsletter";
+            index.put(codes[i], i, 1L, url, null);
+            heapMap.put(codes[i], url);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        index.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public String mappedIndex() {
+        return index.get(codes[ThreadLocalRandom.current().nextInt(LINKS)]).originalUrl();
+    }
+
+    @Benchmark
+    public String heapMap() {
+        return heapMap.get(codes[ThreadLocalRandom.current().nextInt(LINKS)]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ShortCodeIndexBenchmark.class.getSimpleName()).build()).run();
+    }
+}
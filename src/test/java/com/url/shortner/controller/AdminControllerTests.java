@@ -0,0 +1,92 @@
+package com.url.shortner.controller;
+
+import com.url.shortner.models.User;
+import com.url.shortner.repository.UserRepository;
+import com.url.shortner.security.jwt.JwtUtils;
+import com.url.shortner.service.UserDetailsImpl;
+import com.url.shortner.service.UserPrincipalCache;
+import com.url.shortner.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * AdminControllerTests - Role changes go through the admin endpoint and reach the cached principal
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"shards-local", "test"})
+class AdminControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    private User admin;
+    private User user;
+
+    @BeforeEach
+    void createUsers() {
+        admin = TestUsers.create(userRepository, "admin", "ROLE_ADMIN");
+        user = TestUsers.create(userRepository, "member");
+    }
+
+    @AfterEach
+    void deleteUsers() {
+        userRepository.deleteById(admin.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void adminChangesRoleAndCachedPrincipalFollows() throws Exception {
+        // Cached before the change, so a missing eviction would keep ROLE_USER
+        assertEquals("ROLE_USER", userPrincipalCache.findByUsername(user.getUsername()).orElseThrow().getRole());
+
+        changeRole(admin, user.getUsername(), "ROLE_ADMIN").andExpect(status().isOk());
+
+        assertEquals("ROLE_ADMIN", userRepository.findById(user.getId()).orElseThrow().getRole());
+        assertEquals("ROLE_ADMIN", userPrincipalCache.findByUsername(user.getUsername()).orElseThrow().getRole());
+    }
+
+    @Test
+    void nonAdminIsForbidden() throws Exception {
+        changeRole(user, user.getUsername(), "ROLE_ADMIN").andExpect(status().isForbidden());
+
+        assertEquals("ROLE_USER", userRepository.findById(user.getId()).orElseThrow().getRole());
+    }
+
+    @Test
+    void unknownRoleIsRejected() throws Exception {
+        changeRole(admin, user.getUsername(), "ROLE_ROOT").andExpect(status().isBadRequest());
+
+        assertEquals("ROLE_USER", userRepository.findById(user.getId()).orElseThrow().getRole());
+    }
+
+    @Test
+    void unknownUserIsNotFound() throws Exception {
+        changeRole(admin, user.getUsername() + "-missing", "ROLE_ADMIN").andExpect(status().isNotFound());
+    }
+
+    private ResultActions changeRole(User caller, String username, String role) throws Exception {
+        return mockMvc.perform(put("/api/admin/users/{username}/role", username)
+                .header("Authorization", "Bearer " + jwtUtils.generateToken(UserDetailsImpl.build(caller)))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"role\":\"" + role + "\"}"));
+    }
+}
@@ -0,0 +1,125 @@
+package com.url.shortner.controller;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.dtos.UrlMappingDTO;
+import com.url.shortner.models.User;
+import com.url.shortner.repository.UserRepository;
+import com.url.shortner.security.jwt.JwtUtils;
+import com.url.shortner.service.ShardedUrlMappingService;
+import com.url.shortner.service.UrlMappingService;
+import com.url.shortner.service.UserDetailsImpl;
+import com.url.shortner.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * EdgeControllerTests - One request that reads codes owned by different shards (three local shards)
+ *
+ * The first shard a request touches must not decide where the others are read.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"shards-local", "test"})
+class EdgeControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UrlMappingService urlMappingService;
+    @Autowired
+    private ShardedUrlMappingService shardedUrlMappingService;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    private User edge;
+    private final List<UrlMappingDTO> links = new ArrayList<>();
+    // One link per shard, in shard order
+    private final Map<Integer, UrlMappingDTO> linkByShard = new TreeMap<>();
+
+    @BeforeEach
+    void createLinkOnEveryShard() {
+        edge = TestUsers.create(userRepository, "edge", "ROLE_EDGE");
+        for (int i = 0; linkByShard.size() < shardRouter.shardCount() && i < 200; i++) {
+            UrlMappingDTO link = urlMappingService.createShortUrl("https://example.com/" + edge.getUsername() + "/" + i,
+                    edge.getId(), edge.getUsername());
+            links.add(link);
+            linkByShard.putIfAbsent(shardRouter.shardFor(link.getShortUrl()), link);
+        }
+        assertEquals(shardRouter.shardCount(), linkByShard.size());
+    }
+
+    @AfterEach
+    void deleteLinks() {
+        links.forEach(link -> shardedUrlMappingService.deleteUrl(link.getId(), edge.getId()));
+        userRepository.deleteById(edge.getId());
+    }
+
+    @Test
+    void resolvesCodesOfEveryShardInOneRequest() throws Exception {
+        ResultActions result = resolve(linkByShard.values().stream().map(UrlMappingDTO::getShortUrl).toList())
+                .andExpect(status().isOk());
+
+        for (UrlMappingDTO link : linkByShard.values()) {
+            result.andExpect(jsonPath("$['" + link.getShortUrl() + "'].isActive", is(true)))
+                    .andExpect(jsonPath("$['" + link.getShortUrl() + "'].originalUrl", is(link.getOriginalUrl())));
+        }
+    }
+
+    @Test
+    void secondShardResolvesAfterTheFirstWasRead() throws Exception {
+        // Shard 0 is read first, so a request-scoped connection would pin the rest of the batch to it
+        UrlMappingDTO first = linkByShard.get(0);
+        UrlMappingDTO second = linkByShard.get(1);
+
+        resolve(List.of(first.getShortUrl(), second.getShortUrl()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['" + first.getShortUrl() + "'].isActive", is(true)))
+                .andExpect(jsonPath("$['" + second.getShortUrl() + "'].isActive", is(true)))
+                .andExpect(jsonPath("$['" + second.getShortUrl() + "'].originalUrl", is(second.getOriginalUrl())));
+    }
+
+    @Test
+    void onlyUnknownCodesAreNegativelyCacheable() throws Exception {
+        List<String> codes = new ArrayList<>(List.of("missing0"));
+        linkByShard.values().forEach(link -> codes.add(link.getShortUrl()));
+
+        ResultActions result = resolve(codes)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.missing0.isActive", is(false)))
+                .andExpect(jsonPath("$.missing0.ttl", is(60)));
+        for (UrlMappingDTO link : linkByShard.values()) {
+            result.andExpect(jsonPath("$['" + link.getShortUrl() + "'].isActive", is(true)))
+                    .andExpect(jsonPath("$['" + link.getShortUrl() + "'].ttl", is(300)));
+        }
+    }
+
+    private ResultActions resolve(List<String> codes) throws Exception {
+        return mockMvc.perform(post("/api/edge/resolve")
+                .header("Authorization", "Bearer " + jwtUtils.generateToken(UserDetailsImpl.build(edge)))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"codes\":[\"" + String.join("\",\"", codes) + "\"]}"));
+    }
+}
@@ -0,0 +1,215 @@
+package com.url.shortner.controller;
+
+import com.jayway.jsonpath.JsonPath;
+import com.url.shortner.analytics.ClickEnrichmentService;
+import com.url.shortner.analytics.ClickRecordedEvent;
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.dtos.UrlMappingDTO;
+import com.url.shortner.models.User;
+import com.url.shortner.repository.UserRepository;
+import com.url.shortner.security.jwt.JwtUtils;
+import com.url.shortner.service.ShardedUrlMappingService;
+import com.url.shortner.service.UserDetailsImpl;
+import com.url.shortner.support.TestUsers;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * UrlMappingControllerTests - ETags of /api/urls/myurls follow the user's links and clicks
+ *
+ * Statements Hibernate prepares on the request thread and on the shard scatter threads are
+ * captured, so a 304 can be shown to have answered without touching any shard.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.url.shortner.controller.UrlMappingControllerTests$RequestStatementInspector")
+@AutoConfigureMockMvc
+@ActiveProfiles({"shards-local", "test"})
+class UrlMappingControllerTests {
+
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/126.0 Safari/537.36";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ShardedUrlMappingService shardedUrlMappingService;
+    @Autowired
+    private ClickEnrichmentService clickEnrichmentService;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    private User user;
+
+    @BeforeEach
+    void createUser() {
+        user = TestUsers.create(userRepository, "etag");
+    }
+
+    @AfterEach
+    void deleteUser() {
+        shardedUrlMappingService.getUrlsByUser(user.getId(), user.getUsername())
+                .forEach(link -> shardedUrlMappingService.deleteUrl(link.getId(), user.getId()));
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void matchingIfNoneMatchIsAnsweredWithoutAQuery() throws Exception {
+        shorten("https://example.com/etag/unchanged");
+
+        // Also caches the principal, so the second request does not load the user
+        RequestStatementInspector.start();
+        String etag = myUrlsEtag();
+        assertFalse(RequestStatementInspector.stop().isEmpty(), "the listing was not captured");
+
+        RequestStatementInspector.start();
+        mockMvc.perform(get("/api/urls/myurls")
+                        .header("Authorization", bearer())
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        assertEquals(List.of(), RequestStatementInspector.stop());
+    }
+
+    @Test
+    void creatingALinkChangesTheEtag() throws Exception {
+        String before = myUrlsEtag();
+
+        shorten("https://example.com/etag/created");
+
+        assertNotEquals(before, myUrlsEtag());
+    }
+
+    @Test
+    void deletingALinkChangesTheEtag() throws Exception {
+        long id = shorten("https://example.com/etag/deleted");
+        String before = myUrlsEtag();
+
+        mockMvc.perform(delete("/api/urls/" + id).header("Authorization", bearer()))
+                .andExpect(status().isOk());
+
+        assertNotEquals(before, myUrlsEtag());
+    }
+
+    @Test
+    void clickAndItsEnrichmentChangeTheEtag() throws Exception {
+        long id = shorten("https://example.com/etag/clicked");
+        String code = shardedUrlMappingService.getUrlsByUser(user.getId(), user.getUsername()).stream()
+                .filter(link -> link.getId() == id)
+                .map(UrlMappingDTO::getShortUrl)
+                .findFirst().orElseThrow();
+        int shard = shardRouter.shardFor(code);
+        String beforeClick = myUrlsEtag();
+
+        mockMvc.perform(get("/" + code).header(HttpHeaders.USER_AGENT, USER_AGENT))
+                .andExpect(status().isFound());
+        assertNotEquals(beforeClick, myUrlsEtag());
+
+        // Wait for the queued enrichment, then hand the same click to it once more: only its bump can move the ETag now
+        Map<String, Object> click = awaitEnriched(shard, id);
+        String beforeEnrichment = myUrlsEtag();
+        clickEnrichmentService.onClickRecorded(new ClickRecordedEvent(((Number) click.get("id")).longValue(), shard,
+                user.getId(), code, USER_AGENT, "https://news.example.org/item"));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (beforeEnrichment.equals(myUrlsEtag())) {
+            assertTrue(System.currentTimeMillis() < deadline, "enrichment did not change the ETag");
+            Thread.sleep(50);
+        }
+    }
+
+    private long shorten(String originalUrl) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/urls/shorten")
+                        .header("Authorization", bearer())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"originalUrl\":\"" + originalUrl + "\"}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        Number id = JsonPath.read(result.getResponse().getContentAsString(), "$.id");
+        return id.longValue();
+    }
+
+    private String myUrlsEtag() throws Exception {
+        String etag = mockMvc.perform(get("/api/urls/myurls").header("Authorization", bearer()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        return etag;
+    }
+
+    private Map<String, Object> awaitEnriched(int shard, long urlMappingId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (true) {
+            Map<String, Object> click = shardRouter.onShard(shard, () -> jdbcTemplate.queryForMap(
+                    "SELECT id, browser_id FROM click_event WHERE url_mapping_id = ?", urlMappingId));
+            if (click.get("browser_id") != null) {
+                return click;
+            }
+            assertTrue(System.currentTimeMillis() < deadline, "click was not enriched");
+            Thread.sleep(50);
+        }
+    }
+
+    private String bearer() {
+        return "Bearer " + jwtUtils.generateToken(UserDetailsImpl.build(user));
+    }
+
+    /**
+     * Records the SQL prepared by the test thread and the shard scatter threads, ignoring schedulers
+     */
+    public static class RequestStatementInspector implements StatementInspector {
+
+        private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+        private static volatile Thread testThread;
+
+        static void start() {
+            STATEMENTS.clear();
+            testThread = Thread.currentThread();
+        }
+
+        static List<String> stop() {
+            testThread = null;
+            return List.copyOf(STATEMENTS);
+        }
+
+        @Override
+        public String inspect(String sql) {
+            Thread current = Thread.currentThread();
+            if (testThread != null && (current == testThread || current.getName().startsWith("shard-scatter-"))) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.url.shortner.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JumpConsistentHashShardMapTests - Assignments are pinned, even, and move minimally on a resize
+ */
+class JumpConsistentHashShardMapTests {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void fnv1aMatchesTheReferenceVectors() {
+        assertEquals(0xcbf29ce484222325L, JumpConsistentHashShardMap.fnv1a(""));
+        assertEquals(0xaf63dc4c8601ec8cL, JumpConsistentHashShardMap.fnv1a("a"));
+        assertEquals(0x85944171f73967e8L, JumpConsistentHashShardMap.fnv1a("foobar"));
+    }
+
+    @Test
+    void assignmentIsPinned() {
+        // Stored rows live where these say; a change here strands existing links
+        assertOwners("abc123XY", 0, 0, 2, 2, 2, 2, 2, 2);
+        assertOwners("Zz9Kq01a", 0, 0, 0, 0, 0, 5, 5, 5);
+        assertOwners("00000000", 0, 0, 0, 3, 4, 4, 4, 4);
+    }
+
+    @Test
+    void keysSpreadEvenly() {
+        int shards = 8;
+        JumpConsistentHashShardMap map = new JumpConsistentHashShardMap(shards);
+        int[] counts = new int[shards];
+        for (int i = 0; i < KEYS; i++) {
+            counts[map.shardFor(key(i))]++;
+        }
+        for (int count : counts) {
+            assertTrue(Math.abs(count - KEYS / shards) < KEYS / shards / 20, "shard with " + count + " keys");
+        }
+    }
+
+    @Test
+    void addingAShardMovesAboutOneNthToIt() {
+        for (int shards = 1; shards < 8; shards++) {
+            JumpConsistentHashShardMap before = new JumpConsistentHashShardMap(shards);
+            JumpConsistentHashShardMap after = new JumpConsistentHashShardMap(shards + 1);
+            int moved = 0;
+            for (int i = 0; i < KEYS; i++) {
+                int from = before.shardFor(key(i));
+                int to = after.shardFor(key(i));
+                if (from != to) {
+                    assertEquals(shards, to, "a moved key must go to the new shard");
+                    moved++;
+                }
+            }
+            double expected = (double) KEYS / (shards + 1);
+            assertTrue(Math.abs(moved - expected) < expected * 0.05, moved + " of " + KEYS + " keys moved to shard " + shards);
+        }
+    }
+
+    @Test
+    void singleShardOwnsEverything() {
+        JumpConsistentHashShardMap map = new JumpConsistentHashShardMap(1);
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(0, map.shardFor(key(i)));
+        }
+    }
+
+    @Test
+    void shardCountMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new JumpConsistentHashShardMap(0));
+    }
+
+    private static void assertOwners(String shortUrl, int... ownerByShardCount) {
+        for (int shards = 1; shards <= ownerByShardCount.length; shards++) {
+            assertEquals(ownerByShardCount[shards - 1], new JumpConsistentHashShardMap(shards).shardFor(shortUrl),
+                    shortUrl + " with " + shards + " shards");
+        }
+    }
+
+    private static String key(int i) {
+        return "code" + i;
+    }
+}
@@ -0,0 +1,57 @@
+package com.url.shortner.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * ReplicaLagMonitorTests - Lag from the primary positions the replica has replayed (no database)
+ */
+class ReplicaLagMonitorTests {
+
+    private final ReplicaLagMonitor monitor = new ReplicaLagMonitor(
+            new DriverManagerDataSource(), new DriverManagerDataSource(), 5_000, new SimpleMeterRegistry());
+
+    @Test
+    void caughtUpReplicaHasNoLag() {
+        assertEquals(0, monitor.lagMs(1_000, 100, 100L, 1_010));
+        assertEquals(0, monitor.lagMs(2_000, 100, 150L, 2_010));
+    }
+
+    @Test
+    void standaloneServerHasNoLag() {
+        assertEquals(0, monitor.lagMs(1_000, 100, null, 1_010));
+    }
+
+    @Test
+    void frozenReplicaLagGrowsWhilePrimaryMoves() {
+        monitor.lagMs(1_000, 100, 100L, 1_010);
+
+        // WAL receiver gone: replay stays at 100 while the primary writes on
+        assertEquals(1_010, monitor.lagMs(2_000, 200, 100L, 2_010));
+        assertEquals(3_010, monitor.lagMs(4_000, 300, 100L, 4_010));
+        assertEquals(-1, monitor.lagMs(7_000, 400, 100L, 7_010));
+    }
+
+    @Test
+    void replicaSlightlyBehindUnderLoadIsOneIntervalBehind() {
+        monitor.lagMs(1_000, 100, 90L, 1_010);
+
+        // Never reaches the position read just before it, but always the previous check's
+        assertEquals(1_010, monitor.lagMs(2_000, 200, 150L, 2_010));
+        assertEquals(1_010, monitor.lagMs(3_000, 300, 250L, 3_010));
+    }
+
+    @Test
+    void unknownUntilAPositionIsReplayed() {
+        assertEquals(-1, monitor.lagMs(1_000, 100, 50L, 1_010));
+    }
+
+    @Test
+    void parsesPostgresLsn() {
+        assertEquals(0x16_B374D848L, ReplicaLagMonitor.parseLsn("16/B374D848"));
+        assertEquals(0, ReplicaLagMonitor.parseLsn("0/0"));
+    }
+}
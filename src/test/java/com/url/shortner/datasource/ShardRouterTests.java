@@ -0,0 +1,87 @@
+package com.url.shortner.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ShardRouterTests - Lookup candidates while rebalancing and the shard context (no database)
+ */
+class ShardRouterTests {
+
+    @Test
+    void candidatesIncludeThePreResizeOwner() {
+        ShardRouter router = new ShardRouter(new JumpConsistentHashShardMap(4), null, 3);
+        JumpConsistentHashShardMap previous = new JumpConsistentHashShardMap(3);
+        int moved = 0;
+        try {
+            for (int i = 0; i < 1_000; i++) {
+                String shortUrl = String.format("%08d", i);
+                int owner = router.shardFor(shortUrl);
+                int oldOwner = previous.shardFor(shortUrl);
+                if (owner != oldOwner) {
+                    assertArrayEquals(new int[]{owner, oldOwner}, router.candidateShardsFor(shortUrl));
+                    moved++;
+                } else {
+                    assertArrayEquals(new int[]{owner}, router.candidateShardsFor(shortUrl));
+                }
+            }
+        } finally {
+            router.shutdown();
+        }
+        assertTrue(moved > 0);
+    }
+
+    @Test
+    void onlyTheOwnerWithoutAResize() {
+        ShardRouter unset = new ShardRouter(new JumpConsistentHashShardMap(4), null, 0);
+        ShardRouter same = new ShardRouter(new JumpConsistentHashShardMap(4), null, 4);
+        try {
+            for (int i = 0; i < 1_000; i++) {
+                String shortUrl = String.format("%08d", i);
+                assertArrayEquals(new int[]{unset.shardFor(shortUrl)}, unset.candidateShardsFor(shortUrl));
+                assertArrayEquals(new int[]{same.shardFor(shortUrl)}, same.candidateShardsFor(shortUrl));
+            }
+        } finally {
+            unset.shutdown();
+            same.shutdown();
+        }
+    }
+
+    @Test
+    void removedShardIsNotACandidate() {
+        // Shrinking 5 -> 4: keys of the removed shard 4 have no pre-resize owner left to ask
+        ShardRouter router = new ShardRouter(new JumpConsistentHashShardMap(4), null, 5);
+        try {
+            for (int i = 0; i < 1_000; i++) {
+                String shortUrl = String.format("%08d", i);
+                for (int shard : router.candidateShardsFor(shortUrl)) {
+                    assertTrue(shard < 4, shortUrl + " -> shard " + shard);
+                }
+            }
+        } finally {
+            router.shutdown();
+        }
+    }
+
+    @Test
+    void onShardSetsAndRestoresTheShard() {
+        ShardRouter router = new ShardRouter(new JumpConsistentHashShardMap(2), null, 0);
+        try {
+            assertNull(ShardContext.get());
+            int inner = router.onShard(1, () -> {
+                assertEquals(1, ShardContext.current());
+                int nested = router.onShard(0, ShardContext::current);
+                assertEquals(1, ShardContext.current());
+                return nested;
+            });
+            assertEquals(0, inner);
+            assertNull(ShardContext.get());
+        } finally {
+            router.shutdown();
+        }
+    }
+}
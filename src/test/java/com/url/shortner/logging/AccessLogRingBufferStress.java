@@ -0,0 +1,63 @@
+package com.url.shortner.logging;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two request threads publish while the writer drains; the arbiter drains what is left.
+ * r1 = records consumed, r2 = statuses seen as a bit set (1 and 2), plus bit 4 for a record
+ * whose fields were read before the producer finished writing them.
+ */
+@JCStressTest
+@Description("Concurrently offered access log records are each drained exactly once and fully written")
+@Outcome(id = "2, 3", expect = ACCEPTABLE, desc = "Both records consumed once")
+@Outcome(expect = FORBIDDEN, desc = "Lost, duplicated or torn record")
+@State
+public class AccessLogRingBufferStress {
+
+    private final AccessLogRingBuffer buffer = new AccessLogRingBuffer(4);
+    // Consumer side only - the drain actor, then the arbiter
+    private int consumed;
+    private int seen;
+
+    @Actor
+    public void firstRequest() {
+        buffer.offer(1L, AccessLogRoute.REDIRECT, "GET", "/one", 1, 10L, "203.0.113.1");
+    }
+
+    @Actor
+    public void secondRequest() {
+        buffer.offer(2L, AccessLogRoute.API, "POST", "/two", 2, 20L, "203.0.113.2");
+    }
+
+    @Actor
+    public void writer() {
+        buffer.drain(this::consume, Integer.MAX_VALUE);
+    }
+
+    @Arbiter
+    public void remaining(II_Result result) {
+        buffer.drain(this::consume, Integer.MAX_VALUE);
+        result.r1 = consumed;
+        result.r2 = seen;
+    }
+
+    private void consume(AccessLogRecord record) {
+        consumed++;
+        seen |= record.status;
+        boolean complete = record.status == 1
+                ? "/one".equals(record.path) && "203.0.113.1".equals(record.clientIp)
+                : "/two".equals(record.path) && "203.0.113.2".equals(record.clientIp);
+        if (!complete) {
+            seen |= 4;
+        }
+    }
+}
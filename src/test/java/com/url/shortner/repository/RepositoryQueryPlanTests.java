@@ -0,0 +1,271 @@
+package com.url.shortner.repository;
+
+import com.url.shortner.models.AccountPurgeJob;
+import com.url.shortner.models.UrlMapping;
+import com.url.shortner.models.User;
+import com.url.shortner.support.TestUsers;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * RepositoryQueryPlanTests - Fails when a repository query would need a sequential scan
+ *
+ * Every repository method is called once against the configured PostgreSQL database, the SQL
+ * Hibernate sends is captured, and each statement is EXPLAINed as a generic prepared plan with
+ * enable_seqscan off. The planner still picks a Seq Scan when no index can serve the query, so
+ * a missing index shows up regardless of how much data the database holds. Everything runs in a
+ * transaction that is rolled back.
+ *
+ * New repository methods belong in queries() - an index migration should come with them.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.url.shortner.repository.RepositoryQueryPlanTests$CapturingStatementInspector")
+class RepositoryQueryPlanTests {
+
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UrlMappingRepository urlMappingRepository;
+    @Autowired
+    private UrlMappingChangeRepository urlMappingChangeRepository;
+    @Autowired
+    private ClickEventRepository clickEventRepository;
+    @Autowired
+    private DeviceAccessRepository deviceAccessRepository;
+    @Autowired
+    private AccountPurgeJobRepository accountPurgeJobRepository;
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @BeforeEach
+    void requirePostgres() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            assumeTrue(connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres"),
+                    "Query plan checks need PostgreSQL");
+        }
+    }
+
+    @Test
+    void repositoryQueriesUseIndexes() {
+        List<String> failures = new ArrayList<>();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (Map.Entry<String, Consumer<Seed>> query : queries().entrySet()) {
+            transaction.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                Seed seed = seed();
+                CapturingStatementInspector.start();
+                try {
+                    query.getValue().accept(seed);
+                    entityManager.flush();
+                } finally {
+                    CapturingStatementInspector.stop();
+                }
+                for (String sql : CapturingStatementInspector.captured()) {
+                    String plan = explain(sql);
+                    if (plan.contains("Seq Scan")) {
+                        failures.add(query.getKey() + "\n  " + sql + "\n" + plan);
+                    }
+                }
+            });
+        }
+        assertTrue(failures.isEmpty(), "Sequential scans:\n" + String.join("\n", failures));
+    }
+
+    private Map<String, Consumer<Seed>> queries() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Consumer<Seed>> queries = new LinkedHashMap<>();
+
+        queries.put("UrlMappingRepository.findByShortUrl", s -> urlMappingRepository.findByShortUrl(s.mapping().getShortUrl()));
+        queries.put("UrlMappingRepository.findByUserId", s -> urlMappingRepository.findByUserId(s.user().getId()));
+        queries.put("UrlMappingRepository.findByIdAndUserId", s -> urlMappingRepository.findByIdAndUserId(s.mapping().getId(), s.user().getId()));
+        queries.put("UrlMappingRepository.findByUserIdAndOriginalUrlHash",
+                s -> urlMappingRepository.findByUserIdAndOriginalUrlHash(s.user().getId(), 42L));
+        queries.put("UrlMappingRepository.findResolvedByShortUrlIn",
+                s -> urlMappingRepository.findResolvedByShortUrlIn(List.of(s.mapping().getShortUrl(), "missing1")));
+        queries.put("UrlMappingRepository.lockByIdAndUserId", s -> urlMappingRepository.lockByIdAndUserId(s.mapping().getId(), s.user().getId()));
+        queries.put("UrlMappingRepository.incrementClickCount", s -> urlMappingRepository.incrementClickCount(s.mapping().getId()));
+        queries.put("UrlMappingRepository.incrementClickCountIfActive",
+                s -> urlMappingRepository.incrementClickCountIfActive(s.mapping().getId(), s.mapping().getShortUrl()));
+        queries.put("UrlMappingRepository.markUsed", s -> urlMappingRepository.markUsed(s.mapping().getId()));
+        queries.put("UrlMappingRepository.deleteMappingById", s -> urlMappingRepository.deleteMappingById(s.mapping().getId()));
+        queries.put("UrlMappingRepository.findUrlsOlderThan", s -> urlMappingRepository.findUrlsOlderThan(now.minusMonths(3)));
+        queries.put("UrlMappingRepository.findUpcomingExpiries", s -> urlMappingRepository.findUpcomingExpiries(now));
+        queries.put("UrlMappingRepository.deactivateExpiredUrls", s -> urlMappingRepository.deactivateExpiredUrls(now));
+        queries.put("UrlMappingRepository.deactivateByIds", s -> urlMappingRepository.deactivateByIds(List.of(s.mapping().getId())));
+        queries.put("UrlMappingRepository.deactivateBatchByUserId", s -> urlMappingRepository.deactivateBatchByUserId(s.user().getId(), 100));
+        queries.put("UrlMappingRepository.deleteBatchByUserId", s -> urlMappingRepository.deleteBatchByUserId(s.user().getId(), 100));
+
+        queries.put("UrlMappingChangeRepository.recordExpiredByIds",
+                s -> urlMappingChangeRepository.recordExpiredByIds(List.of(s.mapping().getId()), now));
+        queries.put("UrlMappingChangeRepository.recordExpired", s -> urlMappingChangeRepository.recordExpired(now));
+        queries.put("UrlMappingChangeRepository.recordDeletedOlderThan",
+                s -> urlMappingChangeRepository.recordDeletedOlderThan(now.minusMonths(3), now));
+        queries.put("UrlMappingChangeRepository.recordDeactivatedBatchByUserId",
+                s -> urlMappingChangeRepository.recordDeactivatedBatchByUserId(s.user().getId(), 100, now));
+        queries.put("UrlMappingChangeRepository.recordDeletedBatchByUserId",
+                s -> urlMappingChangeRepository.recordDeletedBatchByUserId(s.user().getId(), 100, now));
+
+        queries.put("ClickEventRepository.findByUrlMappingAndClickDateBetween",
+                s -> clickEventRepository.findByUrlMappingAndClickDateBetween(s.mapping(), now.minusDays(7), now));
+        queries.put("ClickEventRepository.findByUrlMappingInAndClickDateBetween",
+                s -> clickEventRepository.findByUrlMappingInAndClickDateBetween(List.of(s.mapping()), now.minusDays(7), now));
+        queries.put("ClickEventRepository.countByDimensions",
+                s -> clickEventRepository.countByDimensions(s.mapping(), now.minusDays(7), now));
+        queries.put("ClickEventRepository.countByDimensionsForUser",
+                s -> clickEventRepository.countByDimensionsForUser(s.user().getId(), now.minusDays(7), now));
+        queries.put("ClickEventRepository.deleteByUrlMappingId", s -> clickEventRepository.deleteByUrlMappingId(s.mapping().getId()));
+        queries.put("ClickEventRepository.deleteBatchByUserId", s -> clickEventRepository.deleteBatchByUserId(s.user().getId(), 100));
+
+        queries.put("DeviceAccessRepository.insertIfAbsent",
+                s -> deviceAccessRepository.insertIfAbsent(s.mapping().getId(), "fingerprint", now));
+        queries.put("DeviceAccessRepository.deleteByUrlMapping", s -> deviceAccessRepository.deleteByUrlMapping(s.mapping()));
+        queries.put("DeviceAccessRepository.deleteByUrlMappingId", s -> deviceAccessRepository.deleteByUrlMappingId(s.mapping().getId()));
+        queries.put("DeviceAccessRepository.deleteBatchByUserId", s -> deviceAccessRepository.deleteBatchByUserId(s.user().getId(), 100));
+
+        queries.put("AccountPurgeJobRepository.findFirstByStatusInOrderByIdAsc", s -> accountPurgeJobRepository
+                .findFirstByStatusInOrderByIdAsc(List.of(AccountPurgeJob.Status.PENDING, AccountPurgeJob.Status.RUNNING)));
+        queries.put("AccountPurgeJobRepository.findFirstByUserIdOrderByIdDesc",
+                s -> accountPurgeJobRepository.findFirstByUserIdOrderByIdDesc(s.user().getId()));
+        queries.put("AccountPurgeJobRepository.existsByUserIdAndStatusIn", s -> accountPurgeJobRepository
+                .existsByUserIdAndStatusIn(s.user().getId(), List.of(AccountPurgeJob.Status.PENDING)));
+
+        queries.put("EmailOutboxRepository.lockNextBatch", s -> emailOutboxRepository.lockNextBatch(now, now.minusMinutes(5), 50));
+
+        queries.put("UserRepository.findByUsername", s -> userRepository.findByUsername(s.user().getUsername()));
+        queries.put("UserRepository.findByEmail", s -> userRepository.findByEmail(s.user().getEmail()));
+        queries.put("UserRepository.existsByUsername", s -> userRepository.existsByUsername(s.user().getUsername()));
+        queries.put("UserRepository.existsByEmail", s -> userRepository.existsByEmail(s.user().getEmail()));
+        queries.put("UserRepository.findByVerificationToken", s -> userRepository.findByVerificationToken("token"));
+        queries.put("UserRepository.findUsersToDelete", s -> userRepository.findUsersToDelete(now));
+        return queries;
+    }
+
+    private Seed seed() {
+        User user = TestUsers.create(userRepository, "plan-check");
+        String suffix = user.getUsername().substring("plan-check-".length());
+
+        UrlMapping mapping = new UrlMapping();
+        mapping.setOriginalUrl("https://example.com/" + suffix);
+        mapping.setShortUrl("pc" + suffix);
+        mapping.setCreatedDate(LocalDateTime.now());
+        mapping.setUser(user);
+        urlMappingRepository.saveAndFlush(mapping);
+        return new Seed(user, mapping);
+    }
+
+    // Generic plan: parameter values are unknown to the planner, so the plan only depends on indexes
+    private String explain(String sql) {
+        StringBuilder plan = new StringBuilder();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET LOCAL enable_seqscan = off");
+                statement.execute("SET LOCAL plan_cache_mode = force_generic_plan");
+                int parameters = countParameters(sql);
+                statement.execute("PREPARE plan_check AS " + numberParameters(sql));
+                try (ResultSet rows = statement.executeQuery("EXPLAIN EXECUTE plan_check" + nullArguments(parameters))) {
+                    while (rows.next()) {
+                        plan.append("    ").append(rows.getString(1)).append('\n');
+                    }
+                } finally {
+                    statement.execute("DEALLOCATE plan_check");
+                }
+            }
+        });
+        return plan.toString();
+    }
+
+    // JDBC '?' placeholders to PostgreSQL's $1..$n, leaving quoted literals alone
+    static String numberParameters(String sql) {
+        StringBuilder numbered = new StringBuilder(sql.length() + 16);
+        boolean quoted = false;
+        int next = 1;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            }
+            if (c == '?' && !quoted) {
+                numbered.append('$').append(next++);
+            } else {
+                numbered.append(c);
+            }
+        }
+        return numbered.toString();
+    }
+
+    static int countParameters(String sql) {
+        return numberParameters(sql).split("\\$\\d+", -1).length - 1;
+    }
+
+    private static String nullArguments(int count) {
+        if (count == 0) {
+            return "";
+        }
+        return "(" + String.join(", ", Collections.nCopies(count, "NULL")) + ")";
+    }
+
+    private record Seed(User user, UrlMapping mapping) {
+    }
+
+    /**
+     * Records the SQL Hibernate prepares while a query under test runs
+     */
+    public static class CapturingStatementInspector implements StatementInspector {
+
+        private static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+        private static volatile boolean capturing;
+
+        static void start() {
+            STATEMENTS.clear();
+            capturing = true;
+        }
+
+        static void stop() {
+            capturing = false;
+        }
+
+        static List<String> captured() {
+            return List.copyOf(STATEMENTS);
+        }
+
+        @Override
+        public String inspect(String sql) {
+            if (capturing) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.url.shortner.security;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two requests race for the single slot of a limit fixed at 1, then the winner is released.
+ * 1 = admitted, the third value is what is left in flight afterwards.
+ */
+@JCStressTest
+@Description("Exactly one of two concurrent tryAcquire calls gets a one-request limit, and release frees it")
+@Outcome(id = {"1, 0, 0", "0, 1, 0"}, expect = ACCEPTABLE, desc = "One admitted and released")
+@Outcome(id = "1, 1, .*", expect = FORBIDDEN, desc = "The limit was exceeded")
+@Outcome(id = "0, 0, .*", expect = FORBIDDEN, desc = "The slot was lost")
+@Outcome(expect = FORBIDDEN, desc = "In-flight count out of balance")
+@State
+public class AdaptiveConcurrencyLimiterStress {
+
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 1.5);
+
+    @Actor
+    public void first(III_Result result) {
+        result.r1 = limiter.tryAcquire(1.0) > 0 ? 1 : 0;
+    }
+
+    @Actor
+    public void second(III_Result result) {
+        result.r2 = limiter.tryAcquire(1.0) > 0 ? 1 : 0;
+    }
+
+    @Arbiter
+    public void releaseWinners(III_Result result) {
+        for (int i = 0; i < result.r1 + result.r2; i++) {
+            limiter.release(1_000_000L, 1);
+        }
+        result.r3 = limiter.getInFlight();
+    }
+}
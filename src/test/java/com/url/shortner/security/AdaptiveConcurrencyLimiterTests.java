@@ -0,0 +1,121 @@
+package com.url.shortner.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AdaptiveConcurrencyLimiterTests - How latency samples and drops move the limit, and who is shed first
+ */
+class AdaptiveConcurrencyLimiterTests {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void steadyLatencyAtTheLimitGrowsItUpToMax() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 8, 200, 1.5);
+
+        for (int i = 0; i < 10; i++) {
+            limiter.update(FAST, limiter.getLimit());
+        }
+        assertTrue(limiter.getLimit() > 20, "limit " + limiter.getLimit());
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.update(FAST, limiter.getLimit());
+        }
+        assertEquals(200, limiter.getLimit());
+    }
+
+    @Test
+    void samplesFarBelowTheLimitDoNotGrowIt() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 8, 200, 1.5);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.update(FAST, 2);
+        }
+
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void latencyRiseShrinksTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 8, 200, 1.5);
+        for (int i = 0; i < 500; i++) {
+            limiter.update(FAST, limiter.getLimit());
+        }
+        int baseline = limiter.getLimit();
+
+        // Requests queue behind a slow dependency: 10x the baseline latency
+        int previous = baseline;
+        for (int i = 0; i < 20; i++) {
+            limiter.update(SLOW, limiter.getLimit());
+            assertTrue(limiter.getLimit() <= previous, "limit grew to " + limiter.getLimit());
+            previous = limiter.getLimit();
+        }
+        assertTrue(limiter.getLimit() < baseline / 2, baseline + " -> " + limiter.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.update(SLOW, limiter.getLimit());
+        }
+        assertTrue(limiter.getLimit() >= 8);
+    }
+
+    @Test
+    void dropsBackTheLimitOffMultiplicatively() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 8, 200, 1.5);
+
+        limiter.drop(100);
+        assertEquals(90, limiter.getLimit());
+        limiter.drop(90);
+        assertEquals(81, limiter.getLimit());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.drop(limiter.getLimit());
+        }
+        assertEquals(8, limiter.getLimit());
+    }
+
+    @Test
+    void dropsFarBelowTheLimitAreNotLoad() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(100, 8, 200, 1.5);
+
+        limiter.drop(10);
+
+        assertEquals(100, limiter.getLimit());
+    }
+
+    @Test
+    void releaseDroppedFreesTheSlot() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 8, 200, 1.5);
+        int inFlight = limiter.tryAcquire(1.0);
+
+        limiter.releaseDropped(inFlight);
+
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void partialShareIsShedBeforeTheFullShare() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 10, 10, 1.5);
+
+        // API calls (0.6) stop at 6 in flight
+        int api = 0;
+        while (limiter.tryAcquire(0.6) > 0) {
+            api++;
+        }
+        assertEquals(6, api);
+
+        // Redirects (1.0) still get the rest of the limit
+        int redirects = 0;
+        while (limiter.tryAcquire(1.0) > 0) {
+            redirects++;
+        }
+        assertEquals(4, redirects);
+        assertEquals(0, limiter.tryAcquire(0.6));
+        assertEquals(10, limiter.getInFlight());
+    }
+}
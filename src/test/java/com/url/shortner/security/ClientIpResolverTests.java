@@ -0,0 +1,66 @@
+package com.url.shortner.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ClientIpResolverTests - Forwarded headers count only when a trusted proxy sent them
+ */
+class ClientIpResolverTests {
+
+    private final ClientIpResolver resolver = new ClientIpResolver(new String[] {"10.0.0.0/8", "127.0.0.1/32", "::1/128"});
+
+    @Test
+    void directClientCannotChooseItsIp() {
+        assertEquals("203.0.113.9", resolve("203.0.113.9", "198.51.100.1", "198.51.100.2"));
+    }
+
+    @Test
+    void rightMostUntrustedHopIsTheClient() {
+        // The client prepended 198.51.100.1 itself; the proxy appended what it actually saw
+        assertEquals("203.0.113.7", resolve("10.0.0.1", "198.51.100.1, 203.0.113.7, 10.0.0.5", null));
+    }
+
+    @Test
+    void onlyTrustedHopsFallBackToTheLeftMost() {
+        assertEquals("10.0.0.7", resolve("10.0.0.1", "10.0.0.7, 10.0.0.5", null));
+    }
+
+    @Test
+    void realIpHeaderNeedsATrustedProxy() {
+        assertEquals("203.0.113.7", resolve("127.0.0.1", null, "203.0.113.7"));
+        assertEquals("203.0.113.9", resolve("203.0.113.9", null, "203.0.113.7"));
+    }
+
+    @Test
+    void withoutHeadersTheConnectionAddressIsUsed() {
+        assertEquals("10.0.0.1", resolve("10.0.0.1", null, null));
+        assertEquals("10.0.0.1", resolve("10.0.0.1", " ", null));
+    }
+
+    @Test
+    void onlyIpLiteralsCanBeTrusted() {
+        assertTrue(resolver.isTrustedProxy("10.1.2.3"));
+        assertTrue(resolver.isTrustedProxy("::1"));
+        assertFalse(resolver.isTrustedProxy("localhost"));
+        assertFalse(resolver.isTrustedProxy("10.1.2"));
+        assertFalse(resolver.isTrustedProxy("10.0.0.1.example.com"));
+        assertEquals("localhost", resolve("10.0.0.1", "203.0.113.7, localhost", null));
+    }
+
+    private String resolve(String remoteAddr, String xForwardedFor, String xRealIp) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (xForwardedFor != null) {
+            request.addHeader("X-Forwarded-For", xForwardedFor);
+        }
+        if (xRealIp != null) {
+            request.addHeader("X-Real-IP", xRealIp);
+        }
+        return resolver.resolve(request);
+    }
+}
@@ -0,0 +1,38 @@
+package com.url.shortner.security;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.II_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two clients race for the last token of a fresh bucket - including the race to create it.
+ * The clock is fixed, so refill cannot hand out a second token. 1 = allowed.
+ */
+@JCStressTest
+@Description("Exactly one of two concurrent tryAcquire calls gets a single-token bucket")
+@Outcome(id = {"1, 0", "0, 1"}, expect = ACCEPTABLE, desc = "One winner")
+@Outcome(id = "1, 1", expect = FORBIDDEN, desc = "The token was handed out twice")
+@Outcome(id = "0, 0", expect = FORBIDDEN, desc = "The token was lost")
+@State
+public class TokenBucketRateLimiterStress {
+
+    private static final long NOW = 1_000_000_000_000L;
+
+    private final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 1_000);
+
+    @Actor
+    public void first(II_Result result) {
+        result.r1 = limiter.tryAcquire("client", NOW) == 0 ? 1 : 0;
+    }
+
+    @Actor
+    public void second(II_Result result) {
+        result.r2 = limiter.tryAcquire("client", NOW) == 0 ? 1 : 0;
+    }
+}
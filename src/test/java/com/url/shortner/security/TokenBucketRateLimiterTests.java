@@ -0,0 +1,69 @@
+package com.url.shortner.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * TokenBucketRateLimiterTests - Burst, refill and the hard cap on tracked keys (fixed clock)
+ */
+class TokenBucketRateLimiterTests {
+
+    private static final long NOW = 1_000_000_000_000L;
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void burstThenRefill() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 1, 100);
+
+        assertEquals(0, limiter.tryAcquire("client", NOW));
+        assertEquals(0, limiter.tryAcquire("client", NOW));
+        assertEquals(0, limiter.tryAcquire("client", NOW));
+        assertEquals(SECOND, limiter.tryAcquire("client", NOW));
+        assertEquals(0, limiter.tryAcquire("client", NOW + SECOND));
+        assertEquals(0, limiter.tryAcquire("other", NOW));
+    }
+
+    @Test
+    void distinctKeysNeverExceedTheCap() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, 64);
+
+        // Every bucket is in use (not idle), so only the cap keeps the table bounded
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(0, limiter.tryAcquire("ip:" + i, NOW));
+            assertTrue(limiter.size() <= 64, "tracked keys: " + limiter.size());
+        }
+    }
+
+    @Test
+    void idleBucketsGoFirstAtTheCap() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 1, 4);
+        limiter.tryAcquire("idle", NOW);
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("busy-" + i, NOW + 10 * SECOND);
+            limiter.tryAcquire("busy-" + i, NOW + 10 * SECOND);
+        }
+
+        assertEquals(0, limiter.tryAcquire("new", NOW + 10 * SECOND));
+
+        assertEquals(4, limiter.size());
+        // The busy buckets kept their state: each already used its burst of 2
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("busy-" + i, NOW + 10 * SECOND) > 0, "busy-" + i);
+        }
+    }
+
+    @Test
+    void evictIdleDropsOnlyRefilledBuckets() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, 100);
+        limiter.tryAcquire("old", NOW);
+        limiter.tryAcquire("recent", NOW + 5 * SECOND);
+
+        assertEquals(1, limiter.evictIdle(NOW + 5 * SECOND));
+        assertEquals(1, limiter.size());
+        assertTrue(limiter.tryAcquire("recent", NOW + 5 * SECOND) > 0);
+    }
+}
@@ -0,0 +1,49 @@
+package com.url.shortner.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * WarmupRequestKeyTests - Only this process's key, sent over loopback without a proxy, is warm-up
+ */
+class WarmupRequestKeyTests {
+
+    private final WarmupRequestKey warmupRequestKey = new WarmupRequestKey();
+
+    @Test
+    void localRequestWithTheKeyIsWarmup() {
+        assertTrue(warmupRequestKey.matches(request("127.0.0.1", warmupRequestKey.key(), null)));
+        assertTrue(warmupRequestKey.matches(request("::1", warmupRequestKey.key(), null)));
+    }
+
+    @Test
+    void anythingElseIsNot() {
+        assertFalse(warmupRequestKey.matches(request("127.0.0.1", null, null)));
+        assertFalse(warmupRequestKey.matches(request("127.0.0.1", warmupRequestKey.key() + "x", null)));
+        assertFalse(warmupRequestKey.matches(request("127.0.0.1", new WarmupRequestKey().key(), null)));
+        assertFalse(warmupRequestKey.matches(request("203.0.113.9", warmupRequestKey.key(), null)));
+        // Relayed by a local reverse proxy, so it came from outside
+        assertFalse(warmupRequestKey.matches(request("127.0.0.1", warmupRequestKey.key(), "203.0.113.9")));
+    }
+
+    @Test
+    void keyIsRandomPerInstance() {
+        assertNotEquals(warmupRequestKey.key(), new WarmupRequestKey().key());
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String key, String xForwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        if (key != null) {
+            request.addHeader(WarmupRequestKey.HEADER, key);
+        }
+        if (xForwardedFor != null) {
+            request.addHeader("X-Forwarded-For", xForwardedFor);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,112 @@
+package com.url.shortner.security.jwt;
+
+import com.url.shortner.models.User;
+import com.url.shortner.repository.UserRepository;
+import com.url.shortner.service.UserDetailsImpl;
+import com.url.shortner.service.UserPrincipalCache;
+import com.url.shortner.service.UserService;
+import com.url.shortner.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * JwtAuthenticationFilterTests - A token authenticates as the account's current state, not its claims
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"shards-local", "test"})
+class JwtAuthenticationFilterTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    private final List<Long> created = new ArrayList<>();
+
+    @AfterEach
+    void deleteUsers() {
+        created.forEach(userRepository::deleteById);
+    }
+
+    @Test
+    void roleGrantedAfterLoginApplies() throws Exception {
+        User user = create("role-grant", "ROLE_USER");
+        String token = token(user);
+        promote(token, user).andExpect(status().isForbidden());
+
+        userService.changeUserRole(user.getUsername(), "ROLE_ADMIN");
+
+        promote(token, user).andExpect(status().isOk());
+    }
+
+    @Test
+    void roleRevokedAfterLoginApplies() throws Exception {
+        User user = create("role-revoke", "ROLE_ADMIN");
+        String token = token(user);
+        promote(token, user).andExpect(status().isOk());
+
+        userService.changeUserRole(user.getUsername(), "ROLE_USER");
+
+        promote(token, user).andExpect(status().isForbidden());
+    }
+
+    @Test
+    void tokenOfDeletedAccountDoesNotAuthenticateItsSuccessor() throws Exception {
+        User original = create("re-registered", "ROLE_USER");
+        String token = token(original);
+        mockMvc.perform(get("/api/urls/myurls").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        // What the account purge does: the row goes, the cached principal is evicted
+        userRepository.deleteById(original.getId());
+        created.remove(original.getId());
+        userPrincipalCache.evict(original.getUsername());
+        User successor = new User();
+        successor.setUsername(original.getUsername());
+        successor.setEmail("successor-" + original.getEmail());
+        successor.setPassword("x");
+        created.add(userRepository.saveAndFlush(successor).getId());
+
+        mockMvc.perform(get("/api/urls/myurls").header("Authorization", "Bearer " + token))
+                .andExpect(status().is4xxClientError());
+    }
+
+    private User create(String prefix, String role) {
+        User user = TestUsers.create(userRepository, prefix, role);
+        created.add(user.getId());
+        return user;
+    }
+
+    private String token(User user) {
+        return jwtUtils.generateToken(UserDetailsImpl.build(user));
+    }
+
+    // An admin-only call that leaves the caller an admin, so it can be repeated
+    private ResultActions promote(String token, User user) throws Exception {
+        return mockMvc.perform(put("/api/admin/users/{username}/role", user.getUsername())
+                .header("Authorization", "Bearer " + token)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"role\":\"ROLE_ADMIN\"}"));
+    }
+}
@@ -0,0 +1,211 @@
+package com.url.shortner.service;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.dtos.CreateUrlRequest;
+import com.url.shortner.dtos.UrlMappingDTO;
+import com.url.shortner.models.AccountPurgeJob;
+import com.url.shortner.models.User;
+import com.url.shortner.repository.AccountPurgeJobRepository;
+import com.url.shortner.repository.UserRepository;
+import com.url.shortner.support.TestUsers;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * AccountPurgeServiceTests - Batched purge of an account whose links live on every local shard
+ *
+ * One row per batch, so each shard takes several batches. The scheduler of this context is pushed
+ * out to an hour and the tests run the batches themselves. A failing batch is simulated with an H2
+ * trigger that rejects updates of the test user's links.
+ */
+@SpringBootTest(properties = {
+        "account.purge.batch-size=1",
+        "account.purge.max-attempts=3",
+        "account.purge.interval-ms=3600000"})
+@ActiveProfiles({"shards-local", "test"})
+class AccountPurgeServiceTests {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String TRIGGER = "account_purge_tests_fail";
+
+    // User whose link updates FailingTrigger rejects; null when no batch should fail
+    private static volatile Long failingUserId;
+
+    @Autowired
+    private AccountPurgeService accountPurgeService;
+    @Autowired
+    private AccountPurgeJobRepository accountPurgeJobRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UrlMappingService urlMappingService;
+    @Autowired
+    private ShardedUrlMappingService shardedUrlMappingService;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private final List<UrlMappingDTO> links = new ArrayList<>();
+
+    @BeforeEach
+    void createLinksOnEveryShard() {
+        user = TestUsers.create(userRepository, "purge");
+        Map<Integer, UrlMappingDTO> linkByShard = new TreeMap<>();
+        for (int i = 0; linkByShard.size() < shardRouter.shardCount() && i < 200; i++) {
+            CreateUrlRequest request = new CreateUrlRequest();
+            request.setOriginalUrl("https://example.com/" + user.getUsername() + "/" + i);
+            // Every other link is one-time, so its redirect also leaves a device_access row
+            request.setOneTimeUrl(i % 2 == 1);
+            UrlMappingDTO link = urlMappingService.createShortUrlWithRequest(request, user.getId(), user.getUsername());
+            links.add(link);
+            linkByShard.putIfAbsent(shardRouter.shardFor(link.getShortUrl()), link);
+        }
+        assertEquals(shardRouter.shardCount(), linkByShard.size());
+        for (UrlMappingDTO link : links) {
+            assertNotNull(shardedUrlMappingService.getOriginalUrl(link.getShortUrl(), "device-1"));
+        }
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            shardRouter.onShard(shard, () -> jdbcTemplate.execute("CREATE TRIGGER IF NOT EXISTS " + TRIGGER
+                    + " BEFORE UPDATE ON url_mapping FOR EACH ROW CALL '" + FailingTrigger.class.getName() + "'"));
+        }
+    }
+
+    @AfterEach
+    void cleanUp() {
+        failingUserId = null;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            shardRouter.onShard(shard, () -> jdbcTemplate.execute("DROP TRIGGER IF EXISTS " + TRIGGER));
+        }
+        if (userRepository.existsById(user.getId())) {
+            links.forEach(link -> shardedUrlMappingService.deleteUrl(link.getId(), user.getId()));
+            userRepository.deleteById(user.getId());
+        }
+    }
+
+    @Test
+    void purgesLinksOnEveryShardThenTheUser() {
+        AccountPurgeJob job = accountPurgeService.enqueue(user);
+        assertTrue(accountPurgeService.isPurgeInProgress(user.getId()));
+
+        int batches = 0;
+        while (accountPurgeService.runBatch(job.getId())) {
+            assertTrue(++batches < 1000, "purge did not finish");
+        }
+
+        AccountPurgeJob done = accountPurgeJobRepository.findById(job.getId()).orElseThrow();
+        assertEquals(AccountPurgeJob.Status.DONE, done.getStatus());
+        assertNotNull(done.getCompletedAt());
+        assertEquals(links.size(), done.getDeletedUrls());
+        assertEquals(links.size(), done.getDeletedClickEvents());
+        assertEquals(links.stream().filter(UrlMappingDTO::isOneTimeUrl).count(), done.getDeletedDeviceAccesses());
+        // At least one batch per step on each shard
+        assertTrue(batches >= shardRouter.shardCount() * 3, "only " + batches + " batches");
+
+        assertFalse(userRepository.existsById(user.getId()));
+        assertFalse(accountPurgeService.isPurgeInProgress(user.getId()));
+        assertEquals(0, linkRowsLeft());
+    }
+
+    @Test
+    void failedBatchIsRetriedOnTheNextRun() {
+        AccountPurgeJob job = accountPurgeService.enqueue(user);
+
+        failingUserId = user.getId();
+        failBatch(job.getId());
+        AccountPurgeJob failed = accountPurgeJobRepository.findById(job.getId()).orElseThrow();
+        assertEquals(AccountPurgeJob.Status.PENDING, failed.getStatus());
+        assertEquals(1, failed.getAttempts());
+        assertNotNull(failed.getLastError());
+
+        failingUserId = null;
+        int batches = 0;
+        while (accountPurgeService.runBatch(job.getId())) {
+            assertTrue(++batches < 1000, "purge did not finish");
+        }
+
+        assertEquals(AccountPurgeJob.Status.DONE, accountPurgeJobRepository.findById(job.getId()).orElseThrow().getStatus());
+        assertFalse(userRepository.existsById(user.getId()));
+        assertEquals(0, linkRowsLeft());
+    }
+
+    @Test
+    void jobFailsAfterMaxAttempts() {
+        AccountPurgeJob job = accountPurgeService.enqueue(user);
+        failingUserId = user.getId();
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            failBatch(job.getId());
+            AccountPurgeJob after = accountPurgeJobRepository.findById(job.getId()).orElseThrow();
+            assertEquals(attempt, after.getAttempts());
+            assertEquals(attempt < MAX_ATTEMPTS ? AccountPurgeJob.Status.PENDING : AccountPurgeJob.Status.FAILED, after.getStatus());
+        }
+
+        // A failed job is no longer picked up and nothing of the account was removed
+        assertFalse(accountPurgeService.runBatch(job.getId()));
+        assertFalse(accountPurgeService.isPurgeInProgress(user.getId()));
+        assertTrue(userRepository.existsById(user.getId()));
+        assertEquals(links.size(), linkRowsLeft());
+    }
+
+    // What UrlCleanupScheduler does when a batch throws
+    private void failBatch(Long jobId) {
+        RuntimeException e = assertThrows(RuntimeException.class, () -> accountPurgeService.runBatch(jobId));
+        accountPurgeService.recordFailure(jobId, e.getMessage());
+    }
+
+    private long linkRowsLeft() {
+        long rows = 0;
+        for (int shard = 0; shard < shardRouter.shardCount(); shard++) {
+            rows += shardRouter.onShard(shard, () -> jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM url_mapping WHERE user_id = ?", Long.class, user.getId()));
+        }
+        return rows;
+    }
+
+    /**
+     * Rejects updates of failingUserId's links, so the purge's first step fails on every shard
+     */
+    public static class FailingTrigger implements Trigger {
+
+        private int userIdColumn;
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                         boolean before, int type) throws SQLException {
+            try (ResultSet columns = conn.getMetaData().getColumns(null, schemaName, tableName, "user_id")) {
+                columns.next();
+                userIdColumn = columns.getInt("ORDINAL_POSITION") - 1;
+            }
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            Long failing = failingUserId;
+            if (failing != null && oldRow[userIdColumn] != null && failing == ((Number) oldRow[userIdColumn]).longValue()) {
+                throw new SQLException("Simulated purge failure");
+            }
+        }
+    }
+}
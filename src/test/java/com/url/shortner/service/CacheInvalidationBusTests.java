@@ -0,0 +1,150 @@
+package com.url.shortner.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CacheInvalidationBusTests - Two nodes exchanging invalidations, with Postgres played by H2
+ *
+ * pg_notify is an H2 alias that hands each payload to the test, which delivers it to both nodes
+ * the way LISTEN would. The listener connections themselves need Postgres and are not started.
+ */
+class CacheInvalidationBusTests {
+
+    private static final String URL = "jdbc:h2:mem:cache-invalidation-bus;DB_CLOSE_DELAY=-1";
+    private static final BlockingQueue<String> NOTIFIED = new LinkedBlockingQueue<>();
+
+    private final AtomicBoolean databaseDown = new AtomicBoolean();
+    private final List<Object> eventsA = new CopyOnWriteArrayList<>();
+    private final List<Object> eventsB = new CopyOnWriteArrayList<>();
+    private CacheInvalidationBus nodeA;
+    private CacheInvalidationBus nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        NOTIFIED.clear();
+        DriverManagerDataSource h2 = new DriverManagerDataSource(URL);
+        new JdbcTemplate(h2).execute("CREATE ALIAS IF NOT EXISTS pg_notify FOR '" + PgNotify.class.getName() + ".pgNotify'");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new DelegatingDataSource(h2) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (databaseDown.get()) {
+                    throw new SQLException("Connection refused");
+                }
+                return super.getConnection();
+            }
+        });
+        nodeA = new CacheInvalidationBus(eventsA::add, jdbcTemplate, new SimpleMeterRegistry(),
+                "cache_invalidation", 10_000, URL, "", "");
+        nodeB = new CacheInvalidationBus(eventsB::add, jdbcTemplate, new SimpleMeterRegistry(),
+                "cache_invalidation", 10_000, URL, "", "");
+        nodeA.startSender();
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodeA.shutdown();
+        nodeB.shutdown();
+    }
+
+    @Test
+    void invalidationReachesTheOtherNode() throws InterruptedException {
+        nodeA.onUserChanged(new UserChangedEvent("alice"));
+        nodeA.onUrlMappingChanged(new UrlMappingChangedEvent(7L, "abc123XY"));
+        nodeA.onUrlMappingChanged(UrlMappingChangedEvent.all());
+        nodeA.onContentChanged(new ContentChangedEvent(3L, "abc123XY"));
+
+        deliver(4);
+
+        assertEquals(List.of(
+                new UserChangedEvent("alice", true),
+                new UrlMappingChangedEvent(7L, "abc123XY", true),
+                new UrlMappingChangedEvent(null, null, true),
+                new ContentChangedEvent(3L, "abc123XY", true)), eventsB);
+        // Its own changes echoed back are ignored
+        assertEquals(List.of(), eventsA);
+    }
+
+    @Test
+    void remoteChangesAreNotSentOn() throws InterruptedException {
+        nodeA.onUserChanged(new UserChangedEvent("bob", true));
+        nodeA.onContentChanged(new ContentChangedEvent(3L, null, true));
+
+        assertNull(NOTIFIED.poll(500, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void failedSendIsRetriedNotLost() throws InterruptedException {
+        databaseDown.set(true);
+        nodeA.onUserChanged(new UserChangedEvent("carol"));
+        // At least one attempt fails while the database is down
+        assertNull(NOTIFIED.poll(1_500, TimeUnit.MILLISECONDS));
+
+        databaseDown.set(false);
+        nodeA.onUserChanged(new UserChangedEvent("dave"));
+
+        deliver(2);
+        assertEquals(List.of(new UserChangedEvent("carol", true), new UserChangedEvent("dave", true)), eventsB);
+    }
+
+    @Test
+    void tooManyUnsentLinesBecomeOneFlush() throws InterruptedException {
+        databaseDown.set(true);
+        for (int i = 0; i <= CacheInvalidationBus.MAX_PENDING_LINES; i++) {
+            nodeA.onContentChanged(new ContentChangedEvent((long) i, null));
+        }
+        // The next retry finds the queue over the limit and replaces it with a flush
+        assertNull(NOTIFIED.poll(1_500, TimeUnit.MILLISECONDS));
+        databaseDown.set(false);
+
+        String payload = NOTIFIED.poll(5, TimeUnit.SECONDS);
+        assertNotNull(payload);
+        assertTrue(payload.endsWith("|f|-"), payload);
+        nodeB.apply(payload);
+
+        assertEquals(1, eventsB.size());
+        assertInstanceOf(CacheFlushEvent.class, eventsB.getFirst());
+        assertNull(NOTIFIED.poll(1_500, TimeUnit.MILLISECONDS));
+    }
+
+    // Hands every payload to both nodes, until the given number of lines arrived
+    private void deliver(int lines) throws InterruptedException {
+        List<String> received = new ArrayList<>();
+        while (received.size() < lines) {
+            String payload = NOTIFIED.poll(5, TimeUnit.SECONDS);
+            assertNotNull(payload, "only " + received.size() + " of " + lines + " lines arrived");
+            nodeA.apply(payload);
+            nodeB.apply(payload);
+            received.addAll(List.of(payload.split("\n")));
+        }
+        assertEquals(lines, received.size());
+    }
+
+    public static class PgNotify {
+
+        public static void pgNotify(String channel, String payload) {
+            NOTIFIED.add(payload);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.url.shortner.service;
+
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two links changed at the same time get different versions, and both move away from the
+ * ETag they had before. r1 = the two ETags differ, r2 = both changed.
+ */
+@JCStressTest
+@Description("Concurrent version bumps are unique and never leave an ETag unchanged")
+@Outcome(id = "true, true", expect = ACCEPTABLE, desc = "Distinct, fresh versions")
+@Outcome(expect = FORBIDDEN, desc = "Two changes shared a version or a bump was lost")
+@State
+public class ContentVersionServiceStress {
+
+    private final ContentVersionService versions = new ContentVersionService(100);
+    private final String firstBefore = versions.linkEtag("first");
+    private final String secondBefore = versions.linkEtag("second");
+
+    @Actor
+    public void changeFirst() {
+        versions.bumpLink("first");
+    }
+
+    @Actor
+    public void changeSecond() {
+        versions.bumpLink("second");
+    }
+
+    @Arbiter
+    public void check(ZZ_Result result) {
+        String first = versions.linkEtag("first");
+        String second = versions.linkEtag("second");
+        result.r1 = !first.equals(second);
+        result.r2 = !first.equals(firstBefore) && !second.equals(secondBefore);
+    }
+}
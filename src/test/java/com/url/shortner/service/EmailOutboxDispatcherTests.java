@@ -0,0 +1,231 @@
+package com.url.shortner.service;
+
+import com.url.shortner.models.EmailOutboxMessage;
+import com.url.shortner.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * EmailOutboxDispatcherTests - Claiming, batching and retries of the outbox against a stub sender
+ *
+ * The test profile pushes the scheduled poll out, so only these tests dispatch; each test starts
+ * from an empty outbox.
+ */
+@SpringBootTest(properties = "email.outbox.max-attempts=3")
+@ActiveProfiles({"shards-local", "test"})
+class EmailOutboxDispatcherTests {
+
+    private static final int BATCH_SIZE = 50;
+
+    @Autowired
+    private EmailOutboxDispatcher emailOutboxDispatcher;
+    @Autowired
+    private EmailService emailService;
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+    @Autowired
+    private RecordingEmailSender emailSender;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void emptyOutbox() {
+        emailOutboxRepository.deleteAll();
+        emailSender.batchSizes.clear();
+        emailSender.failing.clear();
+    }
+
+    @Test
+    void deliversInBatchesOfFifty() {
+        List<String> recipients = queue(120);
+
+        emailOutboxDispatcher.dispatch();
+
+        assertEquals(List.of(BATCH_SIZE, BATCH_SIZE, 20), emailSender.batchSizes);
+        for (EmailOutboxMessage message : emailOutboxRepository.findAll()) {
+            assertTrue(recipients.contains(message.getRecipientEmail()));
+            assertEquals(EmailOutboxMessage.Status.SENT, message.getStatus());
+            assertEquals(1, message.getAttempts());
+            assertNotNull(message.getSentAt());
+            assertNull(message.getClaimedAt());
+        }
+    }
+
+    @Test
+    void failedMessageBacksOffUntilMaxAttempts() {
+        List<String> recipients = queue(3);
+        emailSender.failing.add(recipients.get(1));
+
+        emailOutboxDispatcher.dispatch();
+
+        EmailOutboxMessage failed = find(recipients.get(1));
+        assertEquals(EmailOutboxMessage.Status.PENDING, failed.getStatus());
+        assertEquals(1, failed.getAttempts());
+        assertNotNull(failed.getLastError());
+        assertBackoff(30, failed);
+        assertEquals(EmailOutboxMessage.Status.SENT, find(recipients.get(0)).getStatus());
+        assertEquals(EmailOutboxMessage.Status.SENT, find(recipients.get(2)).getStatus());
+
+        // Not due yet - nothing is claimed
+        emailOutboxDispatcher.dispatch();
+        assertEquals(List.of(3), emailSender.batchSizes);
+
+        makeDue(failed);
+        emailOutboxDispatcher.dispatch();
+        failed = find(recipients.get(1));
+        assertEquals(EmailOutboxMessage.Status.PENDING, failed.getStatus());
+        assertEquals(2, failed.getAttempts());
+        assertBackoff(60, failed);
+
+        makeDue(failed);
+        emailOutboxDispatcher.dispatch();
+        failed = find(recipients.get(1));
+        assertEquals(EmailOutboxMessage.Status.FAILED, failed.getStatus());
+        assertEquals(3, failed.getAttempts());
+
+        // Given up - never claimed again
+        makeDue(failed);
+        emailOutboxDispatcher.dispatch();
+        assertEquals(List.of(3, 1, 1), emailSender.batchSizes);
+        assertEquals(EmailOutboxMessage.Status.FAILED, find(recipients.get(1)).getStatus());
+    }
+
+    @Test
+    void concurrentClaimSkipsLockedRows() throws Exception {
+        queue(60);
+        List<Long> ids = emailOutboxRepository.findAll().stream().map(EmailOutboxMessage::getId).sorted().toList();
+        List<Long> lockedIds = ids.subList(0, 10);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Another dispatcher is in the middle of a batch holding the oldest 10 messages
+        CompletableFuture<Void> other = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    jdbcTemplate.queryForList("SELECT id FROM email_outbox WHERE id BETWEEN ? AND ? FOR UPDATE",
+                            Long.class, lockedIds.getFirst(), lockedIds.getLast());
+                    locked.countDown();
+                    try {
+                        release.await(30, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        try {
+            assertTrue(locked.await(30, TimeUnit.SECONDS));
+
+            Set<Long> claimed = new HashSet<>();
+            emailService.claimBatch(BATCH_SIZE, 5).forEach(message -> claimed.add(message.getId()));
+
+            assertEquals(new HashSet<>(ids.subList(10, 60)), claimed);
+        } finally {
+            release.countDown();
+            other.get(30, TimeUnit.SECONDS);
+        }
+
+        // Released without being claimed, so they are next
+        Set<Long> rest = new HashSet<>();
+        emailService.claimBatch(BATCH_SIZE, 5).forEach(message -> rest.add(message.getId()));
+        assertEquals(new HashSet<>(lockedIds), rest);
+    }
+
+    @Test
+    void staleSendingClaimIsReclaimed() {
+        List<String> recipients = queue(2);
+        List<EmailOutboxMessage> claimed = emailService.claimBatch(BATCH_SIZE, 5);
+        assertEquals(2, claimed.size());
+
+        // A dispatcher that died mid-batch left its claim behind
+        EmailOutboxMessage stale = find(recipients.get(0));
+        stale.setClaimedAt(LocalDateTime.now().minusMinutes(10));
+        emailOutboxRepository.save(stale);
+
+        emailOutboxDispatcher.dispatch();
+
+        assertEquals(List.of(1), emailSender.batchSizes);
+        assertEquals(EmailOutboxMessage.Status.SENT, find(recipients.get(0)).getStatus());
+        assertEquals(EmailOutboxMessage.Status.SENDING, find(recipients.get(1)).getStatus());
+    }
+
+    private List<String> queue(int count) {
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        List<String> recipients = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String email = "outbox-" + run + "-" + i + "@example.com";
+            emailService.sendVerificationEmail(email, "outbox-" + i, "http://localhost/verify?token=" + i);
+            recipients.add(email);
+        }
+        return recipients;
+    }
+
+    private EmailOutboxMessage find(String recipient) {
+        return emailOutboxRepository.findAll().stream()
+                .filter(message -> recipient.equals(message.getRecipientEmail()))
+                .findFirst().orElseThrow();
+    }
+
+    private void makeDue(EmailOutboxMessage message) {
+        message.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        emailOutboxRepository.save(message);
+    }
+
+    private static void assertBackoff(long expectedSeconds, EmailOutboxMessage message) {
+        long seconds = Duration.between(LocalDateTime.now(), message.getNextAttemptAt()).toSeconds();
+        assertTrue(seconds > expectedSeconds - 5 && seconds <= expectedSeconds, "backoff of " + seconds + "s");
+    }
+
+    /**
+     * Accepts every message except those to a failing recipient, and records the batch sizes
+     */
+    static class RecordingEmailSender implements EmailSender {
+
+        final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        final Set<String> failing = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public List<String> send(List<EmailOutboxMessage> messages) {
+            batchSizes.add(messages.size());
+            return messages.stream()
+                    .map(message -> failing.contains(message.getRecipientEmail()) ? "Rejected: " + message.getRecipientEmail() : null)
+                    .toList();
+        }
+    }
+
+    @TestConfiguration
+    static class StubSenderConfig {
+
+        @Bean
+        @Primary
+        RecordingEmailSender recordingEmailSender() {
+            return new RecordingEmailSender();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.url.shortner.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HierarchicalTimingWheelTests - Ids expire on their own tick whichever level they were parked on
+ */
+class HierarchicalTimingWheelTests {
+
+    // Not aligned to any level boundary, so cascades happen part way through a rotation
+    private static final long START = 1_000_777;
+
+    @Test
+    void deadlineAlreadyDueIsNotStored() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 4, START);
+
+        assertTrue(wheel.schedule(1, START));
+        assertTrue(wheel.schedule(2, START - 60_000));
+        assertFalse(wheel.schedule(3, START + 1));
+        assertEquals(1, wheel.size());
+
+        // Rescheduling into the past drops the pending deadline
+        assertTrue(wheel.schedule(3, START - 1));
+        assertEquals(0, wheel.size());
+        assertEquals(List.of(), wheel.advanceTo(START + 10));
+    }
+
+    @Test
+    void deadlineIsRoundedUpToTheNextTick() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(10, 4, 1000);
+
+        assertFalse(wheel.schedule(1, 1005));
+
+        assertEquals(List.of(), wheel.advanceTo(1009));
+        assertEquals(List.of(1L), wheel.advanceTo(1010));
+    }
+
+    @Test
+    void expiresOnTheExactTickAcrossLevelCascades() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 4, START);
+        // Offsets on and around the level 1 (64), level 2 (64^2) and level 3 (64^3) boundaries
+        long[] offsets = {1, 63, 64, 65, 127, 4095, 4096, 4097, 200_000, 262_143, 262_144, 262_145, 1_000_000};
+        Map<Long, Long> deadlines = new HashMap<>();
+        for (int i = 0; i < offsets.length; i++) {
+            long deadline = START + offsets[i];
+            deadlines.put((long) i, deadline);
+            assertFalse(wheel.schedule(i, deadline));
+        }
+
+        Map<Long, Long> expiredAt = new HashMap<>();
+        for (long now = START + 1; now <= START + 1_000_000; now++) {
+            for (Long id : wheel.advanceTo(now)) {
+                assertNull(expiredAt.put(id, now), "id " + id + " expired twice");
+            }
+        }
+
+        assertEquals(deadlines, expiredAt);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelledIdNeverExpires() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 4, START);
+        wheel.schedule(1, START + 10);
+        wheel.schedule(2, START + 5_000);
+
+        wheel.cancel(1);
+        wheel.cancel(2);
+        wheel.cancel(3);  // unknown ids are ignored
+
+        assertEquals(0, wheel.size());
+        assertEquals(List.of(), wheel.advanceTo(START + 10_000));
+    }
+
+    @Test
+    void rescheduleToAnEarlierDeadline() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 4, START);
+        wheel.schedule(1, START + 5_000);
+        wheel.schedule(1, START + 10);
+
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(), wheel.advanceTo(START + 9));
+        assertEquals(List.of(1L), wheel.advanceTo(START + 10));
+        // The entry left in the old level-2 slot is skipped
+        assertEquals(List.of(), wheel.advanceTo(START + 10_000));
+    }
+
+    @Test
+    void rescheduleToALaterDeadline() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 4, START);
+        wheel.schedule(1, START + 10);
+        wheel.schedule(1, START + 5_000);
+
+        assertEquals(List.of(), wheel.advanceTo(START + 4_999));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(1L), wheel.advanceTo(START + 5_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlineBeyondTheTopLevelIsReparkedUntilDue() {
+        // Two levels cover 64^2 = 4096 ticks
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 2, START);
+        wheel.schedule(1, START + 100_000);
+        wheel.schedule(2, START + 4_096);
+
+        assertEquals(List.of(), wheel.advanceTo(START + 4_095));
+        assertEquals(List.of(2L), wheel.advanceTo(START + 4_096));
+        assertEquals(List.of(), wheel.advanceTo(START + 99_999));
+        assertEquals(List.of(1L), wheel.advanceTo(START + 100_000));
+    }
+
+    @Test
+    void largeJumpReturnsEverythingDueAndKeepsTheRest() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 4, START);
+        for (long id = 0; id < 1_000; id++) {
+            wheel.schedule(id, START + 1 + id * 9_973);  // up to ~10M ticks, beyond 64^3
+        }
+        wheel.schedule(5_000, START + 30_000_000);
+
+        List<Long> due = wheel.advanceTo(START + 10_000_000);
+
+        assertEquals(1_000, due.size());
+        assertEquals(1_000, due.stream().distinct().count());
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(), wheel.advanceTo(START + 29_999_999));
+        assertEquals(List.of(5_000L), wheel.advanceTo(START + 30_000_000));
+    }
+}
@@ -0,0 +1,43 @@
+package com.url.shortner.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.ZZ_Result;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two devices of the same one-time link are remembered at once - both race to create the
+ * link's fingerprint set. Neither may be lost, or that device's repeat click costs a query.
+ */
+@JCStressTest
+@Description("Concurrent markSeen calls for one link are all visible afterwards")
+@Outcome(id = "true, true", expect = ACCEPTABLE, desc = "Both devices remembered")
+@Outcome(expect = FORBIDDEN, desc = "A device was lost")
+@State
+public class OneTimeAccessCacheStress {
+
+    private final OneTimeAccessCache cache = new OneTimeAccessCache(new SimpleMeterRegistry(), 100, 16, 60);
+
+    @Actor
+    public void firstDevice() {
+        cache.markSeen("link", "device-a");
+    }
+
+    @Actor
+    public void secondDevice() {
+        cache.markSeen("link", "device-b");
+    }
+
+    @Arbiter
+    public void check(ZZ_Result result) {
+        result.r1 = cache.isSeen("link", "device-a");
+        result.r2 = cache.isSeen("link", "device-b");
+    }
+}
@@ -0,0 +1,121 @@
+package com.url.shortner.service;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.dtos.UrlMappingDTO;
+import com.url.shortner.models.User;
+import com.url.shortner.repository.UserRepository;
+import com.url.shortner.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * OneTimeUrlConcurrencyTests - A one-time link resolves exactly once per device under parallel clicks
+ *
+ * The races call UrlMappingService directly on the owning shard, so OneTimeAccessCache cannot
+ * help and the device_access insert alone has to decide the winner.
+ */
+@SpringBootTest
+class OneTimeUrlConcurrencyTests {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private UrlMappingService urlMappingService;
+    @Autowired
+    private ShardedUrlMappingService shardedUrlMappingService;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private UrlMappingDTO link;
+
+    @BeforeEach
+    void createOneTimeLink() {
+        user = TestUsers.create(userRepository, "one-time");
+        link = urlMappingService.createShortUrl("https://example.com/" + user.getUsername(), user.getId(), user.getUsername(), true, null);
+    }
+
+    @AfterEach
+    void deleteLink() {
+        shardedUrlMappingService.deleteUrl(link.getId(), user.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void sameDeviceWinsExactlyOnce() throws Exception {
+        List<Boolean> results = race(i -> "same-device");
+
+        assertEquals(1, results.stream().filter(Boolean::booleanValue).count());
+        assertEquals(1, deviceAccessRows());
+        assertEquals(1, clickCount());
+        // Served from OneTimeAccessCache now that the access is committed
+        assertNull(shardedUrlMappingService.getOriginalUrl(link.getShortUrl(), "same-device"));
+    }
+
+    @Test
+    void everyDeviceWinsOnce() throws Exception {
+        List<Boolean> firstRound = race(i -> "device-" + i);
+        List<Boolean> secondRound = race(i -> "device-" + i);
+
+        assertEquals(THREADS, firstRound.stream().filter(Boolean::booleanValue).count());
+        assertEquals(0, secondRound.stream().filter(Boolean::booleanValue).count());
+        assertEquals(THREADS, deviceAccessRows());
+        assertEquals(THREADS, clickCount());
+    }
+
+    // All threads released at once; true for every call that resolved the link
+    private List<Boolean> race(IntFunction<String> fingerprint) throws Exception {
+        int shard = shardRouter.shardFor(link.getShortUrl());
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                String deviceFingerprint = fingerprint.apply(i);
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return shardRouter.onShard(shard, () -> urlMappingService.recordClick(
+                            urlMappingService.findByShortUrl(link.getShortUrl()), deviceFingerprint, null, null)) != null;
+                }));
+            }
+            start.countDown();
+            List<Boolean> results = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long deviceAccessRows() {
+        return shardRouter.onShard(shardRouter.shardFor(link.getShortUrl()), () -> jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM device_access WHERE url_mapping_id = ?", Long.class, link.getId()));
+    }
+
+    private long clickCount() {
+        return shardRouter.onShard(shardRouter.shardFor(link.getShortUrl()), () -> jdbcTemplate.queryForObject(
+                "SELECT click_count FROM url_mapping WHERE id = ?", Long.class, link.getId()));
+    }
+}
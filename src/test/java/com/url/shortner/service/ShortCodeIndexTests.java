@@ -0,0 +1,207 @@
+package com.url.shortner.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ShortCodeIndexTests - Entries, capacity limits and reuse of the mapped file across restarts
+ */
+class ShortCodeIndexTests {
+
+    private static final long SLOTS = 16;  // capacity 12
+    private static final long DATA_BYTES = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private ShortCodeIndex index;
+
+    @AfterEach
+    void close() throws IOException {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    void putGetRemove() throws IOException {
+        index = open(SLOTS, DATA_BYTES);
+
+        assertTrue(index.put("abcdEFGH", 1, 7L, "https://example.com/a", 1_700_000_000_000L));
+        assertTrue(index.put("abcdEFG9", 2, null, "https://example.com/é", null));
+
+        assertEquals(new ShortCodeIndex.Entry(1, 7L, "https://example.com/a", 1_700_000_000_000L), index.get("abcdEFGH"));
+        assertEquals(new ShortCodeIndex.Entry(2, null, "https://example.com/é", null), index.get("abcdEFG9"));
+        assertNull(index.get("abcdEFG8"));
+        assertEquals(2, index.size());
+
+        assertTrue(index.remove("abcdEFGH"));
+        assertFalse(index.remove("abcdEFGH"));
+        assertNull(index.get("abcdEFGH"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void onlyEightCharacterBase62CodesAreIndexed() throws IOException {
+        index = open(SLOTS, DATA_BYTES);
+
+        assertFalse(index.put("short", 1, null, "https://example.com", null));
+        assertFalse(index.put("abcd-EFG", 1, null, "https://example.com", null));
+        assertFalse(index.put("abcdEFGH", 1, null, null, null));
+        assertNull(index.get("short"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void replacingKeepsOneEntryAndUnchangedPutAppendsNothing() throws IOException {
+        index = open(SLOTS, DATA_BYTES);
+        index.put("abcdEFGH", 1, 7L, "https://example.com/a", null);
+        double usage = index.dataUsage();
+
+        assertTrue(index.put("abcdEFGH", 1, 7L, "https://example.com/a", null));
+        assertEquals(usage, index.dataUsage());
+
+        assertTrue(index.put("abcdEFGH", 1, 7L, "https://example.com/b", null));
+        assertEquals("https://example.com/b", index.get("abcdEFGH").originalUrl());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void fullSlotTableRejectsNewCodesButReusesTombstones() throws IOException {
+        index = open(SLOTS, DATA_BYTES);
+        for (int i = 0; i < index.capacity(); i++) {
+            assertTrue(index.put(code(i), i, null, "https://example.com/" + i, null));
+        }
+
+        assertFalse(index.put(code(99), 99, null, "https://example.com/99", null));
+        assertNull(index.get(code(99)));
+
+        // The removed code's slot lies on its own probe path, so it is taken again without a free slot
+        assertTrue(index.remove(code(3)));
+        assertTrue(index.put(code(3), 103, null, "https://example.com/3", null));
+        assertEquals(103, index.get(code(3)).id());
+        assertEquals(index.capacity(), index.size());
+        for (int i = 0; i < index.capacity(); i++) {
+            assertEquals("https://example.com/" + i, index.get(code(i)).originalUrl());
+        }
+    }
+
+    @Test
+    void fullRecordsRegionRejectsNewEntries() throws IOException {
+        // 36 header bytes + 20 URL bytes rounded to 56 - two records fit
+        index = open(SLOTS, 120);
+        String url = "https://example.com/";
+
+        assertTrue(index.put(code(0), 0, null, url, null));
+        assertTrue(index.put(code(1), 1, null, url, null));
+        assertFalse(index.put(code(2), 2, null, url, null));
+        assertNull(index.get(code(2)));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void cleanCloseKeepsEntriesAndWatermarks() throws IOException {
+        index = open(SLOTS, DATA_BYTES);
+        assertFalse(index.isRestored());
+        index.put("abcdEFGH", 1, 7L, "https://example.com/a", null);
+        index.setWatermark(0, 41);
+        index.setWatermark(2, 42);
+        index.close();
+
+        index = open(SLOTS, DATA_BYTES);
+
+        assertTrue(index.isRestored());
+        assertEquals(1, index.size());
+        assertEquals(new ShortCodeIndex.Entry(1, 7L, "https://example.com/a", null), index.get("abcdEFGH"));
+        assertEquals(41, index.watermark(0));
+        assertEquals(0, index.watermark(1));
+        assertEquals(42, index.watermark(2));
+    }
+
+    @Test
+    void dirtyFileIsRebuiltEmpty() throws IOException {
+        index = open(SLOTS, DATA_BYTES);
+        index.put("abcdEFGH", 1, 7L, "https://example.com/a", null);
+        index.setWatermark(0, 41);
+        index.close();
+        index = null;
+        // What a crash leaves behind: the clean flag at header offset 12 still unset
+        try (FileChannel channel = FileChannel.open(dir.resolve("index.bin"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), 12);
+        }
+
+        index = open(SLOTS, DATA_BYTES);
+
+        assertFalse(index.isRestored());
+        assertEquals(0, index.size());
+        assertNull(index.get("abcdEFGH"));
+        assertEquals(0, index.watermark(0));
+    }
+
+    @Test
+    void differentSizesAreRebuiltEmpty() throws IOException {
+        index = open(SLOTS, DATA_BYTES);
+        index.put("abcdEFGH", 1, 7L, "https://example.com/a", null);
+        index.close();
+
+        index = open(SLOTS * 2, DATA_BYTES);
+
+        assertFalse(index.isRestored());
+        assertNull(index.get("abcdEFGH"));
+    }
+
+    @Test
+    void watermarksArePerShard() throws IOException {
+        index = open(SLOTS, DATA_BYTES);
+        for (int shard = 0; shard < ShortCodeIndex.MAX_SHARDS; shard++) {
+            index.setWatermark(shard, 1000L + shard);
+        }
+
+        for (int shard = 0; shard < ShortCodeIndex.MAX_SHARDS; shard++) {
+            assertEquals(1000L + shard, index.watermark(shard));
+        }
+        assertThrows(IllegalArgumentException.class, () -> index.setWatermark(ShortCodeIndex.MAX_SHARDS, 1));
+        assertThrows(IllegalArgumentException.class, () -> index.watermark(-1));
+    }
+
+    @Test
+    void changesAfterCloseAreIgnored() throws IOException {
+        index = open(SLOTS, DATA_BYTES);
+        index.put("abcdEFGH", 1, 7L, "https://example.com/a", null);
+        index.close();
+
+        assertTrue(index.isClosed());
+        assertFalse(index.put("abcdEFG9", 2, null, "https://example.com/b", null));
+        assertFalse(index.remove("abcdEFGH"));
+        index.setWatermark(0, 5);
+        assertNull(index.get("abcdEFGH"));
+        index.close();
+
+        // Nothing after close reached the file
+        index = open(SLOTS, DATA_BYTES);
+        assertTrue(index.isRestored());
+        assertEquals(1, index.size());
+        assertEquals(0, index.watermark(0));
+    }
+
+    private ShortCodeIndex open(long slots, long dataBytes) throws IOException {
+        return ShortCodeIndex.open(dir.resolve("index.bin"), slots, dataBytes);
+    }
+
+    private static String code(int i) {
+        return String.format("code%04d", i);
+    }
+}
@@ -0,0 +1,60 @@
+package com.url.shortner.service;
+
+import com.url.shortner.models.UrlMapping;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jcstress.annotations.Actor;
+import org.openjdk.jcstress.annotations.Arbiter;
+import org.openjdk.jcstress.annotations.Description;
+import org.openjdk.jcstress.annotations.JCStressTest;
+import org.openjdk.jcstress.annotations.Outcome;
+import org.openjdk.jcstress.annotations.State;
+import org.openjdk.jcstress.infra.results.III_Result;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.openjdk.jcstress.annotations.Expect.ACCEPTABLE;
+import static org.openjdk.jcstress.annotations.Expect.FORBIDDEN;
+
+/**
+ * Two redirects look up the same code at once. Both must get the loaded link (1); the third value
+ * is the most queries that ran at the same time. Without single-flight, overlapping lookups would
+ * both be inside the loader together and report 2.
+ */
+@JCStressTest
+@Description("Concurrent lookups of one code never run the query twice at once")
+@Outcome(id = "1, 1, 1", expect = ACCEPTABLE, desc = "At most one query in flight")
+@Outcome(id = "1, 1, 2", expect = FORBIDDEN, desc = "Two queries for the same code ran at once")
+@Outcome(expect = FORBIDDEN, desc = "A caller got no result")
+@State
+public class ShortUrlLookupCoalescerStress {
+
+    private final ShortUrlLookupCoalescer coalescer = new ShortUrlLookupCoalescer(new SimpleMeterRegistry(), true, 10_000);
+    private final UrlMapping link = new UrlMapping();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    @Actor
+    public void first(III_Result result) {
+        result.r1 = coalescer.lookup("viral", this::load) == link ? 1 : 0;
+    }
+
+    @Actor
+    public void second(III_Result result) {
+        result.r2 = coalescer.lookup("viral", this::load) == link ? 1 : 0;
+    }
+
+    @Arbiter
+    public void count(III_Result result) {
+        result.r3 = maxRunning.get();
+    }
+
+    // Stays inside for a moment, like a query would, so overlapping callers get a chance to meet here
+    private UrlMapping load() {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        for (int i = 0; i < 100; i++) {
+            Thread.onSpinWait();
+        }
+        running.decrementAndGet();
+        return link;
+    }
+}
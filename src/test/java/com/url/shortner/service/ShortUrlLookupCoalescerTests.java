@@ -0,0 +1,190 @@
+package com.url.shortner.service;
+
+import com.url.shortner.datasource.JumpConsistentHashShardMap;
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.models.UrlMapping;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ShortUrlLookupCoalescerTests - What callers that arrive during a running lookup get
+ *
+ * The first caller's loader blocks until released; the others are only let go once their threads
+ * are parked on its result, so every overlap here is certain rather than likely.
+ */
+class ShortUrlLookupCoalescerTests {
+
+    private static final int WAITERS = 3;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ShortUrlLookupCoalescer coalescer = new ShortUrlLookupCoalescer(meterRegistry, true, 10_000);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final CountDownLatch loading = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<Thread> threads = new ArrayList<>();
+
+    @AfterEach
+    void releaseLoader() {
+        release.countDown();
+        threads.forEach(Thread::interrupt);
+    }
+
+    @Test
+    void waitersShareTheResult() throws Exception {
+        UrlMapping link = new UrlMapping();
+        FutureTask<UrlMapping> leader = start(() -> coalescer.lookup("viral00", blockingLoader(() -> link)));
+        List<FutureTask<UrlMapping>> waiters = startWaiters("viral00");
+
+        release.countDown();
+
+        assertSame(link, leader.get(10, TimeUnit.SECONDS));
+        for (FutureTask<UrlMapping> waiter : waiters) {
+            assertSame(link, waiter.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(WAITERS, coalesced());
+    }
+
+    @Test
+    void missingLinkIsSharedToo() throws Exception {
+        FutureTask<UrlMapping> leader = start(() -> coalescer.lookup("unknown", blockingLoader(() -> null)));
+        List<FutureTask<UrlMapping>> waiters = startWaiters("unknown");
+
+        release.countDown();
+
+        assertNull(leader.get(10, TimeUnit.SECONDS));
+        for (FutureTask<UrlMapping> waiter : waiters) {
+            assertNull(waiter.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(WAITERS, coalesced());
+    }
+
+    @Test
+    void failedLookupFailsEveryWaiterWithTheSameException() throws Exception {
+        IllegalStateException failure = new IllegalStateException("database unavailable");
+        FutureTask<UrlMapping> leader = start(() -> coalescer.lookup("broken0", blockingLoader(() -> {
+            throw failure;
+        })));
+        List<FutureTask<UrlMapping>> waiters = startWaiters("broken0");
+
+        release.countDown();
+
+        assertSame(failure, assertThrows(ExecutionException.class, () -> leader.get(10, TimeUnit.SECONDS)).getCause());
+        for (FutureTask<UrlMapping> waiter : waiters) {
+            assertSame(failure, assertThrows(ExecutionException.class, () -> waiter.get(10, TimeUnit.SECONDS)).getCause());
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void waiterThatTimesOutQueriesItself() throws Exception {
+        ShortUrlLookupCoalescer impatient = new ShortUrlLookupCoalescer(meterRegistry, true, 50);
+        UrlMapping own = new UrlMapping();
+        start(() -> impatient.lookup("stuck00", blockingLoader(UrlMapping::new)));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+
+        assertSame(own, impatient.lookup("stuck00", () -> own));
+
+        assertEquals(1, meterRegistry.get("url_lookup.coalesce_timeouts").counter().count());
+        assertEquals(0, coalesced());
+    }
+
+    @Test
+    void otherCodesAndShardsAreNotShared() throws Exception {
+        start(() -> coalescer.lookup("viral00", blockingLoader(UrlMapping::new)));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        UrlMapping other = new UrlMapping();
+
+        assertSame(other, coalescer.lookup("other00", () -> other));
+        ShardRouter shardRouter = new ShardRouter(new JumpConsistentHashShardMap(2), null, 0);
+        try {
+            assertSame(other, shardRouter.onShard(1, () -> coalescer.lookup("viral00", () -> other)));
+        } finally {
+            shardRouter.shutdown();
+        }
+        assertEquals(0, coalesced());
+    }
+
+    @Test
+    void nothingIsKeptAfterTheLookup() {
+        coalescer.lookup("viral00", () -> null);
+        UrlMapping link = new UrlMapping();
+
+        assertSame(link, coalescer.lookup("viral00", () -> link));
+        assertEquals(0, coalesced());
+    }
+
+    @Test
+    void disabledRunsEveryLoader() {
+        ShortUrlLookupCoalescer disabled = new ShortUrlLookupCoalescer(meterRegistry, false, 10_000);
+        UrlMapping link = new UrlMapping();
+
+        assertSame(link, disabled.lookup("viral00", () -> link));
+        assertSame(link, disabled.lookup("viral00", () -> link));
+        assertEquals(0, coalesced());
+    }
+
+    private Supplier<UrlMapping> blockingLoader(Supplier<UrlMapping> result) {
+        return () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return result.get();
+        };
+    }
+
+    // Started once the leader is inside its loader; returns when all of them wait for its result
+    private List<FutureTask<UrlMapping>> startWaiters(String shortUrl) throws InterruptedException {
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        List<FutureTask<UrlMapping>> waiters = new ArrayList<>();
+        List<Thread> waiterThreads = new ArrayList<>();
+        for (int i = 0; i < WAITERS; i++) {
+            waiters.add(start(() -> coalescer.lookup(shortUrl, () -> {
+                loads.incrementAndGet();
+                return new UrlMapping();
+            })));
+            waiterThreads.add(threads.getLast());
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!waiterThreads.stream().allMatch(thread -> thread.getState() == Thread.State.TIMED_WAITING)) {
+            assertTrue(System.currentTimeMillis() < deadline, "waiters did not park");
+            Thread.sleep(1);
+        }
+        return waiters;
+    }
+
+    private <T> FutureTask<T> start(Callable<T> work) {
+        FutureTask<T> task = new FutureTask<>(work);
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        threads.add(thread);
+        thread.start();
+        return task;
+    }
+
+    private long coalesced() {
+        return (long) meterRegistry.get("url_lookup.coalesced").counter().count();
+    }
+}
@@ -0,0 +1,129 @@
+package com.url.shortner.service;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.dtos.UrlMappingDTO;
+import com.url.shortner.models.User;
+import com.url.shortner.repository.UserRepository;
+import com.url.shortner.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * UrlDeduplicatorTests - Same destination and options reuse the link; a hash match alone does not
+ */
+@SpringBootTest(properties = "url.dedup.enabled=true")
+@ActiveProfiles({"shards-local", "test"})
+class UrlDeduplicatorTests {
+
+    @Autowired
+    private UrlDeduplicator urlDeduplicator;
+    @Autowired
+    private UrlMappingService urlMappingService;
+    @Autowired
+    private ShardedUrlMappingService shardedUrlMappingService;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+    private final List<UrlMappingDTO> links = new ArrayList<>();
+
+    @BeforeEach
+    void createUser() {
+        user = TestUsers.create(userRepository, "dedup");
+    }
+
+    @AfterEach
+    void deleteLinks() {
+        links.forEach(link -> shardedUrlMappingService.deleteUrl(link.getId(), user.getId()));
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void normalizesOnlyTheCaseInsensitiveParts() {
+        assertEquals("https://example.com/", UrlDeduplicator.normalize(" HTTPS://Example.COM:443 "));
+        assertEquals("http://example.com/", UrlDeduplicator.normalize("http://example.com:80"));
+        assertEquals("http://example.com:8080/a", UrlDeduplicator.normalize("http://example.com:8080/a"));
+        assertEquals("https://user@example.com/Path?Q=1#Top", UrlDeduplicator.normalize("https://user@EXAMPLE.com/Path?Q=1#Top"));
+        // Not absolute, or not a URI at all: compared as typed
+        assertEquals("example.com/a", UrlDeduplicator.normalize("example.com/a"));
+        assertEquals("not a url", UrlDeduplicator.normalize(" not a url"));
+        assertEquals("", UrlDeduplicator.normalize(null));
+
+        assertEquals(urlDeduplicator.hashOf("https://Example.com"), urlDeduplicator.hashOf("https://example.com:443/"));
+        assertNotEquals(urlDeduplicator.hashOf("https://example.com/a"), urlDeduplicator.hashOf("https://example.com/A"));
+    }
+
+    @Test
+    void equivalentUrlReturnsTheExistingLink() {
+        UrlMappingDTO first = create("https://Example.com/" + user.getUsername(), false, null);
+        UrlMappingDTO second = create("https://example.com:443/" + user.getUsername(), false, null);
+
+        assertEquals(first.getId(), second.getId());
+        assertEquals(first.getShortUrl(), second.getShortUrl());
+    }
+
+    @Test
+    void optionsMustMatch() {
+        String url = "https://example.com/" + user.getUsername();
+        LocalDateTime expiresAt = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.SECONDS);
+        UrlMappingDTO plain = create(url, false, null);
+        UrlMappingDTO oneTime = create(url, true, null);
+        UrlMappingDTO expiring = create(url, false, expiresAt);
+
+        assertNotEquals(plain.getId(), oneTime.getId());
+        assertNotEquals(plain.getId(), expiring.getId());
+        assertNotEquals(oneTime.getId(), expiring.getId());
+        assertEquals(oneTime.getId(), create(url, true, null).getId());
+        assertEquals(expiring.getId(), create(url, false, expiresAt).getId());
+        assertNotEquals(expiring.getId(), create(url, false, expiresAt.plusMinutes(1)).getId());
+    }
+
+    @Test
+    void inactiveLinkIsNotReused() {
+        String url = "https://example.com/" + user.getUsername();
+        UrlMappingDTO first = create(url, false, null);
+        shardRouter.onShard(shardRouter.shardFor(first.getShortUrl()), () -> jdbcTemplate.update(
+                "UPDATE url_mapping SET is_active = false WHERE id = ?", first.getId()));
+
+        assertNotEquals(first.getId(), create(url, false, null).getId());
+    }
+
+    @Test
+    void hashCollisionIsConfirmedAgainstTheUrl() {
+        String url = "https://example.com/" + user.getUsername() + "/stored";
+        String other = "https://example.com/" + user.getUsername() + "/requested";
+        UrlMappingDTO stored = create(url, false, null);
+        // Give the stored link the requested URL's hash, as a 64-bit collision would
+        shardRouter.onShard(shardRouter.shardFor(stored.getShortUrl()), () -> jdbcTemplate.update(
+                "UPDATE url_mapping SET original_url_hash = ? WHERE id = ?", urlDeduplicator.hashOf(other), stored.getId()));
+
+        assertTrue(urlDeduplicator.findExisting(user.getId(), other, false, null).isEmpty());
+        assertNotEquals(stored.getId(), create(other, false, null).getId());
+    }
+
+    private UrlMappingDTO create(String url, boolean oneTime, LocalDateTime expiresAt) {
+        UrlMappingDTO link = urlMappingService.createShortUrl(url, user.getId(), user.getUsername(), oneTime, expiresAt);
+        if (links.stream().noneMatch(existing -> existing.getId().equals(link.getId()))) {
+            links.add(link);
+        }
+        return link;
+    }
+}
@@ -0,0 +1,255 @@
+package com.url.shortner.service;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.dtos.ChangeFeedDTO;
+import com.url.shortner.dtos.MappingChangeDTO;
+import com.url.shortner.models.User;
+import com.url.shortner.repository.UserRepository;
+import com.url.shortner.security.jwt.JwtUtils;
+import com.url.shortner.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * UrlMappingChangeFeedTests - Sequencing, cursors, retention and long polls on the local shards
+ *
+ * The scheduled sequencer of this context is pushed out to an hour so the tests decide when
+ * sequence() runs. Other cached test contexts may still number rows in the shared H2 shards,
+ * so the assertions only rely on what the change log guarantees, not on who numbered a row.
+ */
+@SpringBootTest(properties = {
+        "change-feed.sequence-interval-ms=3600000",
+        "change-feed.max-waiters=1",
+        "change-feed.retention-hours=72"})
+@AutoConfigureMockMvc
+@ActiveProfiles({"shards-local", "test"})
+class UrlMappingChangeFeedTests {
+
+    private static final int SHARD = 1;
+    private static final String INSERT_CHANGE =
+            "INSERT INTO url_mapping_change (url_mapping_id, short_url, change_type, changed_at) VALUES (?, ?, 'DELETE', ?)";
+
+    @Autowired
+    private UrlMappingChangeFeed changeFeed;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    private final List<String> markers = new ArrayList<>();
+
+    @AfterEach
+    void deleteChanges() {
+        markers.forEach(marker -> shardRouter.onShard(SHARD,
+                () -> jdbcTemplate.update("DELETE FROM url_mapping_change WHERE short_url = ?", marker)));
+    }
+
+    @Test
+    void uncommittedChangeIsNumberedOnlyAfterItsCommit() throws Exception {
+        String cursor = headCursor();
+        String late = marker();
+        String early = marker();
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // Inserted first, committed last - its row id is lower than the early change's
+            Future<?> lateWriter = executor.submit(() -> shardRouter.inTransaction(SHARD, () -> {
+                jdbcTemplate.update(INSERT_CHANGE, -1L, late, Timestamp.valueOf(LocalDateTime.now()));
+                inserted.countDown();
+                await(commit);
+                return null;
+            }));
+            assertTrue(inserted.await(10, TimeUnit.SECONDS));
+            insertCommitted(early, LocalDateTime.now());
+
+            changeFeed.sequence();
+
+            assertNotNull(versionOf(early));
+            Page first = drain(cursor);
+            assertTrue(first.shortUrls().contains(early));
+            assertFalse(first.shortUrls().contains(late));
+
+            commit.countDown();
+            lateWriter.get(10, TimeUnit.SECONDS);
+            changeFeed.sequence();
+
+            // Numbered after the cursor that already passed the early change, so it is not skipped
+            assertTrue(versionOf(late) > versionOf(early));
+            Page second = drain(first.cursor());
+            assertEquals(List.of(late), second.shortUrls().stream().filter(markers::contains).toList());
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void versionsFollowCommitOrder() {
+        String cursor = headCursor();
+        List<String> written = List.of(marker(), marker(), marker());
+        written.forEach(marker -> insertCommitted(marker, LocalDateTime.now()));
+
+        changeFeed.sequence();
+
+        List<MappingChangeDTO> changes = drain(cursor).changes().stream()
+                .filter(change -> markers.contains(change.getShortUrl()))
+                .toList();
+        assertEquals(written, changes.stream().map(MappingChangeDTO::getShortUrl).toList());
+        for (int i = 1; i < changes.size(); i++) {
+            assertTrue(changes.get(i).getVersion() > changes.get(i - 1).getVersion());
+        }
+    }
+
+    @Test
+    void pruneDropsOldChangesAndCursorsBehindThemResync() {
+        String staleCursor = headCursor();
+        String old = marker();
+        insertCommitted(old, LocalDateTime.now().minusHours(73));
+        changeFeed.sequence();
+        String currentCursor = drain(staleCursor).cursor();
+
+        changeFeed.prune();
+
+        assertNull(versionOf(old));
+        ChangeFeedDTO stale = page(staleCursor);
+        assertTrue(stale.isResync());
+        assertTrue(stale.getChanges().isEmpty());
+        assertEquals(headCursor(), stale.getCursor());
+        assertFalse(page(currentCursor).isResync());
+    }
+
+    @Test
+    void unusableCursorsResync() {
+        String head = headCursor();
+        assertEquals(shardRouter.shardCount(), head.split("\\.").length);
+
+        for (String cursor : List.of("abc", "1.x.3", "-1.0.0", "0.0", "0.0.0.0")) {
+            ChangeFeedDTO page = page(cursor);
+            assertTrue(page.isResync(), cursor);
+            assertEquals(head, page.getCursor(), cursor);
+        }
+        assertFalse(page(head).isResync());
+    }
+
+    @Test
+    void longPollWakesUpOnNewChangeAndExtraPollsAreRefused() throws Exception {
+        String cursor = headCursor();
+        DeferredResult<ChangeFeedDTO> parked = changeFeed.changesSince(cursor, 100, 10_000);
+        assertFalse(parked.hasResult());
+
+        // max-waiters is 1: no empty page (clients would ask again at once), but 503 with Retry-After
+        assertThrows(ChangeFeedBusyException.class, () -> changeFeed.changesSince(cursor, 100, 10_000));
+        User edge = TestUsers.create(userRepository, "feed-edge", "ROLE_EDGE");
+        try {
+            mockMvc.perform(get("/api/edge/changes")
+                            .param("since", cursor)
+                            .param("waitMs", "10000")
+                            .header("Authorization", "Bearer " + jwtUtils.generateToken(UserDetailsImpl.build(edge))))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "5"));
+        } finally {
+            userRepository.deleteById(edge.getId());
+        }
+
+        String written = marker();
+        insertCommitted(written, LocalDateTime.now());
+        changeFeed.sequence();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!parked.hasResult() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(parked.hasResult());
+        ChangeFeedDTO page = (ChangeFeedDTO) parked.getResult();
+        assertTrue(page.getChanges().stream().anyMatch(change -> written.equals(change.getShortUrl())));
+    }
+
+    private String marker() {
+        String marker = "feed-" + UUID.randomUUID();
+        markers.add(marker);
+        return marker;
+    }
+
+    private void insertCommitted(String marker, LocalDateTime changedAt) {
+        shardRouter.inTransaction(SHARD, () -> jdbcTemplate.update(INSERT_CHANGE, -1L, marker, Timestamp.valueOf(changedAt)));
+    }
+
+    private Long versionOf(String marker) {
+        return shardRouter.onShard(SHARD, () -> jdbcTemplate.query(
+                "SELECT version FROM url_mapping_change WHERE short_url = ?",
+                rs -> rs.next() ? rs.getObject(1, Long.class) : null, marker));
+    }
+
+    // A cursor that cannot be parsed answers resync with the current head; anything committed
+    // before the test is numbered first, so it never shows up as the test's own change
+    private String headCursor() {
+        changeFeed.sequence();
+        return page("resync").getCursor();
+    }
+
+    private ChangeFeedDTO page(String cursor) {
+        return (ChangeFeedDTO) changeFeed.changesSince(cursor, 1000, 0).getResult();
+    }
+
+    private Page drain(String cursor) {
+        List<MappingChangeDTO> changes = new ArrayList<>();
+        ChangeFeedDTO page;
+        do {
+            page = page(cursor);
+            assertFalse(page.isResync());
+            changes.addAll(page.getChanges());
+            cursor = page.getCursor();
+        } while (page.isHasMore());
+        return new Page(changes, cursor);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Page(List<MappingChangeDTO> changes, String cursor) {
+
+        List<String> shortUrls() {
+            return changes.stream().map(MappingChangeDTO::getShortUrl).toList();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.url.shortner.stress;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ThroughputReporter - Logs completed operations per second while a stress phase runs
+ *
+ * Workers call record() after every operation; a daemon thread prints the rate once a second
+ * and close() prints the average over the whole phase.
+ */
+@Slf4j
+final class ThroughputReporter implements AutoCloseable {
+
+    private final String phase;
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final ScheduledExecutorService ticker;
+    private final long startNanos = System.nanoTime();
+    private long lastCount;
+
+    ThroughputReporter(String phase) {
+        this.phase = phase;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stress-throughput");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(this::report, 1, 1, TimeUnit.SECONDS);
+    }
+
+    void record() {
+        operations.increment();
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    private void report() {
+        long total = operations.sum();
+        log.info("{}: {} ops/s ({} done, {} errors)", phase, total - lastCount, total, errors.sum());
+        lastCount = total;
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+        long total = operations.sum();
+        double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+        log.info("{}: {} ops in {} s - {} ops/s average, {} errors",
+                phase, total, String.format("%.2f", seconds), Math.round(total / seconds), errors.sum());
+    }
+}
@@ -0,0 +1,266 @@
+package com.url.shortner.stress;
+
+import com.url.shortner.datasource.ShardRouter;
+import com.url.shortner.dtos.UrlMappingDTO;
+import com.url.shortner.models.User;
+import com.url.shortner.repository.UserRepository;
+import com.url.shortner.service.ShardedUrlMappingService;
+import com.url.shortner.service.UrlMappingService;
+import com.url.shortner.support.TestUsers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * UrlMappingStressTests - Thousands of concurrent redirects, creations and deletions on embedded shards
+ *
+ * Runs against the shards-local H2 databases through ShardedUrlMappingService, the way the
+ * controllers call it, and checks the invariants the redirect path promises:
+ * - every served redirect is counted exactly once (click_count and click_event agree)
+ * - a one-time link is served once per device, however the attempts interleave
+ * - a link is never served after its delete returned, and leaves no rows behind
+ *
+ * Throughput is logged every second per phase. Size the run with -Dstress.threads and
+ * -Dstress.operations.
+ */
+@SpringBootTest
+@ActiveProfiles({"shards-local", "test", "stress"})
+class UrlMappingStressTests {
+
+    private static final int THREADS = Integer.getInteger("stress.threads", 16);
+    private static final int OPERATIONS = Integer.getInteger("stress.operations", 5000);
+    private static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36";
+
+    @Autowired
+    private UrlMappingService urlMappingService;
+    @Autowired
+    private ShardedUrlMappingService shardedUrlMappingService;
+    @Autowired
+    private ShardRouter shardRouter;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void createUser() {
+        user = TestUsers.create(userRepository, "stress");
+    }
+
+    @AfterEach
+    void deleteLinks() {
+        for (UrlMappingDTO link : shardedUrlMappingService.getUrlsByUser(user.getId(), user.getUsername())) {
+            shardedUrlMappingService.deleteUrl(link.getId(), user.getId());
+        }
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void concurrentRedirectsNeverLoseAClick() throws Exception {
+        List<UrlMappingDTO> links = createLinks(8, false);
+        AtomicLongArray served = new AtomicLongArray(links.size());
+
+        List<Throwable> errors = run("redirects", OPERATIONS, i -> {
+            int link = i % links.size();
+            if (shardedUrlMappingService.getOriginalUrl(links.get(link).getShortUrl(), null, USER_AGENT, null) != null) {
+                served.incrementAndGet(link);
+            }
+        });
+
+        assertNoErrors(errors);
+        for (int i = 0; i < links.size(); i++) {
+            long attempts = OPERATIONS / links.size() + (i < OPERATIONS % links.size() ? 1 : 0);
+            assertEquals(attempts, served.get(i), "served redirects of link " + i);
+            assertEquals(served.get(i), clickCount(links.get(i)), "click_count of link " + i);
+            assertEquals(served.get(i), clickRows(links.get(i)), "click_event rows of link " + i);
+        }
+    }
+
+    @Test
+    void oneTimeLinksServedOncePerDevice() throws Exception {
+        int devices = 64;
+        int attemptsPerDevice = 4;
+        List<UrlMappingDTO> links = createLinks(4, true);
+        int pairs = links.size() * devices;
+        AtomicIntegerArray served = new AtomicIntegerArray(pairs);
+
+        // Every (link, device) pair several times, in an order that mixes first and repeat clicks
+        List<Integer> attempts = new ArrayList<>(pairs * attemptsPerDevice);
+        for (int i = 0; i < pairs * attemptsPerDevice; i++) {
+            attempts.add(i % pairs);
+        }
+        Collections.shuffle(attempts, new Random(42));
+
+        List<Throwable> errors = run("one-time redirects", attempts.size(), i -> {
+            int pair = attempts.get(i);
+            UrlMappingDTO link = links.get(pair / devices);
+            if (shardedUrlMappingService.getOriginalUrl(link.getShortUrl(), "device-" + (pair % devices)) != null) {
+                served.incrementAndGet(pair);
+            }
+        });
+
+        assertNoErrors(errors);
+        for (int pair = 0; pair < pairs; pair++) {
+            assertEquals(1, served.get(pair), "link " + pair / devices + ", device " + pair % devices);
+        }
+        for (UrlMappingDTO link : links) {
+            assertEquals(devices, deviceAccessRows(link));
+            assertEquals(devices, clickCount(link));
+        }
+    }
+
+    @Test
+    void deletedLinksAreNeverServedAgain() throws Exception {
+        List<UrlMappingDTO> known = new CopyOnWriteArrayList<>(createLinks(32, false));
+        Map<String, UrlMappingDTO> live = new ConcurrentHashMap<>();
+        known.forEach(link -> live.put(link.getShortUrl(), link));
+        Set<String> deleted = ConcurrentHashMap.newKeySet();
+        Map<String, LongAdder> served = new ConcurrentHashMap<>();
+        AtomicInteger resurrections = new AtomicInteger();
+
+        // 15% creations, 10% deletions, the rest redirects to live and deleted links alike
+        List<Throwable> errors = run("create/redirect/delete", OPERATIONS, i -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int roll = random.nextInt(100);
+            if (roll < 15) {
+                UrlMappingDTO link = createLink(false);
+                live.put(link.getShortUrl(), link);
+                known.add(link);
+            } else if (roll < 25) {
+                UrlMappingDTO link = known.get(random.nextInt(known.size()));
+                if (live.remove(link.getShortUrl()) != null) {
+                    assertTrue(shardedUrlMappingService.deleteUrl(link.getId(), user.getId()), "delete " + link.getShortUrl());
+                    deleted.add(link.getShortUrl());
+                }
+            } else {
+                UrlMappingDTO link = known.get(random.nextInt(known.size()));
+                boolean deletedBefore = deleted.contains(link.getShortUrl());
+                if (shardedUrlMappingService.getOriginalUrl(link.getShortUrl(), null) != null) {
+                    served.computeIfAbsent(link.getShortUrl(), shortUrl -> new LongAdder()).increment();
+                    if (deletedBefore) {
+                        resurrections.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        assertNoErrors(errors);
+        assertEquals(0, resurrections.get(), "redirects served after the link was deleted");
+        for (UrlMappingDTO link : known) {
+            if (deleted.contains(link.getShortUrl())) {
+                assertNull(shardedUrlMappingService.getOriginalUrl(link.getShortUrl(), null));
+                assertEquals(0, mappingRows(link));
+                assertEquals(0, clickRows(link));
+            } else {
+                LongAdder clicks = served.get(link.getShortUrl());
+                long expected = clicks != null ? clicks.sum() : 0;
+                assertEquals(expected, clickCount(link), "click_count of " + link.getShortUrl());
+                assertEquals(expected, clickRows(link), "click_event rows of " + link.getShortUrl());
+            }
+        }
+    }
+
+    // Operations 0..operations-1 spread over THREADS workers released together
+    private List<Throwable> run(String phase, int operations, IntConsumer operation) throws InterruptedException {
+        List<Throwable> errors = new CopyOnWriteArrayList<>();
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try (ThroughputReporter reporter = new ThroughputReporter(phase)) {
+            for (int t = 0; t < THREADS; t++) {
+                executor.execute(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = next.getAndIncrement(); i < operations; i = next.getAndIncrement()) {
+                        try {
+                            operation.accept(i);
+                            reporter.record();
+                        } catch (Throwable e) {
+                            errors.add(e);
+                            reporter.recordError();
+                        }
+                    }
+                });
+            }
+            start.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES), phase + " did not finish");
+        } finally {
+            executor.shutdownNow();
+        }
+        return errors;
+    }
+
+    private static void assertNoErrors(List<Throwable> errors) {
+        assertTrue(errors.isEmpty(), () -> errors.size() + " operations failed, first: " + errors.getFirst());
+    }
+
+    private List<UrlMappingDTO> createLinks(int count, boolean oneTime) {
+        List<UrlMappingDTO> links = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            links.add(createLink(oneTime));
+        }
+        return links;
+    }
+
+    private UrlMappingDTO createLink(boolean oneTime) {
+        return urlMappingService.createShortUrl("https://example.com/stress/" + UUID.randomUUID(),
+                user.getId(), user.getUsername(), oneTime, null);
+    }
+
+    private long clickCount(UrlMappingDTO link) {
+        return onLinkShard(link, "SELECT click_count FROM url_mapping WHERE id = ?");
+    }
+
+    private long clickRows(UrlMappingDTO link) {
+        return onLinkShard(link, "SELECT COUNT(*) FROM click_event WHERE url_mapping_id = ?");
+    }
+
+    private long deviceAccessRows(UrlMappingDTO link) {
+        return onLinkShard(link, "SELECT COUNT(*) FROM device_access WHERE url_mapping_id = ?");
+    }
+
+    private long mappingRows(UrlMappingDTO link) {
+        return onLinkShard(link, "SELECT COUNT(*) FROM url_mapping WHERE id = ?");
+    }
+
+    private long onLinkShard(UrlMappingDTO link, String sql) {
+        return shardRouter.onShard(shardRouter.shardFor(link.getShortUrl()),
+                () -> jdbcTemplate.queryForObject(sql, Long.class, link.getId()));
+    }
+}
@@ -0,0 +1,32 @@
+package com.url.shortner.support;
+
+import com.url.shortner.models.User;
+import com.url.shortner.repository.UserRepository;
+
+import java.util.UUID;
+
+/**
+ * TestUsers - Throwaway accounts for tests that need a users row
+ *
+ * Usernames and emails get a random suffix, so test classes sharing the embedded databases
+ * never collide. The password is not a BCrypt hash - these accounts cannot log in.
+ */
+public final class TestUsers {
+
+    private TestUsers() {
+    }
+
+    public static User create(UserRepository userRepository, String prefix) {
+        return create(userRepository, prefix, "ROLE_USER");
+    }
+
+    public static User create(UserRepository userRepository, String prefix, String role) {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        User user = new User();
+        user.setUsername(prefix + "-" + suffix);
+        user.setEmail(prefix + "-" + suffix + "@example.com");
+        user.setPassword("x");
+        user.setRole(role);
+        return userRepository.saveAndFlush(user);
+    }
+}